@@ -0,0 +1,72 @@
+package com.efecavusoglu.couriertracking.benchmark;
+
+import com.efecavusoglu.couriertracking.CourierTrackingApplication;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateResponse;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end benchmark of CourierService.processBatchLocationUpdate against the in-memory H2 database.
+ * The application context is started once per trial without the web layer and without mock data.
+ * Each invocation ingests a fresh batch whose timestamps continue after the previous one, so locations are appended
+ * in timestamp order as they would be in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchLocationUpdateBenchmark {
+
+    private static final int COURIER_COUNT = 100;
+
+    @Param({"1", "100", "10000"})
+    private int batchSize;
+
+    private ConfigurableApplicationContext applicationContext;
+    private CourierService courierService;
+    private final Random random = new Random(42);
+    private LocalDateTime nextTimestamp = LocalDateTime.of(2025, 5, 25, 10, 0);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplication application = new SpringApplication(CourierTrackingApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        applicationContext = application.run(
+                "--couriertracking.mock.initialize=false",
+                "--spring.datasource.url=jdbc:h2:mem:benchmarkdb;DB_CLOSE_DELAY=-1",
+                "--logging.level.root=WARN");
+        courierService = applicationContext.getBean(CourierService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public ResponseEntity<List<CourierLocationUpdateResponse>> processBatchLocationUpdate() {
+        List<CourierLocationUpdateRequest> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            nextTimestamp = nextTimestamp.plusSeconds(1);
+            batch.add(new CourierLocationUpdateRequest(
+                    "BENCHMARK_COURIER_" + random.nextInt(COURIER_COUNT),
+                    40.95 + random.nextDouble() * 0.1,
+                    29.0 + random.nextDouble() * 0.15,
+                    nextTimestamp));
+        }
+        return courierService.processBatchLocationUpdate(batch);
+    }
+}
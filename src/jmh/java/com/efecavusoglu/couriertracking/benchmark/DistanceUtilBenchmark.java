@@ -0,0 +1,63 @@
+package com.efecavusoglu.couriertracking.benchmark;
+
+import com.efecavusoglu.couriertracking.util.DistanceUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the haversine distance calculation, run once per store candidate and per location pair,
+ * and of the array based batch calculations (Vector API when the module is added, scalar loops otherwise).
+ * Compare the kernels with -jvmArgsAppend -Dcouriertracking.distance.vectorized=false.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceUtilBenchmark {
+
+    private static final int POINT_COUNT = 1024;
+
+    private final double[] latitudes = new double[POINT_COUNT];
+    private final double[] longitudes = new double[POINT_COUNT];
+    private final double[] distances = new double[POINT_COUNT];
+    private final boolean[] mask = new boolean[POINT_COUNT];
+    private double[] cosLatitudes;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < POINT_COUNT; i++) {
+            latitudes[i] = 40.9 + random.nextDouble() * 0.2;
+            longitudes[i] = 28.9 + random.nextDouble() * 0.3;
+        }
+        cosLatitudes = DistanceUtil.cosLatitudes(latitudes);
+    }
+
+    @Benchmark
+    public double calculateDistance() {
+        int i = index++ & (POINT_COUNT - 1);
+        int j = (i + 1) & (POINT_COUNT - 1);
+        return DistanceUtil.calculateDistance(latitudes[i], longitudes[i], latitudes[j], longitudes[j]);
+    }
+
+    @Benchmark
+    public double[] calculateDistancesBatch() {
+        DistanceUtil.calculateDistances(41.0, 29.0, latitudes, longitudes, distances);
+        return distances;
+    }
+
+    @Benchmark
+    public int markWithinRadiusBatch() {
+        return DistanceUtil.markWithinRadius(41.0, 29.0, latitudes, longitudes, cosLatitudes, 0, POINT_COUNT, 100, mask);
+    }
+
+    @Benchmark
+    public double sumPathDistance() {
+        return DistanceUtil.sumPathDistance(latitudes, longitudes, 0, POINT_COUNT);
+    }
+}
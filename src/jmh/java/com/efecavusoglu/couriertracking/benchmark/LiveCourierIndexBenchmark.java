@@ -0,0 +1,72 @@
+package com.efecavusoglu.couriertracking.benchmark;
+
+import com.efecavusoglu.couriertracking.service.live.CourierPositionGrid;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the live courier queries over the latest positions of 50k active couriers, and of a position update.
+ * Couriers and query points are scattered around Istanbul, with the default cell size of the live index.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LiveCourierIndexBenchmark {
+
+    private static final int COURIER_COUNT = 50_000;
+    private static final int POINT_COUNT = 1024;
+    private static final double CELL_SIZE_METERS = 500;
+
+    private static final double MIN_LAT = 40.8;
+    private static final double MIN_LNG = 28.5;
+    private static final double LAT_SPREAD = 0.5;
+    private static final double LNG_SPREAD = 1.0;
+
+    private CourierPositionGrid grid;
+    private final double[][] points = new double[POINT_COUNT][];
+    private final String[] courierIds = new String[COURIER_COUNT];
+    private int index;
+    private long timestamp;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        grid = new CourierPositionGrid(CELL_SIZE_METERS);
+        for (int i = 0; i < COURIER_COUNT; i++) {
+            courierIds[i] = "courier" + i;
+            grid.update(courierIds[i], MIN_LAT + random.nextDouble() * LAT_SPREAD, MIN_LNG + random.nextDouble() * LNG_SPREAD, 0, System.nanoTime());
+        }
+        for (int i = 0; i < POINT_COUNT; i++) {
+            points[i] = new double[]{MIN_LAT + random.nextDouble() * LAT_SPREAD, MIN_LNG + random.nextDouble() * LNG_SPREAD};
+        }
+    }
+
+    @Benchmark
+    public List<CourierPositionGrid.CourierDistance> nearestTen() {
+        double[] point = nextPoint();
+        return grid.findNearest(point[0], point[1], 10, 0);
+    }
+
+    @Benchmark
+    public List<CourierPositionGrid.CourierDistance> withinTwoKilometers() {
+        double[] point = nextPoint();
+        return grid.findWithinRadius(point[0], point[1], 2_000, 0);
+    }
+
+    @Benchmark
+    public void update() {
+        double[] point = nextPoint();
+        grid.update(courierIds[index % COURIER_COUNT], point[0], point[1], ++timestamp, System.nanoTime());
+    }
+
+    private double[] nextPoint() {
+        index++;
+        return points[index & (POINT_COUNT - 1)];
+    }
+}
@@ -0,0 +1,79 @@
+package com.efecavusoglu.couriertracking.benchmark;
+
+import com.efecavusoglu.couriertracking.CourierTrackingApplication;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the bulk insert of 10k location rows, as done by saveAll in the batch ingestion path.
+ * Scores are rows per second (one operation = one row).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(LocationBatchInsertBenchmark.BATCH_SIZE)
+@Warmup(iterations = 15, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class LocationBatchInsertBenchmark {
+
+    static final int BATCH_SIZE = 10_000;
+
+    private ConfigurableApplicationContext applicationContext;
+    private CourierLocationRepository courierLocationRepository;
+    private TransactionTemplate transactionTemplate;
+    private final Random random = new Random(42);
+    private LocalDateTime nextTimestamp = LocalDateTime.of(2025, 5, 25, 10, 0);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplication application = new SpringApplication(CourierTrackingApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        applicationContext = application.run(
+                "--couriertracking.mock.initialize=false",
+                "--spring.datasource.url=jdbc:h2:mem:benchmarkdb;DB_CLOSE_DELAY=-1",
+                "--logging.level.root=WARN");
+        courierLocationRepository = applicationContext.getBean(CourierLocationRepository.class);
+        transactionTemplate = new TransactionTemplate(applicationContext.getBean(PlatformTransactionManager.class));
+    }
+
+    /**
+     * Empties the table after every iteration, so later iterations do not run against a heap full of in-memory H2 rows.
+     */
+    @TearDown(Level.Iteration)
+    public void deleteInsertedRows() {
+        transactionTemplate.executeWithoutResult(status -> courierLocationRepository.deleteAllInBatch());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public List<CourierLocationEntity> saveAll() {
+        List<CourierLocationEntity> locations = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            nextTimestamp = nextTimestamp.plusSeconds(1);
+            locations.add(CourierLocationEntity.builder()
+                    .courierId("BENCHMARK_COURIER_" + random.nextInt(100))
+                    .latitude(40.95 + random.nextDouble() * 0.1)
+                    .longitude(29.0 + random.nextDouble() * 0.15)
+                    .timestamp(nextTimestamp)
+                    .build());
+        }
+        return transactionTemplate.execute(status -> courierLocationRepository.saveAll(locations));
+    }
+}
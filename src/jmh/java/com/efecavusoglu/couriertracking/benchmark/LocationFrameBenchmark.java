@@ -0,0 +1,74 @@
+package com.efecavusoglu.couriertracking.benchmark;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.util.LocationFrameCodec;
+import com.efecavusoglu.couriertracking.util.MapperUtil;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of a batch request body into location entities: JSON (Jackson binding + MapperUtil, as the JSON endpoints do)
+ * vs. the binary location frame. Scored in location updates per second; the body sizes are printed on setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationFrameBenchmark {
+
+    private static final int BATCH_SIZE = 1_000;
+    private static final int COURIER_COUNT = 100;
+
+    private ObjectReader jsonReader;
+    private byte[] jsonBody;
+    private byte[] frameBody;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        LocalDateTime start = LocalDateTime.of(2025, 5, 25, 10, 0);
+        List<CourierLocationUpdateRequest> requests = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            requests.add(new CourierLocationUpdateRequest("BENCHMARK_COURIER_" + (i % COURIER_COUNT),
+                    40.9 + random.nextDouble() * 0.2, 28.9 + random.nextDouble() * 0.3, start.plusNanos(i * 1_234_567_891L)));
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule()).disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        jsonReader = objectMapper.readerFor(new TypeReference<List<CourierLocationUpdateRequest>>() {});
+        jsonBody = objectMapper.writeValueAsBytes(requests);
+        frameBody = LocationFrameCodec.encode(requests);
+        System.out.printf("%n%d location updates: JSON %d bytes, frame %d bytes%n", BATCH_SIZE, jsonBody.length, frameBody.length);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<CourierLocationEntity> json() throws IOException {
+        List<CourierLocationUpdateRequest> requests = jsonReader.readValue(jsonBody);
+        List<CourierLocationEntity> locations = new ArrayList<>(requests.size());
+        for (CourierLocationUpdateRequest request : requests) {
+            locations.add(MapperUtil.mapLocationUpdateRequestToLocationEntity(request));
+        }
+        return locations;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<CourierLocationEntity> frame() {
+        return LocationFrameCodec.decode(ByteBuffer.wrap(frameBody));
+    }
+}
@@ -0,0 +1,103 @@
+package com.efecavusoglu.couriertracking.benchmark;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.service.history.CourierTrack;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory benchmark of holding the location history in memory: one CourierLocationEntity per point (as read through
+ * the repository) vs. one columnar CourierTrack per courier. The score is the time to build the history, the
+ * bytesPerPoint counter is the heap retained by it (measured after full GCs). JMH sums event counters over the
+ * measurement iterations, hence a single one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms5g", "-Xmx5g"})
+public class LocationHistoryFootprintBenchmark {
+
+    private static final int COURIER_COUNT = 1_000;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 25, 0, 0);
+
+    public enum Representation { ENTITY, COLUMNAR }
+
+    @Param({"10000000"})
+    public int pointCount;
+
+    @Param({"ENTITY", "COLUMNAR"})
+    public Representation representation;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public double bytesPerPoint;
+    }
+
+    @Benchmark
+    public int buildHistory(Footprint footprint) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long usedBefore = usedHeapAfterGc(memory);
+
+        Object history = representation == Representation.ENTITY ? buildEntityHistory() : buildColumnarHistory();
+
+        footprint.bytesPerPoint = (double) (usedHeapAfterGc(memory) - usedBefore) / pointCount;
+        Reference.reachabilityFence(history);
+        return history.hashCode();
+    }
+
+    private Map<String, List<CourierLocationEntity>> buildEntityHistory() {
+        int pointsPerCourier = pointCount / COURIER_COUNT;
+        Map<String, List<CourierLocationEntity>> history = new HashMap<>();
+        for (int courier = 0; courier < COURIER_COUNT; courier++) {
+            String courierId = "courier-" + courier;
+            List<CourierLocationEntity> locations = new ArrayList<>(pointsPerCourier);
+            for (int i = 0; i < pointsPerCourier; i++) {
+                // rows read from DB do not share their strings and boxed ids
+                CourierLocationEntity location = CourierLocationEntity.builder()
+                        .courierId(new String(courierId))
+                        .latitude(40.9 + i * 1e-6)
+                        .longitude(28.9 + i * 1e-6)
+                        .timestamp(START.plusSeconds(i * 5L))
+                        .build();
+                location.setId((long) courier * pointsPerCourier + i + 1_000);
+                locations.add(location);
+            }
+            history.put(courierId, locations);
+        }
+        return history;
+    }
+
+    private Map<String, CourierTrack> buildColumnarHistory() {
+        int pointsPerCourier = pointCount / COURIER_COUNT;
+        long startMillis = CourierTrack.toEpochMillis(START);
+        Map<String, CourierTrack> history = new HashMap<>();
+        for (int courier = 0; courier < COURIER_COUNT; courier++) {
+            CourierTrack track = new CourierTrack();
+            for (int i = 0; i < pointsPerCourier; i++) {
+                track.insert(40.9 + i * 1e-6, 28.9 + i * 1e-6, startMillis + i * 5_000L);
+            }
+            track.trimToSize();
+            history.put("courier-" + courier, track);
+        }
+        return history;
+    }
+
+    private static long usedHeapAfterGc(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
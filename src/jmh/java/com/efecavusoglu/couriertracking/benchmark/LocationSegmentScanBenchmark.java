@@ -0,0 +1,90 @@
+package com.efecavusoglu.couriertracking.benchmark;
+
+import com.efecavusoglu.couriertracking.service.archive.LocationSegment;
+import com.efecavusoglu.couriertracking.service.archive.LocationSegmentWriter;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scan throughput of a memory-mapped location archive segment: decoding every point of every courier.
+ * The segment holds GPS-like traces (a ping every 5 seconds, moving a few meters); its size per point and
+ * compression ratio against 24 bytes per point (latitude, longitude, timestamp as fixed width values) are printed on setup.
+ * The points counter is the scan throughput in points per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LocationSegmentScanBenchmark {
+
+    private static final int COURIER_COUNT = 1_000;
+    private static final int RAW_POINT_BYTES = 2 * Double.BYTES + Long.BYTES;
+
+    @Param({"10000000"})
+    public int pointCount;
+
+    private Path directory;
+    private LocationSegment segment;
+    private List<String> courierIds;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ScannedPoints {
+        public long points;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("segment-benchmark");
+        Path file = directory.resolve("benchmark.seg");
+        Random random = new Random(42);
+        long start = 1_735_718_400_000L;
+        int pointsPerCourier = pointCount / COURIER_COUNT;
+        courierIds = new ArrayList<>(COURIER_COUNT);
+
+        long sizeBytes;
+        try (LocationSegmentWriter writer = LocationSegmentWriter.create(file)) {
+            for (int courier = 0; courier < COURIER_COUNT; courier++) {
+                String courierId = String.format("courier-%05d", courier);
+                courierIds.add(courierId);
+                double latitude = 40.9 + random.nextDouble() * 0.2;
+                double longitude = 28.9 + random.nextDouble() * 0.3;
+                for (int i = 0; i < pointsPerCourier; i++) {
+                    // ~0-15 meters per ping
+                    latitude += (random.nextDouble() - 0.5) * 0.00015;
+                    longitude += (random.nextDouble() - 0.5) * 0.0002;
+                    writer.append(courierId, latitude, longitude, start + i * 5_000L + random.nextInt(200));
+                }
+            }
+            sizeBytes = writer.finish();
+        }
+        segment = LocationSegment.open(file);
+        System.out.printf("%nSegment: %d points, %d bytes, %.2f bytes/point, compression ratio %.1f%n",
+                segment.getPointCount(), sizeBytes, (double) sizeBytes / segment.getPointCount(),
+                (double) segment.getPointCount() * RAW_POINT_BYTES / sizeBytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("benchmark.seg"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public double scanSegment(ScannedPoints scannedPoints) {
+        double[] checksum = new double[1];
+        for (String courierId : courierIds) {
+            scannedPoints.points += segment.forEachPoint(courierId, (latitude, longitude, epochMillis) -> checksum[0] += latitude + longitude);
+        }
+        return checksum[0];
+    }
+}
@@ -0,0 +1,50 @@
+package com.efecavusoglu.couriertracking.benchmark;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateResponse;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
+import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
+import com.efecavusoglu.couriertracking.util.MapperUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of the request -> entity -> response/store entry mappings done for every ingested location.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperUtilBenchmark {
+
+    private CourierLocationUpdateRequest request;
+    private CourierLocationEntity locationEntity;
+    private StoreEntity store;
+
+    @Setup
+    public void setUp() {
+        request = new CourierLocationUpdateRequest("BENCHMARK_COURIER", 40.9923307, 29.1244229, LocalDateTime.of(2025, 5, 25, 10, 0));
+        locationEntity = MapperUtil.mapLocationUpdateRequestToLocationEntity(request);
+        store = StoreEntity.builder().storeName("Benchmark Store").latitude(40.9923307).longitude(29.1244229).build();
+    }
+
+    @Benchmark
+    public CourierLocationEntity mapLocationUpdateRequestToLocationEntity() {
+        return MapperUtil.mapLocationUpdateRequestToLocationEntity(request);
+    }
+
+    @Benchmark
+    public CourierLocationUpdateResponse mapLocationEntityToLocationResponse() {
+        return MapperUtil.mapLocationEntityToLocationResponse(locationEntity);
+    }
+
+    @Benchmark
+    public CourierStoreEntryEntity mapLocationEntityToStoreEntryEntity() {
+        return MapperUtil.mapLocationEntityToStoreEntryEntity(store, locationEntity);
+    }
+}
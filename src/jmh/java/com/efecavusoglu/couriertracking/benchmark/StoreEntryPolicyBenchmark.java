@@ -0,0 +1,116 @@
+package com.efecavusoglu.couriertracking.benchmark;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
+import com.efecavusoglu.couriertracking.repository.CourierStoreEntryRepository;
+import com.efecavusoglu.couriertracking.repository.StoreRepository;
+import com.efecavusoglu.couriertracking.service.StoreCatalogLoader;
+import com.efecavusoglu.couriertracking.service.StoreService;
+import com.efecavusoglu.couriertracking.service.metrics.IngestionMetrics;
+import com.efecavusoglu.couriertracking.service.storeentry.LastStoreEntryLookup;
+import com.efecavusoglu.couriertracking.service.storeentry.StoreEntryCooldownCache;
+import com.efecavusoglu.couriertracking.service.storeentry.TimeAndLocationBasedStoreEntryPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Benchmark of store entry evaluation for a single location, across store catalog sizes.
+ * Mirrors CourierService: candidate stores are looked up through the policy, then canTriggerStoreEntry runs per candidate.
+ * Repositories are mocked, so the numbers only reflect the in-memory part of the decision.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StoreEntryPolicyBenchmark {
+
+    private static final int LOCATION_COUNT = 1024;
+
+    // stores and couriers are scattered around Istanbul
+    private static final double MIN_LAT = 40.8;
+    private static final double MIN_LNG = 28.5;
+    private static final double LAT_SPREAD = 0.5;
+    private static final double LNG_SPREAD = 1.0;
+
+    @Param({"5", "1000", "100000"})
+    private int storeCount;
+
+    private StoreService storeService;
+    private TimeAndLocationBasedStoreEntryPolicy storeEntryPolicy;
+    private LastStoreEntryLookup lastStoreEntryLookup;
+    private final CourierLocationEntity[] locations = new CourierLocationEntity[LOCATION_COUNT];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<StoreEntity> stores = new ArrayList<>(storeCount);
+        for (int i = 0; i < storeCount; i++) {
+            StoreEntity store = StoreEntity.builder()
+                    .storeName("Benchmark Store " + i)
+                    .latitude(MIN_LAT + random.nextDouble() * LAT_SPREAD)
+                    .longitude(MIN_LNG + random.nextDouble() * LNG_SPREAD)
+                    .build();
+            store.setId((long) i);
+            stores.add(store);
+        }
+
+        StoreRepository storeRepository = mock(StoreRepository.class);
+        when(storeRepository.findAll()).thenReturn(stores);
+        storeService = new StoreService(storeRepository, mock(StoreCatalogLoader.class));
+        ReflectionTestUtils.setField(storeService, "STORE_INDEX_CELL_SIZE_METERS", 250.0);
+        storeService.publishSnapshot();
+
+        CourierStoreEntryRepository courierStoreEntryRepository = mock(CourierStoreEntryRepository.class);
+        when(courierStoreEntryRepository.findFirstByCourierIdAndStoreIdOrderByTimestampDesc(any(), any())).thenReturn(Optional.empty());
+        IngestionMetrics ingestionMetrics = new IngestionMetrics(new SimpleMeterRegistry());
+        StoreEntryCooldownCache storeEntryCooldownCache = new StoreEntryCooldownCache(ingestionMetrics);
+        ReflectionTestUtils.setField(storeEntryCooldownCache, "REENTRY_COOLDOWN_MINUTES", 1L);
+        ReflectionTestUtils.setField(storeEntryCooldownCache, "MAX_ENTRIES", 100_000);
+
+        lastStoreEntryLookup = storeEntryCooldownCache.lookupBackedBy(courierStoreEntryRepository);
+
+        storeEntryPolicy = new TimeAndLocationBasedStoreEntryPolicy(ingestionMetrics);
+        ReflectionTestUtils.setField(storeEntryPolicy, "STORE_PROXIMITY_RADIUS_METERS", 100.0);
+        ReflectionTestUtils.setField(storeEntryPolicy, "REENTRY_COOLDOWN_MINUTES", 1L);
+
+        LocalDateTime timestamp = LocalDateTime.of(2025, 5, 25, 10, 0);
+        for (int i = 0; i < LOCATION_COUNT; i++) {
+            // every other location is placed right next to a store, so both the hit and the miss paths are measured
+            StoreEntity nearbyStore = stores.get(random.nextInt(stores.size()));
+            double latitude = i % 2 == 0 ? nearbyStore.getLatitude() + 0.0002 : MIN_LAT + random.nextDouble() * LAT_SPREAD;
+            double longitude = i % 2 == 0 ? nearbyStore.getLongitude() + 0.0002 : MIN_LNG + random.nextDouble() * LNG_SPREAD;
+            locations[i] = CourierLocationEntity.builder()
+                    .courierId("BENCHMARK_COURIER_" + (i % 16))
+                    .latitude(latitude)
+                    .longitude(longitude)
+                    .timestamp(timestamp.plusSeconds(i))
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public boolean canTriggerStoreEntry() {
+        CourierLocationEntity location = locations[index++ & (LOCATION_COUNT - 1)];
+        for (StoreEntity store : storeEntryPolicy.findCandidateStores(location, storeService)) {
+            if (storeEntryPolicy.canTriggerStoreEntry(store, location, lastStoreEntryLookup)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,12 +1,22 @@
 package com.efecavusoglu.couriertracking.controller;
 
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationPointResponse;
 import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
 import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateResponse;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.service.CourierLocationStreamService;
 import com.efecavusoglu.couriertracking.service.CourierService;
+import com.efecavusoglu.couriertracking.util.LocationFrameCodec;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -15,6 +25,7 @@ import java.util.List;
 public class CourierController {
 
     private final CourierService courierService;
+    private final CourierLocationStreamService courierLocationStreamService;
 
     /**
      * Handles a single courier location update.
@@ -37,13 +48,69 @@ public class CourierController {
     }
 
     /**
-     * Gets the total travel distance for a specific courier.
+     * Handles a single courier location update sent as a binary location frame (see LocationFrameCodec).
+     * @param locations The decoded location frame, must hold exactly one update.
+     * @return ResponseEntity to indicate request success or failure.
+     */
+    @PostMapping(value = "/location", consumes = LocationFrameCodec.MEDIA_TYPE_VALUE)
+    public ResponseEntity<CourierLocationUpdateResponse> updateCourierLocationFrame(@RequestBody List<CourierLocationEntity> locations) {
+        if (locations.size() != 1) {
+            throw new IllegalArgumentException("A single location update frame must hold exactly one update.");
+        }
+        return courierService.processSingleLocation(locations.get(0));
+    }
+
+    /**
+     * Handles a list of courier location updates sent as a binary location frame (see LocationFrameCodec).
+     * @param locations The decoded location frame.
+     * @return ResponseEntity to indicate request success or failure.
+     */
+    @PostMapping(value = "/locations", consumes = LocationFrameCodec.MEDIA_TYPE_VALUE)
+    public ResponseEntity<List<CourierLocationUpdateResponse>> updateCourierLocationsFrame(@RequestBody List<CourierLocationEntity> locations) {
+        return courierService.processBatchLocations(locations);
+    }
+
+    /**
+     * Handles a newline-delimited JSON stream of courier location updates.
+     * The body is read incrementally and processed in chunks; responses are streamed back as NDJSON, chunk by chunk.
+     * @param requestBody NDJSON stream of courier location data, one update per line.
+     * @param response response to stream the NDJSON location update responses to.
+     */
+    @PostMapping(value = "/locations/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void updateCourierLocationStream(InputStream requestBody, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        courierLocationStreamService.processLocationStream(requestBody, response.getOutputStream());
+    }
+
+    /**
+     * Gets the total travel distance for a specific courier, optionally within a time window.
      * @param courierId The ID of the courier.
+     * @param from Start of the time window (inclusive, ISO date-time), unbounded if omitted.
+     * @param to End of the time window (inclusive, ISO date-time), unbounded if omitted.
      * @return Value of distance traveled by the courier or null if not found.
      */
     @GetMapping("/{courierId}/distance")
-    public ResponseEntity<Double> getTotalTravelDistance(@PathVariable String courierId) {
-        return courierService.getTotalTravelDistance(courierId);
+    public ResponseEntity<Double> getTotalTravelDistance(@PathVariable String courierId,
+                                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                         @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        if (from == null && to == null) {
+            return courierService.getTotalTravelDistance(courierId);
+        }
+        return courierService.getTravelDistanceBetween(courierId, from, to);
+    }
+
+    /**
+     * Gets the locations of a specific courier, optionally within a time window.
+     * @param courierId The ID of the courier.
+     * @param from Start of the time window (inclusive, ISO date-time), unbounded if omitted.
+     * @param to End of the time window (inclusive, ISO date-time), unbounded if omitted.
+     * @return Locations of the courier in timestamp order.
+     */
+    @GetMapping("/{courierId}/locations")
+    public ResponseEntity<List<CourierLocationPointResponse>> getLocationHistory(@PathVariable String courierId,
+                                                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return courierService.getLocationHistory(courierId, from, to);
     }
 
 
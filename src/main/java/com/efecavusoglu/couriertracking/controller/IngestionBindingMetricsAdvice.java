@@ -0,0 +1,57 @@
+package com.efecavusoglu.couriertracking.controller;
+
+import com.efecavusoglu.couriertracking.service.metrics.IngestionMetrics;
+import com.efecavusoglu.couriertracking.service.metrics.IngestionStage;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdviceAdapter;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+/**
+ * Times the JSON binding of CourierController's location update request bodies as the binding ingestion stage.
+ * The body is read on the request thread between beforeBodyRead and afterBodyRead, so the running sample is kept in a ThreadLocal.
+ */
+@ControllerAdvice(assignableTypes = CourierController.class)
+public class IngestionBindingMetricsAdvice extends RequestBodyAdviceAdapter {
+
+    private final ThreadLocal<IngestionMetrics.StageSample> runningSample = new ThreadLocal<>();
+    private final IngestionMetrics ingestionMetrics;
+
+    public IngestionBindingMetricsAdvice(IngestionMetrics ingestionMetrics) {
+        this.ingestionMetrics = ingestionMetrics;
+    }
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                           Class<? extends HttpMessageConverter<?>> converterType) {
+        runningSample.set(ingestionMetrics.start(IngestionStage.BINDING));
+        return inputMessage;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                Class<? extends HttpMessageConverter<?>> converterType) {
+        IngestionMetrics.StageSample sample = runningSample.get();
+        if (sample != null) {
+            runningSample.remove();
+            sample.stop(body instanceof Collection<?> updates ? updates.size() : 1);
+        }
+        return body;
+    }
+
+    @Override
+    public Object handleEmptyBody(Object body, HttpInputMessage inputMessage, MethodParameter parameter, Type targetType,
+                                  Class<? extends HttpMessageConverter<?>> converterType) {
+        runningSample.remove();
+        return body;
+    }
+}
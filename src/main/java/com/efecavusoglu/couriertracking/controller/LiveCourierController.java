@@ -0,0 +1,47 @@
+package com.efecavusoglu.couriertracking.controller;
+
+import com.efecavusoglu.couriertracking.model.dto.LiveCourierResponse;
+import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
+import com.efecavusoglu.couriertracking.service.StoreService;
+import com.efecavusoglu.couriertracking.service.live.LiveCourierIndex;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/live")
+@RequiredArgsConstructor
+public class LiveCourierController {
+
+    private final LiveCourierIndex liveCourierIndex;
+    private final StoreService storeService;
+
+    /**
+     * Gets the active couriers nearest to a point, by their latest position.
+     * @param latitude Latitude of the point.
+     * @param longitude Longitude of the point.
+     * @param k Maximum number of couriers to return.
+     * @return Couriers with their latest position and distance to the point, nearest first.
+     */
+    @GetMapping("/couriers/nearest")
+    public ResponseEntity<List<LiveCourierResponse>> getNearestCouriers(@RequestParam double latitude,
+                                                                        @RequestParam double longitude,
+                                                                        @RequestParam(defaultValue = "10") int k) {
+        return ResponseEntity.ok(liveCourierIndex.findNearest(latitude, longitude, k));
+    }
+
+    /**
+     * Gets the active couriers within a radius of a store, by their latest position.
+     * @param storeId The ID of the store.
+     * @param radius Radius around the store in meters.
+     * @return Couriers with their latest position and distance to the store, nearest first.
+     */
+    @GetMapping("/stores/{storeId}/couriers")
+    public ResponseEntity<List<LiveCourierResponse>> getCouriersNearStore(@PathVariable Long storeId,
+                                                                          @RequestParam(defaultValue = "2000") double radius) {
+        StoreEntity store = storeService.getStore(storeId);
+        return ResponseEntity.ok(liveCourierIndex.findWithinRadius(store.getLatitude(), store.getLongitude(), radius));
+    }
+}
@@ -0,0 +1,66 @@
+package com.efecavusoglu.couriertracking.controller;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.util.LocationFrameCodec;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Reads binary location frame request bodies (see LocationFrameCodec) into List&lt;CourierLocationEntity&gt;.
+ * Registered with Spring MVC's converters as a bean; it only reads, responses stay JSON.
+ */
+@Component
+public class LocationFrameHttpMessageConverter extends AbstractGenericHttpMessageConverter<List<CourierLocationEntity>> {
+
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(LocationFrameCodec.MEDIA_TYPE_VALUE);
+
+    private static final ResolvableType LOCATION_LIST_TYPE = ResolvableType.forClassWithGenerics(List.class, CourierLocationEntity.class);
+
+    public LocationFrameHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return List.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return LOCATION_LIST_TYPE.isAssignableFrom(ResolvableType.forType(type)) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    public List<CourierLocationEntity> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return readInternal(null, inputMessage);
+    }
+
+    @Override
+    protected List<CourierLocationEntity> readInternal(Class<? extends List<CourierLocationEntity>> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return LocationFrameCodec.decode(ByteBuffer.wrap(inputMessage.getBody().readAllBytes()));
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(List<CourierLocationEntity> locations, Type type, HttpOutputMessage outputMessage) {
+        throw new UnsupportedOperationException("Location frames are only read.");
+    }
+}
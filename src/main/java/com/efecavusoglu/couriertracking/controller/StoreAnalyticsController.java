@@ -0,0 +1,29 @@
+package com.efecavusoglu.couriertracking.controller;
+
+import com.efecavusoglu.couriertracking.model.dto.StoreVisitAnalyticsResponse;
+import com.efecavusoglu.couriertracking.service.StoreService;
+import com.efecavusoglu.couriertracking.service.analytics.StoreVisitAnalytics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/api/stores")
+@RequiredArgsConstructor
+public class StoreAnalyticsController {
+
+    private final StoreService storeService;
+    private final StoreVisitAnalytics storeVisitAnalytics;
+
+    /**
+     * Gets the rolling visit analytics of a store: entries in the last 5 minutes, hour and 24 hours, and unique couriers per day.
+     * @param storeId The ID of the store.
+     * @return ResponseEntity with the store's visit analytics as of now.
+     */
+    @GetMapping("/{storeId}/analytics")
+    public ResponseEntity<StoreVisitAnalyticsResponse> getStoreAnalytics(@PathVariable Long storeId) {
+        return ResponseEntity.ok(storeVisitAnalytics.getAnalytics(storeService.getStore(storeId), LocalDateTime.now()));
+    }
+}
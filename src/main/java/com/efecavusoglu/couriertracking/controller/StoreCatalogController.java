@@ -0,0 +1,45 @@
+package com.efecavusoglu.couriertracking.controller;
+
+import com.efecavusoglu.couriertracking.model.dto.StoreCatalogResponse;
+import com.efecavusoglu.couriertracking.service.StoreService;
+import com.efecavusoglu.couriertracking.service.storeentry.StoreCatalogSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+
+@RestController
+@RequestMapping("/api/stores/catalog")
+@RequiredArgsConstructor
+public class StoreCatalogController {
+
+    private final StoreService storeService;
+
+    /**
+     * Gets the version and size of the store catalog snapshot in use.
+     * @return ResponseEntity with the current snapshot's details.
+     */
+    @GetMapping
+    public ResponseEntity<StoreCatalogResponse> getStoreCatalog() {
+        return ResponseEntity.ok(toResponse(storeService.getStoreCatalog()));
+    }
+
+    /**
+     * Reloads the store catalog from the catalog file and publishes a new snapshot.
+     * The reload runs on its own thread; location updates keep using the previous snapshot until the new one is swapped in.
+     * @return ResponseEntity with the published snapshot's details, once it is published.
+     */
+    @PostMapping("/reload")
+    public CompletableFuture<ResponseEntity<StoreCatalogResponse>> reloadStoreCatalog() {
+        return storeService.reloadStoresAsync().thenApply(snapshot -> ResponseEntity.ok(toResponse(snapshot)));
+    }
+
+    private static StoreCatalogResponse toResponse(StoreCatalogSnapshot snapshot) {
+        return StoreCatalogResponse.builder()
+                .version(snapshot.getVersion())
+                .storeCount(snapshot.size())
+                .publishedAt(snapshot.getPublishedAt())
+                .build();
+    }
+}
@@ -0,0 +1,29 @@
+package com.efecavusoglu.couriertracking.controller;
+
+import com.efecavusoglu.couriertracking.service.events.StoreEntryEventBroadcaster;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/store-entries")
+@RequiredArgsConstructor
+public class StoreEntryEventController {
+
+    private final StoreEntryEventBroadcaster storeEntryEventBroadcaster;
+
+    /**
+     * Streams store entries as Server-Sent Events ("store-entry" events), as they are created.
+     * @param storeIds Stores to receive the entries of, all stores if omitted.
+     * @param courierIds Couriers to receive the entries of, all couriers if omitted.
+     * @return SseEmitter streaming the matching store entries.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamStoreEntries(@RequestParam(name = "storeId", required = false) Set<Long> storeIds,
+                                        @RequestParam(name = "courierId", required = false) Set<String> courierIds) {
+        return storeEntryEventBroadcaster.subscribe(storeIds == null ? Set.of() : storeIds, courierIds == null ? Set.of() : courierIds);
+    }
+}
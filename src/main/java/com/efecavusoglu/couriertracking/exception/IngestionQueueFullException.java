@@ -0,0 +1,10 @@
+package com.efecavusoglu.couriertracking.exception;
+
+/**
+ * Custom exception for location updates rejected because the write-behind queue is full.
+ */
+public class IngestionQueueFullException extends RuntimeException {
+    public IngestionQueueFullException(String msg) {
+        super(msg);
+    }
+}
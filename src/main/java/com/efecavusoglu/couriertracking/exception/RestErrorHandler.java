@@ -2,6 +2,7 @@ package com.efecavusoglu.couriertracking.exception;
 
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -19,21 +20,42 @@ public class RestErrorHandler {
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ResponseEntity<CourierAppExceptionTemplate> handleException(IllegalArgumentException e) {
         CourierAppExceptionTemplate template = createExceptionTemplate(e.getMessage());
-        return new ResponseEntity<>(template, HttpStatus.BAD_REQUEST);
+        return createResponse(template, HttpStatus.BAD_REQUEST);
     }
 
     @ExceptionHandler({InsufficientDataException.class, EntityNotFoundException.class})
     @ResponseStatus(HttpStatus.NOT_FOUND)
     public ResponseEntity<CourierAppExceptionTemplate> handleException(Exception e) {
         CourierAppExceptionTemplate template = createExceptionTemplate(e.getMessage());
-        return new ResponseEntity<>(template, HttpStatus.NOT_FOUND);
+        return createResponse(template, HttpStatus.NOT_FOUND);
     }
 
     @ExceptionHandler({PolicyNotFoundException.class})
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public ResponseEntity<CourierAppExceptionTemplate> handleException(PolicyNotFoundException e) {
         CourierAppExceptionTemplate template = createExceptionTemplate(e.getMessage());
-        return new ResponseEntity<>(template, HttpStatus.INTERNAL_SERVER_ERROR);
+        return createResponse(template, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @ExceptionHandler({StoreCatalogLoadException.class})
+    @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+    public ResponseEntity<CourierAppExceptionTemplate> handleException(StoreCatalogLoadException e) {
+        CourierAppExceptionTemplate template = createExceptionTemplate(e.getMessage());
+        return createResponse(template, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @ExceptionHandler({IngestionQueueFullException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ResponseEntity<CourierAppExceptionTemplate> handleException(IngestionQueueFullException e) {
+        CourierAppExceptionTemplate template = createExceptionTemplate(e.getMessage());
+        return createResponse(template, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    // content type is set explicitly, streaming endpoints may have preset another one (e.g. NDJSON) before failing
+    private ResponseEntity<CourierAppExceptionTemplate> createResponse(CourierAppExceptionTemplate template, HttpStatus status) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(template);
     }
 
     private CourierAppExceptionTemplate createExceptionTemplate(String message) {
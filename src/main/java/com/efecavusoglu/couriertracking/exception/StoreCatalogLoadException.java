@@ -0,0 +1,10 @@
+package com.efecavusoglu.couriertracking.exception;
+
+/**
+ * Custom exception for a store catalog file that cannot be found or read.
+ */
+public class StoreCatalogLoadException extends RuntimeException {
+    public StoreCatalogLoadException(String msg, Throwable cause) {
+        super(msg, cause);
+    }
+}
@@ -0,0 +1,99 @@
+package com.efecavusoglu.couriertracking.initializer;
+
+import com.efecavusoglu.couriertracking.service.loadgen.LoadGenerator;
+import com.efecavusoglu.couriertracking.service.loadgen.LoadProfile;
+import com.efecavusoglu.couriertracking.service.loadgen.RouteModel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * Runs the load generator at startup, after the mock data is initialized.
+ * couriertracking.loadgen.mode selects what is done with the configured load:
+ * INGEST runs it through CourierService in-process, RECORD writes it to an NDJSON file,
+ * REPLAY sends a recorded file to the REST endpoints of couriertracking.loadgen.replay.base_url.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class LoadGenerationRunner implements CommandLineRunner {
+
+    public enum Mode { NONE, INGEST, RECORD, REPLAY }
+
+    @Value("${couriertracking.loadgen.mode:NONE}")
+    private Mode MODE;
+
+    @Value("${couriertracking.loadgen.couriers:100}")
+    private int COURIERS;
+
+    @Value("${couriertracking.loadgen.pings_per_courier:100}")
+    private int PINGS_PER_COURIER;
+
+    @Value("${couriertracking.loadgen.ping_interval.seconds:5}")
+    private int PING_INTERVAL_SECONDS;
+
+    @Value("${couriertracking.loadgen.route_model:STORE_TOURS}")
+    private RouteModel ROUTE_MODEL;
+
+    @Value("${couriertracking.loadgen.store_density.per_km2:0}")
+    private double STORE_DENSITY_PER_KM2;
+
+    @Value("${couriertracking.loadgen.center.lat:40.993142}")
+    private double CENTER_LATITUDE;
+
+    @Value("${couriertracking.loadgen.center.lng:29.084008}")
+    private double CENTER_LONGITUDE;
+
+    @Value("${couriertracking.loadgen.area_radius.meters:5000}")
+    private double AREA_RADIUS_METERS;
+
+    @Value("${couriertracking.loadgen.seed:42}")
+    private long SEED;
+
+    @Value("${couriertracking.loadgen.batch_size:100}")
+    private int BATCH_SIZE;
+
+    @Value("${couriertracking.loadgen.target_rate:0}")
+    private double TARGET_RATE;
+
+    @Value("${couriertracking.loadgen.file:loadgen/locations.ndjson}")
+    private Path FILE;
+
+    @Value("${couriertracking.loadgen.replay.base_url:http://localhost:8080}")
+    private URI REPLAY_BASE_URL;
+
+    private final LoadGenerator loadGenerator;
+
+    @Override
+    public void run(String... args) throws Exception {
+        if (MODE == Mode.NONE) {
+            return;
+        }
+        if (BATCH_SIZE <= 0) {
+            throw new IllegalArgumentException("Load generator batch size must be positive.");
+        }
+        switch (MODE) {
+            case INGEST -> loadGenerator.ingest(profile(), BATCH_SIZE, TARGET_RATE);
+            case RECORD -> loadGenerator.record(profile(), FILE);
+            case REPLAY -> loadGenerator.replay(FILE, REPLAY_BASE_URL, BATCH_SIZE, TARGET_RATE);
+            default -> throw new IllegalStateException("Unexpected load generator mode: " + MODE);
+        }
+    }
+
+    private LoadProfile profile() {
+        LoadProfile profile = new LoadProfile(COURIERS, PINGS_PER_COURIER, PING_INTERVAL_SECONDS, ROUTE_MODEL, STORE_DENSITY_PER_KM2,
+                CENTER_LATITUDE, CENTER_LONGITUDE, AREA_RADIUS_METERS, LocalDateTime.now().withNano(0), "LOADGEN_COURIER_", SEED);
+        log.info("Load generator profile: {} couriers x {} pings every {} s ({} pings/s simulated), {}",
+                COURIERS, PINGS_PER_COURIER, PING_INTERVAL_SECONDS, profile.simulatedPingRate(), ROUTE_MODEL);
+        return profile;
+    }
+}
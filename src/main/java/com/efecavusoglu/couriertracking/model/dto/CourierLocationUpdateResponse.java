@@ -17,4 +17,10 @@ public class CourierLocationUpdateResponse {
     private double longitude;
     private LocalDateTime timestamp;
     private boolean isTriggeredStoreEntry;
+    // true if the location update is a duplicate of an already ingested one and was dropped
+    private boolean isDeduplicated;
+    // true if the location update was put into the reorder buffer in event-time mode, it is ingested (and evaluated) later
+    private boolean isBuffered;
+    // true if the location update was suppressed as a stationary ping, it is not persisted nor counted in the travel distance
+    private boolean isSuppressed;
 }
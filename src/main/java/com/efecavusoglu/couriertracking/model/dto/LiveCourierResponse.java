@@ -0,0 +1,20 @@
+package com.efecavusoglu.couriertracking.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LiveCourierResponse {
+    private String courierId;
+    private double latitude;
+    private double longitude;
+    private LocalDateTime timestamp;
+    private double distanceMeters;
+}
@@ -0,0 +1,18 @@
+package com.efecavusoglu.couriertracking.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StoreCatalogResponse {
+    private long version;
+    private int storeCount;
+    private LocalDateTime publishedAt;
+}
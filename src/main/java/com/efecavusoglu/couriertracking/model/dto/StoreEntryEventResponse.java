@@ -0,0 +1,19 @@
+package com.efecavusoglu.couriertracking.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StoreEntryEventResponse {
+    private String courierId;
+    private Long storeId;
+    private String storeName;
+    private LocalDateTime timestamp;
+}
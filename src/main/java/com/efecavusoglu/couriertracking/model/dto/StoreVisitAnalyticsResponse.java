@@ -0,0 +1,20 @@
+package com.efecavusoglu.couriertracking.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StoreVisitAnalyticsResponse {
+    private Long storeId;
+    private String storeName;
+    private long entriesLast5Minutes;
+    private long entriesLastHour;
+    private long entriesLast24Hours;
+    private long uniqueCouriersToday;
+    private long uniqueCouriersYesterday;
+}
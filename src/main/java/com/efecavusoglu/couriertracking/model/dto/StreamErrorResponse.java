@@ -0,0 +1,21 @@
+package com.efecavusoglu.couriertracking.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Last line of a location stream that failed after responses were already written.
+ * Same fields as the error body of a failed request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StreamErrorResponse {
+    private String exceptionMessage;
+    private LocalDateTime exceptionDate;
+}
@@ -0,0 +1,98 @@
+package com.efecavusoglu.couriertracking.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Running travel distance aggregate of a courier, maintained as locations are ingested.
+ * Keeps the last point (in timestamp order), the total distance and the number of points.
+ */
+@Entity
+@Table(name = "courier_distance_aggregates")
+@Getter
+@Setter
+@NoArgsConstructor
+public class CourierDistanceAggregateEntity {
+
+    @Id
+    private String courierId;
+
+    private double lastLatitude;
+
+    private double lastLongitude;
+
+    private LocalDateTime lastTimestamp;
+
+    @Column(nullable = false)
+    private double totalDistanceMeters;
+
+    @Column(nullable = false)
+    private long pointCount;
+
+    /**
+     * Appends a location after the last point of the aggregate.
+     * @param location location with a timestamp not before the last point
+     * @param distanceFromLastPoint distance in meters between the last point and the location, ignored for the first point
+     */
+    public void append(CourierLocationEntity location, double distanceFromLastPoint) {
+        if (pointCount > 0) {
+            totalDistanceMeters += distanceFromLastPoint;
+        }
+        lastLatitude = location.getLatitude();
+        lastLongitude = location.getLongitude();
+        lastTimestamp = location.getTimestamp();
+        pointCount++;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CourierDistanceAggregateEntity that)) return false;
+        return Double.compare(lastLatitude, that.lastLatitude) == 0 && Double.compare(lastLongitude, that.lastLongitude) == 0 && Double.compare(totalDistanceMeters, that.totalDistanceMeters) == 0 && pointCount == that.pointCount && Objects.equals(courierId, that.courierId) && Objects.equals(lastTimestamp, that.lastTimestamp);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(courierId, lastLatitude, lastLongitude, lastTimestamp, totalDistanceMeters, pointCount);
+    }
+
+    @Override
+    public String toString() {
+        return "CourierDistanceAggregateEntity{" +
+                "courierId='" + courierId + '\'' +
+                ", lastLatitude=" + lastLatitude +
+                ", lastLongitude=" + lastLongitude +
+                ", lastTimestamp=" + lastTimestamp +
+                ", totalDistanceMeters=" + totalDistanceMeters +
+                ", pointCount=" + pointCount +
+                '}';
+    }
+
+    //Builder Pattern
+    private CourierDistanceAggregateEntity(Builder builder) {
+        this.courierId = builder.courierId;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private String courierId;
+
+        public Builder() {}
+
+        public Builder courierId(String courierId) {
+            this.courierId = courierId;
+            return this;
+        }
+
+        public CourierDistanceAggregateEntity build() {
+            return new CourierDistanceAggregateEntity(this);
+        }
+    }
+}
@@ -9,14 +9,19 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "courier_locations")
+// the index serves the history loads and the neighbour lookups of late locations
+@Table(name = "courier_locations", indexes = {
+        @Index(name = "idx_courier_locations_courier_timestamp", columnList = "courier_id, timestamp")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class CourierLocationEntity {
 
+    // sequence ids (pooled optimizer, 100 ids per round-trip) instead of IDENTITY -- IDENTITY forces Hibernate to insert row by row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "courier_locations_seq")
+    @SequenceGenerator(name = "courier_locations_seq", sequenceName = "courier_locations_seq", allocationSize = 100)
     private Long id;
 
     @Column(nullable = false)
@@ -9,14 +9,19 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "courier_store_entries")
+// the index serves the cooldown lookups: last entry of a courier to a store, and last entries of a batch's couriers
+@Table(name = "courier_store_entries", indexes = {
+        @Index(name = "idx_courier_store_entries_courier_store_timestamp", columnList = "courier_id, store_id, timestamp")
+})
 @Getter
 @Setter
 @NoArgsConstructor
 public class CourierStoreEntryEntity {
 
+    // sequence ids (pooled optimizer, 100 ids per round-trip) instead of IDENTITY -- IDENTITY forces Hibernate to insert row by row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "courier_store_entries_seq")
+    @SequenceGenerator(name = "courier_store_entries_seq", sequenceName = "courier_store_entries_seq", allocationSize = 100)
     private Long id;
 
     @Column(nullable = false)
@@ -0,0 +1,129 @@
+package com.efecavusoglu.couriertracking.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Registry entry of a location archive segment file.
+ * Written in the same transaction that deletes the archived rows from courier_locations, so a segment file
+ * is part of the history if and only if it has an entry here.
+ */
+@Entity
+@Table(name = "location_archive_segments")
+@Getter
+@Setter
+@NoArgsConstructor
+public class LocationArchiveSegmentEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true)
+    private String fileName;
+
+    // DAY is a keyword in H2
+    @Column(name = "segment_day", nullable = false)
+    private LocalDate day;
+
+    @Column(nullable = false)
+    private long pointCount;
+
+    @Column(nullable = false)
+    private int courierCount;
+
+    @Column(nullable = false)
+    private long sizeBytes;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof LocationArchiveSegmentEntity that)) return false;
+        return pointCount == that.pointCount && courierCount == that.courierCount && sizeBytes == that.sizeBytes && Objects.equals(id, that.id) && Objects.equals(fileName, that.fileName) && Objects.equals(day, that.day) && Objects.equals(createdAt, that.createdAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, fileName, day, pointCount, courierCount, sizeBytes, createdAt);
+    }
+
+    @Override
+    public String toString() {
+        return "LocationArchiveSegmentEntity{" +
+                "id=" + id +
+                ", fileName='" + fileName + '\'' +
+                ", day=" + day +
+                ", pointCount=" + pointCount +
+                ", courierCount=" + courierCount +
+                ", sizeBytes=" + sizeBytes +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+
+    //Builder Pattern
+    private LocationArchiveSegmentEntity(Builder builder) {
+        this.fileName = builder.fileName;
+        this.day = builder.day;
+        this.pointCount = builder.pointCount;
+        this.courierCount = builder.courierCount;
+        this.sizeBytes = builder.sizeBytes;
+        this.createdAt = builder.createdAt;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private String fileName;
+        private LocalDate day;
+        private long pointCount;
+        private int courierCount;
+        private long sizeBytes;
+        private LocalDateTime createdAt;
+
+        public Builder() {}
+
+        public Builder fileName(String fileName) {
+            this.fileName = fileName;
+            return this;
+        }
+
+        public Builder day(LocalDate day) {
+            this.day = day;
+            return this;
+        }
+
+        public Builder pointCount(long pointCount) {
+            this.pointCount = pointCount;
+            return this;
+        }
+
+        public Builder courierCount(int courierCount) {
+            this.courierCount = courierCount;
+            return this;
+        }
+
+        public Builder sizeBytes(long sizeBytes) {
+            this.sizeBytes = sizeBytes;
+            return this;
+        }
+
+        public Builder createdAt(LocalDateTime createdAt) {
+            this.createdAt = createdAt;
+            return this;
+        }
+
+        public LocationArchiveSegmentEntity build() {
+            return new LocationArchiveSegmentEntity(this);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.efecavusoglu.couriertracking.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/**
+ * Record of a location compaction of one time range of courier_locations.
+ * Written in the same transaction that deletes the simplified-away rows, the latest toTimestamp is the watermark
+ * below which locations are not compacted again.
+ */
+@Entity
+@Table(name = "location_compaction_runs")
+@Getter
+@Setter
+@NoArgsConstructor
+public class LocationCompactionRunEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime fromTimestamp;
+
+    @Column(nullable = false)
+    private LocalDateTime toTimestamp;
+
+    @Column(nullable = false)
+    private int courierCount;
+
+    @Column(nullable = false)
+    private long rowsScanned;
+
+    @Column(nullable = false)
+    private long rowsRemoved;
+
+    @Column(nullable = false)
+    private double distanceBeforeMeters;
+
+    @Column(nullable = false)
+    private double distanceAfterMeters;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof LocationCompactionRunEntity that)) return false;
+        return courierCount == that.courierCount && rowsScanned == that.rowsScanned && rowsRemoved == that.rowsRemoved && Double.compare(distanceBeforeMeters, that.distanceBeforeMeters) == 0 && Double.compare(distanceAfterMeters, that.distanceAfterMeters) == 0 && Objects.equals(id, that.id) && Objects.equals(fromTimestamp, that.fromTimestamp) && Objects.equals(toTimestamp, that.toTimestamp) && Objects.equals(createdAt, that.createdAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, fromTimestamp, toTimestamp, courierCount, rowsScanned, rowsRemoved, distanceBeforeMeters, distanceAfterMeters, createdAt);
+    }
+
+    @Override
+    public String toString() {
+        return "LocationCompactionRunEntity{" +
+                "id=" + id +
+                ", fromTimestamp=" + fromTimestamp +
+                ", toTimestamp=" + toTimestamp +
+                ", courierCount=" + courierCount +
+                ", rowsScanned=" + rowsScanned +
+                ", rowsRemoved=" + rowsRemoved +
+                ", distanceBeforeMeters=" + distanceBeforeMeters +
+                ", distanceAfterMeters=" + distanceAfterMeters +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+
+    //Builder Pattern
+    private LocationCompactionRunEntity(Builder builder) {
+        this.fromTimestamp = builder.fromTimestamp;
+        this.toTimestamp = builder.toTimestamp;
+        this.courierCount = builder.courierCount;
+        this.rowsScanned = builder.rowsScanned;
+        this.rowsRemoved = builder.rowsRemoved;
+        this.distanceBeforeMeters = builder.distanceBeforeMeters;
+        this.distanceAfterMeters = builder.distanceAfterMeters;
+        this.createdAt = builder.createdAt;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private LocalDateTime fromTimestamp;
+        private LocalDateTime toTimestamp;
+        private int courierCount;
+        private long rowsScanned;
+        private long rowsRemoved;
+        private double distanceBeforeMeters;
+        private double distanceAfterMeters;
+        private LocalDateTime createdAt;
+
+        public Builder() {}
+
+        public Builder fromTimestamp(LocalDateTime fromTimestamp) {
+            this.fromTimestamp = fromTimestamp;
+            return this;
+        }
+
+        public Builder toTimestamp(LocalDateTime toTimestamp) {
+            this.toTimestamp = toTimestamp;
+            return this;
+        }
+
+        public Builder courierCount(int courierCount) {
+            this.courierCount = courierCount;
+            return this;
+        }
+
+        public Builder rowsScanned(long rowsScanned) {
+            this.rowsScanned = rowsScanned;
+            return this;
+        }
+
+        public Builder rowsRemoved(long rowsRemoved) {
+            this.rowsRemoved = rowsRemoved;
+            return this;
+        }
+
+        public Builder distanceBeforeMeters(double distanceBeforeMeters) {
+            this.distanceBeforeMeters = distanceBeforeMeters;
+            return this;
+        }
+
+        public Builder distanceAfterMeters(double distanceAfterMeters) {
+            this.distanceAfterMeters = distanceAfterMeters;
+            return this;
+        }
+
+        public Builder createdAt(LocalDateTime createdAt) {
+            this.createdAt = createdAt;
+            return this;
+        }
+
+        public LocationCompactionRunEntity build() {
+            return new LocationCompactionRunEntity(this);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.efecavusoglu.couriertracking.repository;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierDistanceAggregateEntity;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CourierDistanceAggregateRepository extends JpaRepository<CourierDistanceAggregateEntity, String> {
+
+    // row lock so concurrent ingestions of the same courier update the aggregate one after another
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from CourierDistanceAggregateEntity a where a.courierId = :courierId")
+    Optional<CourierDistanceAggregateEntity> findByCourierIdForUpdate(@Param("courierId") String courierId);
+}
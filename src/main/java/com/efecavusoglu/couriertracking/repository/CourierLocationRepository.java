@@ -4,10 +4,20 @@ import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CourierLocationRepository extends JpaRepository<CourierLocationEntity, Long> {
 
     List<CourierLocationEntity> findByCourierIdOrderByTimestampAsc(String courierId);
+
+    Optional<CourierLocationEntity> findFirstByCourierIdAndTimestampLessThanEqualOrderByTimestampDesc(String courierId, LocalDateTime timestamp);
+
+    Optional<CourierLocationEntity> findFirstByCourierIdAndTimestampGreaterThanOrderByTimestampAsc(String courierId, LocalDateTime timestamp);
+
+    Optional<CourierLocationEntity> findFirstByCourierIdOrderByTimestampDesc(String courierId);
+
+    boolean existsByCourierIdAndTimestampAndLatitudeAndLongitude(String courierId, LocalDateTime timestamp, double latitude, double longitude);
 }
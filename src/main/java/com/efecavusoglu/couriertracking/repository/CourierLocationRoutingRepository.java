@@ -0,0 +1,397 @@
+package com.efecavusoglu.couriertracking.repository;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.service.archive.PointConsumer;
+import com.efecavusoglu.couriertracking.service.history.CourierTrack;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Access to the persisted locations, routed either to the courier_locations table or -- with partitioning enabled --
+ * to one table per day, courier_locations_pYYYYMMDD. H2 has no native table partitioning, so the routing is done
+ * here: each read only queries the daily tables its time range can be in, and dropping a day of history is a
+ * DROP TABLE instead of a DELETE over the whole table.
+ * Daily tables are created on first use on a connection of their own, as DDL commits the transaction it runs in;
+ * their ids come from a shared sequence, so an id is unique over all days.
+ */
+@Repository
+@Slf4j
+public class CourierLocationRoutingRepository {
+
+    private static final String PARTITION_PREFIX = "courier_locations_p";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+    private static final String PARTITION_SEQUENCE = "courier_location_partitions_seq";
+    private static final String SELECT_PARTITIONS =
+            "SELECT table_name FROM information_schema.tables WHERE table_schema = 'PUBLIC' AND table_name LIKE 'COURIER_LOCATIONS_P%'";
+    private static final String LOCATION_COLUMNS = "id, courier_id, latitude, longitude, timestamp";
+    private static final int DELETE_CHUNK_SIZE = 10_000;
+
+    @Value("${couriertracking.partitioning.enabled:false}")
+    private boolean PARTITIONING_ENABLED;
+
+    private final CourierLocationRepository courierLocationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    // day -> table name of the daily tables that exist
+    private final ConcurrentSkipListMap<LocalDate, String> partitions = new ConcurrentSkipListMap<>();
+
+    public CourierLocationRoutingRepository(CourierLocationRepository courierLocationRepository, JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.courierLocationRepository = courierLocationRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+    }
+
+    @PostConstruct
+    public void loadPartitions() {
+        if (!PARTITIONING_ENABLED) {
+            return;
+        }
+        executeDdl("CREATE SEQUENCE IF NOT EXISTS " + PARTITION_SEQUENCE);
+        for (String tableName : jdbcTemplate.queryForList(SELECT_PARTITIONS, String.class)) {
+            String name = tableName.toLowerCase();
+            partitions.put(LocalDate.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX), name);
+        }
+        log.info("Location partitioning enabled, {} daily tables found", partitions.size());
+    }
+
+    public boolean isPartitioned() {
+        return PARTITIONING_ENABLED;
+    }
+
+    /**
+     * Days that have a table, oldest first. Empty if partitioning is disabled.
+     */
+    public List<LocalDate> getPartitionDays() {
+        return List.copyOf(partitions.keySet());
+    }
+
+    public CourierLocationEntity saveAndFlush(CourierLocationEntity location) {
+        if (!PARTITIONING_ENABLED) {
+            return courierLocationRepository.saveAndFlush(location);
+        }
+        insert(List.of(location));
+        return location;
+    }
+
+    /**
+     * Persists the locations; with partitioning enabled they are inserted right away, as with saveAllAndFlush.
+     */
+    public List<CourierLocationEntity> saveAll(List<CourierLocationEntity> locations) {
+        if (!PARTITIONING_ENABLED) {
+            return courierLocationRepository.saveAll(locations);
+        }
+        insert(locations);
+        return locations;
+    }
+
+    public List<CourierLocationEntity> saveAllAndFlush(List<CourierLocationEntity> locations) {
+        if (!PARTITIONING_ENABLED) {
+            return courierLocationRepository.saveAllAndFlush(locations);
+        }
+        insert(locations);
+        return locations;
+    }
+
+    /**
+     * Latest location of the courier; with partitioning enabled the daily tables are searched newest first.
+     */
+    public Optional<CourierLocationEntity> findFirstByCourierIdOrderByTimestampDesc(String courierId) {
+        if (!PARTITIONING_ENABLED) {
+            return courierLocationRepository.findFirstByCourierIdOrderByTimestampDesc(courierId);
+        }
+        return findFirst(partitions.descendingMap(), "WHERE courier_id = ? ORDER BY timestamp DESC", courierId);
+    }
+
+    /**
+     * Latest location of the courier at or before the timestamp; only the days up to the timestamp's are searched,
+     * newest first.
+     */
+    public Optional<CourierLocationEntity> findFirstByCourierIdAndTimestampLessThanEqualOrderByTimestampDesc(String courierId, LocalDateTime timestamp) {
+        if (!PARTITIONING_ENABLED) {
+            return courierLocationRepository.findFirstByCourierIdAndTimestampLessThanEqualOrderByTimestampDesc(courierId, timestamp);
+        }
+        return findFirst(partitions.headMap(timestamp.toLocalDate(), true).descendingMap(),
+                "WHERE courier_id = ? AND timestamp <= ? ORDER BY timestamp DESC", courierId, timestamp);
+    }
+
+    /**
+     * Earliest location of the courier after the timestamp; only the days from the timestamp's on are searched,
+     * oldest first.
+     */
+    public Optional<CourierLocationEntity> findFirstByCourierIdAndTimestampGreaterThanOrderByTimestampAsc(String courierId, LocalDateTime timestamp) {
+        if (!PARTITIONING_ENABLED) {
+            return courierLocationRepository.findFirstByCourierIdAndTimestampGreaterThanOrderByTimestampAsc(courierId, timestamp);
+        }
+        return findFirst(partitions.tailMap(timestamp.toLocalDate(), true),
+                "WHERE courier_id = ? AND timestamp > ? ORDER BY timestamp", courierId, timestamp);
+    }
+
+    /**
+     * Whether the exact location is persisted; with partitioning enabled only the timestamp's day is searched.
+     */
+    public boolean existsByCourierIdAndTimestampAndLatitudeAndLongitude(String courierId, LocalDateTime timestamp, double latitude, double longitude) {
+        if (!PARTITIONING_ENABLED) {
+            return courierLocationRepository.existsByCourierIdAndTimestampAndLatitudeAndLongitude(courierId, timestamp, latitude, longitude);
+        }
+        String partition = partitions.get(timestamp.toLocalDate());
+        return partition != null && !jdbcTemplate.queryForList("SELECT 1 FROM " + partition
+                        + " WHERE courier_id = ? AND timestamp = ? AND latitude = ? AND longitude = ? LIMIT 1", Integer.class,
+                courierId, timestamp, latitude, longitude).isEmpty();
+    }
+
+    public List<CourierLocationEntity> findByCourierIdOrderByTimestampAsc(String courierId) {
+        if (!PARTITIONING_ENABLED) {
+            return courierLocationRepository.findByCourierIdOrderByTimestampAsc(courierId);
+        }
+        List<CourierLocationEntity> locations = new ArrayList<>();
+        for (String partition : partitions.values()) {
+            locations.addAll(jdbcTemplate.query("SELECT " + LOCATION_COLUMNS + " FROM " + partition
+                    + " WHERE courier_id = ? ORDER BY timestamp", (resultSet, rowNum) -> mapLocation(resultSet), courierId));
+        }
+        return locations;
+    }
+
+    /**
+     * Streams the locations of a courier with timestamps within [from, to] in timestamp order, without materializing
+     * entities. With partitioning enabled only the days of the window are read.
+     * @param from start of the window (inclusive), unbounded if null
+     * @param to end of the window (inclusive), unbounded if null
+     */
+    public void forEachPoint(String courierId, LocalDateTime from, LocalDateTime to, PointConsumer consumer) {
+        RowCallbackHandler handler = resultSet -> consumer.accept(resultSet.getDouble(1), resultSet.getDouble(2),
+                CourierTrack.toEpochMillis(resultSet.getObject(3, LocalDateTime.class)));
+        if (!PARTITIONING_ENABLED) {
+            queryPoints("courier_locations", courierId, from, to, handler);
+            return;
+        }
+        LocalDate firstDay = from == null ? LocalDate.MIN : from.toLocalDate();
+        LocalDate lastDay = to == null ? LocalDate.MAX : to.toLocalDate();
+        if (firstDay.isAfter(lastDay)) {
+            return;
+        }
+        for (String partition : partitions.subMap(firstDay, true, lastDay, true).values()) {
+            queryPoints(partition, courierId, from, to, handler);
+        }
+    }
+
+    /**
+     * Oldest timestamp before the cutoff, null if there is none.
+     */
+    public LocalDateTime findOldestTimestampBefore(LocalDateTime cutoff) {
+        if (!PARTITIONING_ENABLED) {
+            return jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM courier_locations WHERE timestamp < ?", LocalDateTime.class, cutoff);
+        }
+        for (String partition : partitions.headMap(cutoff.toLocalDate(), true).values()) {
+            LocalDateTime oldest = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM " + partition + " WHERE timestamp < ?",
+                    LocalDateTime.class, cutoff);
+            if (oldest != null) {
+                return oldest;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Streams id, courier_id, latitude, longitude and timestamp of the locations within [from, to), in courier_id and
+     * timestamp order. The range must lie within one day.
+     */
+    public void queryDayRange(LocalDateTime from, LocalDateTime to, RowCallbackHandler handler) {
+        if (to.isAfter(from.toLocalDate().plusDays(1).atStartOfDay())) {
+            throw new IllegalArgumentException("Range " + from + " - " + to + " spans more than one day.");
+        }
+        String table = PARTITIONING_ENABLED ? partitions.get(from.toLocalDate()) : "courier_locations";
+        if (table != null) {
+            jdbcTemplate.query("SELECT " + LOCATION_COLUMNS + " FROM " + table
+                    + " WHERE timestamp >= ? AND timestamp < ? ORDER BY courier_id, timestamp", handler, from, to);
+        }
+    }
+
+    /**
+     * Deletes locations of the day by id, in chunks.
+     */
+    public void deleteByIds(LocalDate day, long[] ids, int count) {
+        String table = PARTITIONING_ENABLED ? partitions.get(day) : "courier_locations";
+        if (table == null) {
+            return;
+        }
+        String deleteByIds = "DELETE FROM " + table + " WHERE id = ANY(?)";
+        for (int from = 0; from < count; from += DELETE_CHUNK_SIZE) {
+            Long[] chunk = new Long[Math.min(DELETE_CHUNK_SIZE, count - from)];
+            for (int i = 0; i < chunk.length; i++) {
+                chunk[i] = ids[from + i];
+            }
+            jdbcTemplate.update(connection -> {
+                Array idArray = connection.createArrayOf("BIGINT", chunk);
+                PreparedStatement statement = connection.prepareStatement(deleteByIds);
+                statement.setArray(1, idArray);
+                return statement;
+            });
+        }
+    }
+
+    public long count() {
+        if (!PARTITIONING_ENABLED) {
+            return courierLocationRepository.count();
+        }
+        long count = 0;
+        for (String partition : partitions.values()) {
+            count += jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition, Long.class);
+        }
+        return count;
+    }
+
+    public void deleteAll() {
+        courierLocationRepository.deleteAll();
+        for (LocalDate day : partitions.keySet()) {
+            dropPartition(day);
+        }
+    }
+
+    /**
+     * Creates the table of the day if it does not exist yet.
+     */
+    public String createPartition(LocalDate day) {
+        String partition = partitions.get(day);
+        if (partition != null) {
+            return partition;
+        }
+        synchronized (partitions) {
+            return partitions.computeIfAbsent(day, newDay -> {
+                String tableName = PARTITION_PREFIX + newDay.format(PARTITION_SUFFIX);
+                executeDdl("CREATE TABLE IF NOT EXISTS " + tableName + " ("
+                                + "id BIGINT DEFAULT NEXT VALUE FOR " + PARTITION_SEQUENCE + " PRIMARY KEY, "
+                                + "courier_id VARCHAR(255) NOT NULL, "
+                                + "latitude DOUBLE PRECISION NOT NULL, "
+                                + "longitude DOUBLE PRECISION NOT NULL, "
+                                + "timestamp TIMESTAMP(6) NOT NULL)",
+                        "CREATE INDEX IF NOT EXISTS idx_" + tableName + "_courier_timestamp ON " + tableName + " (courier_id, timestamp)");
+                log.info("Created location partition {}", tableName);
+                return tableName;
+            });
+        }
+    }
+
+    /**
+     * Drops the tables of the days before the given day.
+     * @return number of dropped tables
+     */
+    public int dropPartitionsBefore(LocalDate day) {
+        int dropped = 0;
+        for (LocalDate partitionDay : partitions.headMap(day, false).keySet()) {
+            dropPartition(partitionDay);
+            dropped++;
+        }
+        return dropped;
+    }
+
+    /**
+     * Drops the table of the day if it holds no locations, e.g. once the day is archived.
+     * @return whether the table was dropped
+     */
+    public boolean dropPartitionIfEmpty(LocalDate day) {
+        String partition = partitions.get(day);
+        if (partition == null || jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition, Long.class) > 0) {
+            return false;
+        }
+        dropPartition(day);
+        return true;
+    }
+
+    private void dropPartition(LocalDate day) {
+        String partition = partitions.remove(day);
+        if (partition != null) {
+            executeDdl("DROP TABLE IF EXISTS " + partition);
+            log.info("Dropped location partition {}", partition);
+        }
+    }
+
+    private void insert(List<CourierLocationEntity> locations) {
+        Map<String, List<CourierLocationEntity>> locationsByPartition = new TreeMap<>();
+        for (CourierLocationEntity location : locations) {
+            locationsByPartition.computeIfAbsent(createPartition(location.getTimestamp().toLocalDate()), partition -> new ArrayList<>())
+                    .add(location);
+        }
+        locationsByPartition.forEach((partition, partitionLocations) -> jdbcTemplate.batchUpdate(
+                "INSERT INTO " + partition + " (courier_id, latitude, longitude, timestamp) VALUES (?, ?, ?, ?)",
+                partitionLocations, partitionLocations.size(), (statement, location) -> {
+                    statement.setString(1, location.getCourierId());
+                    statement.setDouble(2, location.getLatitude());
+                    statement.setDouble(3, location.getLongitude());
+                    statement.setObject(4, location.getTimestamp());
+                }));
+    }
+
+    private Optional<CourierLocationEntity> findFirst(NavigableMap<LocalDate, String> searchedPartitions, String condition, Object... args) {
+        for (String partition : searchedPartitions.values()) {
+            List<CourierLocationEntity> found = jdbcTemplate.query("SELECT " + LOCATION_COLUMNS + " FROM " + partition
+                    + " " + condition + " LIMIT 1", (resultSet, rowNum) -> mapLocation(resultSet), args);
+            if (!found.isEmpty()) {
+                return Optional.of(found.get(0));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void queryPoints(String table, String courierId, LocalDateTime from, LocalDateTime to, RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder("SELECT latitude, longitude, timestamp FROM ").append(table).append(" WHERE courier_id = ?");
+        List<Object> args = new ArrayList<>(3);
+        args.add(courierId);
+        if (from != null) {
+            sql.append(" AND timestamp >= ?");
+            args.add(from);
+        }
+        if (to != null) {
+            sql.append(" AND timestamp <= ?");
+            args.add(to);
+        }
+        jdbcTemplate.query(sql.append(" ORDER BY timestamp").toString(), handler, args.toArray());
+    }
+
+    /**
+     * Runs DDL on a connection of its own, in H2 DDL would commit the caller's transaction.
+     */
+    private void executeDdl(String... statements) {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            connection.setAutoCommit(true);
+            for (String sql : statements) {
+                statement.execute(sql);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not change location partitions: " + String.join("; ", statements), e);
+        }
+    }
+
+    private static CourierLocationEntity mapLocation(ResultSet resultSet) throws SQLException {
+        CourierLocationEntity location = CourierLocationEntity.builder()
+                .courierId(resultSet.getString(2))
+                .latitude(resultSet.getDouble(3))
+                .longitude(resultSet.getDouble(4))
+                .timestamp(resultSet.getObject(5, LocalDateTime.class))
+                .build();
+        location.setId(resultSet.getLong(1));
+        return location;
+    }
+}
@@ -2,12 +2,54 @@ package com.efecavusoglu.couriertracking.repository;
 
 import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface CourierStoreEntryRepository extends JpaRepository<CourierStoreEntryEntity, Long> {
 
     List<CourierStoreEntryEntity> findByCourierIdAndStoreIdOrderByTimestampDesc(String courierId, Long storeId);
+
+    Optional<CourierStoreEntryEntity> findFirstByCourierIdAndStoreIdOrderByTimestampDesc(String courierId, Long storeId);
+
+    /**
+     * Last entry timestamp per (courierId, storeId) of the given couriers, in one round-trip.
+     * Served from the (courier_id, store_id, timestamp) index.
+     */
+    @Query("SELECT e.courierId AS courierId, e.store.id AS storeId, MAX(e.timestamp) AS lastEntryTimestamp " +
+            "FROM CourierStoreEntryEntity e WHERE e.courierId IN :courierIds GROUP BY e.courierId, e.store.id")
+    List<LastStoreEntry> findLastEntriesByCourierIdIn(@Param("courierIds") Collection<String> courierIds);
+
+    /**
+     * Store entries with an id above the given one and a timestamp from the given one on, to catch store visit analytics up.
+     * Must be consumed within a transaction.
+     */
+    @Query("SELECT e.id AS id, e.store.id AS storeId, e.courierId AS courierId, e.timestamp AS timestamp " +
+            "FROM CourierStoreEntryEntity e WHERE e.id > :afterId AND e.timestamp >= :since")
+    Stream<StoreVisit> streamVisitsAfter(@Param("afterId") long afterId, @Param("since") LocalDateTime since);
+
+    interface LastStoreEntry {
+        String getCourierId();
+
+        Long getStoreId();
+
+        LocalDateTime getLastEntryTimestamp();
+    }
+
+    interface StoreVisit {
+        Long getId();
+
+        Long getStoreId();
+
+        String getCourierId();
+
+        LocalDateTime getTimestamp();
+    }
 }
@@ -0,0 +1,9 @@
+package com.efecavusoglu.couriertracking.repository;
+
+import com.efecavusoglu.couriertracking.model.entity.LocationArchiveSegmentEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface LocationArchiveSegmentRepository extends JpaRepository<LocationArchiveSegmentEntity, Long> {
+}
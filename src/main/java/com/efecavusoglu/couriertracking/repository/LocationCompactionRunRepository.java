@@ -0,0 +1,13 @@
+package com.efecavusoglu.couriertracking.repository;
+
+import com.efecavusoglu.couriertracking.model.entity.LocationCompactionRunEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface LocationCompactionRunRepository extends JpaRepository<LocationCompactionRunEntity, Long> {
+
+    Optional<LocationCompactionRunEntity> findFirstByOrderByToTimestampDesc();
+}
@@ -0,0 +1,236 @@
+package com.efecavusoglu.couriertracking.service;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierDistanceAggregateEntity;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.repository.CourierDistanceAggregateRepository;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRoutingRepository;
+import com.efecavusoglu.couriertracking.service.archive.LocationArchive;
+import com.efecavusoglu.couriertracking.service.history.CourierLocationHistoryStore;
+import com.efecavusoglu.couriertracking.service.history.CourierTrack;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistance;
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.sumPathDistance;
+
+/**
+ * Service class that maintains the running travel distance aggregate of each courier.
+ * Locations are folded into the aggregate as they are ingested, so the total distance can be answered without reading the history.
+ * Locations arriving in timestamp order are appended to the last point; late locations are spliced in between their
+ * neighbours in the history, which only needs the neighbours instead of a full rescan.
+ * The history spans the persisted locations and the location archive.
+ * The aggregate row of a new courier is inserted before it is locked, so concurrent first locations of a courier
+ * are folded in one after another instead of inserting the row twice.
+ */
+@Service
+@Slf4j
+public class CourierDistanceService {
+
+    private static final String INSERT_EMPTY_AGGREGATE =
+            "INSERT INTO courier_distance_aggregates (courier_id, last_latitude, last_longitude, total_distance_meters, point_count) VALUES (?, 0, 0, 0, 0)";
+
+    private final CourierDistanceAggregateRepository courierDistanceAggregateRepository;
+    private final CourierLocationRoutingRepository courierLocationRepository;
+    private final LocationArchive locationArchive;
+    private final CourierLocationHistoryStore courierLocationHistoryStore;
+    private final JdbcTemplate jdbcTemplate;
+
+    public CourierDistanceService(CourierDistanceAggregateRepository courierDistanceAggregateRepository,
+                                  CourierLocationRoutingRepository courierLocationRepository,
+                                  LocationArchive locationArchive,
+                                  CourierLocationHistoryStore courierLocationHistoryStore,
+                                  JdbcTemplate jdbcTemplate) {
+        this.courierDistanceAggregateRepository = courierDistanceAggregateRepository;
+        this.courierLocationRepository = courierLocationRepository;
+        this.locationArchive = locationArchive;
+        this.courierLocationHistoryStore = courierLocationHistoryStore;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Folds new locations into the distance aggregates of their couriers.
+     * Must be called BEFORE the locations are persisted, since the neighbours of late locations are looked up from DB.
+     * @param locations locations that are not persisted yet, in any order and for any number of couriers.
+     */
+    @Transactional
+    public void recordLocations(List<CourierLocationEntity> locations) {
+        // TreeMap so that aggregate rows are always locked in the same order -- avoids deadlocks between concurrent batches
+        Map<String, List<CourierLocationEntity>> locationsByCourier = locations.stream()
+                .collect(Collectors.groupingBy(CourierLocationEntity::getCourierId, TreeMap::new, Collectors.toList()));
+
+        locationsByCourier.forEach((courierId, courierLocations) -> {
+            courierLocations.sort(Comparator.comparing(CourierLocationEntity::getTimestamp));
+            CourierDistanceAggregateEntity aggregate = lockAggregate(courierId);
+            if (aggregate.getPointCount() == 0) {
+                // new row, or the courier's locations predate the aggregates
+                copyAggregate(buildAggregateFromHistory(courierId), aggregate);
+            }
+            foldIntoAggregate(aggregate, courierLocations);
+            courierDistanceAggregateRepository.save(aggregate);
+        });
+    }
+
+    /**
+     * Takes locations removed by a compaction out of the distance aggregate of their courier.
+     * The first and the last point of a compacted range are kept, so the aggregate's last point is not affected.
+     * Couriers without an aggregate are left alone, their aggregate is built from the compacted history later.
+     * @param courierId courier whose locations were removed
+     * @param removedDistanceMeters how much shorter the courier's path became
+     * @param removedPoints number of removed locations
+     */
+    @Transactional
+    public void recordCompaction(String courierId, double removedDistanceMeters, int removedPoints) {
+        courierDistanceAggregateRepository.findByCourierIdForUpdate(courierId).ifPresent(aggregate -> {
+            aggregate.setTotalDistanceMeters(Math.max(0.0, aggregate.getTotalDistanceMeters() - removedDistanceMeters));
+            aggregate.setPointCount(Math.max(0, aggregate.getPointCount() - removedPoints));
+            courierDistanceAggregateRepository.save(aggregate);
+        });
+    }
+
+    /**
+     * Gets the distance aggregate of a courier.
+     * Couriers whose locations predate the aggregates are aggregated from their history, the aggregate row is only
+     * written by ingestion.
+     * @param courierId courier ID to be checked.
+     * @return the aggregate, with a point count of 0 if the courier has no locations.
+     */
+    @Transactional(readOnly = true)
+    public CourierDistanceAggregateEntity getAggregate(String courierId) {
+        return courierDistanceAggregateRepository.findById(courierId)
+                .filter(aggregate -> aggregate.getPointCount() > 0)
+                .orElseGet(() -> buildAggregateFromHistory(courierId));
+    }
+
+    /**
+     * Locks the aggregate row of a courier, inserting an empty one first if the courier has none.
+     * A concurrent transaction inserting the same row makes the insert wait for it, then fail with a duplicate key;
+     * the row is locked once it is committed. The insert goes through JDBC so that the failed statement does not
+     * mark the surrounding transaction rollback-only.
+     */
+    private CourierDistanceAggregateEntity lockAggregate(String courierId) {
+        Optional<CourierDistanceAggregateEntity> aggregate = courierDistanceAggregateRepository.findByCourierIdForUpdate(courierId);
+        if (aggregate.isPresent()) {
+            return aggregate.get();
+        }
+        try {
+            jdbcTemplate.update(INSERT_EMPTY_AGGREGATE, courierId);
+        } catch (DuplicateKeyException e) {
+            log.debug("Distance aggregate of courier {} was created concurrently.", courierId);
+        }
+        return courierDistanceAggregateRepository.findByCourierIdForUpdate(courierId)
+                .orElseThrow(() -> new IllegalStateException("Distance aggregate of courier " + courierId + " could not be created."));
+    }
+
+    /**
+     * Folds timestamp-ordered locations of a single courier into its aggregate.
+     * Late locations (before the last point) are grouped into runs that fall between the same two persisted points,
+     * and each run replaces the segment between those points: prev -> run -> next instead of prev -> next.
+     */
+    private void foldIntoAggregate(CourierDistanceAggregateEntity aggregate, List<CourierLocationEntity> sortedLocations) {
+        int i = 0;
+        while (i < sortedLocations.size() && aggregate.getPointCount() > 0
+                && sortedLocations.get(i).getTimestamp().isBefore(aggregate.getLastTimestamp())) {
+            CourierLocationEntity runStart = sortedLocations.get(i);
+            Optional<CourierLocationEntity> previous = findPreviousLocation(aggregate.getCourierId(), runStart.getTimestamp());
+            Optional<CourierLocationEntity> next = findNextLocation(aggregate.getCourierId(), runStart.getTimestamp());
+            if (next.isEmpty()) {
+                // the aggregate is ahead of the persisted history, nothing to splice into -- rebuild it from scratch
+                log.warn("Distance aggregate of courier {} is out of sync with its history, rebuilding.", aggregate.getCourierId());
+                copyAggregate(buildAggregateFromHistory(aggregate.getCourierId()), aggregate);
+                continue;
+            }
+
+            double delta = 0.0;
+            int runEnd = i;
+            while (runEnd + 1 < sortedLocations.size() && sortedLocations.get(runEnd + 1).getTimestamp().isBefore(next.get().getTimestamp())) {
+                delta += distanceBetween(sortedLocations.get(runEnd), sortedLocations.get(runEnd + 1));
+                runEnd++;
+            }
+            delta += distanceBetween(sortedLocations.get(runEnd), next.get());
+            if (previous.isPresent()) {
+                delta += distanceBetween(previous.get(), runStart) - distanceBetween(previous.get(), next.get());
+            }
+
+            aggregate.setTotalDistanceMeters(aggregate.getTotalDistanceMeters() + delta);
+            aggregate.setPointCount(aggregate.getPointCount() + (runEnd - i + 1));
+            i = runEnd + 1;
+        }
+
+        for (; i < sortedLocations.size(); i++) {
+            CourierLocationEntity location = sortedLocations.get(i);
+            double distanceFromLastPoint = aggregate.getPointCount() > 0
+                    ? calculateDistance(aggregate.getLastLatitude(), aggregate.getLastLongitude(), location.getLatitude(), location.getLongitude())
+                    : 0.0;
+            aggregate.append(location, distanceFromLastPoint);
+        }
+    }
+
+    private CourierDistanceAggregateEntity buildAggregateFromHistory(String courierId) {
+        CourierDistanceAggregateEntity aggregate = CourierDistanceAggregateEntity.builder()
+                .courierId(courierId)
+                .build();
+        CourierTrack.Slice history = courierLocationHistoryStore.loadHistory(courierId).sliceBetween(Long.MIN_VALUE, Long.MAX_VALUE);
+        if (history.size() == 0) {
+            return aggregate;
+        }
+
+        int last = history.size() - 1;
+        aggregate.setLastLatitude(history.latitudes()[last]);
+        aggregate.setLastLongitude(history.longitudes()[last]);
+        aggregate.setLastTimestamp(CourierTrack.toLocalDateTime(history.timestamps()[last]));
+        aggregate.setTotalDistanceMeters(sumPathDistance(history.latitudes(), history.longitudes(), 0, history.size()));
+        aggregate.setPointCount(history.size());
+        return aggregate;
+    }
+
+    /**
+     * Latest location of the courier at or before the timestamp, persisted or archived.
+     */
+    private Optional<CourierLocationEntity> findPreviousLocation(String courierId, LocalDateTime timestamp) {
+        Optional<CourierLocationEntity> persisted = courierLocationRepository
+                .findFirstByCourierIdAndTimestampLessThanEqualOrderByTimestampDesc(courierId, timestamp);
+        Optional<CourierLocationEntity> archived = locationArchive.findLastPointAtOrBefore(courierId, CourierTrack.toEpochMillis(timestamp))
+                .map(point -> point.toLocationEntity(courierId));
+        if (persisted.isPresent() && archived.isPresent()) {
+            return archived.get().getTimestamp().isAfter(persisted.get().getTimestamp()) ? archived : persisted;
+        }
+        return persisted.isPresent() ? persisted : archived;
+    }
+
+    /**
+     * Earliest location of the courier after the timestamp, persisted or archived.
+     */
+    private Optional<CourierLocationEntity> findNextLocation(String courierId, LocalDateTime timestamp) {
+        Optional<CourierLocationEntity> persisted = courierLocationRepository
+                .findFirstByCourierIdAndTimestampGreaterThanOrderByTimestampAsc(courierId, timestamp);
+        Optional<CourierLocationEntity> archived = locationArchive.findFirstPointAfter(courierId, CourierTrack.toEpochMillis(timestamp))
+                .map(point -> point.toLocationEntity(courierId));
+        if (persisted.isPresent() && archived.isPresent()) {
+            return archived.get().getTimestamp().isBefore(persisted.get().getTimestamp()) ? archived : persisted;
+        }
+        return persisted.isPresent() ? persisted : archived;
+    }
+
+    private static void copyAggregate(CourierDistanceAggregateEntity source, CourierDistanceAggregateEntity target) {
+        target.setLastLatitude(source.getLastLatitude());
+        target.setLastLongitude(source.getLastLongitude());
+        target.setLastTimestamp(source.getLastTimestamp());
+        target.setTotalDistanceMeters(source.getTotalDistanceMeters());
+        target.setPointCount(source.getPointCount());
+    }
+
+    private static double distanceBetween(CourierLocationEntity from, CourierLocationEntity to) {
+        return calculateDistance(from.getLatitude(), from.getLongitude(), to.getLatitude(), to.getLongitude());
+    }
+}
@@ -0,0 +1,152 @@
+package com.efecavusoglu.couriertracking.service;
+
+import com.efecavusoglu.couriertracking.exception.IngestionQueueFullException;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateResponse;
+import com.efecavusoglu.couriertracking.model.dto.StreamErrorResponse;
+import com.efecavusoglu.couriertracking.service.metrics.IngestionMetrics;
+import com.efecavusoglu.couriertracking.service.metrics.IngestionStage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Service class for streaming (newline-delimited JSON) location uploads.
+ * Location updates are parsed incrementally from the request body, processed and persisted in bounded chunks,
+ * and the responses of each chunk are written back before the next chunk is read.
+ * So the memory used by an upload only depends on the chunk size, not on the size of the upload.
+ */
+@Service
+@Slf4j
+public class CourierLocationStreamService {
+
+    private static final byte NEWLINE = '\n';
+
+    @Value("${couriertracking.stream.chunk_size:1000}")
+    private int STREAM_CHUNK_SIZE;
+
+    private final CourierService courierService;
+    private final ObjectReader requestReader;
+    private final ObjectWriter responseWriter;
+    private final ObjectWriter errorWriter;
+    private final IngestionMetrics ingestionMetrics;
+
+    public CourierLocationStreamService(CourierService courierService, ObjectMapper objectMapper, IngestionMetrics ingestionMetrics) {
+        this.courierService = courierService;
+        this.ingestionMetrics = ingestionMetrics;
+        this.requestReader = objectMapper.readerFor(CourierLocationUpdateRequest.class);
+        this.responseWriter = objectMapper.writerFor(CourierLocationUpdateResponse.class);
+        this.errorWriter = objectMapper.writerFor(StreamErrorResponse.class);
+    }
+
+    /**
+     * Processes a stream of NDJSON location updates.
+     * Every chunk is processed in its own transaction, so chunks that were already answered stay persisted
+     * even if a later line of the upload turns out to be invalid.
+     * An invalid upload fails with an IllegalArgumentException as long as no response was written, and so does any other
+     * failure. Once responses were written, the status can no longer change: the stream ends with a StreamErrorResponse
+     * line instead, and the chunk with the invalid line (or the failed chunk) is not processed.
+     * @param ndjsonInput request body, one CourierLocationUpdateRequest per line
+     * @param ndjsonOutput response body, one CourierLocationUpdateResponse per line, flushed after every chunk
+     * @return number of processed location updates
+     * @throws IOException if reading the request or writing the response fails
+     */
+    public long processLocationStream(InputStream ndjsonInput, OutputStream ndjsonOutput) throws IOException {
+        long processedCount = 0;
+        List<CourierLocationUpdateRequest> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+
+        try {
+            try (MappingIterator<CourierLocationUpdateRequest> requestIterator = requestReader.readValues(ndjsonInput)) {
+                CourierLocationUpdateRequest request;
+                // parsing a chunk is timed as its binding stage, a chunk that fails to parse included
+                IngestionMetrics.StageSample binding = ingestionMetrics.start(IngestionStage.BINDING);
+                boolean parsed = false;
+                try {
+                    while ((request = readNextRequest(requestIterator)) != null) {
+                        chunk.add(request);
+                        if (chunk.size() == STREAM_CHUNK_SIZE) {
+                            binding.stop(chunk.size());
+                            binding = null;
+                            processedCount += processChunk(chunk, ndjsonOutput);
+                            binding = ingestionMetrics.start(IngestionStage.BINDING);
+                        }
+                    }
+                    parsed = true;
+                } finally {
+                    if (binding != null && (!parsed || !chunk.isEmpty())) {
+                        binding.stop(chunk.size());
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processedCount += processChunk(chunk, ndjsonOutput);
+            }
+        } catch (RuntimeException e) {
+            if (processedCount == 0) {
+                throw e;
+            }
+            if (e instanceof IllegalArgumentException || e instanceof IngestionQueueFullException) {
+                writeError(e.getMessage(), ndjsonOutput);
+                log.debug("Location stream ended after {} location updates: {}", processedCount, e.getMessage());
+            } else {
+                writeError("Failed to process the location updates after the first " + processedCount + ".", ndjsonOutput);
+                log.error("Location stream failed after {} location updates", processedCount, e);
+            }
+            return processedCount;
+        }
+
+        if (processedCount == 0) {
+            throw new IllegalArgumentException("Please provide at least one location update request.");
+        }
+        log.debug("Processed {} location updates from stream", processedCount);
+        return processedCount;
+    }
+
+    /**
+     * Reads the next location update from the stream.
+     * @return the next location update, or null at the end of the stream.
+     */
+    private CourierLocationUpdateRequest readNextRequest(MappingIterator<CourierLocationUpdateRequest> requestIterator) throws IOException {
+        try {
+            return requestIterator.hasNextValue() ? requestIterator.nextValue() : null;
+        } catch (JsonProcessingException e) {
+            // the parser's line, blank lines of the upload included
+            throw new IllegalArgumentException("Malformed location update at line " + requestIterator.getCurrentLocation().getLineNr()
+                    + ": " + e.getOriginalMessage());
+        }
+    }
+
+    private void writeError(String message, OutputStream ndjsonOutput) throws IOException {
+        StreamErrorResponse error = StreamErrorResponse.builder()
+                .exceptionMessage(message)
+                .exceptionDate(LocalDateTime.now())
+                .build();
+        ndjsonOutput.write(errorWriter.writeValueAsBytes(error));
+        ndjsonOutput.write(NEWLINE);
+        ndjsonOutput.flush();
+    }
+
+    private int processChunk(List<CourierLocationUpdateRequest> chunk, OutputStream ndjsonOutput) throws IOException {
+        List<CourierLocationUpdateResponse> responses = courierService.processLocationUpdates(chunk);
+        for (CourierLocationUpdateResponse response : responses) {
+            ndjsonOutput.write(responseWriter.writeValueAsBytes(response));
+            ndjsonOutput.write(NEWLINE);
+        }
+        ndjsonOutput.flush();
+        int processedCount = chunk.size();
+        chunk.clear();
+        return processedCount;
+    }
+}
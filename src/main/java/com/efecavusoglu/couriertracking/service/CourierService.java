@@ -1,70 +1,231 @@
 package com.efecavusoglu.couriertracking.service;
 
 import com.efecavusoglu.couriertracking.exception.InsufficientDataException;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationPointResponse;
 import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
 import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateResponse;
+import com.efecavusoglu.couriertracking.model.entity.CourierDistanceAggregateEntity;
 import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
 import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
-import com.efecavusoglu.couriertracking.repository.CourierLocationRepository;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRoutingRepository;
 import com.efecavusoglu.couriertracking.repository.CourierStoreEntryRepository;
+import com.efecavusoglu.couriertracking.service.analytics.StoreVisitAnalytics;
+import com.efecavusoglu.couriertracking.service.dedup.DuplicateLocationFilter;
+import com.efecavusoglu.couriertracking.service.events.StoreEntryEventBroadcaster;
+import com.efecavusoglu.couriertracking.service.history.CourierLocationHistoryStore;
+import com.efecavusoglu.couriertracking.service.history.CourierTrack;
+import com.efecavusoglu.couriertracking.service.live.LiveCourierIndex;
+import com.efecavusoglu.couriertracking.service.metrics.IngestionMetrics;
+import com.efecavusoglu.couriertracking.service.metrics.IngestionStage;
+import com.efecavusoglu.couriertracking.service.metrics.RepositoryCallCounter;
+import com.efecavusoglu.couriertracking.service.reorder.LocationReorderBuffer;
+import com.efecavusoglu.couriertracking.service.simplification.StationaryPingFilter;
+import com.efecavusoglu.couriertracking.service.storeentry.BatchStoreEntryCooldowns;
+import com.efecavusoglu.couriertracking.service.storeentry.LastStoreEntryLookup;
+import com.efecavusoglu.couriertracking.service.storeentry.StoreEntryCooldownCache;
 import com.efecavusoglu.couriertracking.service.storeentry.StoreEntryPolicy;
 import com.efecavusoglu.couriertracking.service.storeentry.StoreEntryPolicymaker;
 import com.efecavusoglu.couriertracking.service.storeentry.TimeAndLocationBasedStoreEntryPolicy;
+import com.efecavusoglu.couriertracking.service.writebehind.LocationWriteBehindQueue;
 import com.efecavusoglu.couriertracking.util.MapperUtil;
+import jakarta.annotation.PreDestroy;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.LinkedList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
-
-import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistance;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 @Service
 public class CourierService {
 
     private final StoreService storeService;
-    private final CourierLocationRepository courierLocationRepository;
+    private final CourierLocationRoutingRepository courierLocationRepository;
     private final CourierStoreEntryRepository courierStoreEntryRepository;
     private final StoreEntryPolicymaker storeEntryPolicymaker;
+    private final StoreEntryCooldownCache storeEntryCooldownCache;
+    private final CourierDistanceService courierDistanceService;
+    private final LocationWriteBehindQueue locationWriteBehindQueue;
+    private final CourierLocationHistoryStore courierLocationHistoryStore;
+    private final IngestionMetrics ingestionMetrics;
+    private final DuplicateLocationFilter duplicateLocationFilter;
+    private final LocationReorderBuffer locationReorderBuffer;
+    private final StoreEntryEventBroadcaster storeEntryEventBroadcaster;
+    private final LiveCourierIndex liveCourierIndex;
+    private final StoreVisitAnalytics storeVisitAnalytics;
+    private final StationaryPingFilter stationaryPingFilter;
+    // last store entries of single location updates, served from the cooldown cache
+    private final LastStoreEntryLookup cachedLastStoreEntryLookup;
+
+    @Value("${couriertracking.batch.parallel.enabled:false}")
+    private boolean PARALLEL_BATCH_ENABLED;
+
+    @Value("${couriertracking.batch.parallel.min_batch_size:1000}")
+    private int PARALLEL_BATCH_MIN_SIZE;
+
+    // store entry evaluation is CPU bound apart from cooldown cache misses, virtual threads run on a pool sized to the cores
+    private final ExecutorService storeEntryEvaluationExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
     public CourierService(StoreService storeService,
-                          CourierLocationRepository courierLocationRepository,
+                          CourierLocationRoutingRepository courierLocationRepository,
                           CourierStoreEntryRepository courierStoreEntryRepository,
-                          StoreEntryPolicymaker storeEntryPolicymaker) {
+                          StoreEntryPolicymaker storeEntryPolicymaker,
+                          StoreEntryCooldownCache storeEntryCooldownCache,
+                          CourierDistanceService courierDistanceService,
+                          LocationWriteBehindQueue locationWriteBehindQueue,
+                          CourierLocationHistoryStore courierLocationHistoryStore,
+                          IngestionMetrics ingestionMetrics,
+                          DuplicateLocationFilter duplicateLocationFilter,
+                          LocationReorderBuffer locationReorderBuffer,
+                          StoreEntryEventBroadcaster storeEntryEventBroadcaster,
+                          LiveCourierIndex liveCourierIndex,
+                          StoreVisitAnalytics storeVisitAnalytics,
+                          StationaryPingFilter stationaryPingFilter) {
         this.storeService = storeService;
         this.courierLocationRepository = courierLocationRepository;
         this.courierStoreEntryRepository = courierStoreEntryRepository;
         this.storeEntryPolicymaker = storeEntryPolicymaker;
+        this.storeEntryCooldownCache = storeEntryCooldownCache;
+        this.courierDistanceService = courierDistanceService;
+        this.locationWriteBehindQueue = locationWriteBehindQueue;
+        this.courierLocationHistoryStore = courierLocationHistoryStore;
+        this.ingestionMetrics = ingestionMetrics;
+        this.duplicateLocationFilter = duplicateLocationFilter;
+        this.locationReorderBuffer = locationReorderBuffer;
+        this.storeEntryEventBroadcaster = storeEntryEventBroadcaster;
+        this.liveCourierIndex = liveCourierIndex;
+        this.storeVisitAnalytics = storeVisitAnalytics;
+        this.stationaryPingFilter = stationaryPingFilter;
+        this.cachedLastStoreEntryLookup = storeEntryCooldownCache.lookupBackedBy(courierStoreEntryRepository);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        storeEntryEvaluationExecutor.shutdown();
     }
 
     /**
      * Process a single location update request.
-     * Converts request to a locationEntity and persists it to DB.
+     * Converts request to a locationEntity, folds it into the courier's distance aggregate and persists it to DB.
      * Checks if the locationUpdate is eligible to trigger a storeEntry and persists it to DB if so.
+     * In write-behind mode, persisting is left to the write-behind queue instead.
+     * A duplicate of an already ingested locationUpdate is dropped and answered with a deduplicated response.
+     * A stationary locationUpdate that did not trigger a storeEntry may be suppressed, see StationaryPingFilter.
+     * In event-time mode, the locationUpdate is only validated and buffered, it is ingested in timestamp order later.
+     * Triggered storeEntries are published to the store entry event subscribers once the transaction commits.
      * @param courierLocationUpdateRequest
      * @return ResponseEntity<CourierLocationUpdateResponse> with the locationUpdate response.
      */
     @Transactional
     public ResponseEntity<CourierLocationUpdateResponse> processSingleLocationUpdate(CourierLocationUpdateRequest courierLocationUpdateRequest) {
-        //persist location to DB
-        CourierLocationEntity courierLocationEntity = courierLocationRepository.save(MapperUtil.mapLocationUpdateRequestToLocationEntity(courierLocationUpdateRequest));
+        IngestionMetrics.StageSample mapping = ingestionMetrics.start(IngestionStage.MAPPING);
+        CourierLocationEntity mappedLocationEntity = MapperUtil.mapLocationUpdateRequestToLocationEntity(courierLocationUpdateRequest);
+        mapping.stop(1);
+        return processSingleLocation(mappedLocationEntity);
+    }
+
+    /**
+     * Process a single location update that is already mapped to a (not persisted) locationEntity, e.g. decoded from a binary frame.
+     * @param mappedLocationEntity locationUpdate entity, not persisted yet.
+     * @return ResponseEntity<CourierLocationUpdateResponse> with the locationUpdate response.
+     */
+    @Transactional
+    public ResponseEntity<CourierLocationUpdateResponse> processSingleLocation(CourierLocationEntity mappedLocationEntity) {
+        long repositoryCallsBefore = RepositoryCallCounter.current();
+        if (locationReorderBuffer.isEnabled()) {
+            locationReorderBuffer.buffer(mappedLocationEntity);
+            return ResponseEntity.ok(MapperUtil.mapLocationEntityToBufferedResponse(mappedLocationEntity));
+        }
+
+        IngestionMetrics.StageSample deduplication = ingestionMetrics.start(IngestionStage.DEDUPLICATION);
+        boolean accepted = duplicateLocationFilter.tryAccept(mappedLocationEntity);
+        deduplication.stop(1);
+        if (!accepted) {
+            return ResponseEntity.ok(MapperUtil.mapLocationEntityToDeduplicatedResponse(mappedLocationEntity));
+        }
+        liveCourierIndex.update(List.of(mappedLocationEntity));
+
+        // evaluated before anything is written, a locationUpdate that triggered a storeEntry is never suppressed
+        IngestionMetrics.StageSample evaluation = ingestionMetrics.start(IngestionStage.EVALUATION);
+        CourierStoreEntryEntity triggeredStoreEntry = evaluateIfStoreEntryTriggered(mappedLocationEntity, cachedLastStoreEntryLookup).orElse(null);
+        evaluation.stop(1);
+        IngestionMetrics.StageSample suppression = ingestionMetrics.start(IngestionStage.SUPPRESSION);
+        boolean suppressed = stationaryPingFilter.trySuppress(mappedLocationEntity, triggeredStoreEntry != null);
+        suppression.stop(1);
+        if (suppressed) {
+            ingestionMetrics.recordLocationUpdates(1, RepositoryCallCounter.current() - repositoryCallsBefore);
+            return ResponseEntity.ok(MapperUtil.mapLocationEntityToSuppressedResponse(mappedLocationEntity));
+        }
+
+        if (locationWriteBehindQueue.isEnabled()) {
+            CourierLocationUpdateResponse courierLocationUpdateResponse = acknowledgeLocationUpdate(mappedLocationEntity, triggeredStoreEntry);
+            ingestionMetrics.recordLocationUpdates(1, RepositoryCallCounter.current() - repositoryCallsBefore);
+            return ResponseEntity.ok(courierLocationUpdateResponse);
+        }
+
+        // aggregate before persisting -- a late location is spliced in between its already persisted neighbours
+        IngestionMetrics.StageSample aggregate = ingestionMetrics.start(IngestionStage.AGGREGATE);
+        courierDistanceService.recordLocations(List.of(mappedLocationEntity));
+        aggregate.stop(1);
+
+        //persist location to DB, flushed right away so the insert (and the aggregate update) is timed as part of this stage
+        IngestionMetrics.StageSample persist = ingestionMetrics.start(IngestionStage.PERSIST);
+        CourierLocationEntity courierLocationEntity = courierLocationRepository.saveAndFlush(mappedLocationEntity);
+        persist.stop(1);
+        IngestionMetrics.StageSample history = ingestionMetrics.start(IngestionStage.HISTORY);
+        courierLocationHistoryStore.recordLocations(List.of(courierLocationEntity));
+        history.stop(1);
 
         //create response from entity
         CourierLocationUpdateResponse courierLocationUpdateResponse = MapperUtil.mapLocationEntityToLocationResponse(courierLocationEntity);
 
         // persist to DB if locationUpdate triggered a storeEntry, and tag response storeEntryTrigger to true
-        evaluateIfStoreEntryTriggered(courierLocationEntity).ifPresent(storeEntry -> {
-            courierStoreEntryRepository.save(storeEntry);
+        if (triggeredStoreEntry != null) {
+            IngestionMetrics.StageSample storeEntryInsert = ingestionMetrics.start(IngestionStage.STORE_ENTRY_INSERT);
+            CourierStoreEntryEntity courierStoreEntry = courierStoreEntryRepository.saveAndFlush(triggeredStoreEntry);
+            storeEntryCooldownCache.recordEntriesOnCommit(List.of(courierStoreEntry));
+            storeEntryInsert.stop(1);
+            storeEntryEventBroadcaster.publish(List.of(courierStoreEntry));
+            storeVisitAnalytics.record(List.of(courierStoreEntry));
+            ingestionMetrics.recordStoreEntries(1);
             courierLocationUpdateResponse.setTriggeredStoreEntry(true);
-        });
+        }
 
+        ingestionMetrics.recordLocationUpdates(1, RepositoryCallCounter.current() - repositoryCallsBefore);
         return ResponseEntity.ok(courierLocationUpdateResponse);
     }
 
+    /**
+     * Write-behind path of a single location update: the storeEntry is already evaluated, persisting the location
+     * and the storeEntry is handed over to the write-behind queue.
+     * @param courierLocationEntity locationUpdate entity, not persisted yet.
+     * @param storeEntry storeEntry triggered by the locationUpdate, null if none.
+     * @return locationUpdate response, acknowledged before it is persisted.
+     */
+    private CourierLocationUpdateResponse acknowledgeLocationUpdate(CourierLocationEntity courierLocationEntity, CourierStoreEntryEntity storeEntry) {
+        CourierLocationUpdateResponse courierLocationUpdateResponse = MapperUtil.mapLocationEntityToLocationResponse(courierLocationEntity);
+        locationWriteBehindQueue.enqueue(courierLocationEntity, storeEntry);
+
+        if (storeEntry != null) {
+            // recorded before it is persisted, so the next pings of the courier already see it
+            storeEntryCooldownCache.recordEntry(storeEntry);
+            ingestionMetrics.recordStoreEntries(1);
+            courierLocationUpdateResponse.setTriggeredStoreEntry(true);
+        }
+        return courierLocationUpdateResponse;
+    }
+
     /**
      * Process a batch of location update requests.
      * @param courierLocationList locationUpdateRequests to be processed.
@@ -75,49 +236,265 @@ public class CourierService {
         if (courierLocationList == null || courierLocationList.isEmpty()) {
             throw new IllegalArgumentException("Please provide at least one location update request.");
         }
+        return ResponseEntity.ok(processLocationUpdates(courierLocationList));
+    }
 
-        // batch persistence of locations for ACID compliance and performance
-        List<CourierLocationEntity> courierLocationEntityList = courierLocationRepository.saveAll(courierLocationList.stream()
-                .map(MapperUtil::mapLocationUpdateRequestToLocationEntity)
-                .toList());
+    /**
+     * Process a list of location update requests in a single transaction.
+     * Used by the batch endpoint, and chunk by chunk by the streaming endpoint.
+     * In event-time mode, the locationUpdates are only buffered, like single ones.
+     * @param courierLocationList locationUpdateRequests to be processed, must not be empty.
+     * @return locationUpdate responses, ordered by courierId and timestamp.
+     */
+    @Transactional
+    public List<CourierLocationUpdateResponse> processLocationUpdates(List<CourierLocationUpdateRequest> courierLocationList) {
+        IngestionMetrics.StageSample mapping = ingestionMetrics.start(IngestionStage.MAPPING);
+        List<CourierLocationEntity> courierLocationEntityList = new ArrayList<>(courierLocationList.size());
+        for (CourierLocationUpdateRequest courierLocationUpdateRequest : courierLocationList) {
+            courierLocationEntityList.add(MapperUtil.mapLocationUpdateRequestToLocationEntity(courierLocationUpdateRequest));
+        }
+        mapping.stop(courierLocationList.size());
+        if (locationReorderBuffer.isEnabled()) {
+            return bufferLocations(courierLocationEntityList);
+        }
+        return processLocations(courierLocationEntityList);
+    }
+
+    /**
+     * Process a batch of location updates that are already mapped to (not persisted) locationEntities, e.g. decoded from a binary frame.
+     * In event-time mode, the locationUpdates are only buffered, like single ones.
+     * @param courierLocationEntityList locationUpdate entities to be processed.
+     * @return ResponseEntity<CourierLocationUpdateResponse> ResponseEntity with a list of locationUpdate response.
+     */
+    @Transactional
+    public ResponseEntity<List<CourierLocationUpdateResponse>> processBatchLocations(List<CourierLocationEntity> courierLocationEntityList) {
+        if (courierLocationEntityList == null || courierLocationEntityList.isEmpty()) {
+            throw new IllegalArgumentException("Please provide at least one location update request.");
+        }
+        if (locationReorderBuffer.isEnabled()) {
+            return ResponseEntity.ok(bufferLocations(new ArrayList<>(courierLocationEntityList)));
+        }
+        return ResponseEntity.ok(processLocations(new ArrayList<>(courierLocationEntityList)));
+    }
+
+    /**
+     * Event-time path of a batch: the locationUpdates go through the reorder buffer like single ones, so a courier's
+     * single and batch updates are ingested in one timestamp order. The reorder buffer ingests them with processLocations.
+     * @param courierLocationEntityList locationUpdate entities, not persisted yet. Sorted in place.
+     * @return buffered locationUpdate responses, ordered by courierId and timestamp.
+     */
+    private List<CourierLocationUpdateResponse> bufferLocations(List<CourierLocationEntity> courierLocationEntityList) {
+        // buffered in timestamp order, so the courier's watermark does not turn the batch's own updates into late ones
+        courierLocationEntityList.sort(Comparator.comparing(CourierLocationEntity::getCourierId).thenComparing(CourierLocationEntity::getTimestamp));
+        List<CourierLocationUpdateResponse> responses = new ArrayList<>(courierLocationEntityList.size());
+        for (CourierLocationEntity courierLocationEntity : courierLocationEntityList) {
+            locationReorderBuffer.buffer(courierLocationEntity);
+            responses.add(MapperUtil.mapLocationEntityToBufferedResponse(courierLocationEntity));
+        }
+        return responses;
+    }
+
+    /**
+     * Process a list of locationEntities in a single transaction.
+     * @param courierLocationEntityList locationUpdate entities, not persisted yet, must not be empty. Sorted in place.
+     * @return locationUpdate responses, ordered by courierId and timestamp.
+     */
+    @Transactional
+    public List<CourierLocationUpdateResponse> processLocations(List<CourierLocationEntity> courierLocationEntityList) {
+        long repositoryCallsBefore = RepositoryCallCounter.current();
+        int batchSize = courierLocationEntityList.size();
 
         // We are ordering by courierIds first. Then by timestamp.
         // Why? Because if the data comes in unordered with respect to timestamp, wrong location activity might be associated with storeEntry
         courierLocationEntityList.sort(Comparator.comparing(CourierLocationEntity::getCourierId).thenComparing(CourierLocationEntity::getTimestamp));
 
-        // iterate over locationEntity list for:
-        // 1) create a corresponding response for each entity,
-        // 2) if such locationUpdateEntity triggers a storeEntry, create storeEntryEntity and add it to the persistence list, then mark response for successful storeEntry
-        List<CourierLocationUpdateResponse> responseList = new LinkedList<>();
-        List<CourierStoreEntryEntity> storeEntryList = new LinkedList<>();
+        // duplicates are dropped before anything is written, they only get a deduplicated response at their position
+        IngestionMetrics.StageSample deduplication = ingestionMetrics.start(IngestionStage.DEDUPLICATION);
+        boolean[] duplicates = new boolean[batchSize];
+        List<CourierLocationEntity> acceptedLocationEntityList = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            CourierLocationEntity courierLocationEntity = courierLocationEntityList.get(i);
+            if (duplicateLocationFilter.tryAccept(courierLocationEntity)) {
+                acceptedLocationEntityList.add(courierLocationEntity);
+            } else {
+                duplicates[i] = true;
+            }
+        }
+        deduplication.stop(batchSize);
+        int acceptedCount = acceptedLocationEntityList.size();
+        if (acceptedCount == 0) {
+            return mergeDeduplicatedResponses(courierLocationEntityList, duplicates, new CourierLocationUpdateResponse[0]);
+        }
+        liveCourierIndex.update(acceptedLocationEntityList);
+
+        // store entries are evaluated before anything is written, a locationUpdate that triggered a storeEntry is never suppressed
+        // cooldown state of all couriers in the batch in one query, the store entries are then evaluated in memory
+        IngestionMetrics.StageSample evaluation = ingestionMetrics.start(IngestionStage.EVALUATION);
+        Set<String> courierIds = new HashSet<>();
+        for (CourierLocationEntity courierLocationEntity : acceptedLocationEntityList) {
+            courierIds.add(courierLocationEntity.getCourierId());
+        }
+        BatchStoreEntryCooldowns batchCooldowns = BatchStoreEntryCooldowns.load(courierIds, courierStoreEntryRepository, storeEntryCooldownCache);
+
+        // for each locationEntity:
+        // 1) create a corresponding response,
+        // 2) if such locationUpdateEntity triggers a storeEntry, create storeEntryEntity for persistence, then mark response for successful storeEntry
+        // Couriers are independent of each other, so large batches are evaluated courier by courier in parallel.
+        CourierLocationUpdateResponse[] responses = new CourierLocationUpdateResponse[acceptedCount];
+        CourierStoreEntryEntity[] storeEntries = new CourierStoreEntryEntity[acceptedCount];
+        if (PARALLEL_BATCH_ENABLED && acceptedCount >= PARALLEL_BATCH_MIN_SIZE) {
+            evaluateCourierGroupsInParallel(acceptedLocationEntityList, batchCooldowns, responses, storeEntries);
+        } else {
+            evaluateStoreEntries(acceptedLocationEntityList, 0, acceptedCount, batchCooldowns, responses, storeEntries);
+        }
+        evaluation.stop(acceptedCount);
 
+        IngestionMetrics.StageSample suppression = ingestionMetrics.start(IngestionStage.SUPPRESSION);
+        List<CourierLocationEntity> keptLocationEntityList = acceptedLocationEntityList;
+        if (stationaryPingFilter.isEnabled()) {
+            keptLocationEntityList = new ArrayList<>(acceptedCount);
+            for (int i = 0; i < acceptedCount; i++) {
+                if (stationaryPingFilter.trySuppress(acceptedLocationEntityList.get(i), storeEntries[i] != null)) {
+                    responses[i].setSuppressed(true);
+                } else {
+                    keptLocationEntityList.add(acceptedLocationEntityList.get(i));
+                }
+            }
+        }
+        suppression.stop(acceptedCount);
+        int keptCount = keptLocationEntityList.size();
+
+        // aggregate before persisting -- late locations are spliced in between their already persisted neighbours
+        IngestionMetrics.StageSample aggregate = ingestionMetrics.start(IngestionStage.AGGREGATE);
+        courierDistanceService.recordLocations(keptLocationEntityList);
+        aggregate.stop(keptCount);
+
+        // batch persistence of locations for ACID compliance and performance
+        // flushed right away, so the inserts (and the aggregate updates) are timed as part of this stage instead of the commit
+        IngestionMetrics.StageSample persist = ingestionMetrics.start(IngestionStage.PERSIST);
+        courierLocationRepository.saveAllAndFlush(keptLocationEntityList);
+        persist.stop(keptCount);
+        IngestionMetrics.StageSample history = ingestionMetrics.start(IngestionStage.HISTORY);
+        courierLocationHistoryStore.recordLocations(keptLocationEntityList);
+        history.stop(keptCount);
+
+        List<CourierStoreEntryEntity> storeEntryList = new ArrayList<>();
+        for (CourierStoreEntryEntity storeEntry : storeEntries) {
+            if (storeEntry != null) {
+                storeEntryList.add(storeEntry);
+            }
+        }
+
+        IngestionMetrics.StageSample storeEntryInsert = ingestionMetrics.start(IngestionStage.STORE_ENTRY_INSERT);
+        storeEntryCooldownCache.recordEntriesOnCommit(courierStoreEntryRepository.saveAllAndFlush(storeEntryList));
+        storeEntryInsert.stop(storeEntryList.size());
+        storeEntryEventBroadcaster.publish(storeEntryList);
+        storeVisitAnalytics.record(storeEntryList);
+
+        ingestionMetrics.recordStoreEntries(storeEntryList.size());
+        ingestionMetrics.recordLocationUpdates(acceptedCount, RepositoryCallCounter.current() - repositoryCallsBefore);
+        return mergeDeduplicatedResponses(courierLocationEntityList, duplicates, responses);
+    }
+
+    /**
+     * Puts the responses of the accepted locationUpdates and the deduplicated responses of the duplicates back together.
+     * @param courierLocationEntityList all locationUpdate entities of the batch, ordered by courierId and timestamp.
+     * @param duplicates whether each entity was dropped as a duplicate.
+     * @param acceptedResponses responses of the accepted entities, in the same order.
+     * @return a response per entity, in the order of the entities.
+     */
+    private static List<CourierLocationUpdateResponse> mergeDeduplicatedResponses(List<CourierLocationEntity> courierLocationEntityList, boolean[] duplicates,
+                                                                                  CourierLocationUpdateResponse[] acceptedResponses) {
+        List<CourierLocationUpdateResponse> responseList = new ArrayList<>(courierLocationEntityList.size());
+        int accepted = 0;
         for (int i = 0; i < courierLocationEntityList.size(); i++) {
+            responseList.add(duplicates[i]
+                    ? MapperUtil.mapLocationEntityToDeduplicatedResponse(courierLocationEntityList.get(i))
+                    : acceptedResponses[accepted++]);
+        }
+        return responseList;
+    }
+
+    /**
+     * Evaluates the locationUpdates in [from, to) one by one, in list order.
+     * Results are written to the same positions of the result arrays, so the output order does not depend on scheduling.
+     * Triggered storeEntries are recorded in the batch cooldowns right away, so the later locationUpdates see them.
+     * @param courierLocationEntityList locationUpdate entities, ordered by courierId and timestamp.
+     * @param batchCooldowns cooldown state of the batch's couriers.
+     * @param responses locationUpdate response of each entity.
+     * @param storeEntries storeEntry triggered by each entity, null if none.
+     */
+    private void evaluateStoreEntries(List<CourierLocationEntity> courierLocationEntityList, int from, int to, BatchStoreEntryCooldowns batchCooldowns,
+                                      CourierLocationUpdateResponse[] responses, CourierStoreEntryEntity[] storeEntries) {
+        for (int i = from; i < to; i++) {
             CourierLocationEntity courierLocationEntity = courierLocationEntityList.get(i);
             CourierLocationUpdateResponse courierLocationUpdateResponse = MapperUtil.mapLocationEntityToLocationResponse(courierLocationEntity);
 
-            evaluateIfStoreEntryTriggered(courierLocationEntity).ifPresent(storeEntry -> {
-                storeEntryList.add(storeEntry);
+            CourierStoreEntryEntity storeEntry = evaluateIfStoreEntryTriggered(courierLocationEntity, batchCooldowns).orElse(null);
+            if (storeEntry != null) {
+                batchCooldowns.recordEntry(storeEntry);
                 courierLocationUpdateResponse.setTriggeredStoreEntry(true);
-            });
+            }
 
-            responseList.add(courierLocationUpdateResponse);
+            responses[i] = courierLocationUpdateResponse;
+            storeEntries[i] = storeEntry;
         }
+    }
 
-        courierStoreEntryRepository.saveAll(storeEntryList);
+    /**
+     * Evaluates each courier's locationUpdates as a separate task.
+     * Within a courier the locationUpdates are still evaluated sequentially in timestamp order.
+     * @param courierLocationEntityList locationUpdate entities, ordered by courierId and timestamp.
+     */
+    private void evaluateCourierGroupsInParallel(List<CourierLocationEntity> courierLocationEntityList, BatchStoreEntryCooldowns batchCooldowns,
+                                                 CourierLocationUpdateResponse[] responses, CourierStoreEntryEntity[] storeEntries) {
+        // each task returns the repository calls it made on its own thread
+        List<Future<Long>> courierTasks = new ArrayList<>();
+        int groupStart = 0;
+        for (int i = 1; i <= courierLocationEntityList.size(); i++) {
+            if (i == courierLocationEntityList.size()
+                    || !courierLocationEntityList.get(i).getCourierId().equals(courierLocationEntityList.get(groupStart).getCourierId())) {
+                int from = groupStart;
+                int to = i;
+                courierTasks.add(storeEntryEvaluationExecutor.submit(() -> {
+                    long repositoryCallsBefore = RepositoryCallCounter.current();
+                    evaluateStoreEntries(courierLocationEntityList, from, to, batchCooldowns, responses, storeEntries);
+                    return RepositoryCallCounter.current() - repositoryCallsBefore;
+                }));
+                groupStart = i;
+            }
+        }
 
-        return ResponseEntity.ok(responseList);
+        try {
+            long repositoryCalls = 0;
+            for (Future<Long> courierTask : courierTasks) {
+                repositoryCalls += courierTask.get();
+            }
+            RepositoryCallCounter.add(repositoryCalls);
+        } catch (ExecutionException e) {
+            courierTasks.forEach(courierTask -> courierTask.cancel(true));
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Store entry evaluation failed", e.getCause());
+        } catch (InterruptedException e) {
+            courierTasks.forEach(courierTask -> courierTask.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while evaluating store entries", e);
+        }
     }
 
     /**
      * Evaluate if a locationUpdate is eligible to trigger a storeEntry.
      * @param courierLocationEntity locationUpdate entity to be evaluated.
+     * @param lastStoreEntryLookup source of the courier's last storeEntries, for the re-entry cooldown.
      * @return Optional<CourierStoreEntryEntity> if the locationUpdate is eligible to trigger a storeEntry, returns empty Optional otherwise.
      */
-    private Optional<CourierStoreEntryEntity> evaluateIfStoreEntryTriggered(CourierLocationEntity courierLocationEntity) {
+    private Optional<CourierStoreEntryEntity> evaluateIfStoreEntryTriggered(CourierLocationEntity courierLocationEntity, LastStoreEntryLookup lastStoreEntryLookup) {
         StoreEntryPolicy storeEntryPolicy = storeEntryPolicymaker.getStoreEntryPolicy(TimeAndLocationBasedStoreEntryPolicy.class);
-        return storeService.getStores()
+        return storeEntryPolicy.findCandidateStores(courierLocationEntity, storeService)
                 .stream()
-                .filter(store -> storeEntryPolicy.canTriggerStoreEntry(store, courierLocationEntity, courierStoreEntryRepository))
+                .filter(store -> storeEntryPolicy.canTriggerStoreEntry(store, courierLocationEntity, lastStoreEntryLookup))
                 .findAny() // because the courier can be within range of one store for 100 meters per locationUpdate
                 .map(store -> MapperUtil.mapLocationEntityToStoreEntryEntity(store, courierLocationEntity));
     }
@@ -132,23 +509,73 @@ public class CourierService {
             throw new IllegalArgumentException("Courier ID cannot be null or empty.");
         }
 
-        List<CourierLocationEntity> courierLocations = courierLocationRepository.findByCourierIdOrderByTimestampAsc(courierId);
+        // answered from the running aggregate maintained on ingestion, the location history is not read
+        CourierDistanceAggregateEntity distanceAggregate = courierDistanceService.getAggregate(courierId);
 
-        if (courierLocations.isEmpty()){
+        if (distanceAggregate.getPointCount() == 0){
             throw new EntityNotFoundException("No data found for courier with ID: " + courierId);
         }
 
-        if (courierLocations.size() < 2) {
+        if (distanceAggregate.getPointCount() < 2) {
             throw new InsufficientDataException("Not enough data for calculation. Please provide at least 2 locations for the courier to calculate distance from the start to the end. ");
         }
 
-        double distance = 0.0;
-        for (int i = 1; i < courierLocations.size(); i++) {
-            CourierLocationEntity courierLocation = courierLocations.get(i-1);
-            CourierLocationEntity nextCourierLocation = courierLocations.get(i);
-            distance += calculateDistance(courierLocation.getLatitude(), courierLocation.getLongitude(), nextCourierLocation.getLatitude(), nextCourierLocation.getLongitude());
+        return ResponseEntity.ok(distanceAggregate.getTotalDistanceMeters());
+    }
+
+    /**
+     * Calculate the distance traveled by a courier within a time window, along its locations within the window.
+     * Served from the cumulative distances of the courier's in-memory track, the history is not re-read.
+     * @param courierId courier ID to be checked.
+     * @param from start of the window (inclusive), unbounded if null.
+     * @param to end of the window (inclusive), unbounded if null.
+     * @return A response entity with the distance in meters, 0 if the courier has less than 2 locations within the window.
+     */
+    public ResponseEntity<Double> getTravelDistanceBetween(String courierId, LocalDateTime from, LocalDateTime to) {
+        CourierTrack track = getTrackForWindow(courierId, from, to);
+        return ResponseEntity.ok(track.distanceBetween(from == null ? Long.MIN_VALUE : CourierTrack.toEpochMillis(from),
+                to == null ? Long.MAX_VALUE : CourierTrack.toEpochMillis(to)));
+    }
+
+    /**
+     * Get the locations of a courier within a time window, in timestamp order.
+     * Served from the courier's in-memory columnar track.
+     * @param courierId courier ID to be checked.
+     * @param from start of the window (inclusive), unbounded if null.
+     * @param to end of the window (inclusive), unbounded if null.
+     * @return A response entity with the locations of the courier within the window.
+     */
+    public ResponseEntity<List<CourierLocationPointResponse>> getLocationHistory(String courierId, LocalDateTime from, LocalDateTime to) {
+        CourierTrack track = getTrackForWindow(courierId, from, to);
+        CourierTrack.Slice slice = track.sliceBetween(from == null ? Long.MIN_VALUE : CourierTrack.toEpochMillis(from),
+                to == null ? Long.MAX_VALUE : CourierTrack.toEpochMillis(to));
+        List<CourierLocationPointResponse> locations = new ArrayList<>(slice.size());
+        for (int i = 0; i < slice.size(); i++) {
+            locations.add(CourierLocationPointResponse.builder()
+                    .latitude(slice.latitudes()[i])
+                    .longitude(slice.longitudes()[i])
+                    .timestamp(CourierTrack.toLocalDateTime(slice.timestamps()[i]))
+                    .build());
+        }
+        return ResponseEntity.ok(locations);
+    }
+
+    private CourierTrack getTrackForWindow(String courierId, LocalDateTime from, LocalDateTime to) {
+        if (courierId == null || courierId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Courier ID cannot be null or empty.");
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("Start of the time window cannot be after its end.");
         }
 
-        return ResponseEntity.ok(distance);
+        CourierTrack track = courierLocationHistoryStore.getTrack(courierId, from, to);
+        // an empty window is only an unknown courier if the courier has no locations at all
+        if (track.size() == 0 && (from != null || to != null)) {
+            track = courierLocationHistoryStore.getTrack(courierId);
+        }
+        if (track.size() == 0) {
+            throw new EntityNotFoundException("No data found for courier with ID: " + courierId);
+        }
+        return track;
     }
 }
@@ -0,0 +1,142 @@
+package com.efecavusoglu.couriertracking.service;
+
+import com.efecavusoglu.couriertracking.exception.StoreCatalogLoadException;
+import com.efecavusoglu.couriertracking.model.dto.StoreDTO;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads a store catalog file (JSON array of StoreDTO) into the stores table.
+ * The file is parsed incrementally and diffed by store name against the existing stores, which are read once up front.
+ * New stores are inserted and moved stores are updated with JDBC batches, unchanged stores are not written at all,
+ * so a catalog of N stores takes a handful of round-trips instead of 2N.
+ */
+@Component
+@Slf4j
+public class StoreCatalogLoader {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final ObjectReader storeReader;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public StoreCatalogLoader(ObjectMapper objectMapper, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.storeReader = objectMapper.readerFor(StoreDTO.class);
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Applies the catalog to the stores table in one transaction. Stores missing from the catalog are kept.
+     * @param catalog catalog file
+     * @return counts of the inserted, updated and unchanged stores.
+     * @throws StoreCatalogLoadException if the catalog cannot be read or parsed, nothing is applied in that case.
+     */
+    public LoadResult load(Resource catalog) {
+        long start = System.nanoTime();
+        LoadResult result;
+        try {
+            result = transactionTemplate.execute(status -> applyCatalog(catalog));
+        } catch (UncheckedIOException e) {
+            throw new StoreCatalogLoadException("Store catalog cannot be read from " + catalog.getDescription() + ": " + e.getCause().getMessage(), e.getCause());
+        }
+        log.info("Store catalog loaded in {} ms: {} inserted, {} updated, {} unchanged.",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), result.inserted(), result.updated(), result.unchanged());
+        return result;
+    }
+
+    private LoadResult applyCatalog(Resource catalog) {
+        Map<String, ExistingStore> existingStores = findExistingStores();
+        List<Object[]> inserts = new ArrayList<>(BATCH_SIZE);
+        List<Object[]> updates = new ArrayList<>(BATCH_SIZE);
+        int inserted = 0;
+        int updated = 0;
+        int unchanged = 0;
+
+        try (InputStream inputStream = catalog.getInputStream();
+             MappingIterator<StoreDTO> storeIterator = storeReader.readValues(inputStream)) {
+            while (storeIterator.hasNextValue()) {
+                StoreDTO store = storeIterator.nextValue();
+                ExistingStore existingStore = existingStores.get(store.getName());
+                if (existingStore == null) {
+                    inserts.add(new Object[]{store.getName(), store.getLat(), store.getLng()});
+                    inserted++;
+                } else if (existingStore.latitude() != store.getLat() || existingStore.longitude() != store.getLng()) {
+                    // a store inserted by this load has no id yet, it is only ever repeated by a catalog with duplicate names
+                    if (existingStore.id() != null) {
+                        updates.add(new Object[]{store.getLat(), store.getLng(), existingStore.id()});
+                    } else {
+                        flushInserts(inserts);
+                        jdbcTemplate.update("UPDATE stores SET latitude = ?, longitude = ? WHERE store_name = ?", store.getLat(), store.getLng(), store.getName());
+                    }
+                    updated++;
+                } else {
+                    unchanged++;
+                }
+                // later occurrences of the same name in the catalog are diffed against this one
+                existingStores.put(store.getName(), new ExistingStore(existingStore == null ? null : existingStore.id(), store.getLat(), store.getLng()));
+
+                if (inserts.size() == BATCH_SIZE) {
+                    flushInserts(inserts);
+                }
+                if (updates.size() == BATCH_SIZE) {
+                    flushUpdates(updates);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        flushInserts(inserts);
+        flushUpdates(updates);
+        return new LoadResult(inserted, updated, unchanged);
+    }
+
+    private Map<String, ExistingStore> findExistingStores() {
+        Map<String, ExistingStore> existingStores = new HashMap<>();
+        jdbcTemplate.query("SELECT id, store_name, latitude, longitude FROM stores", resultSet -> {
+            existingStores.put(resultSet.getString("store_name"),
+                    new ExistingStore(resultSet.getLong("id"), resultSet.getDouble("latitude"), resultSet.getDouble("longitude")));
+        });
+        return existingStores;
+    }
+
+    private void flushInserts(List<Object[]> inserts) {
+        if (inserts.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO stores (store_name, latitude, longitude) VALUES (?, ?, ?)", inserts);
+        inserts.clear();
+    }
+
+    private void flushUpdates(List<Object[]> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("UPDATE stores SET latitude = ?, longitude = ? WHERE id = ?", updates);
+        updates.clear();
+    }
+
+    /**
+     * @param id id of the store, null if it is pending insertion
+     */
+    private record ExistingStore(Long id, double latitude, double longitude) {}
+
+    public record LoadResult(int inserted, int updated, int unchanged) {}
+}
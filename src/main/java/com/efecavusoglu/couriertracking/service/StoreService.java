@@ -1,85 +1,137 @@
 package com.efecavusoglu.couriertracking.service;
 
-import com.efecavusoglu.couriertracking.model.dto.StoreDTO;
+import com.efecavusoglu.couriertracking.exception.StoreCatalogLoadException;
 import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
 import com.efecavusoglu.couriertracking.repository.StoreRepository;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.efecavusoglu.couriertracking.service.storeentry.StoreCatalogSnapshot;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * Service class for Stores that loads stores from stores.json and persists them in the database.
+ * Service class for Stores that loads stores from stores.json and persists them in the database, with StoreCatalogLoader.
  * Access to stores from DB will be made from StoreService also.
- * Caching is used to improve performance since store data rarely changes.
+ * Readers are served from an immutable StoreCatalogSnapshot (stores plus their spatial index) published through an
+ * AtomicReference: a reload builds the next snapshot off the request path and swaps it in atomically, so readers
+ * never block, never hit DB and never see a half-loaded catalog.
  */
 @Service
 @Slf4j
 public class StoreService {
 
-    private final ObjectMapper objectMapper;
     private final StoreRepository storeRepository;
+    private final StoreCatalogLoader storeCatalogLoader;
+    private final ResourceLoader resourceLoader = new DefaultResourceLoader();
 
-    public StoreService(ObjectMapper objectMapper, StoreRepository storeRepository) {
-        this.objectMapper = objectMapper;
+    @Value("${couriertracking.store_index.cell_size.meters:250}")
+    private double STORE_INDEX_CELL_SIZE_METERS;
+
+    // classpath by default, point it to a file (file:/path/stores.json) to pick up changes on reload
+    @Value("${couriertracking.store_catalog.location:classpath:stores.json}")
+    private String STORE_CATALOG_LOCATION;
+
+    private final AtomicReference<StoreCatalogSnapshot> storeCatalog = new AtomicReference<>(StoreCatalogSnapshot.empty());
+    private final AtomicLong snapshotVersions = new AtomicLong();
+    // reloads run one at a time, off the request threads
+    private final ExecutorService reloadExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "store-catalog-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public StoreService(StoreRepository storeRepository, StoreCatalogLoader storeCatalogLoader) {
         this.storeRepository = storeRepository;
+        this.storeCatalogLoader = storeCatalogLoader;
     }
 
     @PostConstruct
-    //in the future, if this is used even after postConstruct, we'll need to ensure that the cache is wiped off since new data might be inserted
-    @CacheEvict(value = "stores", allEntries = true)
-    // method to get all stores from stores.json and persist them in the database
     public void loadAndPersistStores() {
-        try (InputStream inputStream = getClass().getResourceAsStream("/stores.json")) {
-            if (inputStream == null) {
-                log.error("Resource cannot be found for get");
-                return;
-            }
-            List<StoreDTO> storesFromJsonFile = objectMapper.readValue(inputStream, new TypeReference<>() {});
-
-            for (StoreDTO storeInput : storesFromJsonFile) {
-                Optional<StoreEntity> storeEntity = storeRepository.findByStoreName(storeInput.getName());
-
-                // we will use H2DB for ease of demonstration, an in memory db, it will be empty each time
-                // but, if db vendor is changed later on && after app restart the new db did not drop prev values,
-                // we can update the preexisting ones as using stores.json as a "single source of truth".
-                storeEntity.ifPresentOrElse(entity -> {
-                    entity.setLatitude(storeInput.getLat());
-                    entity.setLongitude(storeInput.getLng());
-                    storeRepository.save(entity);
-                    log.info("Store {} updated successfully", entity.getStoreName());
-                }, () -> {
-                    StoreEntity store = StoreEntity.builder()
-                            .storeName(storeInput.getName())
-                            .latitude(storeInput.getLat())
-                            .longitude(storeInput.getLng())
-                            .build();
-                    storeRepository.save(store);
-                    log.info("Store {} persisted successfully", store.getStoreName());
-                });
-            }
-            log.info("All stores persisted successfully.");
-        } catch (IOException e) {
-            log.error("Failed to load stores from stores.json: {}", e.getMessage(), e);
+        try {
+            reloadStores();
+        } catch (StoreCatalogLoadException e) {
+            log.error("Failed to load stores from {}: {}", STORE_CATALOG_LOCATION, e.getMessage(), e);
         }
     }
 
-    // we use caching to avoid excessive calls to DB, since the stores are read once and will not change again.
-    @Cacheable("stores")
+    @PreDestroy
+    public void shutdown() {
+        reloadExecutor.shutdown();
+    }
+
+    /**
+     * Reloads the store catalog on the reload thread.
+     * @return future of the published snapshot, completed exceptionally with StoreCatalogLoadException if the catalog file cannot be read.
+     */
+    public CompletableFuture<StoreCatalogSnapshot> reloadStoresAsync() {
+        return CompletableFuture.supplyAsync(this::reloadStores, reloadExecutor);
+    }
+
     /**
-     * Retrieves all stores from the database.
-     * Results are cached to improve performance since store data rarely changes.
-     * @return List of all store entities
+     * Applies the catalog file to the stores table (see StoreCatalogLoader) and publishes a new snapshot of the stores.
+     * Readers keep using the previous snapshot until the new one is published.
+     * @return the published snapshot.
+     * @throws StoreCatalogLoadException if the catalog file cannot be found or read, the current snapshot stays published.
+     */
+    public synchronized StoreCatalogSnapshot reloadStores() {
+        storeCatalogLoader.load(resourceLoader.getResource(STORE_CATALOG_LOCATION));
+        return publishSnapshot();
+    }
+
+    /**
+     * Retrieves all stores of the current catalog snapshot.
+     * @return unmodifiable list of all store entities
      */
     public List<StoreEntity> getStores() {
-        return storeRepository.findAll();
+        return storeCatalog.get().getStores();
+    }
+
+    /**
+     * Retrieves the stores within the given radius of a point, using the spatial index of the current snapshot.
+     * @param latitude latitude of the point
+     * @param longitude longitude of the point
+     * @param radiusMeters search radius in meters
+     * @return List of store entities within radius
+     */
+    public List<StoreEntity> getStoresWithinRadius(double latitude, double longitude, double radiusMeters) {
+        return storeCatalog.get().findWithinRadius(latitude, longitude, radiusMeters);
+    }
+
+    /**
+     * Retrieves a store of the current snapshot.
+     * @param storeId id of the store
+     * @return the store
+     * @throws EntityNotFoundException if there is no such store in the catalog
+     */
+    public StoreEntity getStore(Long storeId) {
+        return storeCatalog.get().findById(storeId)
+                .orElseThrow(() -> new EntityNotFoundException("Store " + storeId + " is not found in the store catalog."));
+    }
+
+    public StoreCatalogSnapshot getStoreCatalog() {
+        return storeCatalog.get();
+    }
+
+    /**
+     * Builds a new snapshot from the stores in the database and swaps it in.
+     * Must be called whenever the stores in the database change.
+     * @return the published snapshot.
+     */
+    public StoreCatalogSnapshot publishSnapshot() {
+        StoreCatalogSnapshot snapshot = StoreCatalogSnapshot.build(snapshotVersions.incrementAndGet(), storeRepository.findAll(), STORE_INDEX_CELL_SIZE_METERS);
+        storeCatalog.set(snapshot);
+        log.info("Store catalog snapshot {} published with {} stores.", snapshot.getVersion(), snapshot.size());
+        return snapshot;
     }
 }
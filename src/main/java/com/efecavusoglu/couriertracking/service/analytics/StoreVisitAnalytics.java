@@ -0,0 +1,243 @@
+package com.efecavusoglu.couriertracking.service.analytics;
+
+import com.efecavusoglu.couriertracking.model.dto.StoreVisitAnalyticsResponse;
+import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
+import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
+import com.efecavusoglu.couriertracking.repository.CourierStoreEntryRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Rolling per-store visit analytics, maintained as store entries are persisted instead of aggregating courier_store_entries:
+ * entries in the last 5 minutes, hour and 24 hours, and distinct couriers today and yesterday (see StoreVisitCounters).
+ * When a checkpoint.file is set, the aggregates are checkpointed to it every checkpoint.interval.ms and on shutdown. On
+ * startup, the checkpoint is loaded and only the store entries persisted after it (by id, within the last two days) are
+ * replayed from DB. Without one, all entries of the last two days are replayed -- a checkpoint only fits a persistent
+ * database, the entry ids and counts it holds are meaningless for a fresh in-memory one.
+ * Entries committed while a checkpoint is written may be counted once too few after a restore, the aggregates are
+ * meant for dashboards, not billing.
+ */
+@Component
+@Slf4j
+public class StoreVisitAnalytics {
+
+    private static final int CHECKPOINT_MAGIC = 0x53564131; // "SVA1"
+
+    @Value("${couriertracking.analytics.enabled:true}")
+    private boolean ANALYTICS_ENABLED;
+
+    @Value("${couriertracking.analytics.checkpoint.file:}")
+    private String CHECKPOINT_FILE;
+
+    private final CourierStoreEntryRepository courierStoreEntryRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, StoreVisitCounters> countersByStore = new ConcurrentHashMap<>();
+
+    public StoreVisitAnalytics(CourierStoreEntryRepository courierStoreEntryRepository, PlatformTransactionManager transactionManager) {
+        this.courierStoreEntryRepository = courierStoreEntryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Restores the aggregates from the checkpoint and catches them up with the entries persisted after it.
+     * Runs before the application takes traffic, so the replayed entries cannot be recorded twice.
+     */
+    @PostConstruct
+    public void restore() {
+        if (!ANALYTICS_ENABLED) {
+            log.info("Store visit analytics are disabled.");
+            return;
+        }
+        long start = System.currentTimeMillis();
+        if (isCheckpointEnabled()) {
+            restoreCheckpoint();
+        }
+        long replayed = catchUp(LocalDateTime.now());
+        log.info("Store visit analytics of {} stores restored, {} store entries replayed in {} ms",
+                countersByStore.size(), replayed, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Records persisted store entries. Within a transaction, they are recorded once it commits.
+     * @param storeEntries persisted store entries
+     */
+    public void record(List<CourierStoreEntryEntity> storeEntries) {
+        if (!ANALYTICS_ENABLED || storeEntries.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            storeEntries.forEach(this::record);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                storeEntries.forEach(StoreVisitAnalytics.this::record);
+            }
+        });
+    }
+
+    /**
+     * Gets the visit analytics of a store at the given time.
+     * @param store store to get the analytics of
+     * @param now time the rolling windows end at
+     * @return visit analytics, all 0 if the store has no recent entries.
+     */
+    public StoreVisitAnalyticsResponse getAnalytics(StoreEntity store, LocalDateTime now) {
+        StoreVisitCounters counters = countersByStore.get(store.getId());
+        StoreVisitAnalyticsResponse.StoreVisitAnalyticsResponseBuilder response = StoreVisitAnalyticsResponse.builder()
+                .storeId(store.getId())
+                .storeName(store.getStoreName());
+        if (counters == null) {
+            return response.build();
+        }
+        long nowMinute = toEpochMinute(now);
+        long today = now.toLocalDate().toEpochDay();
+        return response
+                .entriesLast5Minutes(counters.countMinutes(nowMinute, 5))
+                .entriesLastHour(counters.countMinutes(nowMinute, 60))
+                .entriesLast24Hours(counters.countHours(nowMinute, 24))
+                .uniqueCouriersToday(counters.countDistinctCouriers(today))
+                .uniqueCouriersYesterday(counters.countDistinctCouriers(today - 1))
+                .build();
+    }
+
+    @Scheduled(fixedDelayString = "${couriertracking.analytics.checkpoint.interval.ms:60000}",
+            initialDelayString = "${couriertracking.analytics.checkpoint.interval.ms:60000}")
+    public void scheduledCheckpoint() {
+        if (ANALYTICS_ENABLED && isCheckpointEnabled()) {
+            checkpoint();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ANALYTICS_ENABLED && isCheckpointEnabled()) {
+            checkpoint();
+        }
+    }
+
+    /**
+     * Writes the aggregates to the checkpoint file, through a temporary file that replaces it atomically.
+     */
+    public synchronized void checkpoint() {
+        if (!isCheckpointEnabled()) {
+            throw new IllegalStateException("Store visit analytics checkpoint file is not configured.");
+        }
+        Path checkpointFile = getCheckpointFile();
+        Path temporaryFile = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(checkpointFile.getParent());
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryFile)))) {
+                output.writeInt(CHECKPOINT_MAGIC);
+                // stores may be added while writing, the count must match the stores that are written
+                List<Map.Entry<Long, StoreVisitCounters>> stores = List.copyOf(countersByStore.entrySet());
+                output.writeInt(stores.size());
+                for (Map.Entry<Long, StoreVisitCounters> store : stores) {
+                    output.writeLong(store.getKey());
+                    store.getValue().writeTo(output);
+                }
+            }
+            Files.move(temporaryFile, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Store visit analytics of {} stores checkpointed to {}", countersByStore.size(), checkpointFile);
+        } catch (IOException e) {
+            log.error("Failed to checkpoint store visit analytics to {}", checkpointFile, e);
+        }
+    }
+
+    /**
+     * Drops all aggregates, e.g. when the store entries they were built from are gone.
+     */
+    public void clear() {
+        countersByStore.clear();
+    }
+
+    public boolean isCheckpointEnabled() {
+        return !CHECKPOINT_FILE.isBlank();
+    }
+
+    public Path getCheckpointFile() {
+        return Paths.get(CHECKPOINT_FILE).toAbsolutePath();
+    }
+
+    private void record(CourierStoreEntryEntity storeEntry) {
+        countersByStore.computeIfAbsent(storeEntry.getStore().getId(), storeId -> new StoreVisitCounters())
+                .record(storeEntry.getId(), storeEntry.getCourierId(), toEpochMinute(storeEntry.getTimestamp()));
+    }
+
+    private void restoreCheckpoint() {
+        Path checkpointFile = getCheckpointFile();
+        if (!Files.exists(checkpointFile)) {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointFile)))) {
+            if (input.readInt() != CHECKPOINT_MAGIC) {
+                throw new IOException("Not a store visit analytics checkpoint");
+            }
+            int storeCount = input.readInt();
+            for (int i = 0; i < storeCount; i++) {
+                long storeId = input.readLong();
+                countersByStore.put(storeId, StoreVisitCounters.readFrom(input));
+            }
+        } catch (IOException e) {
+            // the aggregates are rebuilt from the store entries of the last two days instead
+            log.warn("Failed to read store visit analytics checkpoint {}, rebuilding from DB", checkpointFile, e);
+            countersByStore.clear();
+        }
+    }
+
+    /**
+     * Replays the store entries persisted after the checkpoint, from the start of yesterday on -- nothing older is held.
+     * A store's entries up to the highest id it has recorded are skipped.
+     */
+    private long catchUp(LocalDateTime now) {
+        long afterId = countersByStore.values().stream()
+                .mapToLong(StoreVisitCounters::getMaxEntryId)
+                .min()
+                .orElse(0);
+        LocalDateTime since = now.toLocalDate().minusDays(1).atStartOfDay();
+        AtomicLong replayed = new AtomicLong();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<CourierStoreEntryRepository.StoreVisit> visits = courierStoreEntryRepository.streamVisitsAfter(afterId, since)) {
+                visits.forEach(visit -> {
+                    StoreVisitCounters counters = countersByStore.computeIfAbsent(visit.getStoreId(), storeId -> new StoreVisitCounters());
+                    if (visit.getId() > counters.getMaxEntryId()) {
+                        counters.record(visit.getId(), visit.getCourierId(), toEpochMinute(visit.getTimestamp()));
+                        replayed.incrementAndGet();
+                    }
+                });
+            }
+        });
+        return replayed.get();
+    }
+
+    private static long toEpochMinute(LocalDateTime timestamp) {
+        return Math.floorDiv(timestamp.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+}
@@ -0,0 +1,151 @@
+package com.efecavusoglu.couriertracking.service.analytics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Rolling visit aggregates of a single store, in time-bucketed rings keyed by the store entries' timestamps:
+ * 60 one-minute buckets (last 5 minutes, last hour), 24 one-hour buckets (last 24 hours) and a HyperLogLog sketch of the
+ * couriers per calendar day (today and yesterday). Each slot remembers which bucket it holds, so a slot is reset when
+ * its ring wraps around to a newer bucket, and entries older than a ring covers are left out of that ring.
+ * ~3 KB per store, the methods are synchronized -- a store's entries are rare enough for that not to contend.
+ */
+class StoreVisitCounters {
+
+    static final int MINUTE_BUCKETS = 60;
+    static final int HOUR_BUCKETS = 24;
+    static final int DAY_SKETCHES = 2;
+
+    private final long[] minuteIds = new long[MINUTE_BUCKETS];
+    private final int[] minuteCounts = new int[MINUTE_BUCKETS];
+    private final long[] hourIds = new long[HOUR_BUCKETS];
+    private final int[] hourCounts = new int[HOUR_BUCKETS];
+    private final long[] dayIds = new long[DAY_SKETCHES];
+    private final HyperLogLog[] dayCouriers = new HyperLogLog[DAY_SKETCHES];
+    // highest store entry id recorded, entries up to it are not replayed after a restore
+    private long maxEntryId;
+
+    StoreVisitCounters() {
+        for (int i = 0; i < DAY_SKETCHES; i++) {
+            dayCouriers[i] = new HyperLogLog();
+        }
+    }
+
+    /**
+     * Records a store entry.
+     * @param entryId id of the store entry
+     * @param courierId courier that entered the store
+     * @param epochMinute timestamp of the entry, in minutes since the epoch
+     */
+    synchronized void record(long entryId, String courierId, long epochMinute) {
+        int minuteSlot = slot(epochMinute, MINUTE_BUCKETS);
+        if (advance(minuteIds, minuteCounts, minuteSlot, epochMinute)) {
+            minuteCounts[minuteSlot]++;
+        }
+        long epochHour = Math.floorDiv(epochMinute, 60);
+        int hourSlot = slot(epochHour, HOUR_BUCKETS);
+        if (advance(hourIds, hourCounts, hourSlot, epochHour)) {
+            hourCounts[hourSlot]++;
+        }
+        long epochDay = Math.floorDiv(epochHour, 24);
+        int daySlot = slot(epochDay, DAY_SKETCHES);
+        if (dayIds[daySlot] < epochDay) {
+            dayIds[daySlot] = epochDay;
+            dayCouriers[daySlot].clear();
+        }
+        if (dayIds[daySlot] == epochDay) {
+            dayCouriers[daySlot].add(courierId);
+        }
+        maxEntryId = Math.max(maxEntryId, entryId);
+    }
+
+    /**
+     * Entries within the last `minutes` minutes up to and including nowMinute, at most 60 minutes.
+     */
+    synchronized long countMinutes(long nowMinute, int minutes) {
+        return sum(minuteIds, minuteCounts, nowMinute - minutes, nowMinute);
+    }
+
+    /**
+     * Entries within the last `hours` hours up to and including the hour of nowMinute, at most 24 hours.
+     */
+    synchronized long countHours(long nowMinute, int hours) {
+        long nowHour = Math.floorDiv(nowMinute, 60);
+        return sum(hourIds, hourCounts, nowHour - hours, nowHour);
+    }
+
+    /**
+     * Estimated number of distinct couriers that entered the store on the given day, 0 if it is not held anymore.
+     */
+    synchronized long countDistinctCouriers(long epochDay) {
+        int daySlot = slot(epochDay, DAY_SKETCHES);
+        return dayIds[daySlot] == epochDay ? dayCouriers[daySlot].estimate() : 0;
+    }
+
+    synchronized long getMaxEntryId() {
+        return maxEntryId;
+    }
+
+    synchronized void writeTo(DataOutput output) throws IOException {
+        output.writeLong(maxEntryId);
+        writeRing(output, minuteIds, minuteCounts);
+        writeRing(output, hourIds, hourCounts);
+        for (int i = 0; i < DAY_SKETCHES; i++) {
+            output.writeLong(dayIds[i]);
+            dayCouriers[i].writeTo(output);
+        }
+    }
+
+    static StoreVisitCounters readFrom(DataInput input) throws IOException {
+        StoreVisitCounters counters = new StoreVisitCounters();
+        counters.maxEntryId = input.readLong();
+        readRing(input, counters.minuteIds, counters.minuteCounts);
+        readRing(input, counters.hourIds, counters.hourCounts);
+        for (int i = 0; i < DAY_SKETCHES; i++) {
+            counters.dayIds[i] = input.readLong();
+            counters.dayCouriers[i].readFrom(input);
+        }
+        return counters;
+    }
+
+    /**
+     * Moves the slot to the bucket if the bucket is newer than the one it holds.
+     * @return false if the slot holds a newer bucket, i.e. the bucket has already been rolled out of the ring.
+     */
+    private static boolean advance(long[] ids, int[] counts, int slot, long bucket) {
+        if (ids[slot] < bucket) {
+            ids[slot] = bucket;
+            counts[slot] = 0;
+        }
+        return ids[slot] == bucket;
+    }
+
+    private static long sum(long[] ids, int[] counts, long afterBucket, long upToBucket) {
+        long sum = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] > afterBucket && ids[i] <= upToBucket) {
+                sum += counts[i];
+            }
+        }
+        return sum;
+    }
+
+    private static int slot(long bucket, int ringSize) {
+        return (int) Math.floorMod(bucket, (long) ringSize);
+    }
+
+    private static void writeRing(DataOutput output, long[] ids, int[] counts) throws IOException {
+        for (int i = 0; i < ids.length; i++) {
+            output.writeLong(ids[i]);
+            output.writeInt(counts[i]);
+        }
+    }
+
+    private static void readRing(DataInput input, long[] ids, int[] counts) throws IOException {
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = input.readLong();
+            counts[i] = input.readInt();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.efecavusoglu.couriertracking.service.archive;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.service.history.CourierTrack;
+
+/**
+ * A single location point read back from the archive.
+ */
+public record ArchivedPoint(double latitude, double longitude, long epochMillis) {
+
+    /**
+     * Transient (never persisted) location entity of the point, for code paths working on entities.
+     */
+    public CourierLocationEntity toLocationEntity(String courierId) {
+        return CourierLocationEntity.builder()
+                .courierId(courierId)
+                .latitude(latitude)
+                .longitude(longitude)
+                .timestamp(CourierTrack.toLocalDateTime(epochMillis))
+                .build();
+    }
+}
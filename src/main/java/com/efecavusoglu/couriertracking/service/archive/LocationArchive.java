@@ -0,0 +1,208 @@
+package com.efecavusoglu.couriertracking.service.archive;
+
+import com.efecavusoglu.couriertracking.model.entity.LocationArchiveSegmentEntity;
+import com.efecavusoglu.couriertracking.repository.LocationArchiveSegmentRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Cold tier of the location history: the segment files written by LocationArchiver, memory-mapped for reading.
+ * Segments are registered in location_archive_segments; on startup the registered segments are mapped and unregistered
+ * segment files (left over from archive runs that did not commit) are deleted.
+ */
+@Component
+@Slf4j
+public class LocationArchive {
+
+    static final String SEGMENT_FILE_SUFFIX = ".seg";
+
+    @Value("${couriertracking.archive.enabled:false}")
+    private boolean ARCHIVE_ENABLED;
+
+    @Value("${couriertracking.archive.directory:archive}")
+    private String ARCHIVE_DIRECTORY;
+
+    private final LocationArchiveSegmentRepository locationArchiveSegmentRepository;
+
+    // copy on write -- segments are added once per archive run, read on every history load
+    private volatile List<LocationSegment> segments = List.of();
+
+    public LocationArchive(LocationArchiveSegmentRepository locationArchiveSegmentRepository) {
+        this.locationArchiveSegmentRepository = locationArchiveSegmentRepository;
+    }
+
+    @PostConstruct
+    public void loadSegments() throws IOException {
+        if (!ARCHIVE_ENABLED) {
+            return;
+        }
+        Path directory = getDirectory();
+        Files.createDirectories(directory);
+
+        Set<String> registeredFileNames = locationArchiveSegmentRepository.findAll().stream()
+                .map(LocationArchiveSegmentEntity::getFileName)
+                .collect(Collectors.toSet());
+        List<LocationSegment> loadedSegments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_FILE_SUFFIX)) {
+            for (Path file : files) {
+                if (registeredFileNames.remove(file.getFileName().toString())) {
+                    loadedSegments.add(LocationSegment.open(file));
+                } else {
+                    log.warn("Deleting location segment {}, its archive run did not commit.", file);
+                    Files.delete(file);
+                }
+            }
+        }
+        registeredFileNames.forEach(fileName -> log.error("Registered location segment {} is missing from {}", fileName, directory));
+
+        segments = List.copyOf(loadedSegments);
+        log.info("Location archive: {} segments with {} points mapped from {}", segments.size(), getPointCount(), directory);
+    }
+
+    public boolean isEnabled() {
+        return ARCHIVE_ENABLED;
+    }
+
+    public Path getDirectory() {
+        return Paths.get(ARCHIVE_DIRECTORY).toAbsolutePath();
+    }
+
+    /**
+     * Decodes all archived points of a courier, segment by segment.
+     * Points are in timestamp order within a segment, but segments may overlap in time.
+     * @return number of points passed to the consumer
+     */
+    public long forEachPoint(String courierId, PointConsumer consumer) {
+        long count = 0;
+        for (LocationSegment segment : segments) {
+            count += segment.forEachPoint(courierId, consumer);
+        }
+        return count;
+    }
+
+    /**
+     * Finds the archived point of a courier with the greatest timestamp <= epochMillis.
+     */
+    public Optional<ArchivedPoint> findLastPointAtOrBefore(String courierId, long epochMillis) {
+        ArchivedPoint[] found = new ArchivedPoint[1];
+        for (LocationSegment segment : segments) {
+            Optional<LocationSegment.CourierBlock> block = segment.getBlock(courierId);
+            if (block.isEmpty() || block.get().firstTimestamp() > epochMillis
+                    || (found[0] != null && block.get().lastTimestamp() <= found[0].epochMillis())) {
+                continue;
+            }
+            segment.forEachPoint(courierId, (latitude, longitude, timestamp) -> {
+                if (timestamp <= epochMillis && (found[0] == null || timestamp > found[0].epochMillis())) {
+                    found[0] = new ArchivedPoint(latitude, longitude, timestamp);
+                }
+            });
+        }
+        return Optional.ofNullable(found[0]);
+    }
+
+    /**
+     * Finds the archived point of a courier with the smallest timestamp > epochMillis.
+     */
+    public Optional<ArchivedPoint> findFirstPointAfter(String courierId, long epochMillis) {
+        ArchivedPoint[] found = new ArchivedPoint[1];
+        for (LocationSegment segment : segments) {
+            Optional<LocationSegment.CourierBlock> block = segment.getBlock(courierId);
+            if (block.isEmpty() || block.get().lastTimestamp() <= epochMillis
+                    || (found[0] != null && block.get().firstTimestamp() >= found[0].epochMillis())) {
+                continue;
+            }
+            segment.forEachPoint(courierId, (latitude, longitude, timestamp) -> {
+                if (timestamp > epochMillis && (found[0] == null || timestamp < found[0].epochMillis())) {
+                    found[0] = new ArchivedPoint(latitude, longitude, timestamp);
+                }
+            });
+        }
+        return Optional.ofNullable(found[0]);
+    }
+
+    /**
+     * Whether the courier has an archived point at epochMillis with the given coordinates.
+     * Coordinates are compared at the archive's precision, 1e-7 degrees (see LocationSegmentWriter).
+     */
+    public boolean containsPoint(String courierId, long epochMillis, double latitude, double longitude) {
+        long latitudeUnits = Math.round(latitude * LocationSegmentWriter.COORDINATE_SCALE);
+        long longitudeUnits = Math.round(longitude * LocationSegmentWriter.COORDINATE_SCALE);
+        boolean[] found = new boolean[1];
+        for (LocationSegment segment : segments) {
+            Optional<LocationSegment.CourierBlock> block = segment.getBlock(courierId);
+            if (block.isEmpty() || block.get().firstTimestamp() > epochMillis || block.get().lastTimestamp() < epochMillis) {
+                continue;
+            }
+            segment.forEachPoint(courierId, (pointLatitude, pointLongitude, timestamp) -> {
+                if (timestamp == epochMillis
+                        && Math.round(pointLatitude * LocationSegmentWriter.COORDINATE_SCALE) == latitudeUnits
+                        && Math.round(pointLongitude * LocationSegmentWriter.COORDINATE_SCALE) == longitudeUnits) {
+                    found[0] = true;
+                }
+            });
+            if (found[0]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<LocationSegment> getSegments() {
+        return segments;
+    }
+
+    public long getPointCount() {
+        return segments.stream().mapToLong(LocationSegment::getPointCount).sum();
+    }
+
+    public long getSizeBytes() {
+        return segments.stream().mapToLong(LocationSegment::getSizeBytes).sum();
+    }
+
+    /**
+     * Makes a segment part of the history. Called by the archiver before its transaction commits.
+     */
+    synchronized void addSegment(LocationSegment segment) {
+        List<LocationSegment> updatedSegments = new ArrayList<>(segments);
+        updatedSegments.add(segment);
+        segments = List.copyOf(updatedSegments);
+    }
+
+    /**
+     * Takes a segment out of the history, when its archive run rolled back.
+     */
+    synchronized void removeSegment(LocationSegment segment) {
+        List<LocationSegment> updatedSegments = new ArrayList<>(segments);
+        updatedSegments.remove(segment);
+        segments = List.copyOf(updatedSegments);
+    }
+
+    /**
+     * Drops the whole archive: segment files and their registry.
+     */
+    public synchronized void clear() {
+        locationArchiveSegmentRepository.deleteAll();
+        for (LocationSegment segment : segments) {
+            try {
+                Files.deleteIfExists(segment.getPath());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete location segment " + segment.getPath(), e);
+            }
+        }
+        segments = List.of();
+    }
+}
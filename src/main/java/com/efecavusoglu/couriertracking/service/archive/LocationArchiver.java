@@ -0,0 +1,166 @@
+package com.efecavusoglu.couriertracking.service.archive;
+
+import com.efecavusoglu.couriertracking.model.entity.LocationArchiveSegmentEntity;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRoutingRepository;
+import com.efecavusoglu.couriertracking.repository.LocationArchiveSegmentRepository;
+import com.efecavusoglu.couriertracking.service.history.CourierTrack;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Moves locations older than max_age.hours out of courier_locations into archive segment files, one segment per day
+ * and archive run. Each day is moved in one transaction: the rows are streamed into a new segment file, the file is
+ * forced to disk, registered and made readable, and only then are the archived rows deleted -- by id, so rows
+ * inserted into the same day meanwhile stay in the table for the next run.
+ * With partitioning enabled, the table of a fully archived day is dropped once it is empty.
+ */
+@Component
+@Slf4j
+public class LocationArchiver {
+
+    // raw size of a point for the compression ratio: latitude, longitude and timestamp as fixed width values
+    private static final int RAW_POINT_BYTES = 2 * Double.BYTES + Long.BYTES;
+
+    @Value("${couriertracking.archive.enabled:false}")
+    private boolean ARCHIVE_ENABLED;
+
+    @Value("${couriertracking.archive.max_age.hours:168}")
+    private long MAX_AGE_HOURS;
+
+    private final CourierLocationRoutingRepository courierLocationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final LocationArchive locationArchive;
+    private final LocationArchiveSegmentRepository locationArchiveSegmentRepository;
+
+    public LocationArchiver(CourierLocationRoutingRepository courierLocationRepository,
+                            PlatformTransactionManager transactionManager,
+                            LocationArchive locationArchive,
+                            LocationArchiveSegmentRepository locationArchiveSegmentRepository) {
+        this.courierLocationRepository = courierLocationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.locationArchive = locationArchive;
+        this.locationArchiveSegmentRepository = locationArchiveSegmentRepository;
+    }
+
+    @Scheduled(fixedDelayString = "${couriertracking.archive.interval.ms:3600000}", initialDelayString = "${couriertracking.archive.interval.ms:3600000}")
+    public void archiveExpiredLocations() {
+        if (ARCHIVE_ENABLED) {
+            archiveLocationsBefore(LocalDateTime.now().minusHours(MAX_AGE_HOURS));
+        }
+    }
+
+    /**
+     * Archives all locations with a timestamp before the cutoff, day by day.
+     * @param cutoff locations before this timestamp are archived
+     * @return number of archived locations
+     */
+    public synchronized long archiveLocationsBefore(LocalDateTime cutoff) {
+        if (!ARCHIVE_ENABLED) {
+            throw new IllegalStateException("Location archive is disabled.");
+        }
+        LocalDateTime oldestTimestamp = courierLocationRepository.findOldestTimestampBefore(cutoff);
+        if (oldestTimestamp == null) {
+            return 0;
+        }
+
+        long archivedPoints = 0;
+        for (LocalDate day = oldestTimestamp.toLocalDate(); day.atStartOfDay().isBefore(cutoff); day = day.plusDays(1)) {
+            LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+            LocalDate archivedDay = day;
+            archivedPoints += transactionTemplate.execute(status ->
+                    archiveRange(archivedDay, archivedDay.atStartOfDay(), dayEnd.isBefore(cutoff) ? dayEnd : cutoff));
+            if (!dayEnd.isAfter(cutoff)) {
+                courierLocationRepository.dropPartitionIfEmpty(day);
+            }
+        }
+        return archivedPoints;
+    }
+
+    private long archiveRange(LocalDate day, LocalDateTime from, LocalDateTime to) {
+        String fileName = day + "-" + System.currentTimeMillis() + LocationArchive.SEGMENT_FILE_SUFFIX;
+        Path file = locationArchive.getDirectory().resolve(fileName);
+        LocationSegment[] segment = new LocationSegment[1];
+        // on rollback the rows stay in the table, so the segment must not be part of the history
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    discardSegment(file, segment[0]);
+                }
+            }
+        });
+
+        try {
+            long[][] ids = {new long[1024]};
+            int[] idCount = {0};
+            long sizeBytes;
+            long pointCount;
+            try (LocationSegmentWriter writer = LocationSegmentWriter.create(file)) {
+                courierLocationRepository.queryDayRange(from, to, resultSet -> {
+                    if (idCount[0] == ids[0].length) {
+                        ids[0] = Arrays.copyOf(ids[0], idCount[0] * 2);
+                    }
+                    ids[0][idCount[0]++] = resultSet.getLong(1);
+                    try {
+                        writer.append(resultSet.getString(2), resultSet.getDouble(3), resultSet.getDouble(4),
+                                CourierTrack.toEpochMillis(resultSet.getObject(5, LocalDateTime.class)));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                pointCount = writer.getPointCount();
+                if (pointCount == 0) {
+                    writer.close();
+                    Files.delete(file);
+                    return 0;
+                }
+                sizeBytes = writer.finish();
+            }
+
+            segment[0] = LocationSegment.open(file);
+            locationArchiveSegmentRepository.save(LocationArchiveSegmentEntity.builder()
+                    .fileName(fileName)
+                    .day(day)
+                    .pointCount(pointCount)
+                    .courierCount(segment[0].getCourierIds().size())
+                    .sizeBytes(sizeBytes)
+                    .createdAt(LocalDateTime.now())
+                    .build());
+            // readable before the rows are gone -- readers may briefly see a point twice, never miss one
+            locationArchive.addSegment(segment[0]);
+            courierLocationRepository.deleteByIds(day, ids[0], idCount[0]);
+
+            log.info("Archived {} locations of {} couriers from {} into {} ({} bytes, {} bytes/point, compression ratio {})",
+                    pointCount, segment[0].getCourierIds().size(), day, fileName, sizeBytes,
+                    String.format("%.2f", (double) sizeBytes / pointCount), String.format("%.1f", (double) pointCount * RAW_POINT_BYTES / sizeBytes));
+            return pointCount;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not archive locations of " + day, e);
+        }
+    }
+
+    private void discardSegment(Path file, LocationSegment segment) {
+        if (segment != null) {
+            locationArchive.removeSegment(segment);
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.error("Could not delete location segment {} of a rolled back archive run", file, e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.efecavusoglu.couriertracking.service.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Read-only, memory-mapped location archive segment, see LocationSegmentWriter for the layout.
+ * Only the index is read eagerly; point blocks are decoded straight from the mapped file on each read,
+ * so the points of cold history only take page cache, not heap.
+ */
+public class LocationSegment {
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final Map<String, CourierBlock> blocks;
+    private final long pointCount;
+
+    private LocationSegment(Path path, MappedByteBuffer buffer, Map<String, CourierBlock> blocks, long pointCount) {
+        this.path = path;
+        this.buffer = buffer;
+        this.blocks = blocks;
+        this.pointCount = pointCount;
+    }
+
+    /**
+     * Maps a segment file and reads its index.
+     * @throws IOException if the file cannot be read or is not a valid segment
+     */
+    public static LocationSegment open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < LocationSegmentWriter.TRAILER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Invalid location segment size: " + path);
+            }
+            // the mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        int trailer = buffer.capacity() - LocationSegmentWriter.TRAILER_BYTES;
+        long indexOffset = buffer.getLong(trailer);
+        long pointCount = buffer.getLong(trailer + Long.BYTES);
+        int version = buffer.getInt(trailer + 2 * Long.BYTES);
+        int magic = buffer.getInt(trailer + 2 * Long.BYTES + Integer.BYTES);
+        if (magic != LocationSegmentWriter.MAGIC || version != LocationSegmentWriter.VERSION) {
+            throw new IOException("Not a location segment (or unsupported version " + version + "): " + path);
+        }
+
+        ByteBuffer index = buffer.duplicate().position((int) indexOffset).limit(trailer);
+        int courierCount = index.getInt();
+        Map<String, CourierBlock> blocks = new HashMap<>(courierCount * 2);
+        for (int i = 0; i < courierCount; i++) {
+            byte[] id = new byte[index.getShort()];
+            index.get(id);
+            String courierId = new String(id, StandardCharsets.UTF_8);
+            blocks.put(courierId, new CourierBlock(courierId, index.getInt(), index.getLong(), index.getLong(), index.getLong(), index.getInt()));
+        }
+        return new LocationSegment(path, buffer, blocks, pointCount);
+    }
+
+    /**
+     * Decodes the points of a courier in timestamp order.
+     * @return number of points passed to the consumer, 0 if the courier is not in this segment
+     */
+    public int forEachPoint(String courierId, PointConsumer consumer) {
+        CourierBlock courierBlock = blocks.get(courierId);
+        if (courierBlock == null) {
+            return 0;
+        }
+
+        int[] cursor = {(int) courierBlock.offset()};
+        long timestamp = VarInts.unzigzag(VarInts.read(buffer, cursor));
+        long latitude = VarInts.unzigzag(VarInts.read(buffer, cursor));
+        long longitude = VarInts.unzigzag(VarInts.read(buffer, cursor));
+        consumer.accept(latitude / LocationSegmentWriter.COORDINATE_SCALE, longitude / LocationSegmentWriter.COORDINATE_SCALE, timestamp);
+        for (int i = 1; i < courierBlock.pointCount(); i++) {
+            timestamp += VarInts.read(buffer, cursor);
+            latitude += VarInts.unzigzag(VarInts.read(buffer, cursor));
+            longitude += VarInts.unzigzag(VarInts.read(buffer, cursor));
+            consumer.accept(latitude / LocationSegmentWriter.COORDINATE_SCALE, longitude / LocationSegmentWriter.COORDINATE_SCALE, timestamp);
+        }
+        return courierBlock.pointCount();
+    }
+
+    public Optional<CourierBlock> getBlock(String courierId) {
+        return Optional.ofNullable(blocks.get(courierId));
+    }
+
+    public Set<String> getCourierIds() {
+        return blocks.keySet();
+    }
+
+    public long getPointCount() {
+        return pointCount;
+    }
+
+    public long getSizeBytes() {
+        return buffer.capacity();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Index entry of a courier's point block.
+     */
+    public record CourierBlock(String courierId, int pointCount, long firstTimestamp, long lastTimestamp, long offset, int length) {}
+}
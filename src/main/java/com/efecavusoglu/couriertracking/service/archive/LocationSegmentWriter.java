@@ -0,0 +1,173 @@
+package com.efecavusoglu.couriertracking.service.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes a location archive segment file.
+ * Layout: one data block per courier, then the index of the blocks, then a fixed size trailer.
+ * <pre>
+ * block   : ts, lat, lng of the first point, then dTs, dLat, dLng per point (varints)
+ *           ts in epoch millis (zigzag), coordinates in fixed-point units of 1e-7 degrees (zigzag), dTs >= 0 (plain)
+ * index   : courierCount (int), then per courier: id length (short), id (UTF-8), pointCount (int),
+ *           firstTimestamp (long), lastTimestamp (long), block offset (long), block length (int)
+ * trailer : index offset (long), point count (long), version (int), magic (int)
+ * </pre>
+ * Points must be appended courier by courier, each courier's points in timestamp order.
+ */
+public class LocationSegmentWriter implements Closeable {
+
+    static final int MAGIC = 0x43545347; // "CTSG"
+    static final int VERSION = 1;
+    static final int TRAILER_BYTES = 2 * Long.BYTES + 2 * Integer.BYTES;
+    static final double COORDINATE_SCALE = 1e7;
+
+    private static final int MAX_POINT_BYTES = 3 * 10;
+
+    private final FileChannel channel;
+    private final List<LocationSegment.CourierBlock> index = new ArrayList<>();
+    private final Set<String> writtenCouriers = new HashSet<>();
+    private long dataOffset;
+    private long pointCount;
+    private boolean finished;
+
+    private String courierId;
+    private int courierPointCount;
+    private long firstTimestamp;
+    private long previousTimestamp;
+    private long previousLatitude;
+    private long previousLongitude;
+    private byte[] block = new byte[4096];
+    private int blockLength;
+
+    private LocationSegmentWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Creates a new segment file, fails if the file exists.
+     */
+    public static LocationSegmentWriter create(Path path) throws IOException {
+        return new LocationSegmentWriter(FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+    }
+
+    /**
+     * Appends a point of a courier.
+     * @throws IllegalArgumentException if the courier's points are not contiguous or not in timestamp order
+     */
+    public void append(String courierId, double latitude, double longitude, long epochMillis) throws IOException {
+        if (!courierId.equals(this.courierId)) {
+            flushCourier();
+            if (!writtenCouriers.add(courierId)) {
+                throw new IllegalArgumentException("Points of courier " + courierId + " are not contiguous.");
+            }
+            this.courierId = courierId;
+        }
+
+        long latitudeUnits = Math.round(latitude * COORDINATE_SCALE);
+        long longitudeUnits = Math.round(longitude * COORDINATE_SCALE);
+        ensureBlockCapacity();
+        if (courierPointCount == 0) {
+            firstTimestamp = epochMillis;
+            blockLength = VarInts.write(block, blockLength, VarInts.zigzag(epochMillis));
+            blockLength = VarInts.write(block, blockLength, VarInts.zigzag(latitudeUnits));
+            blockLength = VarInts.write(block, blockLength, VarInts.zigzag(longitudeUnits));
+        } else {
+            if (epochMillis < previousTimestamp) {
+                throw new IllegalArgumentException("Points of courier " + courierId + " are not in timestamp order.");
+            }
+            blockLength = VarInts.write(block, blockLength, epochMillis - previousTimestamp);
+            blockLength = VarInts.write(block, blockLength, VarInts.zigzag(latitudeUnits - previousLatitude));
+            blockLength = VarInts.write(block, blockLength, VarInts.zigzag(longitudeUnits - previousLongitude));
+        }
+        previousTimestamp = epochMillis;
+        previousLatitude = latitudeUnits;
+        previousLongitude = longitudeUnits;
+        courierPointCount++;
+        pointCount++;
+    }
+
+    public long getPointCount() {
+        return pointCount;
+    }
+
+    /**
+     * Writes the index and the trailer, and forces the file to disk.
+     * @return size of the segment file in bytes
+     */
+    public long finish() throws IOException {
+        flushCourier();
+
+        int indexBytes = Integer.BYTES;
+        List<byte[]> courierIds = new ArrayList<>(index.size());
+        for (LocationSegment.CourierBlock courierBlock : index) {
+            byte[] id = courierBlock.courierId().getBytes(StandardCharsets.UTF_8);
+            courierIds.add(id);
+            indexBytes += Short.BYTES + id.length + Integer.BYTES + 3 * Long.BYTES + Integer.BYTES;
+        }
+
+        ByteBuffer footer = ByteBuffer.allocate(indexBytes + TRAILER_BYTES);
+        footer.putInt(index.size());
+        for (int i = 0; i < index.size(); i++) {
+            LocationSegment.CourierBlock courierBlock = index.get(i);
+            footer.putShort((short) courierIds.get(i).length)
+                    .put(courierIds.get(i))
+                    .putInt(courierBlock.pointCount())
+                    .putLong(courierBlock.firstTimestamp())
+                    .putLong(courierBlock.lastTimestamp())
+                    .putLong(courierBlock.offset())
+                    .putInt(courierBlock.length());
+        }
+        footer.putLong(dataOffset).putLong(pointCount).putInt(VERSION).putInt(MAGIC);
+        footer.flip();
+        writeFully(footer);
+
+        channel.force(true);
+        finished = true;
+        channel.close();
+        return dataOffset + indexBytes + TRAILER_BYTES;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!finished) {
+            channel.close();
+        }
+    }
+
+    private void flushCourier() throws IOException {
+        if (courierId == null || courierPointCount == 0) {
+            return;
+        }
+        if (courierId.getBytes(StandardCharsets.UTF_8).length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Courier id is too long to be archived: " + courierId);
+        }
+        writeFully(ByteBuffer.wrap(block, 0, blockLength));
+        index.add(new LocationSegment.CourierBlock(courierId, courierPointCount, firstTimestamp, previousTimestamp, dataOffset, blockLength));
+        dataOffset += blockLength;
+        blockLength = 0;
+        courierPointCount = 0;
+    }
+
+    private void ensureBlockCapacity() {
+        if (blockLength + MAX_POINT_BYTES > block.length) {
+            block = Arrays.copyOf(block, block.length * 2);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
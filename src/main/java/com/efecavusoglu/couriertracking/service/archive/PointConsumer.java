@@ -0,0 +1,10 @@
+package com.efecavusoglu.couriertracking.service.archive;
+
+/**
+ * Receives decoded location points without materializing an object per point.
+ */
+@FunctionalInterface
+public interface PointConsumer {
+
+    void accept(double latitude, double longitude, long epochMillis);
+}
@@ -0,0 +1,52 @@
+package com.efecavusoglu.couriertracking.service.archive;
+
+import java.nio.ByteBuffer;
+
+/**
+ * LEB128 style variable length integers (7 bits per byte, high bit set on all bytes but the last) and zigzag mapping
+ * of signed values, so that small deltas of either sign take a single byte.
+ */
+final class VarInts {
+
+    private VarInts() {
+        // constructor is private -- prevent instantiation of the utility class
+    }
+
+    static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes an unsigned varint into the array.
+     * @return position after the written bytes
+     */
+    static int write(byte[] target, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Reads an unsigned varint at cursor[0] of the buffer (absolute reads), advancing the cursor.
+     */
+    static long read(ByteBuffer source, int[] cursor) {
+        int position = cursor[0];
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = source.get(position++);
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        cursor[0] = position;
+        return value;
+    }
+}
@@ -0,0 +1,178 @@
+package com.efecavusoglu.couriertracking.service.dedup;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRoutingRepository;
+import com.efecavusoglu.couriertracking.service.archive.LocationArchive;
+import com.efecavusoglu.couriertracking.service.history.CourierTrack;
+import com.efecavusoglu.couriertracking.service.metrics.IngestionMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Drops exact duplicate pings (same courierId, timestamp, latitude and longitude) -- device retries -- before they are persisted.
+ * Each courier has a watermark and a ring of its recently accepted pings (see RecentPings): pings newer than the watermark
+ * pass without a lookup, retries of recent pings are found in the ring, and only pings older than the ring covers are
+ * checked against DB and the location archive. The state of a courier is seeded with its newest persisted timestamp when
+ * it is first seen, or its newest archived one if it has no persisted locations left.
+ * Pings accepted in a transaction that rolls back are forgotten, so their retries are accepted again.
+ */
+@Component
+@Slf4j
+public class DuplicateLocationFilter {
+
+    @Value("${couriertracking.dedup.enabled:true}")
+    private boolean DEDUP_ENABLED;
+
+    @Value("${couriertracking.dedup.recent_pings_per_courier:32}")
+    private int RECENT_PINGS_PER_COURIER;
+
+    @Value("${couriertracking.dedup.max_couriers:100000}")
+    private int MAX_COURIERS;
+
+    private final ConcurrentHashMap<String, RecentPings> recentPingsByCourier = new ConcurrentHashMap<>();
+    private final CourierLocationRoutingRepository courierLocationRepository;
+    private final LocationArchive locationArchive;
+    private final IngestionMetrics ingestionMetrics;
+
+    public DuplicateLocationFilter(CourierLocationRoutingRepository courierLocationRepository, LocationArchive locationArchive,
+                                   IngestionMetrics ingestionMetrics) {
+        this.courierLocationRepository = courierLocationRepository;
+        this.locationArchive = locationArchive;
+        this.ingestionMetrics = ingestionMetrics;
+    }
+
+    /**
+     * Accepts a location unless it is a duplicate of an already accepted one.
+     * An accepted location counts as seen from now on; if the current transaction rolls back, it is forgotten again.
+     * @param location location to be ingested, not persisted yet
+     * @return true if the location is accepted, false if it is a duplicate and must be dropped.
+     */
+    public boolean tryAccept(CourierLocationEntity location) {
+        if (!DEDUP_ENABLED) {
+            return true;
+        }
+        long timestamp = toEpochNanos(location.getTimestamp());
+        long position = positionFingerprint(location.getLatitude(), location.getLongitude());
+
+        RecentPings recentPings = recentPingsByCourier.computeIfAbsent(location.getCourierId(), courierId -> new RecentPings(RECENT_PINGS_PER_COURIER));
+        boolean accepted;
+        synchronized (recentPings) {
+            if (!recentPings.isSeeded()) {
+                // archived locations are older than the persisted ones, the archive only matters once nothing is persisted
+                recentPings.seed(courierLocationRepository.findFirstByCourierIdOrderByTimestampDesc(location.getCourierId())
+                        .map(persisted -> toEpochNanos(persisted.getTimestamp()))
+                        .or(() -> locationArchive.findLastPointAtOrBefore(location.getCourierId(), Long.MAX_VALUE)
+                                // the archive keeps milliseconds, the last nanosecond of that millisecond bounds the original timestamp
+                                .map(archived -> toEpochNanos(CourierTrack.toLocalDateTime(archived.epochMillis())) + 999_999))
+                        .orElse(Long.MIN_VALUE));
+            }
+            accepted = switch (recentPings.check(timestamp, position)) {
+                case NEW -> true;
+                case DUPLICATE -> false;
+                case UNKNOWN -> {
+                    ingestionMetrics.recordDuplicateCheckLookup();
+                    yield !courierLocationRepository.existsByCourierIdAndTimestampAndLatitudeAndLongitude(
+                            location.getCourierId(), location.getTimestamp(), location.getLatitude(), location.getLongitude())
+                            && !locationArchive.containsPoint(location.getCourierId(), CourierTrack.toEpochMillis(location.getTimestamp()),
+                            location.getLatitude(), location.getLongitude());
+                }
+            };
+            if (accepted) {
+                recentPings.record(timestamp, position);
+            }
+        }
+
+        if (accepted) {
+            forgetOnRollback(location.getCourierId(), timestamp, position);
+            evictIfFull();
+        } else {
+            ingestionMetrics.recordDuplicates(1);
+        }
+        return accepted;
+    }
+
+    public void clear() {
+        recentPingsByCourier.clear();
+    }
+
+    /**
+     * Collects the pings accepted in the current transaction, and forgets them if it does not commit.
+     */
+    private void forgetOnRollback(String courierId, long timestamp, long position) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        List<AcceptedPing> acceptedPings = (List<AcceptedPing>) TransactionSynchronizationManager.getResource(this);
+        if (acceptedPings == null) {
+            List<AcceptedPing> transactionPings = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, transactionPings);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DuplicateLocationFilter.this);
+                    if (status != STATUS_COMMITTED) {
+                        forget(transactionPings);
+                    }
+                }
+            });
+            acceptedPings = transactionPings;
+        }
+        acceptedPings.add(new AcceptedPing(courierId, timestamp, position));
+    }
+
+    private void forget(List<AcceptedPing> acceptedPings) {
+        log.debug("Forgetting {} accepted pings of a rolled back transaction", acceptedPings.size());
+        for (AcceptedPing acceptedPing : acceptedPings) {
+            RecentPings recentPings = recentPingsByCourier.get(acceptedPing.courierId());
+            if (recentPings != null) {
+                synchronized (recentPings) {
+                    recentPings.forget(acceptedPing.timestamp(), acceptedPing.position());
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps the state within MAX_COURIERS couriers by dropping arbitrary ones down to 90% of the bound.
+     * A dropped courier is seeded from DB again when it is seen next.
+     */
+    private void evictIfFull() {
+        if (recentPingsByCourier.size() <= MAX_COURIERS) {
+            return;
+        }
+        int target = (int) (MAX_COURIERS * 0.9);
+        Iterator<String> iterator = recentPingsByCourier.keySet().iterator();
+        while (recentPingsByCourier.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        log.debug("Duplicate ping filter evicted down to {} couriers", recentPingsByCourier.size());
+    }
+
+    private static long toEpochNanos(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + timestamp.getNano();
+    }
+
+    /**
+     * 64-bit hash of the exact coordinates. Only compared between pings with the same timestamp, so a collision is not a concern.
+     */
+    private static long positionFingerprint(double latitude, double longitude) {
+        long hash = Double.doubleToLongBits(latitude) * 0x9E3779B97F4A7C15L + Double.doubleToLongBits(longitude);
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        return hash ^ (hash >>> 33);
+    }
+
+    private record AcceptedPing(String courierId, long timestamp, long position) {}
+}
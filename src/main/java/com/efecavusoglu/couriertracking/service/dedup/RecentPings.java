@@ -0,0 +1,75 @@
+package com.efecavusoglu.couriertracking.service.dedup;
+
+import java.util.Arrays;
+
+/**
+ * Recently accepted pings of a single courier: a watermark (newest accepted timestamp) and a ring of the last
+ * accepted (timestamp, position) fingerprints. Not thread-safe, DuplicateLocationFilter locks it per courier.
+ * Every accepted ping newer than the floor (the newest timestamp that fell out of the ring, or the newest persisted
+ * timestamp the state was seeded with) is still in the ring, so only pings at or below the floor need a DB check.
+ */
+final class RecentPings {
+
+    enum Verdict { NEW, DUPLICATE, UNKNOWN }
+
+    // marks a free or forgotten slot, no real ping has this timestamp
+    private static final long EMPTY_SLOT = Long.MIN_VALUE;
+
+    private final long[] timestamps;
+    private final long[] positions;
+    private int next;
+    private boolean seeded;
+    private long watermark = Long.MIN_VALUE;
+    private long floor = Long.MIN_VALUE;
+
+    RecentPings(int capacity) {
+        this.timestamps = new long[capacity];
+        this.positions = new long[capacity];
+        Arrays.fill(timestamps, EMPTY_SLOT);
+    }
+
+    boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * @param lastPersistedTimestamp newest persisted timestamp of the courier, Long.MIN_VALUE if none
+     */
+    void seed(long lastPersistedTimestamp) {
+        watermark = Math.max(watermark, lastPersistedTimestamp);
+        floor = Math.max(floor, lastPersistedTimestamp);
+        seeded = true;
+    }
+
+    Verdict check(long timestamp, long position) {
+        if (timestamp > watermark) {
+            return Verdict.NEW;
+        }
+        for (int i = 0; i < timestamps.length; i++) {
+            if (timestamps[i] == timestamp && positions[i] == position) {
+                return Verdict.DUPLICATE;
+            }
+        }
+        return timestamp > floor ? Verdict.NEW : Verdict.UNKNOWN;
+    }
+
+    void record(long timestamp, long position) {
+        floor = Math.max(floor, timestamps[next]);
+        timestamps[next] = timestamp;
+        positions[next] = position;
+        next = (next + 1) % timestamps.length;
+        watermark = Math.max(watermark, timestamp);
+    }
+
+    /**
+     * Forgets an accepted ping that was not persisted after all. The watermark stays, later pings below it are just checked against the ring.
+     */
+    void forget(long timestamp, long position) {
+        for (int i = 0; i < timestamps.length; i++) {
+            if (timestamps[i] == timestamp && positions[i] == position) {
+                timestamps[i] = EMPTY_SLOT;
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.efecavusoglu.couriertracking.service.events;
+
+import com.efecavusoglu.couriertracking.model.dto.StoreEntryEventResponse;
+import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
+import com.efecavusoglu.couriertracking.util.MapperUtil;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes store entries to Server-Sent Events subscribers as CourierService creates them.
+ * Publishing never blocks ingestion: each event is only offered to the bounded buffer of every matching subscriber
+ * (see StoreEntrySubscription), sending is done by one virtual thread per subscriber. A subscriber that falls behind
+ * by more than buffer_size events loses the overflow and is told how many events it missed.
+ * Store entries of a transaction are published once it commits, so subscribers never see entries that were rolled back.
+ */
+@Component
+@Slf4j
+public class StoreEntryEventBroadcaster {
+
+    @Value("${couriertracking.store_entry_events.buffer_size:1024}")
+    private int BUFFER_SIZE;
+
+    @Value("${couriertracking.store_entry_events.heartbeat.ms:15000}")
+    private long HEARTBEAT_MILLIS;
+
+    @Value("${couriertracking.store_entry_events.timeout.ms:1800000}")
+    private long TIMEOUT_MILLIS;
+
+    private final Map<Long, StoreEntrySubscription> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicLong subscriptionIds = new AtomicLong();
+
+    private final Counter publishedCounter;
+    private final Counter droppedCounter;
+
+    public StoreEntryEventBroadcaster(MeterRegistry meterRegistry) {
+        Gauge.builder("couriertracking.store_entry_events.subscribers", subscriptions, Map::size)
+                .description("Open store entry event subscriptions")
+                .register(meterRegistry);
+        this.publishedCounter = Counter.builder("couriertracking.store_entry_events.published")
+                .description("Store entry events published to the subscribers")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("couriertracking.store_entry_events.dropped")
+                .description("Store entry events dropped because a subscriber's buffer was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a new subscription.
+     * @param storeIds stores to receive the entries of, all stores if empty
+     * @param courierIds couriers to receive the entries of, all couriers if empty
+     * @return emitter streaming the matching store entry events.
+     */
+    public SseEmitter subscribe(Set<Long> storeIds, Set<String> courierIds) {
+        return subscribe(new SseEmitter(TIMEOUT_MILLIS), storeIds, courierIds);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, Set<Long> storeIds, Set<String> courierIds) {
+        StoreEntrySubscription subscription = new StoreEntrySubscription(subscriptionIds.incrementAndGet(), emitter, storeIds, courierIds, BUFFER_SIZE);
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(() -> unsubscribe(subscription));
+        emitter.onError(e -> unsubscribe(subscription));
+        subscriptions.put(subscription.getId(), subscription);
+
+        Thread.ofVirtual().name("store-entry-events-" + subscription.getId()).start(() -> {
+            try {
+                subscription.deliver(HEARTBEAT_MILLIS);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Store entry event subscription {} is gone: {}", subscription.getId(), e.getMessage());
+                emitter.completeWithError(e);
+            } finally {
+                unsubscribe(subscription);
+            }
+        });
+        log.debug("Store entry event subscription {} opened (stores {}, couriers {})", subscription.getId(), storeIds, courierIds);
+        return emitter;
+    }
+
+    /**
+     * Publishes newly created store entries to the subscribers.
+     * Within a transaction, the entries are published once it commits and dropped if it rolls back.
+     * @param storeEntries created store entries, with their store
+     */
+    public void publish(List<CourierStoreEntryEntity> storeEntries) {
+        if (storeEntries.isEmpty() || subscriptions.isEmpty()) {
+            return;
+        }
+        List<StoreEntryEventResponse> events = storeEntries.stream()
+                .map(MapperUtil::mapStoreEntryEntityToEventResponse)
+                .toList();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            broadcast(events);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                broadcast(events);
+            }
+        });
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    private void broadcast(List<StoreEntryEventResponse> events) {
+        for (StoreEntrySubscription subscription : subscriptions.values()) {
+            for (StoreEntryEventResponse event : events) {
+                if (subscription.matches(event) && !subscription.offer(event)) {
+                    droppedCounter.increment();
+                }
+            }
+        }
+        publishedCounter.increment(events.size());
+    }
+
+    private void unsubscribe(StoreEntrySubscription subscription) {
+        if (subscriptions.remove(subscription.getId()) != null) {
+            subscription.close();
+            log.debug("Store entry event subscription {} closed", subscription.getId());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        subscriptions.values().forEach(StoreEntrySubscription::complete);
+        subscriptions.clear();
+    }
+}
@@ -0,0 +1,108 @@
+package com.efecavusoglu.couriertracking.service.events;
+
+import com.efecavusoglu.couriertracking.model.dto.StoreEntryEventResponse;
+import org.jctools.queues.MpscArrayQueue;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A subscriber of the store entry event stream.
+ * Events are offered by the ingestion threads to a bounded lock-free buffer (many producers, one consumer) and sent to the
+ * client by the subscription's own delivery thread, so a slow client only ever blocks its own thread. When the buffer is
+ * full, events are dropped and counted, and the client is told how many it missed with a "dropped" event before the next one.
+ */
+class StoreEntrySubscription {
+
+    static final String STORE_ENTRY_EVENT = "store-entry";
+    static final String DROPPED_EVENT = "dropped";
+
+    private final long id;
+    private final SseEmitter emitter;
+    // empty means no filter
+    private final Set<Long> storeIds;
+    private final Set<String> courierIds;
+    private final MpscArrayQueue<StoreEntryEventResponse> buffer;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile Thread deliveryThread;
+    private volatile boolean open = true;
+
+    StoreEntrySubscription(long id, SseEmitter emitter, Set<Long> storeIds, Set<String> courierIds, int bufferSize) {
+        this.id = id;
+        this.emitter = emitter;
+        this.storeIds = Set.copyOf(storeIds);
+        this.courierIds = Set.copyOf(courierIds);
+        this.buffer = new MpscArrayQueue<>(bufferSize);
+    }
+
+    long getId() {
+        return id;
+    }
+
+    boolean isOpen() {
+        return open;
+    }
+
+    boolean matches(StoreEntryEventResponse event) {
+        return (storeIds.isEmpty() || storeIds.contains(event.getStoreId()))
+                && (courierIds.isEmpty() || courierIds.contains(event.getCourierId()));
+    }
+
+    /**
+     * Hands an event over to the delivery thread, never blocks.
+     * @return false if the buffer was full and the event was dropped.
+     */
+    boolean offer(StoreEntryEventResponse event) {
+        boolean offered = buffer.offer(event);
+        if (!offered) {
+            dropped.incrementAndGet();
+        }
+        LockSupport.unpark(deliveryThread);
+        return offered;
+    }
+
+    /**
+     * Sends the buffered events to the client until the subscription is closed.
+     * Parks while there is nothing to send; a heartbeat comment is sent after heartbeatMillis of silence, so that
+     * disconnected clients are noticed even if there are no events for them.
+     * @throws IOException if the client cannot be written to anymore
+     */
+    void deliver(long heartbeatMillis) throws IOException {
+        deliveryThread = Thread.currentThread();
+        long heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatMillis);
+        long lastSend = System.nanoTime();
+        while (open) {
+            long droppedCount = dropped.getAndSet(0);
+            if (droppedCount > 0) {
+                emitter.send(SseEmitter.event().name(DROPPED_EVENT).data(droppedCount));
+                lastSend = System.nanoTime();
+            }
+            StoreEntryEventResponse event = buffer.poll();
+            if (event != null) {
+                emitter.send(SseEmitter.event().name(STORE_ENTRY_EVENT).data(event));
+                lastSend = System.nanoTime();
+                continue;
+            }
+            if (System.nanoTime() - lastSend >= heartbeatNanos) {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+                lastSend = System.nanoTime();
+            }
+            LockSupport.parkNanos(this, heartbeatNanos);
+        }
+    }
+
+    void close() {
+        open = false;
+        LockSupport.unpark(deliveryThread);
+    }
+
+    void complete() {
+        close();
+        emitter.complete();
+    }
+}
@@ -0,0 +1,206 @@
+package com.efecavusoglu.couriertracking.service.history;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRoutingRepository;
+import com.efecavusoglu.couriertracking.service.archive.LocationArchive;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory columnar location history, one CourierTrack per courier.
+ * A courier's track is loaded on its first read from the location archive (cold) and DB (hot), straight into
+ * primitive arrays, no entities are materialized; it is then kept up to date with the locations committed afterwards. Tracks are dropped when more than max_points points are
+ * held; a dropped track is simply reloaded on its next read.
+ */
+@Component
+@Slf4j
+public class CourierLocationHistoryStore {
+
+    @Value("${couriertracking.history.enabled:true}")
+    private boolean HISTORY_ENABLED;
+
+    @Value("${couriertracking.history.max_points:5000000}")
+    private long MAX_POINTS;
+
+    private final CourierLocationRoutingRepository courierLocationRepository;
+    private final LocationArchive locationArchive;
+
+    private final ConcurrentHashMap<String, CourierTrack> tracks = new ConcurrentHashMap<>();
+    private final AtomicLong pointCount = new AtomicLong();
+
+    public CourierLocationHistoryStore(CourierLocationRoutingRepository courierLocationRepository, LocationArchive locationArchive) {
+        this.courierLocationRepository = courierLocationRepository;
+        this.locationArchive = locationArchive;
+    }
+
+    /**
+     * Gets the track of a courier, loading it from DB if it is not held in memory.
+     * @param courierId id of the courier
+     * @return track of the courier, empty if the courier has no locations.
+     */
+    public CourierTrack getTrack(String courierId) {
+        if (!HISTORY_ENABLED) {
+            return loadHistory(courierId);
+        }
+        CourierTrack track = tracks.get(courierId);
+        if (track != null) {
+            return track;
+        }
+        // loading under the map's lock for this courier, so locations committed meanwhile wait for the loaded track
+        track = tracks.computeIfAbsent(courierId, id -> {
+            CourierTrack loadedTrack = loadHistory(id);
+            pointCount.addAndGet(loadedTrack.size());
+            return loadedTrack;
+        });
+        evictIfFull(courierId);
+        return track;
+    }
+
+    /**
+     * Gets a track of a courier holding at least the locations within [from, to]. With the history held in memory this
+     * is the courier's full track; otherwise only the window is loaded, from the days of the window.
+     * @param from start of the window (inclusive), unbounded if null
+     * @param to end of the window (inclusive), unbounded if null
+     */
+    public CourierTrack getTrack(String courierId, LocalDateTime from, LocalDateTime to) {
+        if (HISTORY_ENABLED || (from == null && to == null)) {
+            return getTrack(courierId);
+        }
+        return loadHistory(courierId, from, to);
+    }
+
+    /**
+     * Adds new locations to the tracks held in memory, once the surrounding transaction (if any) commits.
+     * Tracks that are not held in memory are left alone, they will see the locations when they are loaded.
+     * @param locations locations being persisted, in any order and for any number of couriers.
+     */
+    public void recordLocations(List<CourierLocationEntity> locations) {
+        if (!HISTORY_ENABLED || locations.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<CourierLocationEntity> committedLocations = List.copyOf(locations);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyLocations(committedLocations);
+                }
+            });
+        } else {
+            applyLocations(locations);
+        }
+    }
+
+    /**
+     * Drops the tracks of the given couriers once the surrounding transaction (if any) commits, e.g. after some of their
+     * locations were deleted. They are reloaded on their next read.
+     * @param courierIds couriers whose history changed
+     */
+    public void invalidate(Collection<String> courierIds) {
+        if (!HISTORY_ENABLED || courierIds.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<String> invalidatedCourierIds = List.copyOf(courierIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dropTracks(invalidatedCourierIds);
+                }
+            });
+        } else {
+            dropTracks(courierIds);
+        }
+    }
+
+    public void clear() {
+        tracks.clear();
+        pointCount.set(0);
+    }
+
+    /**
+     * Number of points held in memory, over all tracks.
+     */
+    public long getPointCount() {
+        return pointCount.get();
+    }
+
+    private void dropTracks(Collection<String> courierIds) {
+        for (String courierId : courierIds) {
+            CourierTrack track = tracks.remove(courierId);
+            if (track != null) {
+                pointCount.addAndGet(-track.size());
+            }
+        }
+    }
+
+    private void applyLocations(List<CourierLocationEntity> locations) {
+        Map<String, List<CourierLocationEntity>> locationsByCourier = locations.stream()
+                .collect(Collectors.groupingBy(CourierLocationEntity::getCourierId));
+        locationsByCourier.forEach((courierId, courierLocations) -> tracks.computeIfPresent(courierId, (id, track) -> {
+            // a track loaded while these locations were committing may already hold them, insert skips exact duplicates
+            for (CourierLocationEntity location : courierLocations) {
+                if (track.insert(location.getLatitude(), location.getLongitude(), CourierTrack.toEpochMillis(location.getTimestamp()))) {
+                    pointCount.incrementAndGet();
+                }
+            }
+            return track;
+        }));
+    }
+
+    /**
+     * Loads the full history of a courier, archived and persisted, into a new track that is not held by the store.
+     * Runs within the caller's transaction, if any.
+     * @param courierId id of the courier
+     * @return track of the courier, empty if the courier has no locations.
+     */
+    public CourierTrack loadHistory(String courierId) {
+        return loadHistory(courierId, null, null);
+    }
+
+    private CourierTrack loadHistory(String courierId, LocalDateTime from, LocalDateTime to) {
+        CourierTrack track = new CourierTrack();
+        long fromMillis = from == null ? Long.MIN_VALUE : CourierTrack.toEpochMillis(from);
+        long toMillis = to == null ? Long.MAX_VALUE : CourierTrack.toEpochMillis(to);
+        // while an archive run commits, a point may be in both tiers -- the track skips the second copy
+        locationArchive.forEachPoint(courierId, (latitude, longitude, epochMillis) -> {
+            if (epochMillis >= fromMillis && epochMillis <= toMillis) {
+                track.insert(latitude, longitude, epochMillis);
+            }
+        });
+        courierLocationRepository.forEachPoint(courierId, from, to, track::insert);
+        track.trimToSize();
+        return track;
+    }
+
+    /**
+     * Keeps the held points within MAX_POINTS by dropping arbitrary tracks down to 90% of the bound, except the one just read.
+     */
+    private void evictIfFull(String courierIdInUse) {
+        if (pointCount.get() <= MAX_POINTS) {
+            return;
+        }
+        long target = (long) (MAX_POINTS * 0.9);
+        Iterator<Map.Entry<String, CourierTrack>> iterator = tracks.entrySet().iterator();
+        while (pointCount.get() > target && iterator.hasNext()) {
+            Map.Entry<String, CourierTrack> entry = iterator.next();
+            if (!entry.getKey().equals(courierIdInUse)) {
+                iterator.remove();
+                pointCount.addAndGet(-entry.getValue().size());
+            }
+        }
+        log.debug("Location history evicted down to {} points in {} tracks", pointCount.get(), tracks.size());
+    }
+}
@@ -0,0 +1,203 @@
+package com.efecavusoglu.couriertracking.service.history;
+
+import com.efecavusoglu.couriertracking.util.DistanceUtil;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Columnar, timestamp-ordered location history of a single courier.
+ * Points are kept in parallel primitive arrays (latitude, longitude, epoch millis) instead of one entity per point,
+ * which takes BYTES_PER_POINT bytes per point plus the unused capacity of the arrays (at most a third after growing).
+ * Points arriving in timestamp order are appended, late points are shifted into place.
+ * Along with the points, the cumulative travel distance up to each point is kept (prefix sums), so the distance over
+ * any time window is the difference of two prefix sums found by binary search.
+ * Timestamps are kept at millisecond precision, LocalDateTime values are interpreted as UTC.
+ */
+public class CourierTrack {
+
+    public static final int BYTES_PER_POINT = 3 * Double.BYTES + Long.BYTES;
+
+    private static final int INITIAL_CAPACITY = 16;
+    // resolution of archived coordinates, see LocationSegmentWriter -- an archived copy of a point counts as a duplicate
+    private static final double DUPLICATE_COORDINATE_TOLERANCE = 1e-7;
+
+    private double[] latitudes;
+    private double[] longitudes;
+    private long[] timestamps;
+    // cumulativeDistances[i]: travel distance in meters from the first point to point i
+    private double[] cumulativeDistances;
+    private int size;
+
+    public CourierTrack() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public CourierTrack(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 1);
+        this.latitudes = new double[capacity];
+        this.longitudes = new double[capacity];
+        this.timestamps = new long[capacity];
+        this.cumulativeDistances = new double[capacity];
+    }
+
+    /**
+     * Inserts a point at its timestamp position.
+     * A duplicate of an existing point (same timestamp, coordinates equal up to archive resolution) is ignored.
+     * A late point replaces the segment between its neighbours, prev -> next becomes prev -> point -> next,
+     * and the prefix sums after it are shifted by the difference.
+     * @param latitude latitude of the point
+     * @param longitude longitude of the point
+     * @param epochMillis timestamp of the point in epoch millis
+     * @return true if the point was inserted, false if it was a duplicate.
+     */
+    public synchronized boolean insert(double latitude, double longitude, long epochMillis) {
+        int index = size > 0 && epochMillis >= timestamps[size - 1] ? size : upperBound(epochMillis);
+        for (int i = index - 1; i >= 0 && timestamps[i] == epochMillis; i--) {
+            if (Math.abs(latitudes[i] - latitude) <= DUPLICATE_COORDINATE_TOLERANCE
+                    && Math.abs(longitudes[i] - longitude) <= DUPLICATE_COORDINATE_TOLERANCE) {
+                return false;
+            }
+        }
+
+        ensureCapacity(size + 1);
+        if (index < size) {
+            System.arraycopy(latitudes, index, latitudes, index + 1, size - index);
+            System.arraycopy(longitudes, index, longitudes, index + 1, size - index);
+            System.arraycopy(timestamps, index, timestamps, index + 1, size - index);
+            System.arraycopy(cumulativeDistances, index, cumulativeDistances, index + 1, size - index);
+        }
+        latitudes[index] = latitude;
+        longitudes[index] = longitude;
+        timestamps[index] = epochMillis;
+        size++;
+
+        double distanceFromPrevious = index > 0 ? segmentDistance(index - 1, index) : 0.0;
+        cumulativeDistances[index] = index > 0 ? cumulativeDistances[index - 1] + distanceFromPrevious : 0.0;
+        if (index < size - 1) {
+            double delta = distanceFromPrevious + segmentDistance(index, index + 1)
+                    - (index > 0 ? segmentDistance(index - 1, index + 1) : 0.0);
+            for (int i = index + 1; i < size; i++) {
+                cumulativeDistances[i] += delta;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Travel distance along the points with timestamps within [fromMillis, toMillis], from the prefix sums.
+     * @return distance in meters, 0 if there are less than 2 points in the window.
+     */
+    public synchronized double distanceBetween(long fromMillis, long toMillis) {
+        int first = lowerBound(fromMillis);
+        int last = upperBound(toMillis) - 1;
+        return last > first ? cumulativeDistances[last] - cumulativeDistances[first] : 0.0;
+    }
+
+    /**
+     * Travel distance along all points of the track.
+     */
+    public synchronized double totalDistance() {
+        return size > 1 ? cumulativeDistances[size - 1] : 0.0;
+    }
+
+    /**
+     * Copies the points with timestamps within [fromMillis, toMillis].
+     */
+    public synchronized Slice sliceBetween(long fromMillis, long toMillis) {
+        int from = lowerBound(fromMillis);
+        int to = Math.max(from, upperBound(toMillis));
+        return new Slice(Arrays.copyOfRange(latitudes, from, to), Arrays.copyOfRange(longitudes, from, to), Arrays.copyOfRange(timestamps, from, to));
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Heap taken by the point arrays, including their unused capacity.
+     */
+    public synchronized long footprintBytes() {
+        return (long) timestamps.length * BYTES_PER_POINT;
+    }
+
+    /**
+     * Drops the unused capacity, e.g. after bulk loading a history.
+     */
+    public synchronized void trimToSize() {
+        if (timestamps.length > size) {
+            latitudes = Arrays.copyOf(latitudes, Math.max(size, 1));
+            longitudes = Arrays.copyOf(longitudes, Math.max(size, 1));
+            timestamps = Arrays.copyOf(timestamps, Math.max(size, 1));
+            cumulativeDistances = Arrays.copyOf(cumulativeDistances, Math.max(size, 1));
+        }
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity > timestamps.length) {
+            int newCapacity = Math.max(minCapacity, timestamps.length + (timestamps.length >> 1));
+            latitudes = Arrays.copyOf(latitudes, newCapacity);
+            longitudes = Arrays.copyOf(longitudes, newCapacity);
+            timestamps = Arrays.copyOf(timestamps, newCapacity);
+            cumulativeDistances = Arrays.copyOf(cumulativeDistances, newCapacity);
+        }
+    }
+
+    private double segmentDistance(int from, int to) {
+        return DistanceUtil.calculateDistance(latitudes[from], longitudes[from], latitudes[to], longitudes[to]);
+    }
+
+    /**
+     * Index of the first point with a timestamp >= epochMillis, size if there is none.
+     */
+    private int lowerBound(long epochMillis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < epochMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Index of the first point with a timestamp > epochMillis, size if there is none.
+     */
+    private int upperBound(long epochMillis) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] <= epochMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+
+    /**
+     * Copied range of a track, in timestamp order.
+     */
+    public record Slice(double[] latitudes, double[] longitudes, long[] timestamps) {
+
+        public int size() {
+            return timestamps.length;
+        }
+    }
+}
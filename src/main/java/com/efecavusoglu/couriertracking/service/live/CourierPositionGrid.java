@@ -0,0 +1,259 @@
+package com.efecavusoglu.couriertracking.service.live;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.METERS_PER_DEGREE;
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistance;
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.paddedRadiusDegrees;
+
+/**
+ * Concurrent grid (bucket) index over the latest position of each courier.
+ * Like StoreSpatialIndex, positions are bucketed into fixed-size lat/lng cells, but the grid is updated in place:
+ * a courier's update is applied under its own lock and moves it from its old cell to its new one, readers never block.
+ * A reader may miss a courier that is just moving between cells -- acceptable for a live view, the next read sees it.
+ * Positions only move forward in event time: an older update refreshes the courier's last-seen time but not its position.
+ */
+public class CourierPositionGrid {
+
+    // below this cos(lat) value (~89.4 degrees) longitude degrees are not meaningful anymore, so we clamp
+    private static final double MIN_COS_LATITUDE = 0.01;
+
+    private final double cellSizeDegrees;
+    private final ConcurrentHashMap<String, CourierPosition> positions = new ConcurrentHashMap<>();
+    // cell key -> courierId -> position
+    private final ConcurrentHashMap<Long, Map<String, CourierPosition>> cells = new ConcurrentHashMap<>();
+
+    public CourierPositionGrid(double cellSizeMeters) {
+        if (cellSizeMeters <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive.");
+        }
+        this.cellSizeDegrees = cellSizeMeters / METERS_PER_DEGREE;
+    }
+
+    /**
+     * Records a position of a courier.
+     * @param courierId id of the courier
+     * @param latitude latitude of the position
+     * @param longitude longitude of the position
+     * @param timestampMillis event time of the position, epoch millis
+     * @param seenAtNanos System.nanoTime() based time the position was received
+     */
+    public void update(String courierId, double latitude, double longitude, long timestampMillis, long seenAtNanos) {
+        positions.compute(courierId, (id, current) -> {
+            if (current != null && current.timestampMillis() > timestampMillis) {
+                CourierPosition refreshed = current.seenAt(seenAtNanos);
+                // readers go through the cells, so the cell must hold the refreshed position too
+                cells.get(current.cellKey()).put(id, refreshed);
+                return refreshed;
+            }
+            CourierPosition updated = new CourierPosition(id, latitude, longitude, timestampMillis, seenAtNanos,
+                    cellKey(cellOf(latitude), cellOf(longitude)));
+            if (current != null && current.cellKey() != updated.cellKey()) {
+                removeFromCell(current);
+            }
+            cells.compute(updated.cellKey(), (key, cell) -> {
+                Map<String, CourierPosition> couriersInCell = cell != null ? cell : new ConcurrentHashMap<>();
+                couriersInCell.put(id, updated);
+                return couriersInCell;
+            });
+            return updated;
+        });
+    }
+
+    /**
+     * Drops the couriers that were not seen since the given time.
+     * @param seenBeforeNanos System.nanoTime() based cut-off
+     * @return number of dropped couriers.
+     */
+    public int evictNotSeenSince(long seenBeforeNanos) {
+        int evicted = 0;
+        for (CourierPosition position : positions.values()) {
+            if (!position.isSeenSince(seenBeforeNanos)
+                    && positions.computeIfPresent(position.courierId(), (id, current) -> current.isSeenSince(seenBeforeNanos) ? current : evict(current)) == null) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * Finds the couriers seen since the given time within the given radius of a point.
+     * Only the cells overlapping the bounding box of the search circle are visited.
+     * @return couriers within radius, nearest first.
+     */
+    public List<CourierDistance> findWithinRadius(double latitude, double longitude, double radiusMeters, long seenSinceNanos) {
+        // padded like DistanceUtil's pre-filter, a courier within radius by haversine is never left outside the box
+        double latitudeDelta = paddedRadiusDegrees(radiusMeters);
+        double longitudeDelta = latitudeDelta / cosLatitude(latitude);
+        long minRow = cellOf(latitude - latitudeDelta);
+        long maxRow = cellOf(latitude + latitudeDelta);
+        long minColumn = cellOf(longitude - longitudeDelta);
+        long maxColumn = cellOf(longitude + longitudeDelta);
+
+        long rowCount = maxRow - minRow + 1;
+        long columnCount = maxColumn - minColumn + 1;
+        int occupiedCells = cells.size();
+
+        List<CourierDistance> couriersWithinRadius = new ArrayList<>();
+        // a search box with more cells than there are occupied cells is cheaper to answer by visiting the occupied cells;
+        // the spans are compared one by one first, so their product cannot overflow
+        if (rowCount > occupiedCells || columnCount > occupiedCells || rowCount * columnCount > occupiedCells) {
+            for (Map<String, CourierPosition> cell : cells.values()) {
+                collectWithinRadius(cell.values(), latitude, longitude, radiusMeters, seenSinceNanos, couriersWithinRadius);
+            }
+        } else {
+            for (long row = minRow; row <= maxRow; row++) {
+                for (long column = minColumn; column <= maxColumn; column++) {
+                    Map<String, CourierPosition> cell = cells.get(cellKey(row, column));
+                    if (cell != null) {
+                        collectWithinRadius(cell.values(), latitude, longitude, radiusMeters, seenSinceNanos, couriersWithinRadius);
+                    }
+                }
+            }
+        }
+        couriersWithinRadius.sort(Comparator.comparingDouble(CourierDistance::distanceMeters));
+        return couriersWithinRadius;
+    }
+
+    /**
+     * Finds the k couriers seen since the given time that are nearest to a point.
+     * Cells are visited in rings around the point's cell; the search stops as soon as the k-th nearest courier found so far
+     * is nearer than anything outside the visited rings can be. If the rings grow larger than the number of occupied cells,
+     * the occupied cells are scanned instead.
+     * @return at most k couriers, nearest first.
+     */
+    public List<CourierDistance> findNearest(double latitude, double longitude, int k, long seenSinceNanos) {
+        // k may exceed the number of couriers by far, the queue never holds more than k + 1 of them
+        PriorityQueue<CourierDistance> nearest = new PriorityQueue<>(Math.min(k, positions.size()) + 1, Comparator.comparingDouble(CourierDistance::distanceMeters).reversed());
+        long centerRow = cellOf(latitude);
+        long centerColumn = cellOf(longitude);
+        for (long ring = 0; ; ring++) {
+            long ringWidth = 2 * ring + 1;
+            if (ringWidth * ringWidth > cells.size() && ring > 0) {
+                nearest.clear();
+                for (Map<String, CourierPosition> cell : cells.values()) {
+                    offerNearest(cell.values(), latitude, longitude, k, seenSinceNanos, nearest);
+                }
+                break;
+            }
+            for (long row = centerRow - ring; row <= centerRow + ring; row++) {
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                // inner rows of the ring only have their first and last column in the ring
+                long columnStep = edgeRow || ring == 0 ? 1 : 2 * ring;
+                for (long column = centerColumn - ring; column <= centerColumn + ring; column += columnStep) {
+                    Map<String, CourierPosition> cell = cells.get(cellKey(row, column));
+                    if (cell != null) {
+                        offerNearest(cell.values(), latitude, longitude, k, seenSinceNanos, nearest);
+                    }
+                }
+            }
+            if (nearest.size() == k && nearest.peek().distanceMeters() <= minDistanceOutsideRings(latitude, ring)) {
+                break;
+            }
+        }
+
+        List<CourierDistance> result = new ArrayList<>(nearest);
+        result.sort(Comparator.comparingDouble(CourierDistance::distanceMeters));
+        return result;
+    }
+
+    public int size() {
+        return positions.size();
+    }
+
+    public void clear() {
+        positions.clear();
+        cells.clear();
+    }
+
+    private void collectWithinRadius(Collection<CourierPosition> candidates, double latitude, double longitude, double radiusMeters,
+                                     long seenSinceNanos, List<CourierDistance> result) {
+        for (CourierPosition position : candidates) {
+            if (position.isSeenSince(seenSinceNanos)) {
+                double distance = calculateDistance(latitude, longitude, position.latitude(), position.longitude());
+                if (distance <= radiusMeters) {
+                    result.add(new CourierDistance(position, distance));
+                }
+            }
+        }
+    }
+
+    private void offerNearest(Collection<CourierPosition> candidates, double latitude, double longitude, int k,
+                              long seenSinceNanos, PriorityQueue<CourierDistance> nearest) {
+        for (CourierPosition position : candidates) {
+            if (!position.isSeenSince(seenSinceNanos)) {
+                continue;
+            }
+            double distance = calculateDistance(latitude, longitude, position.latitude(), position.longitude());
+            if (nearest.size() < k) {
+                nearest.add(new CourierDistance(position, distance));
+            } else if (distance < nearest.peek().distanceMeters()) {
+                nearest.poll();
+                nearest.add(new CourierDistance(position, distance));
+            }
+        }
+    }
+
+    private CourierPosition evict(CourierPosition position) {
+        removeFromCell(position);
+        return null;
+    }
+
+    private void removeFromCell(CourierPosition position) {
+        cells.computeIfPresent(position.cellKey(), (key, cell) -> {
+            cell.remove(position.courierId());
+            return cell.isEmpty() ? null : cell;
+        });
+    }
+
+    /**
+     * Lower bound of the haversine distance from a point in the center cell to anything outside rings 0..ring, which is
+     * at least `ring` cell edges away in latitude or in longitude. A parallel `ring` rows away is exactly that far; a
+     * meridian Δλ away is R * asin(cos(lat) * sin(Δλ)) away, a bit less than along the parallel, and longitude
+     * edges shrink towards the poles.
+     */
+    private double minDistanceOutsideRings(double latitude, long ring) {
+        double ringDegrees = ring * cellSizeDegrees;
+        double farthestLatitude = Math.min(Math.abs(latitude) + (ring + 1) * cellSizeDegrees, 90.0);
+        double sinLongitudeDistance = Math.cos(Math.toRadians(farthestLatitude)) * Math.sin(Math.toRadians(Math.min(ringDegrees, 90.0)));
+        double longitudeMeters = Math.toDegrees(Math.asin(Math.max(sinLongitudeDistance, 0.0))) * METERS_PER_DEGREE;
+        return Math.min(ringDegrees * METERS_PER_DEGREE, longitudeMeters);
+    }
+
+    private static double cosLatitude(double latitude) {
+        return Math.max(Math.cos(Math.toRadians(latitude)), MIN_COS_LATITUDE);
+    }
+
+    private long cellOf(double degrees) {
+        return (long) Math.floor(degrees / cellSizeDegrees);
+    }
+
+    private static long cellKey(long row, long column) {
+        return (row << 32) ^ (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Latest position of a courier.
+     * @param timestampMillis event time of the position, epoch millis
+     * @param seenAtNanos System.nanoTime() based time the courier was last seen
+     * @param cellKey key of the cell the position is in
+     */
+    public record CourierPosition(String courierId, double latitude, double longitude, long timestampMillis, long seenAtNanos, long cellKey) {
+
+        boolean isSeenSince(long nanos) {
+            return seenAtNanos - nanos >= 0;
+        }
+
+        CourierPosition seenAt(long nanos) {
+            return nanos - seenAtNanos > 0 ? new CourierPosition(courierId, latitude, longitude, timestampMillis, nanos, cellKey) : this;
+        }
+    }
+
+    public record CourierDistance(CourierPosition position, double distanceMeters) {}
+}
@@ -0,0 +1,168 @@
+package com.efecavusoglu.couriertracking.service.live;
+
+import com.efecavusoglu.couriertracking.model.dto.LiveCourierResponse;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.service.history.CourierTrack;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live view of where the couriers are: the latest position of every active courier, in a CourierPositionGrid.
+ * Updated by CourierService with every accepted location update once its transaction commits, so nearest-courier and couriers-near-store questions
+ * are answered from memory instead of scanning courier_locations.
+ * Couriers count as active for stale_after.seconds after their last update (by receive time, not event time -- device
+ * clocks cannot be trusted to say what "now" is); stale couriers are left out of queries and swept out periodically.
+ * Positions live in memory only, so after a restart couriers reappear with their next update.
+ */
+@Component
+@Slf4j
+public class LiveCourierIndex {
+
+    // half the earth's circumference, a larger radius covers nothing more
+    public static final double MAX_RADIUS_METERS = 20_037_508;
+    public static final int MAX_NEAREST_COURIERS = 1_000;
+
+    @Value("${couriertracking.live_index.enabled:true}")
+    private boolean LIVE_INDEX_ENABLED;
+
+    @Value("${couriertracking.live_index.cell_size.meters:500}")
+    private double CELL_SIZE_METERS;
+
+    @Value("${couriertracking.live_index.stale_after.seconds:300}")
+    private long STALE_AFTER_SECONDS;
+
+    private final MeterRegistry meterRegistry;
+
+    private CourierPositionGrid grid;
+    private Counter evictedCounter;
+
+    public LiveCourierIndex(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        grid = new CourierPositionGrid(CELL_SIZE_METERS);
+        Gauge.builder("couriertracking.live_index.couriers", grid, CourierPositionGrid::size)
+                .description("Couriers in the live position index")
+                .register(meterRegistry);
+        evictedCounter = Counter.builder("couriertracking.live_index.evicted")
+                .description("Couriers dropped from the live position index after going stale")
+                .register(meterRegistry);
+        if (!LIVE_INDEX_ENABLED) {
+            log.info("Live courier index is disabled, live courier queries return no couriers.");
+        }
+    }
+
+    /**
+     * Records the positions of accepted location updates. Within a transaction, they are recorded once it commits,
+     * the updates of a rolled back transaction do not move their couriers.
+     * @param locations accepted location updates, in any order
+     */
+    public void update(List<CourierLocationEntity> locations) {
+        if (!LIVE_INDEX_ENABLED || locations.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(locations);
+            return;
+        }
+        List<CourierLocationEntity> committedLocations = List.copyOf(locations);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(committedLocations);
+            }
+        });
+    }
+
+    /**
+     * Finds the active couriers nearest to a point.
+     * @param latitude latitude of the point
+     * @param longitude longitude of the point
+     * @param k maximum number of couriers to find, at most MAX_NEAREST_COURIERS
+     * @return at most k couriers, nearest first.
+     */
+    public List<LiveCourierResponse> findNearest(double latitude, double longitude, int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Please provide a positive number of couriers to find.");
+        }
+        if (k > MAX_NEAREST_COURIERS) {
+            throw new IllegalArgumentException("Please provide at most " + MAX_NEAREST_COURIERS + " as the number of couriers to find.");
+        }
+        if (!LIVE_INDEX_ENABLED) {
+            return Collections.emptyList();
+        }
+        return toResponses(grid.findNearest(latitude, longitude, k, activeSince()));
+    }
+
+    /**
+     * Finds the active couriers within the given radius of a point.
+     * @param latitude latitude of the point
+     * @param longitude longitude of the point
+     * @param radiusMeters search radius in meters, capped at MAX_RADIUS_METERS
+     * @return couriers within radius, nearest first.
+     */
+    public List<LiveCourierResponse> findWithinRadius(double latitude, double longitude, double radiusMeters) {
+        // also rejects NaN
+        if (!(radiusMeters > 0) || Double.isInfinite(radiusMeters)) {
+            throw new IllegalArgumentException("Please provide a positive, finite radius.");
+        }
+        if (!LIVE_INDEX_ENABLED) {
+            return Collections.emptyList();
+        }
+        return toResponses(grid.findWithinRadius(latitude, longitude, Math.min(radiusMeters, MAX_RADIUS_METERS), activeSince()));
+    }
+
+    @Scheduled(fixedDelayString = "${couriertracking.live_index.sweep_interval.ms:10000}")
+    public void evictStaleCouriers() {
+        int evicted = grid.evictNotSeenSince(activeSince());
+        if (evicted > 0) {
+            evictedCounter.increment(evicted);
+            log.debug("Evicted {} stale couriers from the live courier index", evicted);
+        }
+    }
+
+    public int size() {
+        return grid.size();
+    }
+
+    public void clear() {
+        grid.clear();
+    }
+
+    private void record(List<CourierLocationEntity> locations) {
+        long now = System.nanoTime();
+        for (CourierLocationEntity location : locations) {
+            grid.update(location.getCourierId(), location.getLatitude(), location.getLongitude(), CourierTrack.toEpochMillis(location.getTimestamp()), now);
+        }
+    }
+
+    private long activeSince() {
+        return System.nanoTime() - TimeUnit.SECONDS.toNanos(STALE_AFTER_SECONDS);
+    }
+
+    private static List<LiveCourierResponse> toResponses(List<CourierPositionGrid.CourierDistance> couriers) {
+        return couriers.stream()
+                .map(courier -> LiveCourierResponse.builder()
+                        .courierId(courier.position().courierId())
+                        .latitude(courier.position().latitude())
+                        .longitude(courier.position().longitude())
+                        .timestamp(CourierTrack.toLocalDateTime(courier.position().timestampMillis()))
+                        .distanceMeters(courier.distanceMeters())
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,50 @@
+package com.efecavusoglu.couriertracking.service.loadgen;
+
+import java.util.Arrays;
+
+/**
+ * Collects request latencies of a load run and computes exact percentiles at the end.
+ * Thread-safe; a run records at most a few million requests, so all samples are kept.
+ */
+class LatencyRecorder {
+
+    private long[] latenciesNanos = new long[1024];
+    private int count;
+
+    synchronized void record(long latencyNanos) {
+        if (count == latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, count * 2);
+        }
+        latenciesNanos[count++] = latencyNanos;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * @return latency percentiles in milliseconds: p50, p90, p99, p99.9 and max.
+     */
+    synchronized double[] percentilesMillis() {
+        if (count == 0) {
+            return new double[5];
+        }
+        long[] sorted = Arrays.copyOf(latenciesNanos, count);
+        Arrays.sort(sorted);
+        return new double[]{
+                toMillis(sorted[rank(0.50)]),
+                toMillis(sorted[rank(0.90)]),
+                toMillis(sorted[rank(0.99)]),
+                toMillis(sorted[rank(0.999)]),
+                toMillis(sorted[count - 1])
+        };
+    }
+
+    private int rank(double percentile) {
+        return Math.min(count - 1, (int) Math.ceil(percentile * count) - 1);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,284 @@
+package com.efecavusoglu.couriertracking.service.loadgen;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.dto.StoreDTO;
+import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import com.efecavusoglu.couriertracking.service.StoreCatalogLoader;
+import com.efecavusoglu.couriertracking.service.StoreService;
+import com.efecavusoglu.couriertracking.util.DistanceUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Synthetic load generation for capacity planning.
+ * A LoadProfile is either ingested in-process through CourierService, or recorded as an NDJSON file
+ * (one CourierLocationUpdateRequest per line) that can be replayed against the REST endpoints of any node.
+ * Both runs can be throttled to a target rate and report the achieved throughput and latency percentiles.
+ */
+@Component
+@Slf4j
+public class LoadGenerator {
+
+    private static final int MAX_IN_FLIGHT_REQUESTS = 256;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final CourierService courierService;
+    private final StoreService storeService;
+    private final StoreCatalogLoader storeCatalogLoader;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter requestWriter;
+
+    public LoadGenerator(CourierService courierService, StoreService storeService, StoreCatalogLoader storeCatalogLoader, ObjectMapper objectMapper) {
+        this.courierService = courierService;
+        this.storeService = storeService;
+        this.storeCatalogLoader = storeCatalogLoader;
+        this.objectMapper = objectMapper;
+        this.requestWriter = objectMapper.writerFor(CourierLocationUpdateRequest.class);
+    }
+
+    /**
+     * Ingests the load in-process, through the same CourierService calls the REST endpoints make.
+     * Synthetic stores of the profile are added to the store catalog first.
+     * @param profile shape of the load
+     * @param batchSize location updates per call, 1 for single location updates
+     * @param targetRate location updates per second, 0 for as fast as possible
+     * @return throughput and latency of the run.
+     */
+    public LoadReport ingest(LoadProfile profile, int batchSize, double targetRate) {
+        List<StoreDTO> syntheticStores = generateStores(profile);
+        if (!syntheticStores.isEmpty()) {
+            storeCatalogLoader.load(new ByteArrayResource(toJson(syntheticStores)));
+            storeService.publishSnapshot();
+        }
+        SyntheticLocationGenerator generator = new SyntheticLocationGenerator(profile, storesInArea(profile, storeService.getStores()));
+
+        LatencyRecorder latencies = new LatencyRecorder();
+        long failedRequests = 0;
+        long locationUpdates = 0;
+        long start = System.nanoTime();
+        List<CourierLocationUpdateRequest> batch = new ArrayList<>(batchSize);
+        while (generator.hasNext()) {
+            batch.clear();
+            while (batch.size() < batchSize && generator.hasNext()) {
+                batch.add(generator.next());
+            }
+            long scheduled = awaitSchedule(start, locationUpdates, targetRate);
+            try {
+                if (batch.size() == 1) {
+                    courierService.processSingleLocationUpdate(batch.get(0));
+                } else {
+                    courierService.processBatchLocationUpdate(batch);
+                }
+            } catch (RuntimeException e) {
+                if (failedRequests++ == 0) {
+                    log.warn("Load generator request failed, further failures are only counted", e);
+                }
+            }
+            latencies.record(System.nanoTime() - scheduled);
+            locationUpdates += batch.size();
+        }
+        LoadReport report = LoadReport.of("in-process ingestion", locationUpdates, failedRequests, System.nanoTime() - start, latencies);
+        log.info("Load generator {}", report);
+        return report;
+    }
+
+    /**
+     * Records the load as an NDJSON file instead of ingesting it. Synthetic stores of the profile are written next to it,
+     * as a store catalog file (&lt;file&gt;.stores.json) to be loaded on the target before replaying.
+     * Stores for the routes are otherwise taken from the local store catalog.
+     * @param profile shape of the load
+     * @param file NDJSON file to be written, replaced if it exists
+     * @return number of recorded location updates.
+     */
+    public long record(LoadProfile profile, Path file) throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+        }
+        List<StoreDTO> syntheticStores = generateStores(profile);
+        List<StoreEntity> stores;
+        if (syntheticStores.isEmpty()) {
+            stores = storeService.getStores();
+        } else {
+            Files.write(storeCatalogPathOf(file), toJson(syntheticStores));
+            stores = syntheticStores.stream()
+                    .map(store -> StoreEntity.builder().storeName(store.getName()).latitude(store.getLat()).longitude(store.getLng()).build())
+                    .toList();
+        }
+        SyntheticLocationGenerator generator = new SyntheticLocationGenerator(profile, storesInArea(profile, stores));
+
+        long recorded = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            while (generator.hasNext()) {
+                writer.write(requestWriter.writeValueAsString(generator.next()));
+                writer.newLine();
+                recorded++;
+            }
+        }
+        log.info("Load generator recorded {} location updates of {} couriers to {}{}", recorded, profile.courierCount(), file,
+                syntheticStores.isEmpty() ? "" : " and " + syntheticStores.size() + " synthetic stores to " + storeCatalogPathOf(file));
+        return recorded;
+    }
+
+    /**
+     * Replays a recorded NDJSON file against the REST endpoints of a node.
+     * Requests are sent on schedule without waiting for earlier responses (up to MAX_IN_FLIGHT_REQUESTS at a time),
+     * so a slow node does not slow the load down; it shows up in the latencies instead.
+     * @param file recorded NDJSON file
+     * @param baseUrl base URL of the node, e.g. http://localhost:8080
+     * @param batchSize location updates per request, 1 for POST /api/courier/location, POST /api/courier/locations otherwise
+     * @param targetRate location updates per second, 0 for as fast as possible
+     * @return throughput and latency of the run.
+     */
+    public LoadReport replay(Path file, URI baseUrl, int batchSize, double targetRate) throws IOException, InterruptedException {
+        URI endpoint = baseUrl.resolve(batchSize == 1 ? "/api/courier/location" : "/api/courier/locations");
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(REQUEST_TIMEOUT).build();
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT_REQUESTS);
+        LatencyRecorder latencies = new LatencyRecorder();
+        AtomicLong failedRequests = new AtomicLong();
+        AtomicLong lastCompletion = new AtomicLong();
+        long locationUpdates = 0;
+        long start = System.nanoTime();
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<String> batch = new ArrayList<>(batchSize);
+            String line;
+            while ((line = nextNonBlankLine(reader)) != null) {
+                batch.add(line);
+                if (batch.size() == batchSize) {
+                    send(httpClient, endpoint, batchSize == 1, batch, awaitSchedule(start, locationUpdates, targetRate), inFlight, latencies, failedRequests, lastCompletion);
+                    locationUpdates += batch.size();
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                send(httpClient, endpoint, batchSize == 1, batch, awaitSchedule(start, locationUpdates, targetRate), inFlight, latencies, failedRequests, lastCompletion);
+                locationUpdates += batch.size();
+            }
+        }
+        inFlight.acquire(MAX_IN_FLIGHT_REQUESTS);
+
+        LoadReport report = LoadReport.of("replay against " + endpoint, locationUpdates, failedRequests.get(),
+                Math.max(lastCompletion.get(), start) - start, latencies);
+        log.info("Load generator {}", report);
+        return report;
+    }
+
+    private void send(HttpClient httpClient, URI endpoint, boolean singleUpdates, List<String> batch, long scheduled, Semaphore inFlight,
+                      LatencyRecorder latencies, AtomicLong failedRequests, AtomicLong lastCompletion) throws InterruptedException {
+        // the lines already are JSON objects, a batch is sent as a JSON array of them without re-parsing
+        String body = singleUpdates ? batch.get(0) : "[" + String.join(",", batch) + "]";
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        inFlight.acquire();
+        try {
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        try {
+                            long now = System.nanoTime();
+                            latencies.record(now - scheduled);
+                            lastCompletion.accumulateAndGet(now, Math::max);
+                            if (failure != null || response.statusCode() >= 400) {
+                                failedRequests.incrementAndGet();
+                            }
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+        } catch (RuntimeException e) {
+            // never sent, the permit would otherwise be lost and the final acquire of all permits would hang
+            log.warn("Load generator request to {} could not be sent", endpoint, e);
+            lastCompletion.accumulateAndGet(System.nanoTime(), Math::max);
+            failedRequests.incrementAndGet();
+            inFlight.release();
+        }
+    }
+
+    /**
+     * Waits until the request carrying the given number of already sent location updates is due.
+     * @return the scheduled send time, or now if the run is not throttled.
+     */
+    private static long awaitSchedule(long start, long sentLocationUpdates, double targetRate) {
+        if (targetRate <= 0) {
+            return System.nanoTime();
+        }
+        long scheduled = start + (long) (sentLocationUpdates / targetRate * TimeUnit.SECONDS.toNanos(1));
+        long wait;
+        while ((wait = scheduled - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(wait);
+        }
+        return scheduled;
+    }
+
+    private static String nextNonBlankLine(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (!line.isBlank()) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Synthetic stores spread uniformly over the profile's area, storeDensityPerKm2 per km².
+     */
+    List<StoreDTO> generateStores(LoadProfile profile) {
+        double areaKm2 = Math.PI * profile.areaRadiusMeters() * profile.areaRadiusMeters() / 1_000_000.0;
+        int storeCount = (int) Math.round(profile.storeDensityPerKm2() * areaKm2);
+        Random random = new Random(profile.seed() ^ 0x5EED_5709L);
+        List<StoreDTO> stores = new ArrayList<>(storeCount);
+        for (int i = 1; i <= storeCount; i++) {
+            double[] position = SyntheticLocationGenerator.offset(profile.centerLatitude(), profile.centerLongitude(),
+                    profile.areaRadiusMeters() * Math.sqrt(random.nextDouble()), random.nextDouble() * 2 * Math.PI);
+            stores.add(new StoreDTO("Synthetic Store " + profile.seed() + "-" + i, position[0], position[1]));
+        }
+        return stores;
+    }
+
+    private static List<StoreEntity> storesInArea(LoadProfile profile, List<StoreEntity> stores) {
+        return stores.stream()
+                .filter(store -> DistanceUtil.calculateDistance(profile.centerLatitude(), profile.centerLongitude(),
+                        store.getLatitude(), store.getLongitude()) <= profile.areaRadiusMeters())
+                .toList();
+    }
+
+    private byte[] toJson(List<StoreDTO> stores) {
+        try {
+            return objectMapper.writeValueAsBytes(stores);
+        } catch (IOException e) {
+            throw new IllegalStateException("Synthetic stores cannot be serialized", e);
+        }
+    }
+
+    static Path storeCatalogPathOf(Path locationFile) {
+        String fileName = locationFile.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        return locationFile.resolveSibling((extension > 0 ? fileName.substring(0, extension) : fileName) + ".stores.json");
+    }
+}
@@ -0,0 +1,42 @@
+package com.efecavusoglu.couriertracking.service.loadgen;
+
+import java.time.LocalDateTime;
+
+/**
+ * Shape of a synthetic location load.
+ * @param courierCount number of couriers, pinging concurrently
+ * @param pingsPerCourier pings generated per courier
+ * @param pingIntervalSeconds simulated time between two pings of a courier
+ * @param routeModel how the couriers move
+ * @param storeDensityPerKm2 synthetic stores added within the area per km², 0 to use the store catalog as is
+ * @param centerLatitude latitude of the center of the area
+ * @param centerLongitude longitude of the center of the area
+ * @param areaRadiusMeters radius of the area the couriers (and synthetic stores) are placed in
+ * @param start timestamp of the first pings
+ * @param courierIdPrefix courier ids are this prefix followed by 1..courierCount
+ * @param seed random seed, the same profile and seed always generate the same load
+ */
+public record LoadProfile(int courierCount, int pingsPerCourier, int pingIntervalSeconds, RouteModel routeModel,
+                          double storeDensityPerKm2, double centerLatitude, double centerLongitude, double areaRadiusMeters,
+                          LocalDateTime start, String courierIdPrefix, long seed) {
+
+    public LoadProfile {
+        if (courierCount <= 0 || pingsPerCourier <= 0 || pingIntervalSeconds <= 0) {
+            throw new IllegalArgumentException("Courier count, pings per courier and ping interval must be positive.");
+        }
+        if (areaRadiusMeters <= 0 || storeDensityPerKm2 < 0) {
+            throw new IllegalArgumentException("Area radius must be positive and store density must not be negative.");
+        }
+    }
+
+    public long totalPings() {
+        return (long) courierCount * pingsPerCourier;
+    }
+
+    /**
+     * Simulated ping rate over all couriers, in pings per second.
+     */
+    public double simulatedPingRate() {
+        return (double) courierCount / pingIntervalSeconds;
+    }
+}
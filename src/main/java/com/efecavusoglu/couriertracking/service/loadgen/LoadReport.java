@@ -0,0 +1,32 @@
+package com.efecavusoglu.couriertracking.service.loadgen;
+
+/**
+ * Outcome of a load run.
+ * Latencies are per request (a batch counts as one request) and measured from the request's scheduled send time,
+ * so a throttled run that falls behind its schedule shows the queueing delay instead of hiding it.
+ */
+public record LoadReport(String mode, long locationUpdates, long requests, long failedRequests, double elapsedSeconds,
+                         double p50Millis, double p90Millis, double p99Millis, double p999Millis, double maxMillis) {
+
+    static LoadReport of(String mode, long locationUpdates, long failedRequests, long elapsedNanos, LatencyRecorder latencies) {
+        double[] percentiles = latencies.percentilesMillis();
+        return new LoadReport(mode, locationUpdates, latencies.count(), failedRequests, elapsedNanos / 1e9,
+                percentiles[0], percentiles[1], percentiles[2], percentiles[3], percentiles[4]);
+    }
+
+    public double locationUpdatesPerSecond() {
+        return elapsedSeconds == 0 ? 0.0 : locationUpdates / elapsedSeconds;
+    }
+
+    public double requestsPerSecond() {
+        return elapsedSeconds == 0 ? 0.0 : requests / elapsedSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d location updates in %d requests (%d failed) in %.2f s -- %.0f updates/s, %.1f requests/s, "
+                        + "latency p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, p99.9 %.2f ms, max %.2f ms",
+                mode, locationUpdates, requests, failedRequests, elapsedSeconds, locationUpdatesPerSecond(), requestsPerSecond(),
+                p50Millis, p90Millis, p99Millis, p999Millis, maxMillis);
+    }
+}
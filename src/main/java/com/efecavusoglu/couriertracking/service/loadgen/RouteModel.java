@@ -0,0 +1,11 @@
+package com.efecavusoglu.couriertracking.service.loadgen;
+
+/**
+ * How synthetic couriers move between pings.
+ */
+public enum RouteModel {
+    // wanders with a slowly drifting heading, turning back towards the center at the edge of the area
+    RANDOM_WALK,
+    // heads to a random store, lingers there for a few pings, then heads to the next one
+    STORE_TOURS
+}
@@ -0,0 +1,170 @@
+package com.efecavusoglu.couriertracking.service.loadgen;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
+import com.efecavusoglu.couriertracking.util.DistanceUtil;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Generates the pings of a LoadProfile, lazily and deterministically (per seed).
+ * Pings are emitted round by round: one ping of every courier per ping interval, each courier at its own offset
+ * within the interval -- the order a live fleet would produce them in. Each courier's pings are in timestamp order.
+ */
+public class SyntheticLocationGenerator implements Iterator<CourierLocationUpdateRequest> {
+
+    // courier speeds, between a bicycle and a scooter in city traffic
+    private static final double MIN_SPEED_MPS = 4.0;
+    private static final double MAX_SPEED_MPS = 12.0;
+    // standard deviation of the heading change of a random walk per ping
+    private static final double HEADING_DRIFT_RADIANS = Math.toRadians(30);
+    // arrivals and lingering pings at a store are scattered within this distance of it
+    private static final double STORE_JITTER_METERS = 30.0;
+    private static final int MAX_PINGS_AT_STORE = 3;
+
+    private final LoadProfile profile;
+    private final List<StoreEntity> stores;
+    private final Random random;
+    private final SimulatedCourier[] couriers;
+    private int round;
+    private int courierIndex;
+
+    /**
+     * @param profile shape of the load
+     * @param stores stores visited by STORE_TOURS couriers, couriers fall back to RANDOM_WALK if empty
+     */
+    public SyntheticLocationGenerator(LoadProfile profile, List<StoreEntity> stores) {
+        this.profile = profile;
+        this.stores = stores;
+        this.random = new Random(profile.seed());
+        this.couriers = new SimulatedCourier[profile.courierCount()];
+        for (int i = 0; i < couriers.length; i++) {
+            couriers[i] = new SimulatedCourier(profile.courierIdPrefix() + (i + 1));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return round < profile.pingsPerCourier();
+    }
+
+    @Override
+    public CourierLocationUpdateRequest next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SimulatedCourier courier = couriers[courierIndex];
+        if (round > 0) {
+            if (profile.routeModel() == RouteModel.STORE_TOURS && !stores.isEmpty()) {
+                courier.tourStep();
+            } else {
+                courier.walkStep();
+            }
+        }
+        CourierLocationUpdateRequest request = new CourierLocationUpdateRequest(courier.courierId, courier.latitude, courier.longitude,
+                profile.start().plusNanos(((long) round * profile.pingIntervalSeconds() * 1000 + courier.offsetMillis) * 1_000_000));
+
+        if (++courierIndex == couriers.length) {
+            courierIndex = 0;
+            round++;
+        }
+        return request;
+    }
+
+    private double randomAreaOffset() {
+        // uniform over the disk: sqrt of a uniform radius fraction
+        return profile.areaRadiusMeters() * Math.sqrt(random.nextDouble());
+    }
+
+    private final class SimulatedCourier {
+
+        private final String courierId;
+        private final long offsetMillis;
+        private final double speedMetersPerSecond;
+        private double latitude;
+        private double longitude;
+        private double heading;
+        private StoreEntity targetStore;
+        private int pingsLeftAtStore;
+
+        private SimulatedCourier(String courierId) {
+            this.courierId = courierId;
+            this.offsetMillis = (long) (random.nextDouble() * profile.pingIntervalSeconds() * 1000);
+            this.speedMetersPerSecond = MIN_SPEED_MPS + random.nextDouble() * (MAX_SPEED_MPS - MIN_SPEED_MPS);
+            this.heading = random.nextDouble() * 2 * Math.PI;
+            double[] start = offset(profile.centerLatitude(), profile.centerLongitude(), randomAreaOffset(), random.nextDouble() * 2 * Math.PI);
+            this.latitude = start[0];
+            this.longitude = start[1];
+        }
+
+        private void walkStep() {
+            double distanceFromCenter = DistanceUtil.calculateDistance(profile.centerLatitude(), profile.centerLongitude(), latitude, longitude);
+            if (distanceFromCenter > profile.areaRadiusMeters()) {
+                heading = bearing(latitude, longitude, profile.centerLatitude(), profile.centerLongitude());
+            } else {
+                heading += random.nextGaussian() * HEADING_DRIFT_RADIANS;
+            }
+            moveBy(stepMeters(), heading);
+        }
+
+        private void tourStep() {
+            if (pingsLeftAtStore > 0) {
+                pingsLeftAtStore--;
+                placeNear(targetStore);
+                if (pingsLeftAtStore == 0) {
+                    targetStore = null;
+                }
+                return;
+            }
+            if (targetStore == null) {
+                targetStore = stores.get(random.nextInt(stores.size()));
+            }
+            double distanceToStore = DistanceUtil.calculateDistance(latitude, longitude, targetStore.getLatitude(), targetStore.getLongitude());
+            if (distanceToStore <= stepMeters()) {
+                placeNear(targetStore);
+                pingsLeftAtStore = random.nextInt(MAX_PINGS_AT_STORE);
+                if (pingsLeftAtStore == 0) {
+                    targetStore = null;
+                }
+            } else {
+                moveBy(stepMeters(), bearing(latitude, longitude, targetStore.getLatitude(), targetStore.getLongitude()));
+            }
+        }
+
+        private double stepMeters() {
+            return speedMetersPerSecond * profile.pingIntervalSeconds();
+        }
+
+        private void placeNear(StoreEntity store) {
+            double[] position = offset(store.getLatitude(), store.getLongitude(), random.nextDouble() * STORE_JITTER_METERS, random.nextDouble() * 2 * Math.PI);
+            latitude = position[0];
+            longitude = position[1];
+        }
+
+        private void moveBy(double meters, double bearing) {
+            double[] position = offset(latitude, longitude, meters, bearing);
+            latitude = position[0];
+            longitude = position[1];
+        }
+    }
+
+    /**
+     * Point at the given distance and bearing (radians, clockwise from north), equirectangular -- fine for city distances.
+     */
+    static double[] offset(double latitude, double longitude, double meters, double bearing) {
+        double cosLatitude = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        return new double[]{
+                latitude + meters * Math.cos(bearing) / DistanceUtil.METERS_PER_DEGREE,
+                longitude + meters * Math.sin(bearing) / (DistanceUtil.METERS_PER_DEGREE * cosLatitude)
+        };
+    }
+
+    private static double bearing(double fromLatitude, double fromLongitude, double toLatitude, double toLongitude) {
+        double northMeters = (toLatitude - fromLatitude) * DistanceUtil.METERS_PER_DEGREE;
+        double eastMeters = (toLongitude - fromLongitude) * DistanceUtil.METERS_PER_DEGREE * Math.cos(Math.toRadians(fromLatitude));
+        return Math.atan2(eastMeters, northMeters);
+    }
+}
@@ -0,0 +1,155 @@
+package com.efecavusoglu.couriertracking.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the location update ingestion pipeline.
+ * Every stage is timed with a latency histogram (couriertracking.ingestion.stage.latency, tagged by stage) and
+ * recorded as an IngestionStageEvent for JFR, throughput is counted in location updates and store entries.
+ */
+@Component
+public class IngestionMetrics {
+
+    private final Map<IngestionStage, Timer> stageTimers = new EnumMap<>(IngestionStage.class);
+    private final Counter locationUpdateCounter;
+    private final Counter storeEntryCounter;
+    private final DistributionSummary batchSize;
+    private final DistributionSummary repositoryCallsPerLocationUpdate;
+    private final Counter cooldownCacheHits;
+    private final Counter cooldownCacheMisses;
+    private final Counter policyEligible;
+    private final Counter policyCooldown;
+    private final Counter duplicateCounter;
+    private final Counter duplicateCheckLookups;
+    private final Counter suppressedCounter;
+
+    public IngestionMetrics(MeterRegistry meterRegistry) {
+        for (IngestionStage stage : IngestionStage.values()) {
+            stageTimers.put(stage, Timer.builder("couriertracking.ingestion.stage.latency")
+                    .description("Time spent in a stage of location update ingestion, per request or chunk")
+                    .tag("stage", stage.getTag())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        locationUpdateCounter = Counter.builder("couriertracking.ingestion.location_updates")
+                .description("Location updates ingested")
+                .register(meterRegistry);
+        storeEntryCounter = Counter.builder("couriertracking.ingestion.store_entries")
+                .description("Store entries triggered by location updates")
+                .register(meterRegistry);
+        batchSize = DistributionSummary.builder("couriertracking.ingestion.batch.size")
+                .description("Location updates per batch or stream chunk")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        repositoryCallsPerLocationUpdate = DistributionSummary.builder("couriertracking.ingestion.repository.calls.per_location_update")
+                .description("Repository calls per location update, averaged over a request or chunk")
+                .register(meterRegistry);
+        cooldownCacheHits = Counter.builder("couriertracking.cooldown_cache.requests")
+                .description("Last store entry lookups of the store entry cooldown cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        cooldownCacheMisses = Counter.builder("couriertracking.cooldown_cache.requests")
+                .description("Last store entry lookups of the store entry cooldown cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        policyEligible = Counter.builder("couriertracking.store_entry.policy.decisions")
+                .description("Candidate stores evaluated by the store entry policy, by outcome")
+                .tag("outcome", "eligible")
+                .register(meterRegistry);
+        policyCooldown = Counter.builder("couriertracking.store_entry.policy.decisions")
+                .description("Candidate stores evaluated by the store entry policy, by outcome")
+                .tag("outcome", "cooldown")
+                .register(meterRegistry);
+        duplicateCounter = Counter.builder("couriertracking.ingestion.duplicates")
+                .description("Duplicate location updates dropped before ingestion")
+                .register(meterRegistry);
+        duplicateCheckLookups = Counter.builder("couriertracking.ingestion.duplicate_check.db_lookups")
+                .description("Duplicate checks of location updates too old for the in-memory recent pings, answered by DB")
+                .register(meterRegistry);
+        suppressedCounter = Counter.builder("couriertracking.ingestion.suppressed")
+                .description("Stationary location updates suppressed before they were persisted")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts timing a stage on the current thread. Stop the returned sample when the stage is done;
+     * samples of failed stages are simply not stopped.
+     * @param stage stage to be timed
+     * @return running sample of the stage.
+     */
+    public StageSample start(IngestionStage stage) {
+        return new StageSample(stage);
+    }
+
+    /**
+     * Records the location updates of an ingestion request or stream chunk.
+     * @param locationUpdates number of location updates
+     * @param repositoryCalls repository calls made while ingesting them
+     */
+    public void recordLocationUpdates(int locationUpdates, long repositoryCalls) {
+        locationUpdateCounter.increment(locationUpdates);
+        batchSize.record(locationUpdates);
+        repositoryCallsPerLocationUpdate.record((double) repositoryCalls / locationUpdates);
+    }
+
+    public void recordStoreEntries(int storeEntries) {
+        storeEntryCounter.increment(storeEntries);
+    }
+
+    public void recordDuplicates(int duplicates) {
+        duplicateCounter.increment(duplicates);
+    }
+
+    public void recordSuppressed(int suppressed) {
+        suppressedCounter.increment(suppressed);
+    }
+
+    public void recordDuplicateCheckLookup() {
+        duplicateCheckLookups.increment();
+    }
+
+    public void recordCooldownCacheLookup(boolean hit) {
+        (hit ? cooldownCacheHits : cooldownCacheMisses).increment();
+    }
+
+    /**
+     * Records a candidate store within range of a location, and whether its entry is suppressed by the re-entry cooldown.
+     */
+    public void recordPolicyDecision(boolean withinCooldown) {
+        (withinCooldown ? policyCooldown : policyEligible).increment();
+    }
+
+    public final class StageSample {
+
+        private final IngestionStage stage;
+        private final IngestionStageEvent event = new IngestionStageEvent();
+        private final long startNanos;
+
+        private StageSample(IngestionStage stage) {
+            this.stage = stage;
+            this.event.begin();
+            this.startNanos = System.nanoTime();
+        }
+
+        /**
+         * @param locationUpdates number of location updates handled by the stage
+         */
+        public void stop(int locationUpdates) {
+            stageTimers.get(stage).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = stage.getTag();
+                event.locationUpdates = locationUpdates;
+                event.commit();
+            }
+        }
+    }
+}
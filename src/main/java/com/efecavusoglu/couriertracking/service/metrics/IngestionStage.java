@@ -0,0 +1,35 @@
+package com.efecavusoglu.couriertracking.service.metrics;
+
+/**
+ * Stages of location update ingestion, each timed by IngestionMetrics.
+ */
+public enum IngestionStage {
+    // JSON request body to CourierLocationUpdateRequest(s)
+    BINDING("binding"),
+    // CourierLocationUpdateRequest(s) to CourierLocationEntity(s) with MapperUtil
+    MAPPING("mapping"),
+    // dropping duplicate locations, see DuplicateLocationFilter
+    DEDUPLICATION("deduplication"),
+    // folding the locations into the distance aggregates
+    AGGREGATE("aggregate"),
+    // persisting the locations (save / saveAll)
+    PERSIST("persist"),
+    // applying the locations to the in-memory tracks
+    HISTORY("history"),
+    // store entry policy evaluation, including the cooldown lookups
+    EVALUATION("evaluation"),
+    // dropping stationary locations, see StationaryPingFilter
+    SUPPRESSION("suppression"),
+    // persisting the triggered store entries
+    STORE_ENTRY_INSERT("store_entry_insert");
+
+    private final String tag;
+
+    IngestionStage(String tag) {
+        this.tag = tag;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+}
@@ -0,0 +1,26 @@
+package com.efecavusoglu.couriertracking.service.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one ingestion stage, recorded alongside the stage timers.
+ * Only costs a flag check when no recording is running.
+ */
+@Name("com.efecavusoglu.couriertracking.IngestionStage")
+@Label("Ingestion Stage")
+@Category({"Courier Tracking", "Ingestion"})
+@Description("A stage of location update ingestion")
+@StackTrace(false)
+class IngestionStageEvent extends jdk.jfr.Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Location Updates")
+    @Description("Location updates handled by the stage")
+    int locationUpdates;
+}
@@ -0,0 +1,32 @@
+package com.efecavusoglu.couriertracking.service.metrics;
+
+/**
+ * Per-thread count of Spring Data repository calls, incremented by RepositoryCallCountingPostProcessor.
+ * Callers take the count before and after a unit of work. Calls made on other threads on the caller's behalf are only
+ * counted once they are added to the caller's count, see add.
+ */
+public final class RepositoryCallCounter {
+
+    private static final ThreadLocal<long[]> CALLS = ThreadLocal.withInitial(() -> new long[1]);
+
+    private RepositoryCallCounter() {
+    }
+
+    static void increment() {
+        CALLS.get()[0]++;
+    }
+
+    /**
+     * Adds calls made by other threads for the current thread's unit of work, e.g. by its parallel tasks.
+     */
+    public static void add(long calls) {
+        CALLS.get()[0] += calls;
+    }
+
+    /**
+     * @return repository calls made by the current thread so far.
+     */
+    public static long current() {
+        return CALLS.get()[0];
+    }
+}
@@ -0,0 +1,21 @@
+package com.efecavusoglu.couriertracking.service.metrics;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registers an invocation listener on every Spring Data repository, counting the calls in RepositoryCallCounter.
+ */
+@Component
+public class RepositoryCallCountingPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+            repositoryFactoryBean.addRepositoryFactoryCustomizer(repositoryFactory ->
+                    repositoryFactory.addInvocationListener(invocation -> RepositoryCallCounter.increment()));
+        }
+        return bean;
+    }
+}
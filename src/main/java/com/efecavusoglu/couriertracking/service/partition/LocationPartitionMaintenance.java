@@ -0,0 +1,60 @@
+package com.efecavusoglu.couriertracking.service.partition;
+
+import com.efecavusoglu.couriertracking.repository.CourierLocationRoutingRepository;
+import com.efecavusoglu.couriertracking.service.history.CourierLocationHistoryStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Keeps the daily location tables ahead of the clock and applies the retention.
+ * Today's and tomorrow's tables are created ahead of time, so ingestion around midnight does not wait for DDL.
+ * With retention.days set, the tables of the days before the retention window are dropped -- a DROP TABLE per day
+ * instead of a DELETE of the expired rows. The distance aggregates are kept, the in-memory tracks are reloaded.
+ */
+@Component
+@Slf4j
+public class LocationPartitionMaintenance {
+
+    @Value("${couriertracking.partitioning.retention.days:0}")
+    private int RETENTION_DAYS;
+
+    private final CourierLocationRoutingRepository courierLocationRepository;
+    private final CourierLocationHistoryStore courierLocationHistoryStore;
+
+    public LocationPartitionMaintenance(CourierLocationRoutingRepository courierLocationRepository,
+                                        CourierLocationHistoryStore courierLocationHistoryStore) {
+        this.courierLocationRepository = courierLocationRepository;
+        this.courierLocationHistoryStore = courierLocationHistoryStore;
+    }
+
+    @Scheduled(fixedDelayString = "${couriertracking.partitioning.maintenance.interval.ms:3600000}")
+    public void maintainPartitions() {
+        if (!courierLocationRepository.isPartitioned()) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        courierLocationRepository.createPartition(today);
+        courierLocationRepository.createPartition(today.plusDays(1));
+        if (RETENTION_DAYS > 0) {
+            dropPartitionsBefore(today.minusDays(RETENTION_DAYS));
+        }
+    }
+
+    /**
+     * Drops the locations of the days before the given day.
+     * @param day first day that is kept
+     * @return number of dropped days
+     */
+    public int dropPartitionsBefore(LocalDate day) {
+        int dropped = courierLocationRepository.dropPartitionsBefore(day);
+        if (dropped > 0) {
+            courierLocationHistoryStore.clear();
+            log.info("Retention dropped {} days of locations before {}", dropped, day);
+        }
+        return dropped;
+    }
+}
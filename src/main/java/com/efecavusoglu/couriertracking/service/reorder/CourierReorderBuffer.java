@@ -0,0 +1,103 @@
+package com.efecavusoglu.couriertracking.service.reorder;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Buffered location updates of a single courier, released in timestamp order.
+ * The courier's watermark trails its newest timestamp by the allowed lateness: updates at or below the watermark are
+ * not expected to be preceded by any more late updates and are released. Not thread-safe, LocationReorderBuffer guards it.
+ */
+final class CourierReorderBuffer {
+
+    private static final Comparator<BufferedUpdate> EVENT_TIME_ORDER = Comparator
+            .comparing((BufferedUpdate update) -> update.location().getTimestamp())
+            .thenComparingLong(BufferedUpdate::arrivalNanos);
+
+    private final PriorityQueue<BufferedUpdate> updates = new PriorityQueue<>(EVENT_TIME_ORDER);
+    private LocalDateTime newestTimestamp;
+    private LocalDateTime lastReleasedTimestamp;
+
+    /**
+     * Buffers an update and releases the updates that fell behind the watermark, or beyond maxBuffered.
+     * @return whether the update is late, i.e. older than an update that was already released (it is released right away),
+     * and how many updates were released only because the buffer held more than maxBuffered.
+     */
+    AddResult add(CourierLocationEntity location, long arrivalNanos, Duration allowedLateness, int maxBuffered,
+                  Consumer<CourierLocationEntity> released) {
+        LocalDateTime timestamp = location.getTimestamp();
+        if (lastReleasedTimestamp != null && timestamp.isBefore(lastReleasedTimestamp)) {
+            released.accept(location);
+            return AddResult.LATE;
+        }
+        updates.add(new BufferedUpdate(location, arrivalNanos));
+        if (newestTimestamp == null || timestamp.isAfter(newestTimestamp)) {
+            newestTimestamp = timestamp;
+        }
+
+        LocalDateTime watermark = newestTimestamp.minus(allowedLateness);
+        while (!updates.isEmpty() && !updates.peek().location().getTimestamp().isAfter(watermark)) {
+            release(released);
+        }
+        int overflowReleased = 0;
+        while (updates.size() > maxBuffered) {
+            release(released);
+            overflowReleased++;
+        }
+        return overflowReleased == 0 ? AddResult.BUFFERED : new AddResult(false, overflowReleased);
+    }
+
+    /**
+     * Releases the updates that waited longer than the allowed lateness, and all updates older than them.
+     * @return number of released updates.
+     */
+    int releaseTimedOut(long nowNanos, Duration allowedLateness, Consumer<CourierLocationEntity> released) {
+        LocalDateTime releaseUpTo = null;
+        for (BufferedUpdate update : updates) {
+            if (nowNanos - update.arrivalNanos() >= allowedLateness.toNanos()
+                    && (releaseUpTo == null || update.location().getTimestamp().isAfter(releaseUpTo))) {
+                releaseUpTo = update.location().getTimestamp();
+            }
+        }
+        int releasedCount = 0;
+        while (releaseUpTo != null && !updates.isEmpty() && !updates.peek().location().getTimestamp().isAfter(releaseUpTo)) {
+            release(released);
+            releasedCount++;
+        }
+        return releasedCount;
+    }
+
+    int releaseAll(Consumer<CourierLocationEntity> released) {
+        int releasedCount = updates.size();
+        while (!updates.isEmpty()) {
+            release(released);
+        }
+        return releasedCount;
+    }
+
+    boolean isEmpty() {
+        return updates.isEmpty();
+    }
+
+    int size() {
+        return updates.size();
+    }
+
+    private void release(Consumer<CourierLocationEntity> released) {
+        CourierLocationEntity location = updates.poll().location();
+        lastReleasedTimestamp = location.getTimestamp();
+        released.accept(location);
+    }
+
+    private record BufferedUpdate(CourierLocationEntity location, long arrivalNanos) {}
+
+    record AddResult(boolean late, int overflowReleased) {
+        static final AddResult BUFFERED = new AddResult(false, 0);
+        static final AddResult LATE = new AddResult(true, 0);
+    }
+}
@@ -0,0 +1,243 @@
+package com.efecavusoglu.couriertracking.service.reorder;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Event-time mode for location updates.
+ * When enabled, single updates are acknowledged right away and held in a per-courier reorder buffer (see CourierReorderBuffer)
+ * for up to allowed_lateness.ms, so updates arriving out of order are ingested in timestamp order: store entries are
+ * evaluated and distances accumulated as if the updates had arrived in order.
+ * Released updates are queued in release order and ingested by a single flusher thread with CourierService's batch path,
+ * a courier's updates always in timestamp order. Updates older than an already released update of the courier are late:
+ * they are ingested right away, and the distance aggregate splices them in, but their store entries are evaluated out of order.
+ * A batch that fails to ingest is retried once, then ingested courier by courier and, for a courier that still fails,
+ * update by update, so one bad update does not take the others down with it.
+ * Batch and stream updates are buffered here as well, so a courier's single and batch updates are ingested in one order.
+ * The trade-off: like write-behind, acknowledged updates still in the buffer are lost if the process dies.
+ */
+@Component
+@Slf4j
+public class LocationReorderBuffer {
+
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    @Value("${couriertracking.event_time.enabled:false}")
+    private boolean EVENT_TIME_ENABLED;
+
+    @Value("${couriertracking.event_time.allowed_lateness.ms:2000}")
+    private long ALLOWED_LATENESS_MILLIS;
+
+    @Value("${couriertracking.event_time.max_buffered_per_courier:256}")
+    private int MAX_BUFFERED_PER_COURIER;
+
+    @Value("${couriertracking.event_time.flush_interval.ms:50}")
+    private long FLUSH_INTERVAL_MILLIS;
+
+    @Value("${couriertracking.event_time.max_flush_batch_size:1000}")
+    private int MAX_FLUSH_BATCH_SIZE;
+
+    private final ObjectProvider<CourierService> courierServiceProvider;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<String, CourierReorderBuffer> buffers = new ConcurrentHashMap<>();
+    // released updates, appended under their courier's lock, so each courier's updates are in timestamp order
+    private final Queue<CourierLocationEntity> released = new ConcurrentLinkedQueue<>();
+    private final AtomicLong bufferedCount = new AtomicLong();
+    private Duration allowedLateness;
+    private Thread flusherThread;
+    private volatile boolean running;
+
+    private Counter lateCounter;
+    private Counter timedOutCounter;
+    private Counter overflowCounter;
+    private Counter shutdownReleaseCounter;
+    private Counter flushRetryCounter;
+    private Counter flushFailureCounter;
+
+    public LocationReorderBuffer(ObjectProvider<CourierService> courierServiceProvider, MeterRegistry meterRegistry) {
+        this.courierServiceProvider = courierServiceProvider;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!EVENT_TIME_ENABLED) {
+            return;
+        }
+        if (ALLOWED_LATENESS_MILLIS < 0 || MAX_BUFFERED_PER_COURIER <= 0 || MAX_FLUSH_BATCH_SIZE <= 0) {
+            throw new IllegalStateException("Event-time mode needs a non-negative allowed lateness and positive buffer and flush batch sizes.");
+        }
+        allowedLateness = Duration.ofMillis(ALLOWED_LATENESS_MILLIS);
+        registerMetrics();
+
+        running = true;
+        flusherThread = new Thread(this::runFlusher, "location-reorder-flusher");
+        flusherThread.setDaemon(true);
+        flusherThread.start();
+        log.info("Event-time ingestion enabled: allowed lateness {} ms, at most {} buffered updates per courier",
+                ALLOWED_LATENESS_MILLIS, MAX_BUFFERED_PER_COURIER);
+    }
+
+    /**
+     * Stops the flusher after all buffered updates are released and ingested.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusherThread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(flusherThread);
+        flusherThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        if (bufferedCount.get() > 0 || !released.isEmpty()) {
+            log.warn("Reorder buffer stopped with {} location updates not ingested", bufferedCount.get() + released.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return EVENT_TIME_ENABLED;
+    }
+
+    /**
+     * Buffers a mapped location update until it can be ingested in timestamp order.
+     * @param location location update to be buffered, not persisted yet
+     */
+    public void buffer(CourierLocationEntity location) {
+        long arrivalNanos = System.nanoTime();
+        buffers.compute(location.getCourierId(), (courierId, buffer) -> {
+            CourierReorderBuffer courierBuffer = buffer != null ? buffer : new CourierReorderBuffer();
+            int sizeBefore = courierBuffer.size();
+            CourierReorderBuffer.AddResult result = courierBuffer.add(location, arrivalNanos, allowedLateness, MAX_BUFFERED_PER_COURIER, released::add);
+            if (result.late()) {
+                lateCounter.increment();
+            }
+            overflowCounter.increment(result.overflowReleased());
+            bufferedCount.addAndGet(courierBuffer.size() - sizeBefore);
+            return courierBuffer;
+        });
+    }
+
+    private void runFlusher() {
+        while (true) {
+            boolean stopping = !running;
+            long now = System.nanoTime();
+            for (String courierId : buffers.keySet()) {
+                buffers.computeIfPresent(courierId, (id, buffer) -> {
+                    int releasedCount = stopping ? buffer.releaseAll(released::add) : buffer.releaseTimedOut(now, allowedLateness, released::add);
+                    if (releasedCount > 0) {
+                        bufferedCount.addAndGet(-releasedCount);
+                        (stopping ? shutdownReleaseCounter : timedOutCounter).increment(releasedCount);
+                    }
+                    // an empty buffer is dropped, so idle couriers do not hold memory
+                    return buffer.isEmpty() ? null : buffer;
+                });
+            }
+            ingestReleased();
+            if (stopping) {
+                return;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS));
+        }
+    }
+
+    private void ingestReleased() {
+        List<CourierLocationEntity> batch = new ArrayList<>(MAX_FLUSH_BATCH_SIZE);
+        CourierLocationEntity location;
+        while ((location = released.poll()) != null) {
+            batch.add(location);
+            if (batch.size() == MAX_FLUSH_BATCH_SIZE) {
+                ingest(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            ingest(batch);
+        }
+    }
+
+    private void ingest(List<CourierLocationEntity> batch) {
+        if (tryIngest(batch) || tryIngest(batch)) {
+            return;
+        }
+        log.warn("Ingesting {} location updates from the reorder buffer courier by courier", batch.size());
+        Map<String, List<CourierLocationEntity>> batchByCourier = new LinkedHashMap<>();
+        for (CourierLocationEntity location : batch) {
+            batchByCourier.computeIfAbsent(location.getCourierId(), courierId -> new ArrayList<>()).add(location);
+        }
+        for (List<CourierLocationEntity> courierBatch : batchByCourier.values()) {
+            if (courierBatch.size() > 1 && tryIngest(courierBatch)) {
+                continue;
+            }
+            // update by update, still in the courier's timestamp order
+            for (CourierLocationEntity location : courierBatch) {
+                if (!tryIngest(List.of(location))) {
+                    // the update was already acknowledged, there is nobody to report to -- count and log it
+                    flushFailureCounter.increment();
+                    log.error("Location update {} from the reorder buffer could not be ingested", location);
+                }
+            }
+        }
+    }
+
+    private boolean tryIngest(List<CourierLocationEntity> locations) {
+        try {
+            // the batch path sorts by courierId and timestamp, which keeps the release order of each courier
+            courierServiceProvider.getObject().processLocations(new ArrayList<>(locations));
+            return true;
+        } catch (RuntimeException e) {
+            flushRetryCounter.increment();
+            log.error("Failed to ingest {} location updates from the reorder buffer", locations.size(), e);
+            // ids assigned by the rolled back inserts would turn the next attempt into updates of rows that do not exist
+            for (CourierLocationEntity location : locations) {
+                location.setId(null);
+            }
+            return false;
+        }
+    }
+
+    private void registerMetrics() {
+        Gauge.builder("couriertracking.event_time.buffered", bufferedCount, AtomicLong::get)
+                .description("Location updates waiting in the reorder buffers")
+                .register(meterRegistry);
+        lateCounter = Counter.builder("couriertracking.event_time.late")
+                .description("Location updates older than an already released update of their courier, ingested out of order")
+                .register(meterRegistry);
+        timedOutCounter = Counter.builder("couriertracking.event_time.timed_out")
+                .description("Location updates released because they waited for the allowed lateness, not by the watermark")
+                .register(meterRegistry);
+        overflowCounter = Counter.builder("couriertracking.event_time.overflow")
+                .description("Location updates released because their courier had more than max_buffered_per_courier buffered, not by the watermark")
+                .register(meterRegistry);
+        shutdownReleaseCounter = Counter.builder("couriertracking.event_time.shutdown_released")
+                .description("Location updates released because the reorder buffer was stopping, not by the watermark")
+                .register(meterRegistry);
+        flushRetryCounter = Counter.builder("couriertracking.event_time.flush.retries")
+                .description("Failed attempts to ingest released location updates, each followed by a retry or a smaller batch")
+                .register(meterRegistry);
+        flushFailureCounter = Counter.builder("couriertracking.event_time.flush.failures")
+                .description("Acknowledged location updates that could not be ingested, even on their own")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,246 @@
+package com.efecavusoglu.couriertracking.service.simplification;
+
+import com.efecavusoglu.couriertracking.model.entity.LocationCompactionRunEntity;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRoutingRepository;
+import com.efecavusoglu.couriertracking.repository.LocationCompactionRunRepository;
+import com.efecavusoglu.couriertracking.service.CourierDistanceService;
+import com.efecavusoglu.couriertracking.service.history.CourierLocationHistoryStore;
+import com.efecavusoglu.couriertracking.service.history.CourierTrack;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Simplifies the history of couriers older than min_age.hours with TrajectorySimplifier, and deletes the dropped rows
+ * from courier_locations. Locations are compacted day by day, each day in one transaction, courier by courier; the
+ * locations that triggered a store entry are never dropped, and each courier's path keeps distance_tolerance of its length.
+ * The distance aggregates are reduced by the removed distance and the in-memory tracks of the compacted couriers are
+ * reloaded. Each compacted range is recorded as a LocationCompactionRunEntity, ranges before the latest one are not
+ * compacted again -- locations arriving late into them stay as they are.
+ * Only locations still in courier_locations are compacted, archived days are left alone.
+ */
+@Component
+@Slf4j
+public class LocationCompactor {
+
+    private static final String SELECT_STORE_ENTRIES =
+            "SELECT courier_id, timestamp FROM courier_store_entries WHERE timestamp >= ? AND timestamp < ?";
+
+    @Value("${couriertracking.compaction.enabled:false}")
+    private boolean COMPACTION_ENABLED;
+
+    @Value("${couriertracking.compaction.min_age.hours:24}")
+    private long MIN_AGE_HOURS;
+
+    @Value("${couriertracking.compaction.epsilon.meters:10}")
+    private double EPSILON_METERS;
+
+    @Value("${couriertracking.compaction.distance_tolerance:0.01}")
+    private double DISTANCE_TOLERANCE;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CourierLocationRoutingRepository courierLocationRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final LocationCompactionRunRepository locationCompactionRunRepository;
+    private final CourierDistanceService courierDistanceService;
+    private final CourierLocationHistoryStore courierLocationHistoryStore;
+    private final Counter rowsRemovedCounter;
+
+    public LocationCompactor(JdbcTemplate jdbcTemplate,
+                             CourierLocationRoutingRepository courierLocationRepository,
+                             PlatformTransactionManager transactionManager,
+                             LocationCompactionRunRepository locationCompactionRunRepository,
+                             CourierDistanceService courierDistanceService,
+                             CourierLocationHistoryStore courierLocationHistoryStore,
+                             MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.courierLocationRepository = courierLocationRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.locationCompactionRunRepository = locationCompactionRunRepository;
+        this.courierDistanceService = courierDistanceService;
+        this.courierLocationHistoryStore = courierLocationHistoryStore;
+        this.rowsRemovedCounter = Counter.builder("couriertracking.compaction.rows_removed")
+                .description("Locations removed from courier_locations by trajectory simplification")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${couriertracking.compaction.interval.ms:3600000}", initialDelayString = "${couriertracking.compaction.interval.ms:3600000}")
+    public void compactOldLocations() {
+        if (COMPACTION_ENABLED) {
+            compactLocationsBefore(LocalDateTime.now().minusHours(MIN_AGE_HOURS));
+        }
+    }
+
+    /**
+     * Compacts the locations with a timestamp before the cutoff that are not compacted yet, day by day.
+     * @param cutoff locations before this timestamp are compacted
+     * @return number of removed locations
+     */
+    public synchronized long compactLocationsBefore(LocalDateTime cutoff) {
+        if (!COMPACTION_ENABLED) {
+            throw new IllegalStateException("Location compaction is disabled.");
+        }
+        LocalDateTime oldestTimestamp = courierLocationRepository.findOldestTimestampBefore(cutoff);
+        if (oldestTimestamp == null) {
+            return 0;
+        }
+        LocalDateTime start = locationCompactionRunRepository.findFirstByOrderByToTimestampDesc()
+                .map(LocationCompactionRunEntity::getToTimestamp)
+                .filter(watermark -> watermark.isAfter(oldestTimestamp))
+                .orElse(oldestTimestamp);
+
+        long removedRows = 0;
+        for (LocalDate day = start.toLocalDate(); day.atStartOfDay().isBefore(cutoff); day = day.plusDays(1)) {
+            LocalDateTime dayStart = day.atStartOfDay();
+            LocalDateTime dayEnd = day.plusDays(1).atStartOfDay();
+            LocalDateTime from = dayStart.isBefore(start) ? start : dayStart;
+            LocalDateTime to = dayEnd.isBefore(cutoff) ? dayEnd : cutoff;
+            removedRows += transactionTemplate.execute(status -> compactRange(from, to));
+        }
+        return removedRows;
+    }
+
+    private long compactRange(LocalDateTime from, LocalDateTime to) {
+        Map<String, Set<Long>> storeEntryTimestamps = new HashMap<>();
+        jdbcTemplate.query(SELECT_STORE_ENTRIES, resultSet -> {
+            storeEntryTimestamps.computeIfAbsent(resultSet.getString(1), courierId -> new HashSet<>())
+                    .add(CourierTrack.toEpochMillis(resultSet.getObject(2, LocalDateTime.class)));
+        }, from, to);
+
+        CourierPoints points = new CourierPoints();
+        RangeResult result = new RangeResult();
+        courierLocationRepository.queryDayRange(from, to, resultSet -> {
+            String courierId = resultSet.getString(2);
+            if (!courierId.equals(points.courierId)) {
+                simplifyCourier(points, storeEntryTimestamps, result);
+                points.reset(courierId);
+            }
+            points.add(resultSet.getLong(1), resultSet.getDouble(3), resultSet.getDouble(4),
+                    CourierTrack.toEpochMillis(resultSet.getObject(5, LocalDateTime.class)));
+        });
+        simplifyCourier(points, storeEntryTimestamps, result);
+        if (result.rowsScanned == 0) {
+            return 0;
+        }
+
+        // couriers come in courier_id order, so the aggregate rows are locked in the same order as ingestion locks them
+        for (CourierCompaction courierCompaction : result.compactedCouriers) {
+            courierDistanceService.recordCompaction(courierCompaction.courierId(), courierCompaction.removedDistanceMeters(), courierCompaction.removedPoints());
+        }
+        courierLocationRepository.deleteByIds(from.toLocalDate(), result.removedIds, result.removedCount);
+        courierLocationHistoryStore.invalidate(result.compactedCouriers.stream().map(CourierCompaction::courierId).toList());
+        locationCompactionRunRepository.save(LocationCompactionRunEntity.builder()
+                .fromTimestamp(from)
+                .toTimestamp(to)
+                .courierCount(result.courierCount)
+                .rowsScanned(result.rowsScanned)
+                .rowsRemoved(result.removedCount)
+                .distanceBeforeMeters(result.distanceBeforeMeters)
+                .distanceAfterMeters(result.distanceAfterMeters)
+                .createdAt(LocalDateTime.now())
+                .build());
+        rowsRemovedCounter.increment(result.removedCount);
+
+        log.info("Compacted locations of {} couriers from {} to {}: {} of {} rows removed ({}%), distance {} m -> {} m",
+                result.courierCount, from, to, result.removedCount, result.rowsScanned,
+                String.format("%.1f", 100.0 * result.removedCount / result.rowsScanned),
+                String.format("%.1f", result.distanceBeforeMeters), String.format("%.1f", result.distanceAfterMeters));
+        return result.removedCount;
+    }
+
+    private void simplifyCourier(CourierPoints points, Map<String, Set<Long>> storeEntryTimestamps, RangeResult result) {
+        if (points.count == 0) {
+            return;
+        }
+        Set<Long> entryTimestamps = storeEntryTimestamps.getOrDefault(points.courierId, Set.of());
+        boolean[] protectedPoints = new boolean[points.count];
+        for (int i = 0; i < points.count; i++) {
+            protectedPoints[i] = entryTimestamps.contains(points.timestamps[i]);
+        }
+
+        TrajectorySimplifier.Result simplified = TrajectorySimplifier.simplify(points.latitudes, points.longitudes, protectedPoints,
+                points.count, EPSILON_METERS, DISTANCE_TOLERANCE);
+        result.courierCount++;
+        result.rowsScanned += points.count;
+        result.distanceBeforeMeters += simplified.originalDistance();
+        result.distanceAfterMeters += simplified.simplifiedDistance();
+        if (simplified.removedCount() == 0) {
+            return;
+        }
+        for (int i = 0; i < points.count; i++) {
+            if (!simplified.kept()[i]) {
+                result.addRemovedId(points.ids[i]);
+            }
+        }
+        result.compactedCouriers.add(new CourierCompaction(points.courierId,
+                simplified.originalDistance() - simplified.simplifiedDistance(), simplified.removedCount()));
+    }
+
+    /**
+     * Locations of the courier being read, reused from courier to courier.
+     */
+    private static final class CourierPoints {
+
+        private String courierId;
+        private int count;
+        private long[] ids = new long[256];
+        private double[] latitudes = new double[256];
+        private double[] longitudes = new double[256];
+        private long[] timestamps = new long[256];
+
+        void reset(String courierId) {
+            this.courierId = courierId;
+            this.count = 0;
+        }
+
+        void add(long id, double latitude, double longitude, long timestamp) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                latitudes = Arrays.copyOf(latitudes, count * 2);
+                longitudes = Arrays.copyOf(longitudes, count * 2);
+                timestamps = Arrays.copyOf(timestamps, count * 2);
+            }
+            ids[count] = id;
+            latitudes[count] = latitude;
+            longitudes[count] = longitude;
+            timestamps[count] = timestamp;
+            count++;
+        }
+    }
+
+    private static final class RangeResult {
+
+        private int courierCount;
+        private long rowsScanned;
+        private double distanceBeforeMeters;
+        private double distanceAfterMeters;
+        private long[] removedIds = new long[1024];
+        private int removedCount;
+        private final List<CourierCompaction> compactedCouriers = new ArrayList<>();
+
+        void addRemovedId(long id) {
+            if (removedCount == removedIds.length) {
+                removedIds = Arrays.copyOf(removedIds, removedCount * 2);
+            }
+            removedIds[removedCount++] = id;
+        }
+    }
+
+    private record CourierCompaction(String courierId, double removedDistanceMeters, int removedPoints) {}
+}
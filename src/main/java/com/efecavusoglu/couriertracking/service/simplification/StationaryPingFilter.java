@@ -0,0 +1,175 @@
+package com.efecavusoglu.couriertracking.service.simplification;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.service.history.CourierTrack;
+import com.efecavusoglu.couriertracking.service.metrics.IngestionMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistance;
+
+/**
+ * Collapses the pings of a stationary courier (e.g. waiting outside a store) at ingest time.
+ * The last kept ping of each courier is its anchor; a later ping within jitter.meters of the anchor is suppressed --
+ * neither persisted nor folded into the distance aggregate -- unless it triggered a store entry, or the anchor is
+ * max_interval.seconds old, so a waiting courier still leaves a point in its history that often.
+ *
+ * Suppressing pings shortens the path, so each courier has a distance budget: every kept ping adds distance_tolerance
+ * times the distance it moved from the anchor, and suppressed pings are paid for with an upper bound of the distance they
+ * remove. When the stationary run ends with the next kept ping, the bound is replaced by the exact loss. The total
+ * distance thus stays within distance_tolerance of the distance of all pings.
+ *
+ * Late pings (not newer than the courier's last ping) are always kept and leave the state alone. The state is not rolled
+ * back with a failed transaction; a retry of the failed pings is late, so it is kept.
+ */
+@Component
+@Slf4j
+public class StationaryPingFilter {
+
+    @Value("${couriertracking.stationary.enabled:false}")
+    private boolean STATIONARY_FILTER_ENABLED;
+
+    @Value("${couriertracking.stationary.jitter.meters:10}")
+    private double JITTER_METERS;
+
+    @Value("${couriertracking.stationary.max_interval.seconds:60}")
+    private long MAX_INTERVAL_SECONDS;
+
+    @Value("${couriertracking.stationary.distance_tolerance:0.01}")
+    private double DISTANCE_TOLERANCE;
+
+    @Value("${couriertracking.stationary.max_couriers:100000}")
+    private int MAX_COURIERS;
+
+    private final ConcurrentHashMap<String, StationaryState> statesByCourier = new ConcurrentHashMap<>();
+    private final IngestionMetrics ingestionMetrics;
+
+    public StationaryPingFilter(IngestionMetrics ingestionMetrics) {
+        this.ingestionMetrics = ingestionMetrics;
+    }
+
+    public boolean isEnabled() {
+        return STATIONARY_FILTER_ENABLED;
+    }
+
+    /**
+     * Decides whether a ping is kept or suppressed as stationary. Pings of a courier must be offered in the order
+     * they are ingested.
+     * @param location location to be ingested, not persisted yet
+     * @param triggeredStoreEntry whether the location triggered a store entry, such locations are always kept
+     * @return true if the location is suppressed and must not be persisted, false if it is kept.
+     */
+    public boolean trySuppress(CourierLocationEntity location, boolean triggeredStoreEntry) {
+        if (!STATIONARY_FILTER_ENABLED) {
+            return false;
+        }
+        StationaryState state = statesByCourier.computeIfAbsent(location.getCourierId(), courierId -> new StationaryState());
+        boolean suppressed;
+        synchronized (state) {
+            suppressed = state.offer(location.getLatitude(), location.getLongitude(), CourierTrack.toEpochMillis(location.getTimestamp()),
+                    triggeredStoreEntry);
+        }
+
+        if (suppressed) {
+            ingestionMetrics.recordSuppressed(1);
+        } else {
+            evictIfFull();
+        }
+        return suppressed;
+    }
+
+    public void clear() {
+        statesByCourier.clear();
+    }
+
+    /**
+     * Keeps the state within MAX_COURIERS couriers by dropping arbitrary ones down to 90% of the bound.
+     * A dropped courier starts over with its next ping as the anchor and an empty budget.
+     */
+    private void evictIfFull() {
+        if (statesByCourier.size() <= MAX_COURIERS) {
+            return;
+        }
+        int target = (int) (MAX_COURIERS * 0.9);
+        Iterator<String> iterator = statesByCourier.keySet().iterator();
+        while (statesByCourier.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        log.debug("Stationary ping filter evicted down to {} couriers", statesByCourier.size());
+    }
+
+    /**
+     * Anchor, last ping and distance budget of a courier. Guarded by its own monitor.
+     */
+    private final class StationaryState {
+
+        private boolean seeded;
+        private double anchorLatitude;
+        private double anchorLongitude;
+        private long anchorTimestamp;
+        private double lastLatitude;
+        private double lastLongitude;
+        private long lastTimestamp;
+        private double budgetMeters;
+        // suppressed pings since the anchor: their path length, the last one's distance from the anchor,
+        // and what was taken from the budget for them
+        private boolean runOpen;
+        private double runPathMeters;
+        private double runLastFromAnchorMeters;
+        private double runChargedMeters;
+
+        boolean offer(double latitude, double longitude, long timestamp, boolean triggeredStoreEntry) {
+            if (seeded && timestamp <= lastTimestamp) {
+                return false;
+            }
+            double fromAnchor = seeded ? calculateDistance(anchorLatitude, anchorLongitude, latitude, longitude) : 0.0;
+            if (seeded && !triggeredStoreEntry && timestamp - anchorTimestamp < MAX_INTERVAL_SECONDS * 1000 && fromAnchor <= JITTER_METERS) {
+                double step = calculateDistance(lastLatitude, lastLongitude, latitude, longitude);
+                // A -> p1 .. pk -> N becomes A -> N, which loses at most |A p1| + .. + |pk-1 pk| + |pk A| (triangle inequality),
+                // the charge is what this ping adds to that bound
+                double charge = step + fromAnchor - runLastFromAnchorMeters;
+                if (charge <= budgetMeters) {
+                    budgetMeters -= charge;
+                    runChargedMeters += charge;
+                    runPathMeters += step;
+                    runLastFromAnchorMeters = fromAnchor;
+                    runOpen = true;
+                    moveLast(latitude, longitude, timestamp);
+                    return true;
+                }
+            }
+            keep(latitude, longitude, timestamp, fromAnchor);
+            return false;
+        }
+
+        private void keep(double latitude, double longitude, long timestamp, double fromAnchor) {
+            if (seeded) {
+                if (runOpen) {
+                    double loss = runPathMeters + calculateDistance(lastLatitude, lastLongitude, latitude, longitude) - fromAnchor;
+                    budgetMeters += runChargedMeters - loss;
+                }
+                budgetMeters += DISTANCE_TOLERANCE * fromAnchor;
+            }
+            seeded = true;
+            runOpen = false;
+            runPathMeters = 0.0;
+            runLastFromAnchorMeters = 0.0;
+            runChargedMeters = 0.0;
+            anchorLatitude = latitude;
+            anchorLongitude = longitude;
+            anchorTimestamp = timestamp;
+            moveLast(latitude, longitude, timestamp);
+        }
+
+        private void moveLast(double latitude, double longitude, long timestamp) {
+            lastLatitude = latitude;
+            lastLongitude = longitude;
+            lastTimestamp = timestamp;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.efecavusoglu.couriertracking.service.simplification;
+
+import com.efecavusoglu.couriertracking.util.DistanceUtil;
+
+import java.util.Arrays;
+
+/**
+ * Douglas-Peucker simplification of a courier's track, with points that must be kept and a bound on the lost distance.
+ * Points are compared to the segment between the kept points around them in a local equirectangular projection,
+ * which is accurate to well below a meter over the few kilometers a segment spans.
+ * Dropping a point never makes the path longer, so the simplified distance is checked against the original:
+ * if more than distanceTolerance of it is lost, epsilon is halved and the track is simplified again.
+ */
+public final class TrajectorySimplifier {
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    private TrajectorySimplifier() {
+        // constructor is private -- preventing instantiation of the utility class
+    }
+
+    /**
+     * Simplifies the path through the first count points.
+     * The first and the last point, and all protected points, are always kept.
+     * @param latitudes latitudes of the points, in timestamp order
+     * @param longitudes longitudes of the points, in timestamp order
+     * @param protectedPoints points that must be kept, e.g. the ones that triggered a store entry; may be null
+     * @param count number of points
+     * @param epsilonMeters points closer than this to the simplified path are dropped
+     * @param distanceTolerance share of the path length that may be lost, e.g. 0.01 for 1%
+     * @return the kept points; if no epsilon stays within the tolerance, all points are kept.
+     */
+    public static Result simplify(double[] latitudes, double[] longitudes, boolean[] protectedPoints, int count,
+                                  double epsilonMeters, double distanceTolerance) {
+        double originalDistance = DistanceUtil.sumPathDistance(latitudes, longitudes, 0, count);
+        if (count > 2) {
+            double epsilon = epsilonMeters;
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++, epsilon /= 2) {
+                boolean[] kept = markKeptPoints(latitudes, longitudes, protectedPoints, count, epsilon);
+                double simplifiedDistance = keptPathDistance(latitudes, longitudes, kept, count);
+                if (originalDistance - simplifiedDistance <= originalDistance * distanceTolerance) {
+                    return new Result(kept, countKept(kept), originalDistance, simplifiedDistance);
+                }
+            }
+        }
+        boolean[] all = new boolean[count];
+        Arrays.fill(all, true);
+        return new Result(all, count, originalDistance, originalDistance);
+    }
+
+    /**
+     * Iterative Douglas-Peucker: protected points split the track into sections up front, then each section is split at
+     * its farthest point until no point is further than epsilon from its section.
+     */
+    private static boolean[] markKeptPoints(double[] latitudes, double[] longitudes, boolean[] protectedPoints, int count, double epsilon) {
+        boolean[] kept = new boolean[count];
+        kept[0] = true;
+        kept[count - 1] = true;
+        if (protectedPoints != null) {
+            for (int i = 0; i < count; i++) {
+                kept[i] |= protectedPoints[i];
+            }
+        }
+
+        // pending sections as (start, end) pairs
+        int[] stack = new int[2 * count];
+        int top = 0;
+        for (int start = 0, end = 1; end < count; end++) {
+            if (kept[end]) {
+                stack[top++] = start;
+                stack[top++] = end;
+                start = end;
+            }
+        }
+
+        while (top > 0) {
+            int end = stack[--top];
+            int start = stack[--top];
+            if (end - start < 2) {
+                continue;
+            }
+            int farthest = -1;
+            double farthestDistance = epsilon;
+            for (int i = start + 1; i < end; i++) {
+                double distance = distanceToSegment(latitudes[i], longitudes[i], latitudes[start], longitudes[start], latitudes[end], longitudes[end]);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest >= 0) {
+                kept[farthest] = true;
+                stack[top++] = start;
+                stack[top++] = farthest;
+                stack[top++] = farthest;
+                stack[top++] = end;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Distance in meters between a point and the segment from a to b, in an equirectangular projection around a.
+     * Clamped to the segment ends, so points around a stationary segment (a == b) are measured from a.
+     */
+    static double distanceToSegment(double latitude, double longitude, double latitudeA, double longitudeA, double latitudeB, double longitudeB) {
+        double metersPerLongitudeDegree = DistanceUtil.METERS_PER_DEGREE * Math.cos(Math.toRadians(latitudeA));
+        double x = (longitude - longitudeA) * metersPerLongitudeDegree;
+        double y = (latitude - latitudeA) * DistanceUtil.METERS_PER_DEGREE;
+        double segmentX = (longitudeB - longitudeA) * metersPerLongitudeDegree;
+        double segmentY = (latitudeB - latitudeA) * DistanceUtil.METERS_PER_DEGREE;
+
+        double segmentLengthSquared = segmentX * segmentX + segmentY * segmentY;
+        double t = segmentLengthSquared == 0 ? 0 : Math.clamp((x * segmentX + y * segmentY) / segmentLengthSquared, 0.0, 1.0);
+        return Math.hypot(x - t * segmentX, y - t * segmentY);
+    }
+
+    private static double keptPathDistance(double[] latitudes, double[] longitudes, boolean[] kept, int count) {
+        double distance = 0.0;
+        int previous = 0;
+        for (int i = 1; i < count; i++) {
+            if (kept[i]) {
+                distance += DistanceUtil.calculateDistance(latitudes[previous], longitudes[previous], latitudes[i], longitudes[i]);
+                previous = i;
+            }
+        }
+        return distance;
+    }
+
+    private static int countKept(boolean[] kept) {
+        int keptCount = 0;
+        for (boolean k : kept) {
+            if (k) {
+                keptCount++;
+            }
+        }
+        return keptCount;
+    }
+
+    /**
+     * @param kept whether each point is kept
+     * @param keptCount number of kept points
+     * @param originalDistance haversine length of the path through all points, in meters
+     * @param simplifiedDistance haversine length of the path through the kept points, in meters
+     */
+    public record Result(boolean[] kept, int keptCount, double originalDistance, double simplifiedDistance) {
+
+        public int removedCount() {
+            return kept.length - keptCount;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.efecavusoglu.couriertracking.service.storeentry;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
+import com.efecavusoglu.couriertracking.repository.CourierStoreEntryRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cooldown state of the couriers of one location update batch.
+ * The last entry per (courierId, storeId) of all couriers in the batch is loaded in one query up front, so the
+ * batch is evaluated without further DB access. A pair missing from the result has no entry.
+ * Entries triggered by earlier updates of the batch are recorded here as they are created, so later updates of the
+ * same courier see them before the entries are persisted.
+ * Thread-safe, as long as each courier's updates are evaluated by a single thread.
+ */
+public class BatchStoreEntryCooldowns implements LastStoreEntryLookup {
+
+    // keeps the IN list of the last entry query within a reasonable size
+    private static final int COURIER_IDS_PER_QUERY = 1000;
+
+    private final ConcurrentHashMap<StoreEntryCooldownCache.CourierStoreKey, LocalDateTime> lastEntries = new ConcurrentHashMap<>();
+    private final StoreEntryCooldownCache storeEntryCooldownCache;
+
+    private BatchStoreEntryCooldowns(StoreEntryCooldownCache storeEntryCooldownCache) {
+        this.storeEntryCooldownCache = storeEntryCooldownCache;
+    }
+
+    /**
+     * Loads the last store entries of the given couriers.
+     * @param courierIds couriers of the batch
+     * @param courierStoreEntryRepository repository to load the last entries from
+     * @param storeEntryCooldownCache cache holding entries that may not be persisted yet, e.g. by the write-behind queue
+     * @return cooldown state of the batch.
+     */
+    public static BatchStoreEntryCooldowns load(Set<String> courierIds, CourierStoreEntryRepository courierStoreEntryRepository,
+                                                StoreEntryCooldownCache storeEntryCooldownCache) {
+        BatchStoreEntryCooldowns cooldowns = new BatchStoreEntryCooldowns(storeEntryCooldownCache);
+        List<String> courierIdList = new ArrayList<>(courierIds);
+        for (int from = 0; from < courierIdList.size(); from += COURIER_IDS_PER_QUERY) {
+            List<String> chunk = courierIdList.subList(from, Math.min(from + COURIER_IDS_PER_QUERY, courierIdList.size()));
+            for (CourierStoreEntryRepository.LastStoreEntry lastEntry : courierStoreEntryRepository.findLastEntriesByCourierIdIn(chunk)) {
+                cooldowns.lastEntries.put(new StoreEntryCooldownCache.CourierStoreKey(lastEntry.getCourierId(), lastEntry.getStoreId()),
+                        lastEntry.getLastEntryTimestamp());
+            }
+        }
+        return cooldowns;
+    }
+
+    @Override
+    public Optional<LocalDateTime> findLastEntryTimestamp(String courierId, Long storeId) {
+        LocalDateTime loaded = lastEntries.get(new StoreEntryCooldownCache.CourierStoreKey(courierId, storeId));
+        Optional<LocalDateTime> cached = storeEntryCooldownCache.peekLastEntryTimestamp(courierId, storeId);
+        if (loaded != null && cached.isPresent()) {
+            return Optional.of(cached.get().isAfter(loaded) ? cached.get() : loaded);
+        }
+        return loaded != null ? Optional.of(loaded) : cached;
+    }
+
+    /**
+     * Records an entry triggered within the batch, before it is persisted.
+     * @param courierStoreEntry store entry triggered by an update of the batch
+     */
+    public void recordEntry(CourierStoreEntryEntity courierStoreEntry) {
+        lastEntries.merge(new StoreEntryCooldownCache.CourierStoreKey(courierStoreEntry.getCourierId(), courierStoreEntry.getStore().getId()),
+                courierStoreEntry.getTimestamp(), (current, candidate) -> candidate.isAfter(current) ? candidate : current);
+    }
+}
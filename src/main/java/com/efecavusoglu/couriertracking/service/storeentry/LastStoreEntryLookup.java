@@ -0,0 +1,19 @@
+package com.efecavusoglu.couriertracking.service.storeentry;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Source of the last store entry of a courier to a store, for cooldown decisions.
+ * Single location updates look it up through StoreEntryCooldownCache, batches through BatchStoreEntryCooldowns.
+ */
+@FunctionalInterface
+public interface LastStoreEntryLookup {
+
+    /**
+     * @param courierId id of the courier
+     * @param storeId id of the store
+     * @return timestamp of the last entry, or empty Optional if the courier never entered the store.
+     */
+    Optional<LocalDateTime> findLastEntryTimestamp(String courierId, Long storeId);
+}
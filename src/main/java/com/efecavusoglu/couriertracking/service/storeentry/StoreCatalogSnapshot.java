@@ -0,0 +1,95 @@
+package com.efecavusoglu.couriertracking.service.storeentry;
+
+import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Versioned, immutable snapshot of the store catalog.
+ * Holds detached copies of the stores and the spatial index over them (stores laid out in primitive arrays, cell by cell).
+ * A snapshot is never modified after it is built; reloads build a new snapshot and publish it in place of the old one,
+ * so readers only ever dereference the current snapshot and never block.
+ */
+public final class StoreCatalogSnapshot {
+
+    private static final StoreCatalogSnapshot EMPTY = new StoreCatalogSnapshot(0, StoreSpatialIndex.empty(), null);
+
+    private final long version;
+    private final StoreSpatialIndex storeSpatialIndex;
+    private final LocalDateTime publishedAt;
+    private final Map<Long, StoreEntity> storesById;
+
+    private StoreCatalogSnapshot(long version, StoreSpatialIndex storeSpatialIndex, LocalDateTime publishedAt) {
+        this.version = version;
+        this.storeSpatialIndex = storeSpatialIndex;
+        this.publishedAt = publishedAt;
+        Map<Long, StoreEntity> stores = new HashMap<>();
+        for (StoreEntity store : storeSpatialIndex.getStores()) {
+            stores.put(store.getId(), store);
+        }
+        this.storesById = stores;
+    }
+
+    /**
+     * Builds a snapshot over copies of the given stores, so later changes to the entities do not leak into it.
+     * @param version version of the snapshot, increasing with every reload
+     * @param stores stores of the catalog
+     * @param cellSizeMeters cell size of the spatial index
+     * @return immutable snapshot.
+     */
+    public static StoreCatalogSnapshot build(long version, List<StoreEntity> stores, double cellSizeMeters) {
+        List<StoreEntity> storeCopies = new ArrayList<>(stores.size());
+        for (StoreEntity store : stores) {
+            StoreEntity storeCopy = StoreEntity.builder()
+                    .storeName(store.getStoreName())
+                    .latitude(store.getLatitude())
+                    .longitude(store.getLongitude())
+                    .build();
+            storeCopy.setId(store.getId());
+            storeCopies.add(storeCopy);
+        }
+        return new StoreCatalogSnapshot(version, StoreSpatialIndex.build(storeCopies, cellSizeMeters), LocalDateTime.now());
+    }
+
+    /**
+     * Snapshot before the first load: version 0, no stores.
+     */
+    public static StoreCatalogSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @see StoreSpatialIndex#findWithinRadius(double, double, double)
+     */
+    public List<StoreEntity> findWithinRadius(double latitude, double longitude, double radiusMeters) {
+        return storeSpatialIndex.findWithinRadius(latitude, longitude, radiusMeters);
+    }
+
+    public List<StoreEntity> getStores() {
+        return storeSpatialIndex.getStores();
+    }
+
+    public Optional<StoreEntity> findById(Long storeId) {
+        return Optional.ofNullable(storesById.get(storeId));
+    }
+
+    public int size() {
+        return storeSpatialIndex.size();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return time the snapshot was built, null for the empty snapshot.
+     */
+    public LocalDateTime getPublishedAt() {
+        return publishedAt;
+    }
+}
@@ -0,0 +1,180 @@
+package com.efecavusoglu.couriertracking.service.storeentry;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
+import com.efecavusoglu.couriertracking.repository.CourierStoreEntryRepository;
+import com.efecavusoglu.couriertracking.service.metrics.IngestionMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, concurrent cache of the last store entry timestamp per (courierId, storeId).
+ * Store entry decisions only need the newest entry of a courier for a store, so instead of querying the entry history
+ * on every ping, the newest timestamp is kept here. Misses are warmed from DB (including "no entry yet"),
+ * new entries are recorded by CourierService once their transaction commits, and cached values expire after the cooldown window.
+ */
+@Component
+@Slf4j
+public class StoreEntryCooldownCache {
+
+    @Value("${couriertracking.reentry_cooldown.minutes:1}")
+    private Long REENTRY_COOLDOWN_MINUTES;
+
+    @Value("${couriertracking.cooldown_cache.max_entries:100000}")
+    private int MAX_ENTRIES;
+
+    private final ConcurrentHashMap<CourierStoreKey, CachedEntry> entries = new ConcurrentHashMap<>();
+    private final IngestionMetrics ingestionMetrics;
+
+    public StoreEntryCooldownCache(IngestionMetrics ingestionMetrics) {
+        this.ingestionMetrics = ingestionMetrics;
+    }
+
+    /**
+     * Finds the timestamp of the last store entry of a courier to a store.
+     * Served from the cache if present, loaded from DB and cached otherwise.
+     * @param courierId id of the courier
+     * @param storeId id of the store
+     * @param courierStoreEntryRepository repository to load the last entry from on a cache miss
+     * @return timestamp of the last entry, or empty Optional if the courier never entered the store.
+     */
+    public Optional<LocalDateTime> findLastEntryTimestamp(String courierId, Long storeId, CourierStoreEntryRepository courierStoreEntryRepository) {
+        CourierStoreKey key = new CourierStoreKey(courierId, storeId);
+        long now = System.nanoTime();
+        CachedEntry cachedEntry = entries.get(key);
+        if (cachedEntry != null && !cachedEntry.isExpired(now)) {
+            ingestionMetrics.recordCooldownCacheLookup(true);
+            return Optional.ofNullable(cachedEntry.lastEntryTimestamp());
+        }
+
+        ingestionMetrics.recordCooldownCacheLookup(false);
+        LocalDateTime lastEntryTimestamp = courierStoreEntryRepository.findFirstByCourierIdAndStoreIdOrderByTimestampDesc(courierId, storeId)
+                .map(CourierStoreEntryEntity::getTimestamp)
+                .orElse(null);
+        // an entry recorded meanwhile by another thread must not be overwritten by an older DB value
+        CachedEntry loadedEntry = entries.merge(key, new CachedEntry(lastEntryTimestamp, expiresAt(now)), CachedEntry::newest);
+        evictIfFull();
+        return Optional.ofNullable(loadedEntry.lastEntryTimestamp());
+    }
+
+    /**
+     * Lookup that serves last entries from this cache, loading misses from the given repository.
+     * @param courierStoreEntryRepository repository to load the last entry from on a cache miss
+     * @return lookup backed by this cache.
+     */
+    public LastStoreEntryLookup lookupBackedBy(CourierStoreEntryRepository courierStoreEntryRepository) {
+        return (courierId, storeId) -> findLastEntryTimestamp(courierId, storeId, courierStoreEntryRepository);
+    }
+
+    /**
+     * Finds the cached timestamp of the last store entry of a courier to a store, without loading it on a miss.
+     * Expired values are returned as well, they are still entries -- just not known to be the newest ones.
+     * @param courierId id of the courier
+     * @param storeId id of the store
+     * @return cached timestamp of the last entry, or empty Optional if none is cached.
+     */
+    public Optional<LocalDateTime> peekLastEntryTimestamp(String courierId, Long storeId) {
+        CachedEntry cachedEntry = entries.get(new CourierStoreKey(courierId, storeId));
+        return cachedEntry == null ? Optional.empty() : Optional.ofNullable(cachedEntry.lastEntryTimestamp());
+    }
+
+    /**
+     * Records a store entry that has been persisted, so the next decisions for the courier and store see it without DB access.
+     * @param courierStoreEntry persisted store entry
+     */
+    public void recordEntry(CourierStoreEntryEntity courierStoreEntry) {
+        CourierStoreKey key = new CourierStoreKey(courierStoreEntry.getCourierId(), courierStoreEntry.getStore().getId());
+        entries.merge(key, new CachedEntry(courierStoreEntry.getTimestamp(), expiresAt(System.nanoTime())), CachedEntry::newest);
+        evictIfFull();
+    }
+
+    /**
+     * Records store entries saved in the current transaction once it commits, entries of a rolled back transaction are not recorded.
+     * Without a transaction, they are recorded right away.
+     * @param courierStoreEntries saved store entries
+     */
+    public void recordEntriesOnCommit(List<CourierStoreEntryEntity> courierStoreEntries) {
+        if (courierStoreEntries.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<CourierStoreEntryEntity> committedEntries = List.copyOf(courierStoreEntries);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    committedEntries.forEach(StoreEntryCooldownCache.this::recordEntry);
+                }
+            });
+        } else {
+            courierStoreEntries.forEach(this::recordEntry);
+        }
+    }
+
+    /**
+     * Drops a recorded store entry that turned out not to be persisted. Left alone if a newer entry was recorded since;
+     * otherwise the courier and store are reloaded from DB on their next lookup.
+     * @param courierStoreEntry store entry that was recorded but not persisted
+     */
+    public void forgetEntry(CourierStoreEntryEntity courierStoreEntry) {
+        entries.computeIfPresent(new CourierStoreKey(courierStoreEntry.getCourierId(), courierStoreEntry.getStore().getId()),
+                (key, cachedEntry) -> courierStoreEntry.getTimestamp().equals(cachedEntry.lastEntryTimestamp()) ? null : cachedEntry);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private long expiresAt(long now) {
+        return now + TimeUnit.MINUTES.toNanos(REENTRY_COOLDOWN_MINUTES);
+    }
+
+    /**
+     * Keeps the cache within MAX_ENTRIES: expired entries are dropped first, then arbitrary ones down to 90% of the bound.
+     * Dropping a live entry is safe, it will just be reloaded from DB on the next miss.
+     */
+    private void evictIfFull() {
+        if (entries.size() <= MAX_ENTRIES) {
+            return;
+        }
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+
+        int target = (int) (MAX_ENTRIES * 0.9);
+        Iterator<CourierStoreKey> iterator = entries.keySet().iterator();
+        while (entries.size() > target && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+        log.debug("Store entry cooldown cache evicted down to {} entries", entries.size());
+    }
+
+    record CourierStoreKey(String courierId, Long storeId) {}
+
+    /**
+     * @param lastEntryTimestamp timestamp of the last entry, null if there is no entry
+     * @param expiresAtNanos System.nanoTime() based expiry of the cached value
+     */
+    private record CachedEntry(LocalDateTime lastEntryTimestamp, long expiresAtNanos) {
+
+        boolean isExpired(long now) {
+            return now - expiresAtNanos > 0;
+        }
+
+        static CachedEntry newest(CachedEntry current, CachedEntry candidate) {
+            if (current.lastEntryTimestamp() != null
+                    && (candidate.lastEntryTimestamp() == null || current.lastEntryTimestamp().isAfter(candidate.lastEntryTimestamp()))) {
+                return new CachedEntry(current.lastEntryTimestamp(), candidate.expiresAtNanos());
+            }
+            return candidate;
+        }
+    }
+}
@@ -2,12 +2,22 @@ package com.efecavusoglu.couriertracking.service.storeentry;
 
 import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
 import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
-import com.efecavusoglu.couriertracking.repository.CourierStoreEntryRepository;
+import com.efecavusoglu.couriertracking.service.StoreService;
+
+import java.util.List;
 
 /*
  * Interface to define a policy for triggering store.
  * Enables extensibility for future.
  */
 public interface StoreEntryPolicy {
-    boolean canTriggerStoreEntry(StoreEntity entity, CourierLocationEntity courierLocationEntity, CourierStoreEntryRepository courierStoreEntryRepository);
+    boolean canTriggerStoreEntry(StoreEntity entity, CourierLocationEntity courierLocationEntity, LastStoreEntryLookup lastStoreEntryLookup);
+
+    /*
+     * Stores to be evaluated with canTriggerStoreEntry for a location update.
+     * Defaults to the whole store catalog, policies with a spatial criterion should narrow it down.
+     */
+    default List<StoreEntity> findCandidateStores(CourierLocationEntity courierLocationEntity, StoreService storeService) {
+        return storeService.getStores();
+    }
 }
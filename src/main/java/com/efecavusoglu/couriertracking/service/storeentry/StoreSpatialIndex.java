@@ -0,0 +1,179 @@
+package com.efecavusoglu.couriertracking.service.storeentry;
+
+import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
+import com.efecavusoglu.couriertracking.util.DistanceUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.METERS_PER_DEGREE;
+
+/**
+ * Immutable grid (bucket) index over the store catalog.
+ * Stores are bucketed into fixed-size lat/lng cells, so a proximity lookup only visits the cells overlapping
+ * the search circle's bounding box instead of every store in the catalog.
+ * Stores are laid out cell by cell in primitive lat/lng arrays (with precomputed cos(lat)), so the stores of a cell
+ * are one contiguous range that DistanceUtil's batch kernel filters in one call.
+ */
+public class StoreSpatialIndex {
+
+    // below this cos(lat) value (~89.4 degrees) longitude degrees are not meaningful anymore, so we clamp
+    private static final double MIN_COS_LATITUDE = 0.01;
+
+    private static final StoreSpatialIndex EMPTY = new StoreSpatialIndex(List.of(), 1.0);
+
+    private final double cellSizeDegrees;
+    // stores ordered by cell, the arrays below are parallel to this list
+    private final List<StoreEntity> stores;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] cosLatitudes;
+    // cell key -> {start, end} range of the cell's stores
+    private final Map<Long, int[]> cells;
+
+    private StoreSpatialIndex(List<StoreEntity> stores, double cellSizeMeters) {
+        if (cellSizeMeters <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive.");
+        }
+        this.cellSizeDegrees = cellSizeMeters / METERS_PER_DEGREE;
+
+        List<StoreEntity> storesByCell = new ArrayList<>(stores);
+        storesByCell.sort(Comparator.comparingLong(this::cellKeyOf));
+        this.stores = List.copyOf(storesByCell);
+
+        this.latitudes = new double[this.stores.size()];
+        this.longitudes = new double[this.stores.size()];
+        for (int i = 0; i < this.stores.size(); i++) {
+            latitudes[i] = this.stores.get(i).getLatitude();
+            longitudes[i] = this.stores.get(i).getLongitude();
+        }
+        this.cosLatitudes = DistanceUtil.cosLatitudes(latitudes);
+        this.cells = buildCells();
+    }
+
+    /**
+     * Builds a new index over the given stores.
+     * @param stores stores to be indexed.
+     * @param cellSizeMeters edge length of a grid cell in meters, ideally close to the proximity radius.
+     * @return immutable index.
+     */
+    public static StoreSpatialIndex build(List<StoreEntity> stores, double cellSizeMeters) {
+        return new StoreSpatialIndex(stores, cellSizeMeters);
+    }
+
+    public static StoreSpatialIndex empty() {
+        return EMPTY;
+    }
+
+    private Map<Long, int[]> buildCells() {
+        Map<Long, int[]> result = new HashMap<>();
+        int start = 0;
+        for (int i = 1; i <= stores.size(); i++) {
+            if (i == stores.size() || cellKeyOf(stores.get(i)) != cellKeyOf(stores.get(start))) {
+                result.put(cellKeyOf(stores.get(start)), new int[]{start, i});
+                start = i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the stores that may be within the given radius of a point, without checking the distance.
+     * All stores within the radius are guaranteed to be returned, but some returned stores may be further.
+     * @param latitude latitude of the point
+     * @param longitude longitude of the point
+     * @param radiusMeters search radius in meters
+     * @return candidate stores around the point.
+     */
+    public List<StoreEntity> findCandidates(double latitude, double longitude, double radiusMeters) {
+        List<StoreEntity> candidates = new ArrayList<>();
+        for (int[] range : rangesAround(latitude, longitude, radiusMeters)) {
+            candidates.addAll(stores.subList(range[0], range[1]));
+        }
+        return candidates;
+    }
+
+    /**
+     * Finds the stores within the given radius of a point.
+     * Only the stores of the cells around the point are checked, with DistanceUtil's pre-filtered batch kernel.
+     * @param latitude latitude of the point
+     * @param longitude longitude of the point
+     * @param radiusMeters search radius in meters
+     * @return stores within radius, by haversine distance.
+     */
+    public List<StoreEntity> findWithinRadius(double latitude, double longitude, double radiusMeters) {
+        List<int[]> ranges = rangesAround(latitude, longitude, radiusMeters);
+        if (ranges.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<StoreEntity> storesWithinRadius = new ArrayList<>(1);
+        boolean[] mask = null;
+        for (int[] range : ranges) {
+            int rangeSize = range[1] - range[0];
+            if (mask == null || mask.length < rangeSize) {
+                mask = new boolean[rangeSize];
+            }
+            if (DistanceUtil.markWithinRadius(latitude, longitude, latitudes, longitudes, cosLatitudes, range[0], range[1], radiusMeters, mask) > 0) {
+                for (int i = 0; i < rangeSize; i++) {
+                    if (mask[i]) {
+                        storesWithinRadius.add(stores.get(range[0] + i));
+                    }
+                }
+            }
+        }
+        return storesWithinRadius;
+    }
+
+    /**
+     * Ranges of the non-empty cells overlapping the bounding box of the search circle.
+     */
+    private List<int[]> rangesAround(double latitude, double longitude, double radiusMeters) {
+        if (stores.isEmpty()) {
+            return Collections.emptyList();
+        }
+        // padded like DistanceUtil's pre-filter, a store within radius by haversine is never left outside the box
+        double latitudeDelta = DistanceUtil.paddedRadiusDegrees(radiusMeters);
+        double longitudeDelta = latitudeDelta / Math.max(Math.cos(Math.toRadians(latitude)), MIN_COS_LATITUDE);
+
+        long minRow = cellOf(latitude - latitudeDelta);
+        long maxRow = cellOf(latitude + latitudeDelta);
+        long minColumn = cellOf(longitude - longitudeDelta);
+        long maxColumn = cellOf(longitude + longitudeDelta);
+
+        List<int[]> ranges = new ArrayList<>(4);
+        for (long row = minRow; row <= maxRow; row++) {
+            for (long column = minColumn; column <= maxColumn; column++) {
+                int[] range = cells.get(cellKey(row, column));
+                if (range != null) {
+                    ranges.add(range);
+                }
+            }
+        }
+        return ranges;
+    }
+
+    public List<StoreEntity> getStores() {
+        return stores;
+    }
+
+    public int size() {
+        return stores.size();
+    }
+
+    private long cellKeyOf(StoreEntity store) {
+        return cellKey(cellOf(store.getLatitude()), cellOf(store.getLongitude()));
+    }
+
+    private long cellOf(double degrees) {
+        return (long) Math.floor(degrees / cellSizeDegrees);
+    }
+
+    private static long cellKey(long row, long column) {
+        return (row << 32) ^ (column & 0xFFFFFFFFL);
+    }
+}
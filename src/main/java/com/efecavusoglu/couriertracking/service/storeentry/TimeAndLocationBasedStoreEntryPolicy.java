@@ -1,12 +1,13 @@
 package com.efecavusoglu.couriertracking.service.storeentry;
 
 import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
-import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
 import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
-import com.efecavusoglu.couriertracking.repository.CourierStoreEntryRepository;
+import com.efecavusoglu.couriertracking.service.StoreService;
+import com.efecavusoglu.couriertracking.service.metrics.IngestionMetrics;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
@@ -16,6 +17,8 @@ import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistan
 /**
  * Store Entry Policy based on time and location criteria.
  * This policy checks if a courier has entered a store before, and if so, it checks if the re-entry cooldown period has passed.
+ * Last entries come from the given LastStoreEntryLookup: StoreEntryCooldownCache for single updates, so the decision does
+ * not hit DB in the steady state, and the preloaded BatchStoreEntryCooldowns for batches.
  */
 @Component
 public class TimeAndLocationBasedStoreEntryPolicy implements StoreEntryPolicy {
@@ -26,9 +29,23 @@ public class TimeAndLocationBasedStoreEntryPolicy implements StoreEntryPolicy {
     @Value("${couriertracking.reentry_cooldown.minutes:1}")
     private Long REENTRY_COOLDOWN_MINUTES;
 
+    private final IngestionMetrics ingestionMetrics;
+
+    public TimeAndLocationBasedStoreEntryPolicy(IngestionMetrics ingestionMetrics) {
+        this.ingestionMetrics = ingestionMetrics;
+    }
+
+    @Override
+    public boolean canTriggerStoreEntry(StoreEntity entity, CourierLocationEntity courierLocationEntity, LastStoreEntryLookup lastStoreEntryLookup) {
+        return isCourierWithinStoreRange(entity, courierLocationEntity) && !isCourierEnteredStoreBefore(entity, courierLocationEntity, lastStoreEntryLookup);
+    }
+
+    /**
+     * Only the stores within range of the courier location are candidates, looked up from the store spatial index.
+     */
     @Override
-    public boolean canTriggerStoreEntry(StoreEntity entity, CourierLocationEntity courierLocationEntity, CourierStoreEntryRepository courierStoreEntryRepository) {
-        return isCourierWithinStoreRange(entity, courierLocationEntity) && !isCourierEnteredStoreBefore(entity, courierLocationEntity, courierStoreEntryRepository);
+    public List<StoreEntity> findCandidateStores(CourierLocationEntity courierLocationEntity, StoreService storeService) {
+        return storeService.getStoresWithinRadius(courierLocationEntity.getLatitude(), courierLocationEntity.getLongitude(), STORE_PROXIMITY_RADIUS_METERS);
     }
 
     /**
@@ -47,11 +64,13 @@ public class TimeAndLocationBasedStoreEntryPolicy implements StoreEntryPolicy {
      * @param courierLocation location of the courier
      * @return true if the courier has entered the store before within re-entry consideration, false otherwise.
      */
-    private boolean isCourierEnteredStoreBefore(StoreEntity store, CourierLocationEntity courierLocation, CourierStoreEntryRepository courierStoreEntryRepository) {
-        List<CourierStoreEntryEntity> courierStoreEntries = courierStoreEntryRepository.findByCourierIdAndStoreIdOrderByTimestampDesc(courierLocation.getCourierId(), store.getId());
-        Optional<CourierStoreEntryEntity> priorEntryToStore = courierStoreEntries.stream()
-                .filter(entry -> ChronoUnit.MINUTES.between(entry.getTimestamp(), courierLocation.getTimestamp()) <= REENTRY_COOLDOWN_MINUTES)
-                .findFirst();
-        return priorEntryToStore.isPresent();
+    private boolean isCourierEnteredStoreBefore(StoreEntity store, CourierLocationEntity courierLocation, LastStoreEntryLookup lastStoreEntryLookup) {
+        // checking the newest entry is enough: if it is out of the cooldown window, all older ones are as well
+        Optional<LocalDateTime> lastEntryTimestamp = lastStoreEntryLookup.findLastEntryTimestamp(courierLocation.getCourierId(), store.getId());
+        boolean withinCooldown = lastEntryTimestamp
+                .filter(timestamp -> ChronoUnit.MINUTES.between(timestamp, courierLocation.getTimestamp()) <= REENTRY_COOLDOWN_MINUTES)
+                .isPresent();
+        ingestionMetrics.recordPolicyDecision(withinCooldown);
+        return withinCooldown;
     }
 }
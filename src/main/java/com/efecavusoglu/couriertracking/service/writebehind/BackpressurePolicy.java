@@ -0,0 +1,13 @@
+package com.efecavusoglu.couriertracking.service.writebehind;
+
+/**
+ * What to do with a location update when the write-behind queue is full.
+ */
+public enum BackpressurePolicy {
+    /** Wait for free space up to the configured offer timeout, then reject. */
+    BLOCK,
+    /** Reject right away, the client is expected to retry. */
+    REJECT,
+    /** Write the update synchronously on the calling thread, as if write-behind was disabled. */
+    CALLER_RUNS
+}
@@ -0,0 +1,321 @@
+package com.efecavusoglu.couriertracking.service.writebehind;
+
+import com.efecavusoglu.couriertracking.exception.IngestionQueueFullException;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRoutingRepository;
+import com.efecavusoglu.couriertracking.repository.CourierStoreEntryRepository;
+import com.efecavusoglu.couriertracking.service.CourierDistanceService;
+import com.efecavusoglu.couriertracking.service.analytics.StoreVisitAnalytics;
+import com.efecavusoglu.couriertracking.service.events.StoreEntryEventBroadcaster;
+import com.efecavusoglu.couriertracking.service.history.CourierLocationHistoryStore;
+import com.efecavusoglu.couriertracking.service.storeentry.StoreEntryCooldownCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.jctools.queues.MpscArrayQueue;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write-behind queue for location updates.
+ * When enabled, location updates are acknowledged as soon as their store entry is evaluated and are put on a bounded
+ * lock-free ring buffer (many producers, one consumer). A single writer thread drains the buffer and persists the
+ * updates in multi-row batches, either when max_batch_size updates are pending or when the oldest pending update
+ * has waited flush_interval.ms -- whichever comes first.
+ * A batch that fails is retried once, then persisted update by update, so one bad update does not take the others down
+ * with it. Updates that still fail are kept in a bounded dead letter queue, and their store entries are dropped from
+ * the cooldown cache again -- they were recorded there on acknowledge.
+ * The trade-off: acknowledged updates that are still in the buffer are lost if the process dies.
+ */
+@Component
+@Slf4j
+public class LocationWriteBehindQueue {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+
+    @Value("${couriertracking.write_behind.enabled:false}")
+    private boolean WRITE_BEHIND_ENABLED;
+
+    @Value("${couriertracking.write_behind.queue_capacity:65536}")
+    private int QUEUE_CAPACITY;
+
+    @Value("${couriertracking.write_behind.max_batch_size:1000}")
+    private int MAX_BATCH_SIZE;
+
+    @Value("${couriertracking.write_behind.flush_interval.ms:50}")
+    private long FLUSH_INTERVAL_MILLIS;
+
+    @Value("${couriertracking.write_behind.backpressure:BLOCK}")
+    private BackpressurePolicy BACKPRESSURE_POLICY;
+
+    @Value("${couriertracking.write_behind.offer_timeout.ms:100}")
+    private long OFFER_TIMEOUT_MILLIS;
+
+    @Value("${couriertracking.write_behind.dead_letter.capacity:10000}")
+    private int DEAD_LETTER_CAPACITY;
+
+    private final CourierLocationRoutingRepository courierLocationRepository;
+    private final CourierStoreEntryRepository courierStoreEntryRepository;
+    private final CourierDistanceService courierDistanceService;
+    private final CourierLocationHistoryStore courierLocationHistoryStore;
+    private final StoreVisitAnalytics storeVisitAnalytics;
+    private final StoreEntryCooldownCache storeEntryCooldownCache;
+    private final StoreEntryEventBroadcaster storeEntryEventBroadcaster;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    private MpscArrayQueue<PendingLocationWrite> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+    // updates that could not be persisted, oldest first
+    private final ConcurrentLinkedQueue<PendingLocationWrite> deadLetters = new ConcurrentLinkedQueue<>();
+
+    private Timer flushTimer;
+    private DistributionSummary flushBatchSize;
+    private Counter rejectedCounter;
+    private Counter callerRunsCounter;
+    private Counter flushRetryCounter;
+    private Counter flushFailureCounter;
+
+    public LocationWriteBehindQueue(CourierLocationRoutingRepository courierLocationRepository,
+                                    CourierStoreEntryRepository courierStoreEntryRepository,
+                                    CourierDistanceService courierDistanceService,
+                                    CourierLocationHistoryStore courierLocationHistoryStore,
+                                    StoreVisitAnalytics storeVisitAnalytics,
+                                    StoreEntryCooldownCache storeEntryCooldownCache,
+                                    StoreEntryEventBroadcaster storeEntryEventBroadcaster,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry) {
+        this.courierLocationRepository = courierLocationRepository;
+        this.courierStoreEntryRepository = courierStoreEntryRepository;
+        this.courierDistanceService = courierDistanceService;
+        this.courierLocationHistoryStore = courierLocationHistoryStore;
+        this.storeVisitAnalytics = storeVisitAnalytics;
+        this.storeEntryCooldownCache = storeEntryCooldownCache;
+        this.storeEntryEventBroadcaster = storeEntryEventBroadcaster;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!WRITE_BEHIND_ENABLED) {
+            log.info("Write-behind ingestion is disabled, location updates are persisted synchronously.");
+            return;
+        }
+        queue = new MpscArrayQueue<>(QUEUE_CAPACITY);
+        registerMetrics();
+
+        running = true;
+        writerThread = new Thread(this::runWriter, "location-write-behind");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("Write-behind ingestion enabled: capacity {}, max batch {}, flush interval {} ms, backpressure {}",
+                queue.capacity(), MAX_BATCH_SIZE, FLUSH_INTERVAL_MILLIS, BACKPRESSURE_POLICY);
+    }
+
+    /**
+     * Stops the writer after the pending updates are flushed.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writerThread == null) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(writerThread);
+        writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+        if (!queue.isEmpty()) {
+            log.warn("Write-behind queue stopped with {} location updates not persisted", queue.size());
+        }
+    }
+
+    public boolean isEnabled() {
+        return WRITE_BEHIND_ENABLED;
+    }
+
+    /**
+     * Acknowledged updates that could not be persisted, oldest first, at most dead_letter.capacity of them.
+     */
+    public List<PendingLocationWrite> getDeadLetters() {
+        return List.copyOf(deadLetters);
+    }
+
+    /**
+     * Hands an acknowledged location update over to the writer.
+     * If the queue is full, the configured backpressure policy applies.
+     * @param location location to be persisted
+     * @param storeEntry store entry triggered by the location, null if none
+     * @throws IngestionQueueFullException if the queue is full and the update could not be accepted
+     */
+    public void enqueue(CourierLocationEntity location, CourierStoreEntryEntity storeEntry) {
+        PendingLocationWrite pendingWrite = new PendingLocationWrite(location, storeEntry);
+        if (queue.offer(pendingWrite)) {
+            return;
+        }
+
+        switch (BACKPRESSURE_POLICY) {
+            case BLOCK -> {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(OFFER_TIMEOUT_MILLIS);
+                while (!queue.offer(pendingWrite)) {
+                    if (System.nanoTime() - deadline > 0) {
+                        rejectedCounter.increment();
+                        throw new IngestionQueueFullException("Location update queue is full, please retry later.");
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            case REJECT -> {
+                rejectedCounter.increment();
+                throw new IngestionQueueFullException("Location update queue is full, please retry later.");
+            }
+            case CALLER_RUNS -> {
+                callerRunsCounter.increment();
+                persist(List.of(pendingWrite));
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<PendingLocationWrite> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        long flushDeadline = 0;
+        while (true) {
+            int drained = queue.drain(batch::add, MAX_BATCH_SIZE - batch.size());
+            if (!batch.isEmpty() && flushDeadline == 0) {
+                flushDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS);
+            }
+
+            boolean batchFull = batch.size() >= MAX_BATCH_SIZE;
+            boolean intervalElapsed = !batch.isEmpty() && System.nanoTime() - flushDeadline >= 0;
+            boolean shuttingDown = !running && queue.isEmpty();
+            if (batchFull || intervalElapsed || (shuttingDown && !batch.isEmpty())) {
+                flush(batch);
+                batch.clear();
+                flushDeadline = 0;
+                continue;
+            }
+            if (shuttingDown) {
+                return;
+            }
+            if (drained == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void flush(List<PendingLocationWrite> batch) {
+        long start = System.nanoTime();
+        if (!tryPersist(batch) && !tryPersist(batch)) {
+            log.warn("Persisting {} location updates from the write-behind queue failed twice, persisting them one by one", batch.size());
+            for (PendingLocationWrite pendingWrite : batch) {
+                if (!tryPersist(List.of(pendingWrite))) {
+                    deadLetter(pendingWrite);
+                }
+            }
+        }
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        flushBatchSize.record(batch.size());
+    }
+
+    private boolean tryPersist(List<PendingLocationWrite> pendingWrites) {
+        try {
+            persist(pendingWrites);
+            return true;
+        } catch (RuntimeException e) {
+            flushRetryCounter.increment();
+            log.error("Failed to persist {} location updates from the write-behind queue", pendingWrites.size(), e);
+            // ids assigned by the rolled back inserts would turn the next attempt into updates of rows that do not exist
+            for (PendingLocationWrite pendingWrite : pendingWrites) {
+                pendingWrite.location().setId(null);
+                if (pendingWrite.storeEntry() != null) {
+                    pendingWrite.storeEntry().setId(null);
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The update was already acknowledged, there is nobody to report to: it is kept for inspection, and its store entry,
+     * which does not exist after all, must not hold back the courier's next entry to the store.
+     */
+    private void deadLetter(PendingLocationWrite pendingWrite) {
+        flushFailureCounter.increment();
+        log.error("Location update {} could not be persisted, moved to the dead letter queue", pendingWrite.location());
+        if (pendingWrite.storeEntry() != null) {
+            storeEntryCooldownCache.forgetEntry(pendingWrite.storeEntry());
+        }
+        deadLetters.add(pendingWrite);
+        while (deadLetters.size() > DEAD_LETTER_CAPACITY) {
+            deadLetters.poll();
+        }
+    }
+
+    private void persist(List<PendingLocationWrite> pendingWrites) {
+        List<CourierLocationEntity> locations = pendingWrites.stream()
+                .map(PendingLocationWrite::location)
+                .toList();
+        List<CourierStoreEntryEntity> storeEntries = pendingWrites.stream()
+                .map(PendingLocationWrite::storeEntry)
+                .filter(Objects::nonNull)
+                .toList();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // aggregate before persisting -- late locations are spliced in between their already persisted neighbours
+            courierDistanceService.recordLocations(locations);
+            courierLocationRepository.saveAll(locations);
+            courierLocationHistoryStore.recordLocations(locations);
+            courierStoreEntryRepository.saveAll(storeEntries);
+            // recorded here rather than on acknowledge, the analytics need the ids of the persisted entries
+            storeVisitAnalytics.record(storeEntries);
+            // published once the transaction commits, subscribers never see an entry that is not persisted
+            storeEntryEventBroadcaster.publish(storeEntries);
+        });
+    }
+
+    private void registerMetrics() {
+        Gauge.builder("couriertracking.write_behind.queue.depth", queue, MpscArrayQueue::size)
+                .description("Location updates waiting in the write-behind queue")
+                .register(meterRegistry);
+        Gauge.builder("couriertracking.write_behind.queue.capacity", queue, MpscArrayQueue::capacity)
+                .register(meterRegistry);
+        flushTimer = Timer.builder("couriertracking.write_behind.flush.latency")
+                .description("Time to persist one write-behind batch")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        flushBatchSize = DistributionSummary.builder("couriertracking.write_behind.flush.batch.size")
+                .description("Location updates persisted per write-behind batch")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("couriertracking.write_behind.rejected")
+                .description("Location updates rejected because the write-behind queue was full")
+                .register(meterRegistry);
+        callerRunsCounter = Counter.builder("couriertracking.write_behind.caller_runs")
+                .description("Location updates persisted synchronously because the write-behind queue was full")
+                .register(meterRegistry);
+        flushRetryCounter = Counter.builder("couriertracking.write_behind.flush.retries")
+                .description("Failed write-behind persist attempts, each followed by a retry or by persisting update by update")
+                .register(meterRegistry);
+        flushFailureCounter = Counter.builder("couriertracking.write_behind.flush.failures")
+                .description("Acknowledged location updates that could not be persisted, moved to the dead letter queue")
+                .register(meterRegistry);
+        Gauge.builder("couriertracking.write_behind.dead_letter.size", deadLetters, ConcurrentLinkedQueue::size)
+                .description("Location updates in the write-behind dead letter queue")
+                .register(meterRegistry);
+    }
+}
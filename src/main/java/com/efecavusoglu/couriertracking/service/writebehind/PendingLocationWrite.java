@@ -0,0 +1,12 @@
+package com.efecavusoglu.couriertracking.service.writebehind;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
+
+/**
+ * A location update that has been acknowledged but not persisted yet.
+ * @param location location to be persisted
+ * @param storeEntry store entry triggered by the location, null if none
+ */
+public record PendingLocationWrite(CourierLocationEntity location, CourierStoreEntryEntity storeEntry) {
+}
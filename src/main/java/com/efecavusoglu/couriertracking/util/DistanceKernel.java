@@ -0,0 +1,27 @@
+package com.efecavusoglu.couriertracking.util;
+
+/**
+ * Batch distance computations behind DistanceUtil's array based API.
+ * Implemented once with plain loops and once with the Vector API; DistanceUtil picks one at class initialization.
+ * All coordinates are in degrees, [from, to) is the range of the input arrays to process, and outputs are written from index 0.
+ */
+interface DistanceKernel {
+
+    /**
+     * Haversine distances in meters from a point to every point of the range.
+     */
+    void calculateDistances(double lat, double lng, double[] lats, double[] lngs, int from, int to, double[] distances);
+
+    /**
+     * Cheap equirectangular pre-filter: marks the points whose approximate squared distance (in squared degrees of latitude)
+     * to the point is within the threshold. No trigonometry, the cosines of the latitudes are precomputed by the caller.
+     * @return number of marked points
+     */
+    int markWithinApproximateRadius(double lat, double lng, double cosLat, double[] lats, double[] lngs, double[] cosLats,
+                                    int from, int to, double thresholdDegreesSquared, boolean[] mask);
+
+    /**
+     * Haversine length in meters of the path going through the points of the range in order.
+     */
+    double sumPathDistance(double[] lats, double[] lngs, int from, int to);
+}
@@ -1,10 +1,28 @@
 package com.efecavusoglu.couriertracking.util;
 
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * Utility class for distance calculations.
+ * Besides the single pair haversine, offers array based batch calculations (primitive lat/lng arrays), which run on the
+ * Vector API when the jdk.incubator.vector module is available (--add-modules jdk.incubator.vector) and on plain loops otherwise.
  */
+@Slf4j
 public class DistanceUtil {
     private static final double EARTH_RADIUS_KM = 6371.0;
+    static final double EARTH_RADIUS_METERS = EARTH_RADIUS_KM * 1000;
+    // length of a degree of latitude (of longitude on the equator) on the sphere haversine calculates on
+    public static final double METERS_PER_DEGREE = EARTH_RADIUS_METERS * Math.PI / 180.0;
+
+    // The equirectangular approximation is far below 0.1% off at the distances we filter for,
+    // the margin keeps the pre-filter from dropping points that are within radius by haversine.
+    private static final double PREFILTER_MARGIN_RATIO = 1.001;
+    private static final double PREFILTER_MARGIN_METERS = 1.0;
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    // loaded by name, it is compiled on its own with the incubator module (see pom.xml)
+    private static final String VECTOR_KERNEL_CLASS = "com.efecavusoglu.couriertracking.util.VectorDistanceKernel";
+    private static final DistanceKernel KERNEL = selectKernel();
 
     private DistanceUtil() {
         // constructor is private -- prevent instantiation of the utility class
@@ -33,4 +51,103 @@ public class DistanceUtil {
 
         return EARTH_RADIUS_KM * coefficient * 1000;
     }
+
+    /**
+     * Haversine distances from a point to each point of the given arrays.
+     * @param lat latitude of the point
+     * @param lng longitude of the point
+     * @param lats latitudes of the other points
+     * @param lngs longitudes of the other points
+     * @param distances output, distances[i] is the distance in meters to (lats[i], lngs[i])
+     */
+    public static void calculateDistances(double lat, double lng, double[] lats, double[] lngs, double[] distances) {
+        KERNEL.calculateDistances(lat, lng, lats, lngs, 0, lats.length, distances);
+    }
+
+    /**
+     * Marks the points of [from, to) that are within the radius of a point.
+     * An equirectangular pre-filter (no trigonometry) discards the points that are clearly out of range;
+     * haversine only runs on the ones that pass it.
+     * @param lat latitude of the point
+     * @param lng longitude of the point
+     * @param lats latitudes of the other points
+     * @param lngs longitudes of the other points
+     * @param cosLats cosines of lats, see cosLatitudes -- precomputed once per point set
+     * @param radiusMeters radius in meters
+     * @param mask output, mask[i - from] tells whether point i is within radius
+     * @return number of points within radius
+     */
+    public static int markWithinRadius(double lat, double lng, double[] lats, double[] lngs, double[] cosLats,
+                                       int from, int to, double radiusMeters, boolean[] mask) {
+        double thresholdDegrees = paddedRadiusDegrees(radiusMeters);
+        int candidateCount = KERNEL.markWithinApproximateRadius(lat, lng, Math.cos(Math.toRadians(lat)), lats, lngs, cosLats,
+                from, to, thresholdDegrees * thresholdDegrees, mask);
+        if (candidateCount == 0) {
+            return 0;
+        }
+
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (mask[i - from]) {
+                mask[i - from] = calculateDistance(lat, lng, lats[i], lngs[i]) <= radiusMeters;
+                if (mask[i - from]) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Radius in degrees of latitude, padded with the pre-filter's margin -- a bounding box of this many degrees
+     * (divided by cos(lat) for longitude) around a point contains every point within the radius by haversine.
+     * @param radiusMeters radius in meters
+     * @return padded radius in degrees
+     */
+    public static double paddedRadiusDegrees(double radiusMeters) {
+        return (radiusMeters * PREFILTER_MARGIN_RATIO + PREFILTER_MARGIN_METERS) / METERS_PER_DEGREE;
+    }
+
+    /**
+     * Total haversine length of the path going through the points of [from, to) in order.
+     * @param lats latitudes of the path points
+     * @param lngs longitudes of the path points
+     * @return path length in meters, 0 for less than 2 points
+     */
+    public static double sumPathDistance(double[] lats, double[] lngs, int from, int to) {
+        return KERNEL.sumPathDistance(lats, lngs, from, to);
+    }
+
+    /**
+     * Precomputes the cosines of latitudes, as needed by markWithinRadius.
+     */
+    public static double[] cosLatitudes(double[] lats) {
+        double[] cosLats = new double[lats.length];
+        for (int i = 0; i < lats.length; i++) {
+            cosLats[i] = Math.cos(Math.toRadians(lats[i]));
+        }
+        return cosLats;
+    }
+
+    public static boolean isVectorized() {
+        return KERNEL.getClass().getName().equals(VECTOR_KERNEL_CLASS);
+    }
+
+    private static DistanceKernel selectKernel() {
+        boolean vectorEnabled = Boolean.parseBoolean(System.getProperty("couriertracking.distance.vectorized", "true"));
+        if (vectorEnabled && ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                DistanceKernel vectorKernel = Class.forName(VECTOR_KERNEL_CLASS)
+                        .asSubclass(DistanceKernel.class)
+                        .getDeclaredConstructor()
+                        .newInstance();
+                log.info("Batch distance calculations use the Vector API.");
+                return vectorKernel;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Vector API could not be loaded, batch distance calculations fall back to scalar loops.", e);
+            }
+        }
+        log.info("Batch distance calculations use scalar loops, start the JVM with --add-modules {} to vectorize them.", VECTOR_MODULE);
+        return new ScalarDistanceKernel();
+    }
 }
@@ -0,0 +1,135 @@
+package com.efecavusoglu.couriertracking.util;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codec of the binary location frame, a compact alternative to JSON for device gateways.
+ * A frame carries any number of location updates, big-endian:
+ * <pre>
+ * magic          4 bytes   "CLF1"
+ * courier count  u16       size of the courier id dictionary
+ * courier ids    courier count x (u16 byte length, UTF-8 bytes)
+ * update count   i32
+ * updates        update count x (u16 courier index, i64 epoch millis UTC, i32 latitude x 1e7, i32 longitude x 1e7)
+ * </pre>
+ * Updates are fixed 18 bytes, coordinates are fixed-point with 1e-7 degree (~1 cm) resolution.
+ * Frames are decoded straight into CourierLocationEntity, without request DTOs or text parsing.
+ */
+public class LocationFrameCodec {
+
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.couriertracking.location-frame";
+
+    private static final int MAGIC = ('C' << 24) | ('L' << 16) | ('F' << 8) | '1';
+    private static final double COORDINATE_SCALE = 1e7;
+    private static final int UPDATE_BYTES = 2 + 8 + 4 + 4;
+    private static final int MAX_COURIER_IDS = 0xFFFF;
+    private static final int MAX_COURIER_ID_BYTES = 0xFFFF;
+
+    private LocationFrameCodec() {
+        // constructor is private -- preventing instantiation of the utility class
+    }
+
+    /**
+     * Decodes a frame into location entities, sharing one courier id String per dictionary entry.
+     * @param frame frame bytes, from the current position to the limit
+     * @return locationEntities of the frame, in frame order, not persisted.
+     * @throws IllegalArgumentException if the frame is malformed.
+     */
+    public static List<CourierLocationEntity> decode(ByteBuffer frame) {
+        try {
+            if (frame.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a location frame.");
+            }
+            String[] courierIds = new String[Short.toUnsignedInt(frame.getShort())];
+            for (int i = 0; i < courierIds.length; i++) {
+                byte[] courierId = new byte[Short.toUnsignedInt(frame.getShort())];
+                frame.get(courierId);
+                courierIds[i] = new String(courierId, StandardCharsets.UTF_8);
+                if (courierIds[i].isBlank()) {
+                    throw new IllegalArgumentException("Invalid location frame. Courier ids cannot be empty.");
+                }
+            }
+
+            int updateCount = frame.getInt();
+            if (updateCount < 0 || (long) updateCount * UPDATE_BYTES != frame.remaining()) {
+                throw new IllegalArgumentException("Invalid location frame. Update count does not match the frame length.");
+            }
+            List<CourierLocationEntity> locations = new ArrayList<>(updateCount);
+            for (int i = 0; i < updateCount; i++) {
+                int courierIndex = Short.toUnsignedInt(frame.getShort());
+                if (courierIndex >= courierIds.length) {
+                    throw new IllegalArgumentException("Invalid location frame. Unknown courier index " + courierIndex + ".");
+                }
+                long epochMillis = frame.getLong();
+                int latitudeUnits = frame.getInt();
+                int longitudeUnits = frame.getInt();
+                // same rule as CourierLocationUpdateRequest.isValid
+                if (latitudeUnits == 0 || longitudeUnits == 0) {
+                    throw new IllegalArgumentException("Invalid request. Parameters cannot be null or empty.");
+                }
+                locations.add(CourierLocationEntity.builder()
+                        .courierId(courierIds[courierIndex])
+                        .timestamp(LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000), (int) Math.floorMod(epochMillis, 1000) * 1_000_000, ZoneOffset.UTC))
+                        .latitude(latitudeUnits / COORDINATE_SCALE)
+                        .longitude(longitudeUnits / COORDINATE_SCALE)
+                        .build());
+            }
+            return locations;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Invalid location frame. The frame is truncated.");
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid location frame. Timestamp is out of range.");
+        }
+    }
+
+    /**
+     * Encodes location update requests into a frame. Timestamps are truncated to milliseconds.
+     * @param requests location update requests, of at most 65535 distinct couriers with ids of at most 65535 UTF-8 bytes
+     * @return frame bytes.
+     */
+    public static byte[] encode(List<CourierLocationUpdateRequest> requests) {
+        Map<String, Integer> courierIndexes = new LinkedHashMap<>();
+        for (CourierLocationUpdateRequest request : requests) {
+            if (!CourierLocationUpdateRequest.isValid(request)) {
+                throw new IllegalArgumentException("Invalid request. Parameters cannot be null or empty.");
+            }
+            courierIndexes.putIfAbsent(request.getCourierId(), courierIndexes.size());
+        }
+        if (courierIndexes.size() > MAX_COURIER_IDS) {
+            throw new IllegalArgumentException("A location frame can hold at most " + MAX_COURIER_IDS + " couriers.");
+        }
+
+        List<byte[]> courierIds = courierIndexes.keySet().stream().map(courierId -> courierId.getBytes(StandardCharsets.UTF_8)).toList();
+        if (courierIds.stream().anyMatch(courierId -> courierId.length > MAX_COURIER_ID_BYTES)) {
+            throw new IllegalArgumentException("A location frame can hold courier ids of at most " + MAX_COURIER_ID_BYTES + " UTF-8 bytes.");
+        }
+        int dictionaryBytes = courierIds.stream().mapToInt(courierId -> 2 + courierId.length).sum();
+        ByteBuffer frame = ByteBuffer.allocate(4 + 2 + dictionaryBytes + 4 + requests.size() * UPDATE_BYTES);
+        frame.putInt(MAGIC);
+        frame.putShort((short) courierIds.size());
+        for (byte[] courierId : courierIds) {
+            frame.putShort((short) courierId.length);
+            frame.put(courierId);
+        }
+        frame.putInt(requests.size());
+        for (CourierLocationUpdateRequest request : requests) {
+            frame.putShort((short) (int) courierIndexes.get(request.getCourierId()));
+            frame.putLong(request.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+            frame.putInt((int) Math.round(request.getLatitude() * COORDINATE_SCALE));
+            frame.putInt((int) Math.round(request.getLongitude() * COORDINATE_SCALE));
+        }
+        return frame.array();
+    }
+}
@@ -2,6 +2,7 @@ package com.efecavusoglu.couriertracking.util;
 
 import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
 import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateResponse;
+import com.efecavusoglu.couriertracking.model.dto.StoreEntryEventResponse;
 import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
 import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
 import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
@@ -56,5 +57,44 @@ public class MapperUtil {
                 .build();
     }
 
+    /**
+     * Maps a CourierLocationEntity that was dropped as a duplicate to a CourierLocationUpdateResponse.
+     */
+    public static CourierLocationUpdateResponse mapLocationEntityToDeduplicatedResponse(CourierLocationEntity courierLocationEntity) {
+        CourierLocationUpdateResponse courierLocationUpdateResponse = mapLocationEntityToLocationResponse(courierLocationEntity);
+        courierLocationUpdateResponse.setDeduplicated(true);
+        return courierLocationUpdateResponse;
+    }
+
+    /**
+     * Maps a CourierLocationEntity that was suppressed as a stationary ping to a CourierLocationUpdateResponse.
+     */
+    public static CourierLocationUpdateResponse mapLocationEntityToSuppressedResponse(CourierLocationEntity courierLocationEntity) {
+        CourierLocationUpdateResponse courierLocationUpdateResponse = mapLocationEntityToLocationResponse(courierLocationEntity);
+        courierLocationUpdateResponse.setSuppressed(true);
+        return courierLocationUpdateResponse;
+    }
+
+    /**
+     * Maps a CourierLocationEntity that was put into the reorder buffer to a CourierLocationUpdateResponse.
+     */
+    public static CourierLocationUpdateResponse mapLocationEntityToBufferedResponse(CourierLocationEntity courierLocationEntity) {
+        CourierLocationUpdateResponse courierLocationUpdateResponse = mapLocationEntityToLocationResponse(courierLocationEntity);
+        courierLocationUpdateResponse.setBuffered(true);
+        return courierLocationUpdateResponse;
+    }
+
+    /**
+     * Maps a CourierStoreEntryEntity to a StoreEntryEventResponse.
+     */
+    public static StoreEntryEventResponse mapStoreEntryEntityToEventResponse(CourierStoreEntryEntity courierStoreEntryEntity) {
+        return StoreEntryEventResponse.builder()
+                .courierId(courierStoreEntryEntity.getCourierId())
+                .storeId(courierStoreEntryEntity.getStore().getId())
+                .storeName(courierStoreEntryEntity.getStore().getStoreName())
+                .timestamp(courierStoreEntryEntity.getTimestamp())
+                .build();
+    }
+
 
 }
@@ -0,0 +1,39 @@
+package com.efecavusoglu.couriertracking.util;
+
+/**
+ * Plain loop implementation of DistanceKernel, used when the Vector API is not available.
+ */
+class ScalarDistanceKernel implements DistanceKernel {
+
+    @Override
+    public void calculateDistances(double lat, double lng, double[] lats, double[] lngs, int from, int to, double[] distances) {
+        for (int i = from; i < to; i++) {
+            distances[i - from] = DistanceUtil.calculateDistance(lat, lng, lats[i], lngs[i]);
+        }
+    }
+
+    @Override
+    public int markWithinApproximateRadius(double lat, double lng, double cosLat, double[] lats, double[] lngs, double[] cosLats,
+                                           int from, int to, double thresholdDegreesSquared, boolean[] mask) {
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            double deltaLatitude = lats[i] - lat;
+            double deltaLongitude = (lngs[i] - lng) * (cosLats[i] + cosLat) * 0.5;
+            boolean withinRadius = deltaLatitude * deltaLatitude + deltaLongitude * deltaLongitude <= thresholdDegreesSquared;
+            mask[i - from] = withinRadius;
+            if (withinRadius) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public double sumPathDistance(double[] lats, double[] lngs, int from, int to) {
+        double distance = 0.0;
+        for (int i = from + 1; i < to; i++) {
+            distance += DistanceUtil.calculateDistance(lats[i - 1], lngs[i - 1], lats[i], lngs[i]);
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,101 @@
+package com.efecavusoglu.couriertracking.util;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API (jdk.incubator.vector) implementation of DistanceKernel.
+ * Processes SPECIES.length() points per iteration; the remainder that does not fill a vector is handled with plain loops.
+ * Only loaded when the jdk.incubator.vector module is present (--add-modules jdk.incubator.vector).
+ */
+class VectorDistanceKernel implements DistanceKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final double DEGREES_TO_RADIANS = Math.PI / 180.0;
+
+    private final ScalarDistanceKernel scalarKernel = new ScalarDistanceKernel();
+
+    @Override
+    public void calculateDistances(double lat, double lng, double[] lats, double[] lngs, int from, int to, double[] distances) {
+        double latitudeInRadians = lat * DEGREES_TO_RADIANS;
+        double cosLatitude = Math.cos(latitudeInRadians);
+
+        int i = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        for (; i < upperBound; i += SPECIES.length()) {
+            DoubleVector latitudes = DoubleVector.fromArray(SPECIES, lats, i).mul(DEGREES_TO_RADIANS);
+            DoubleVector deltaLatitude = latitudes.sub(latitudeInRadians);
+            DoubleVector deltaLongitude = DoubleVector.fromArray(SPECIES, lngs, i).sub(lng).mul(DEGREES_TO_RADIANS);
+            DoubleVector cosProduct = latitudes.lanewise(VectorOperators.COS).mul(cosLatitude);
+            haversine(deltaLatitude, deltaLongitude, cosProduct).intoArray(distances, i - from);
+        }
+        for (; i < to; i++) {
+            distances[i - from] = DistanceUtil.calculateDistance(lat, lng, lats[i], lngs[i]);
+        }
+    }
+
+    @Override
+    public int markWithinApproximateRadius(double lat, double lng, double cosLat, double[] lats, double[] lngs, double[] cosLats,
+                                           int from, int to, double thresholdDegreesSquared, boolean[] mask) {
+        int count = 0;
+        int i = from;
+        int upperBound = from + SPECIES.loopBound(to - from);
+        for (; i < upperBound; i += SPECIES.length()) {
+            DoubleVector deltaLatitude = DoubleVector.fromArray(SPECIES, lats, i).sub(lat);
+            DoubleVector deltaLongitude = DoubleVector.fromArray(SPECIES, lngs, i).sub(lng)
+                    .mul(DoubleVector.fromArray(SPECIES, cosLats, i).add(cosLat).mul(0.5));
+            VectorMask<Double> withinRadius = deltaLatitude.mul(deltaLatitude)
+                    .add(deltaLongitude.mul(deltaLongitude))
+                    .compare(VectorOperators.LE, thresholdDegreesSquared);
+            withinRadius.intoArray(mask, i - from);
+            count += withinRadius.trueCount();
+        }
+        for (; i < to; i++) {
+            double deltaLatitude = lats[i] - lat;
+            double deltaLongitude = (lngs[i] - lng) * (cosLats[i] + cosLat) * 0.5;
+            mask[i - from] = deltaLatitude * deltaLatitude + deltaLongitude * deltaLongitude <= thresholdDegreesSquared;
+            if (mask[i - from]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public double sumPathDistance(double[] lats, double[] lngs, int from, int to) {
+        if (to - from < 2) {
+            return 0.0;
+        }
+        // segment k goes from point (from + k) to point (from + k + 1)
+        int segmentCount = to - from - 1;
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        int k = 0;
+        int upperBound = SPECIES.loopBound(segmentCount);
+        for (; k < upperBound; k += SPECIES.length()) {
+            DoubleVector startLatitudes = DoubleVector.fromArray(SPECIES, lats, from + k).mul(DEGREES_TO_RADIANS);
+            DoubleVector endLatitudes = DoubleVector.fromArray(SPECIES, lats, from + k + 1).mul(DEGREES_TO_RADIANS);
+            DoubleVector deltaLongitude = DoubleVector.fromArray(SPECIES, lngs, from + k + 1)
+                    .sub(DoubleVector.fromArray(SPECIES, lngs, from + k))
+                    .mul(DEGREES_TO_RADIANS);
+            DoubleVector cosProduct = startLatitudes.lanewise(VectorOperators.COS).mul(endLatitudes.lanewise(VectorOperators.COS));
+            sum = sum.add(haversine(endLatitudes.sub(startLatitudes), deltaLongitude, cosProduct));
+        }
+        return sum.reduceLanes(VectorOperators.ADD) + scalarKernel.sumPathDistance(lats, lngs, from + k, to);
+    }
+
+    /**
+     * Vectorized version of the haversine formula in DistanceUtil.calculateDistance.
+     * @param cosProduct cos(lat1) * cos(lat2)
+     * @return distances in meters
+     */
+    private static DoubleVector haversine(DoubleVector deltaLatitude, DoubleVector deltaLongitude, DoubleVector cosProduct) {
+        DoubleVector sinHalfDeltaLatitude = deltaLatitude.mul(0.5).lanewise(VectorOperators.SIN);
+        DoubleVector sinHalfDeltaLongitude = deltaLongitude.mul(0.5).lanewise(VectorOperators.SIN);
+        DoubleVector a = sinHalfDeltaLatitude.mul(sinHalfDeltaLatitude)
+                .add(cosProduct.mul(sinHalfDeltaLongitude).mul(sinHalfDeltaLongitude));
+        DoubleVector coefficient = a.sqrt().lanewise(VectorOperators.ATAN2, a.neg().add(1.0).sqrt()).mul(2.0);
+        return coefficient.mul(DistanceUtil.EARTH_RADIUS_METERS);
+    }
+}
@@ -0,0 +1,75 @@
+package com.efecavusoglu.couriertracking.repository;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "couriertracking.mock.initialize=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.datasource.url=jdbc:h2:mem:batchinserttestdb;DB_CLOSE_DELAY=-1"
+})
+class CourierLocationBatchInsertTest {
+
+    private static final int ROW_COUNT = 1_000;
+
+    @Autowired
+    private CourierLocationRepository courierLocationRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void idsAreSequenceGenerated() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        // IDENTITY ids would make Hibernate insert row by row, whatever the JDBC batch size
+        for (Class<?> entityClass : List.of(CourierLocationEntity.class, CourierStoreEntryEntity.class)) {
+            assertInstanceOf(SequenceStyleGenerator.class,
+                    sessionFactory.getMappingMetamodel().getEntityDescriptor(entityClass).getGenerator());
+        }
+    }
+
+    @Test
+    void saveAllInsertsInJdbcBatches() {
+        List<CourierLocationEntity> locations = new ArrayList<>(ROW_COUNT);
+        LocalDateTime timestamp = LocalDateTime.of(2025, 5, 25, 10, 0);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            locations.add(CourierLocationEntity.builder()
+                    .courierId("BATCH_INSERT_TEST_COURIER")
+                    .latitude(41.0)
+                    .longitude(29.0)
+                    .timestamp(timestamp.plusSeconds(i))
+                    .build());
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> courierLocationRepository.saveAll(locations));
+
+        assertEquals(ROW_COUNT, statistics.getEntityInsertCount());
+        // batches of hibernate.jdbc.batch_size (500) rows, plus one sequence call per 100 ids
+        long preparedStatements = statistics.getPrepareStatementCount();
+        assertTrue(preparedStatements <= ROW_COUNT / 500 + ROW_COUNT / 100 + 2, "prepared statements: " + preparedStatements);
+        assertTrue(locations.stream().allMatch(location -> location.getId() != null));
+    }
+}
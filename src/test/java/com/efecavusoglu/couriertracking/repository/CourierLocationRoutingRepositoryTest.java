@@ -0,0 +1,103 @@
+package com.efecavusoglu.couriertracking.repository;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationPointResponse;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import com.efecavusoglu.couriertracking.service.dedup.DuplicateLocationFilter;
+import com.efecavusoglu.couriertracking.service.partition.LocationPartitionMaintenance;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "couriertracking.mock.initialize=false",
+        "couriertracking.partitioning.enabled=true",
+        "couriertracking.history.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:partitiontestdb;DB_CLOSE_DELAY=-1"
+})
+class CourierLocationRoutingRepositoryTest {
+
+    private static final String COURIER_ID = "PARTITION_TEST_COURIER";
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 3, 1);
+
+    @Autowired
+    private CourierService courierService;
+
+    @Autowired
+    private CourierLocationRoutingRepository courierLocationRoutingRepository;
+
+    @Autowired
+    private CourierLocationRepository courierLocationRepository;
+
+    @Autowired
+    private DuplicateLocationFilter duplicateLocationFilter;
+
+    @Autowired
+    private LocationPartitionMaintenance locationPartitionMaintenance;
+
+    @Test
+    void locationsAreRoutedToDailyTablesAndExpireByDroppingThem() {
+        Random random = new Random(11);
+        // 3 days of 40 pings each, arriving out of timestamp order
+        List<CourierLocationUpdateRequest> requests = new ArrayList<>();
+        for (int day = 0; day < 3; day++) {
+            for (int i = 0; i < 40; i++) {
+                requests.add(new CourierLocationUpdateRequest(COURIER_ID, 41.0 + random.nextDouble() * 0.01, 29.0 + random.nextDouble() * 0.01,
+                        FIRST_DAY.plusDays(day).atTime(22, 0).plusMinutes(i * 3L)));
+            }
+        }
+        Collections.shuffle(requests, random);
+        for (CourierLocationUpdateRequest request : requests.subList(0, 30)) {
+            courierService.processSingleLocationUpdate(request);
+        }
+        courierService.processBatchLocationUpdate(requests.subList(30, 120));
+
+        assertTrue(courierLocationRoutingRepository.getPartitionDays().containsAll(List.of(FIRST_DAY, FIRST_DAY.plusDays(1), FIRST_DAY.plusDays(2))));
+        assertEquals(0, courierLocationRepository.count());
+        assertEquals(120, courierLocationRoutingRepository.count());
+        List<CourierLocationEntity> persisted = courierLocationRoutingRepository.findByCourierIdOrderByTimestampAsc(COURIER_ID);
+        assertEquals(pathDistance(persisted), courierService.getTotalTravelDistance(COURIER_ID).getBody(), 1e-6);
+
+        // duplicates are caught by the lookup in their day's table once the recent pings are forgotten
+        duplicateLocationFilter.clear();
+        courierService.processBatchLocationUpdate(requests.subList(0, 10));
+        assertEquals(120, courierLocationRoutingRepository.count());
+
+        // a window within the second day, the 40 minutes from 23:00 on are 14 pings
+        LocalDateTime from = FIRST_DAY.plusDays(1).atTime(23, 0);
+        LocalDateTime to = from.plusMinutes(40);
+        List<CourierLocationEntity> window = persisted.stream()
+                .filter(location -> !location.getTimestamp().isBefore(from) && !location.getTimestamp().isAfter(to))
+                .toList();
+        List<CourierLocationPointResponse> history = courierService.getLocationHistory(COURIER_ID, from, to).getBody();
+        assertEquals(14, history.size());
+        assertEquals(window.get(0).getTimestamp(), history.get(0).getTimestamp());
+        assertEquals(pathDistance(window), courierService.getTravelDistanceBetween(COURIER_ID, from, to).getBody(), 1e-6);
+
+        assertEquals(1, locationPartitionMaintenance.dropPartitionsBefore(FIRST_DAY.plusDays(1)));
+        assertEquals(80, courierLocationRoutingRepository.count());
+        assertEquals(FIRST_DAY.plusDays(1).atTime(22, 0),
+                courierService.getLocationHistory(COURIER_ID, null, null).getBody().get(0).getTimestamp());
+    }
+
+    private static double pathDistance(List<CourierLocationEntity> locations) {
+        double distance = 0.0;
+        for (int i = 1; i < locations.size(); i++) {
+            distance += calculateDistance(locations.get(i - 1).getLatitude(), locations.get(i - 1).getLongitude(),
+                    locations.get(i).getLatitude(), locations.get(i).getLongitude());
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,103 @@
+package com.efecavusoglu.couriertracking.service;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class CourierDistanceServiceTest {
+
+    @Autowired
+    private CourierService courierService;
+
+    @Autowired
+    private CourierLocationRepository courierLocationRepository;
+
+    @Test
+    void aggregateMatchesFullRecomputationForOutOfOrderLocations() {
+        String courierId = "DISTANCE_TEST_COURIER";
+        Random random = new Random(7);
+        LocalDateTime start = LocalDateTime.of(2025, 5, 25, 10, 0);
+
+        List<CourierLocationUpdateRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            requests.add(new CourierLocationUpdateRequest(courierId,
+                    41.0 + random.nextDouble() * 0.01,
+                    29.0 + random.nextDouble() * 0.01,
+                    start.plusSeconds(i * 30L)));
+        }
+        Collections.shuffle(requests, random);
+
+        // mix of single updates and batches, both arriving out of timestamp order
+        for (CourierLocationUpdateRequest request : requests.subList(0, 20)) {
+            courierService.processSingleLocationUpdate(request);
+        }
+        courierService.processBatchLocationUpdate(requests.subList(20, 40));
+        for (CourierLocationUpdateRequest request : requests.subList(40, 45)) {
+            courierService.processSingleLocationUpdate(request);
+        }
+        courierService.processBatchLocationUpdate(requests.subList(45, 60));
+
+        assertEquals(recomputeDistance(courierId), courierService.getTotalTravelDistance(courierId).getBody(), 1e-6);
+    }
+
+    @Test
+    void concurrentFirstLocationsOfACourierAreAllAggregated() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2025, 5, 25, 10, 0);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // a new courier every round, its first locations arrive at the same time
+        for (int round = 0; round < 20; round++) {
+            String courierId = "DISTANCE_CONCURRENT_TEST_COURIER_" + round;
+            CountDownLatch ready = new CountDownLatch(threads);
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                CourierLocationUpdateRequest request = new CourierLocationUpdateRequest(courierId, 41.0 + i * 0.001, 29.0, start.plusSeconds(i * 30L));
+                results.add(executor.submit(() -> {
+                    ready.countDown();
+                    go.await();
+                    return courierService.processSingleLocationUpdate(request);
+                }));
+            }
+            assertTrue(ready.await(5, TimeUnit.SECONDS));
+            go.countDown();
+            // none of them fails on the aggregate row inserted by another
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+
+            assertEquals(threads, courierLocationRepository.findByCourierIdOrderByTimestampAsc(courierId).size());
+            assertEquals(recomputeDistance(courierId), courierService.getTotalTravelDistance(courierId).getBody(), 1e-6);
+        }
+        executor.shutdown();
+    }
+
+    private double recomputeDistance(String courierId) {
+        List<CourierLocationEntity> history = courierLocationRepository.findByCourierIdOrderByTimestampAsc(courierId);
+        double distance = 0.0;
+        for (int i = 1; i < history.size(); i++) {
+            distance += calculateDistance(history.get(i - 1).getLatitude(), history.get(i - 1).getLongitude(),
+                    history.get(i).getLatitude(), history.get(i).getLongitude());
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,106 @@
+package com.efecavusoglu.couriertracking.service;
+
+import com.efecavusoglu.couriertracking.service.metrics.IngestionMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "couriertracking.mock.initialize=false",
+        "couriertracking.stream.chunk_size=2",
+        "spring.datasource.url=jdbc:h2:mem:streamtestdb;DB_CLOSE_DELAY=-1"
+})
+class CourierLocationStreamServiceTest {
+
+    private static final String MALFORMED_LINE = "{\"courierId\": \"STREAM_TEST_COURIER\", \"latitude\": \"north\"}";
+
+    @Autowired
+    private CourierLocationStreamService courierLocationStreamService;
+
+    @Autowired
+    private CourierService courierService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IngestionMetrics ingestionMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void malformedLineAfterTheFirstChunkEndsTheStreamWithAnErrorLine() throws IOException {
+        String upload = String.join("\n", line(0), line(1), "", line(2), MALFORMED_LINE, line(3)) + "\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Timer binding = meterRegistry.get("couriertracking.ingestion.stage.latency").tag("stage", "binding").timer();
+        long bindingCountBefore = binding.count();
+
+        assertEquals(2, courierLocationStreamService.processLocationStream(input(upload), output));
+        // the second chunk's parsing is timed up to the malformed line
+        assertEquals(2, binding.count() - bindingCountBefore);
+
+        List<String> responseLines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, responseLines.size());
+        assertTrue(responseLines.get(0).contains("\"courierId\":\"STREAM_TEST_COURIER\""));
+        // the blank line is counted, the line numbers are the upload's
+        assertTrue(responseLines.get(2).startsWith("{\"exceptionMessage\":\"Malformed location update at line 5: "), responseLines.get(2));
+    }
+
+    @Test
+    void failedChunkAfterTheFirstChunkEndsTheStreamWithAnErrorLine() throws IOException {
+        CourierService failingCourierService = mock(CourierService.class);
+        when(failingCourierService.processLocationUpdates(anyList()))
+                .thenAnswer(invocation -> courierService.processLocationUpdates(invocation.getArgument(0)))
+                .thenThrow(new DataAccessResourceFailureException("Connection lost"));
+        CourierLocationStreamService streamService = new CourierLocationStreamService(failingCourierService, objectMapper, ingestionMetrics);
+        ReflectionTestUtils.setField(streamService, "STREAM_CHUNK_SIZE", 2);
+        String upload = String.join("\n", line(10), line(11), line(12), line(13)) + "\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        assertEquals(2, streamService.processLocationStream(input(upload), output));
+
+        List<String> responseLines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, responseLines.size());
+        assertTrue(responseLines.get(2).startsWith("{\"exceptionMessage\":\"Failed to process the location updates after the first 2.\""), responseLines.get(2));
+    }
+
+    @Test
+    void malformedLineBeforeAnyResponseFailsTheRequest() {
+        String upload = String.join("\n", line(0), MALFORMED_LINE) + "\n";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> courierLocationStreamService.processLocationStream(input(upload), output));
+
+        assertTrue(e.getMessage().startsWith("Malformed location update at line 2: "), e.getMessage());
+        assertEquals(0, output.size());
+    }
+
+    private static String line(int minute) {
+        return "{\"courierId\": \"STREAM_TEST_COURIER\", \"latitude\": 41.0, \"longitude\": 29.0, \"timestamp\": \"2025-05-25T10:"
+                + String.format("%02d", minute) + ":00\"}";
+    }
+
+    private static ByteArrayInputStream input(String upload) {
+        return new ByteArrayInputStream(upload.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,98 @@
+package com.efecavusoglu.couriertracking.service;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
+import com.efecavusoglu.couriertracking.repository.CourierStoreEntryRepository;
+import com.efecavusoglu.couriertracking.service.metrics.RepositoryCallCounter;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "couriertracking.mock.initialize=false",
+        "spring.datasource.url=jdbc:h2:mem:parallelevaluationtestdb;DB_CLOSE_DELAY=-1"
+})
+class ParallelStoreEntryEvaluationTest {
+
+    // Ataşehir MMM Migros from the mock store catalog
+    private static final double STORE_LAT = 40.9923307;
+    private static final double STORE_LNG = 29.1244229;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 25, 10, 0);
+    private static final int COURIER_COUNT = 20;
+    private static final int PINGS_PER_COURIER = 60;
+
+    @Autowired
+    private CourierService courierService;
+
+    @Autowired
+    private CourierStoreEntryRepository courierStoreEntryRepository;
+
+    @Test
+    void parallelAndSequentialEvaluationCreateTheSameStoreEntries() {
+        long sequentialRepositoryCalls = ingest("SEQUENTIAL_", false);
+        long parallelRepositoryCalls = ingest("PARALLEL_", true);
+
+        List<String> sequentialEntries = storeEntries("SEQUENTIAL_");
+        assertTrue(sequentialEntries.size() > COURIER_COUNT, "store entries: " + sequentialEntries.size());
+        assertEquals(sequentialEntries, storeEntries("PARALLEL_"));
+        // the cooldowns are preloaded, so the tasks make no repository calls today; any they make are counted for the batch
+        assertEquals(sequentialRepositoryCalls, parallelRepositoryCalls);
+    }
+
+    /**
+     * Ingests the same batch, with couriers named by the prefix, and returns the repository calls counted for it.
+     */
+    private long ingest(String courierPrefix, boolean parallel) {
+        Object target = AopTestUtils.getTargetObject(courierService);
+        ReflectionTestUtils.setField(target, "PARALLEL_BATCH_ENABLED", parallel);
+        ReflectionTestUtils.setField(target, "PARALLEL_BATCH_MIN_SIZE", 1);
+        try {
+            long repositoryCallsBefore = RepositoryCallCounter.current();
+            courierService.processBatchLocationUpdate(batch(courierPrefix));
+            return RepositoryCallCounter.current() - repositoryCallsBefore;
+        } finally {
+            ReflectionTestUtils.setField(target, "PARALLEL_BATCH_ENABLED", false);
+            ReflectionTestUtils.setField(target, "PARALLEL_BATCH_MIN_SIZE", 1000);
+        }
+    }
+
+    /**
+     * Couriers coming and going at the store every 20 seconds, so some entries fall into the re-entry cooldown.
+     */
+    private static List<CourierLocationUpdateRequest> batch(String courierPrefix) {
+        Random random = new Random(5);
+        List<CourierLocationUpdateRequest> requests = new ArrayList<>(COURIER_COUNT * PINGS_PER_COURIER);
+        for (int courier = 0; courier < COURIER_COUNT; courier++) {
+            for (int i = 0; i < PINGS_PER_COURIER; i++) {
+                boolean atStore = random.nextInt(3) == 0;
+                requests.add(new CourierLocationUpdateRequest(courierPrefix + courier,
+                        STORE_LAT + (atStore ? random.nextDouble() * 0.0002 : 0.01),
+                        STORE_LNG,
+                        START.plusSeconds(i * 20L)));
+            }
+        }
+        Collections.shuffle(requests, random);
+        return requests;
+    }
+
+    private List<String> storeEntries(String courierPrefix) {
+        return courierStoreEntryRepository.findAll().stream()
+                .filter(storeEntry -> storeEntry.getCourierId().startsWith(courierPrefix))
+                .sorted(Comparator.comparing(CourierStoreEntryEntity::getCourierId).thenComparing(CourierStoreEntryEntity::getTimestamp))
+                .map(storeEntry -> storeEntry.getCourierId().substring(courierPrefix.length()) + "@" + storeEntry.getStore().getId()
+                        + "@" + storeEntry.getTimestamp())
+                .toList();
+    }
+}
@@ -0,0 +1,52 @@
+package com.efecavusoglu.couriertracking.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class StoreCatalogLoaderTest {
+
+    @Autowired
+    private StoreCatalogLoader storeCatalogLoader;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void catalogIsDiffedAgainstExistingStoresByName() {
+        StoreCatalogLoader.LoadResult first = storeCatalogLoader.load(catalog("""
+                [
+                  {"name": "Loader Test Store A", "lat": 41.0, "lng": 29.0},
+                  {"name": "Loader Test Store B", "lat": 41.1, "lng": 29.1},
+                  {"name": "Loader Test Store B", "lat": 41.2, "lng": 29.2}
+                ]
+                """));
+        assertEquals(2, first.inserted());
+        assertEquals(1, first.updated());
+
+        StoreCatalogLoader.LoadResult second = storeCatalogLoader.load(catalog("""
+                [
+                  {"name": "Loader Test Store A", "lat": 41.0, "lng": 29.0},
+                  {"name": "Loader Test Store B", "lat": 41.3, "lng": 29.3},
+                  {"name": "Loader Test Store C", "lat": 41.4, "lng": 29.4}
+                ]
+                """));
+        assertEquals(1, second.inserted());
+        assertEquals(1, second.updated());
+        assertEquals(1, second.unchanged());
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stores WHERE store_name = 'Loader Test Store B'", Integer.class));
+        assertEquals(41.3, jdbcTemplate.queryForObject("SELECT latitude FROM stores WHERE store_name = 'Loader Test Store B'", Double.class));
+    }
+
+    private static ByteArrayResource catalog(String json) {
+        return new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,73 @@
+package com.efecavusoglu.couriertracking.service;
+
+import com.efecavusoglu.couriertracking.exception.StoreCatalogLoadException;
+import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
+import com.efecavusoglu.couriertracking.repository.StoreRepository;
+import com.efecavusoglu.couriertracking.service.storeentry.StoreCatalogSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StoreServiceTest {
+
+    private StoreRepository storeRepository;
+    private StoreService storeService;
+
+    @BeforeEach
+    void setUp() {
+        storeRepository = mock(StoreRepository.class);
+        storeService = new StoreService(storeRepository,
+                new StoreCatalogLoader(new ObjectMapper(), mock(JdbcTemplate.class), mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(storeService, "STORE_INDEX_CELL_SIZE_METERS", 250.0);
+    }
+
+    @Test
+    void publishedSnapshotIsNotAffectedByLaterChanges() {
+        StoreEntity store = store(1L, 41.0, 29.0);
+        when(storeRepository.findAll()).thenReturn(List.of(store));
+
+        StoreCatalogSnapshot first = storeService.publishSnapshot();
+        store.setLatitude(42.0);
+
+        assertEquals(1, first.getVersion());
+        assertEquals(41.0, storeService.getStores().get(0).getLatitude());
+        assertEquals(1, storeService.getStoresWithinRadius(41.0, 29.0, 100).size());
+
+        StoreCatalogSnapshot second = storeService.publishSnapshot();
+        assertEquals(2, second.getVersion());
+        assertSame(second, storeService.getStoreCatalog());
+        assertEquals(42.0, storeService.getStores().get(0).getLatitude());
+        assertEquals(41.0, first.getStores().get(0).getLatitude());
+    }
+
+    @Test
+    void failedReloadKeepsCurrentSnapshot() {
+        when(storeRepository.findAll()).thenReturn(List.of(store(1L, 41.0, 29.0)));
+        StoreCatalogSnapshot current = storeService.publishSnapshot();
+
+        ReflectionTestUtils.setField(storeService, "STORE_CATALOG_LOCATION", "file:does-not-exist/stores.json");
+        assertThrows(StoreCatalogLoadException.class, storeService::reloadStores);
+        assertSame(current, storeService.getStoreCatalog());
+    }
+
+    private static StoreEntity store(Long id, double latitude, double longitude) {
+        StoreEntity store = StoreEntity.builder()
+                .storeName("Test Store " + id)
+                .latitude(latitude)
+                .longitude(longitude)
+                .build();
+        store.setId(id);
+        return store;
+    }
+}
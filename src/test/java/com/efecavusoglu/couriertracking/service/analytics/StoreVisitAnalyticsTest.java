@@ -0,0 +1,80 @@
+package com.efecavusoglu.couriertracking.service.analytics;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.dto.StoreVisitAnalyticsResponse;
+import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import com.efecavusoglu.couriertracking.service.StoreService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "couriertracking.mock.initialize=false",
+        "couriertracking.analytics.checkpoint.file=${java.io.tmpdir}/store-visit-analytics-test/store-visits.checkpoint",
+        "spring.datasource.url=jdbc:h2:mem:storevisitanalyticstestdb;DB_CLOSE_DELAY=-1"
+})
+class StoreVisitAnalyticsTest {
+
+    // Ataşehir MMM Migros from the mock store catalog
+    private static final double STORE_LAT = 40.9923307;
+    private static final double STORE_LNG = 29.1244229;
+
+    @Autowired
+    private CourierService courierService;
+
+    @Autowired
+    private StoreService storeService;
+
+    @Autowired
+    private StoreVisitAnalytics storeVisitAnalytics;
+
+    @Test
+    void storeEntriesAreAggregatedAndSurviveARestore() throws IOException {
+        StoreEntity store = storeService.getStores().stream()
+                .filter(candidate -> candidate.getLatitude() == STORE_LAT && candidate.getLongitude() == STORE_LNG)
+                .findFirst()
+                .orElseThrow();
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        storeVisitAnalytics.clear();
+
+        // 3 couriers 2 minutes ago, 2 of them again 30 minutes earlier
+        List<CourierLocationUpdateRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            requests.add(new CourierLocationUpdateRequest("ANALYTICS_COURIER_" + i, STORE_LAT, STORE_LNG, now.minusMinutes(2)));
+        }
+        for (int i = 0; i < 2; i++) {
+            requests.add(new CourierLocationUpdateRequest("ANALYTICS_COURIER_" + i, STORE_LAT, STORE_LNG, now.minusMinutes(32)));
+        }
+        courierService.processBatchLocationUpdate(requests);
+
+        StoreVisitAnalyticsResponse analytics = storeVisitAnalytics.getAnalytics(store, now);
+        assertEquals(3, analytics.getEntriesLast5Minutes());
+        assertEquals(5, analytics.getEntriesLastHour());
+        assertEquals(5, analytics.getEntriesLast24Hours());
+
+        // entries after the checkpoint are replayed from DB on restore, the ones before it are not replayed again
+        storeVisitAnalytics.checkpoint();
+        courierService.processSingleLocationUpdate(new CourierLocationUpdateRequest("ANALYTICS_COURIER_3", STORE_LAT, STORE_LNG, now.minusMinutes(1)));
+        storeVisitAnalytics.clear();
+        storeVisitAnalytics.restore();
+
+        StoreVisitAnalyticsResponse restored = storeVisitAnalytics.getAnalytics(store, now);
+        assertEquals(4, restored.getEntriesLast5Minutes());
+        assertEquals(6, restored.getEntriesLastHour());
+        assertEquals(6, restored.getEntriesLast24Hours());
+        if (now.toLocalDate().equals(now.minusMinutes(32).toLocalDate())) {
+            assertEquals(4, restored.getUniqueCouriersToday());
+        }
+        Files.deleteIfExists(storeVisitAnalytics.getCheckpointFile());
+    }
+}
@@ -0,0 +1,98 @@
+package com.efecavusoglu.couriertracking.service.analytics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StoreVisitCountersTest {
+
+    // 2025-05-25T10:00 UTC
+    private static final long NOW_MINUTE = 29_135_640;
+    private static final long TODAY = Math.floorDiv(NOW_MINUTE, 24 * 60);
+
+    @Test
+    void countsEntriesWithinRollingWindows() {
+        StoreVisitCounters counters = new StoreVisitCounters();
+        counters.record(1, "a", NOW_MINUTE);
+        counters.record(2, "b", NOW_MINUTE - 4);
+        counters.record(3, "c", NOW_MINUTE - 5);
+        counters.record(4, "d", NOW_MINUTE - 58);
+        counters.record(5, "e", NOW_MINUTE - 61);
+        counters.record(6, "f", NOW_MINUTE - 23 * 60);
+        counters.record(7, "g", NOW_MINUTE - 25 * 60);
+        // not due yet for the minute windows, but in the current hour bucket already
+        counters.record(8, "h", NOW_MINUTE + 1);
+
+        assertEquals(2, counters.countMinutes(NOW_MINUTE, 5));
+        assertEquals(4, counters.countMinutes(NOW_MINUTE, 60));
+        assertEquals(7, counters.countHours(NOW_MINUTE, 24));
+        assertEquals(8, counters.getMaxEntryId());
+    }
+
+    @Test
+    void entriesOlderThanARingAreLeftOutOfIt() {
+        StoreVisitCounters counters = new StoreVisitCounters();
+        counters.record(1, "a", NOW_MINUTE);
+        // same minute slot as NOW_MINUTE, an hour earlier -- rolled out of the minute ring, but still in the hour ring
+        counters.record(2, "b", NOW_MINUTE - 60);
+
+        assertEquals(1, counters.countMinutes(NOW_MINUTE, 60));
+        assertEquals(2, counters.countHours(NOW_MINUTE, 24));
+        // an hour later, the minute slot is reused
+        counters.record(3, "c", NOW_MINUTE + 60);
+        assertEquals(1, counters.countMinutes(NOW_MINUTE + 60, 60));
+    }
+
+    @Test
+    void countsDistinctCouriersPerDay() {
+        StoreVisitCounters counters = new StoreVisitCounters();
+        for (int i = 0; i < 300; i++) {
+            counters.record(i, "courier" + (i % 100), NOW_MINUTE);
+            counters.record(1_000 + i, "courier" + (i % 40), NOW_MINUTE - 24 * 60);
+        }
+
+        assertEquals(100, counters.countDistinctCouriers(TODAY), 2);
+        assertEquals(40, counters.countDistinctCouriers(TODAY - 1), 1);
+        assertEquals(0, counters.countDistinctCouriers(TODAY - 2));
+
+        // two days later, today's sketch is reused and yesterday's ones are gone
+        counters.record(2_000, "courier", NOW_MINUTE + 2 * 24 * 60);
+        assertEquals(1, counters.countDistinctCouriers(TODAY + 2));
+        assertEquals(0, counters.countDistinctCouriers(TODAY));
+    }
+
+    @Test
+    void hyperLogLogEstimatesLargeCardinalities() {
+        HyperLogLog hyperLogLog = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            hyperLogLog.add("courier" + i);
+            hyperLogLog.add("courier" + i);
+        }
+        // ~3.3% standard error, 3 sigma
+        assertEquals(100_000, hyperLogLog.estimate(), 10_000);
+    }
+
+    @Test
+    void roundTripsThroughCheckpoint() throws IOException {
+        StoreVisitCounters counters = new StoreVisitCounters();
+        for (int i = 0; i < 50; i++) {
+            counters.record(i, "courier" + i, NOW_MINUTE - i * 7);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        counters.writeTo(new DataOutputStream(bytes));
+        StoreVisitCounters restored = StoreVisitCounters.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(counters.countMinutes(NOW_MINUTE, 60), restored.countMinutes(NOW_MINUTE, 60));
+        assertEquals(counters.countHours(NOW_MINUTE, 24), restored.countHours(NOW_MINUTE, 24));
+        assertEquals(counters.countDistinctCouriers(TODAY), restored.countDistinctCouriers(TODAY));
+        assertEquals(49, restored.getMaxEntryId());
+        assertTrue(restored.countHours(NOW_MINUTE, 24) > 0);
+    }
+}
@@ -0,0 +1,128 @@
+package com.efecavusoglu.couriertracking.service.archive;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationPointResponse;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRepository;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import com.efecavusoglu.couriertracking.service.dedup.DuplicateLocationFilter;
+import com.efecavusoglu.couriertracking.service.history.CourierLocationHistoryStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "couriertracking.mock.initialize=false",
+        "couriertracking.archive.enabled=true",
+        "couriertracking.archive.directory=target/archive-test",
+        "spring.datasource.url=jdbc:h2:mem:archivetestdb;DB_CLOSE_DELAY=-1"
+})
+class LocationArchiverTest {
+
+    private static final String COURIER_ID = "ARCHIVE_TEST_COURIER";
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+    @Autowired
+    private CourierService courierService;
+
+    @Autowired
+    private CourierLocationRepository courierLocationRepository;
+
+    @Autowired
+    private CourierLocationHistoryStore courierLocationHistoryStore;
+
+    @Autowired
+    private LocationArchive locationArchive;
+
+    @Autowired
+    private LocationArchiver locationArchiver;
+
+    @Autowired
+    private DuplicateLocationFilter duplicateLocationFilter;
+
+    @Test
+    void historySpansArchivedAndPersistedLocations() throws Exception {
+        Random random = new Random(11);
+        List<CourierLocationUpdateRequest> requests = new ArrayList<>();
+        // 100 points per day over three days
+        for (int i = 0; i < 300; i++) {
+            requests.add(new CourierLocationUpdateRequest(COURIER_ID,
+                    41.0 + random.nextDouble() * 0.01,
+                    29.0 + random.nextDouble() * 0.01,
+                    START.plusDays(i / 100).plusMinutes(i % 100)));
+        }
+        List<CourierLocationUpdateRequest> shuffled = new ArrayList<>(requests);
+        Collections.shuffle(shuffled, random);
+        courierService.processBatchLocationUpdate(shuffled);
+        int segmentsBefore = locationArchive.getSegments().size();
+
+        assertEquals(200, locationArchiver.archiveLocationsBefore(START.plusDays(2).toLocalDate().atStartOfDay()));
+        assertEquals(100, courierLocationRepository.findByCourierIdOrderByTimestampAsc(COURIER_ID).size());
+        assertEquals(segmentsBefore + 2, locationArchive.getSegments().size());
+
+        // a late point on an archived day is spliced in between its archived neighbours
+        CourierLocationUpdateRequest latePoint = new CourierLocationUpdateRequest(COURIER_ID, 41.005, 29.005, START.plusMinutes(10).plusSeconds(30));
+        courierService.processSingleLocationUpdate(latePoint);
+        requests.add(latePoint);
+        requests.sort(Comparator.comparing(CourierLocationUpdateRequest::getTimestamp));
+
+        courierLocationHistoryStore.clear();
+        List<CourierLocationPointResponse> history = courierService.getLocationHistory(COURIER_ID, null, null).getBody();
+        assertEquals(requests.size(), history.size());
+        for (int i = 0; i < requests.size(); i++) {
+            assertEquals(requests.get(i).getTimestamp(), history.get(i).getTimestamp());
+            assertEquals(requests.get(i).getLatitude(), history.get(i).getLatitude(), 1e-7);
+            assertEquals(requests.get(i).getLongitude(), history.get(i).getLongitude(), 1e-7);
+        }
+
+        // archived coordinates are rounded to 1e-7 degrees (~1 cm), distances may differ by that much per segment
+        double expectedDistance = 0.0;
+        for (int i = 1; i < requests.size(); i++) {
+            expectedDistance += calculateDistance(requests.get(i - 1).getLatitude(), requests.get(i - 1).getLongitude(),
+                    requests.get(i).getLatitude(), requests.get(i).getLongitude());
+        }
+        assertEquals(expectedDistance, courierService.getTotalTravelDistance(COURIER_ID).getBody(), 0.1);
+        assertEquals(expectedDistance, courierService.getTravelDistanceBetween(COURIER_ID, null, null).getBody(), 1.0);
+
+        // on startup, registered segments are mapped again and unregistered files are deleted
+        Path orphan = locationArchive.getDirectory().resolve("orphan" + LocationArchive.SEGMENT_FILE_SUFFIX);
+        Files.write(orphan, new byte[]{1, 2, 3});
+        locationArchive.loadSegments();
+        assertFalse(Files.exists(orphan));
+        assertEquals(segmentsBefore + 2, locationArchive.getSegments().size());
+        assertTrue(locationArchive.getPointCount() >= 200);
+    }
+
+    @Test
+    void retriesOfArchivedLocationsAreDeduplicated() {
+        String courierId = "ARCHIVE_DEDUP_TEST_COURIER";
+        // after the days of the other test, so neither archive run takes the other's locations
+        LocalDateTime day = LocalDateTime.of(2025, 2, 1, 8, 0);
+        CourierLocationUpdateRequest archivedPing = new CourierLocationUpdateRequest(courierId, 41.0123456789, 29.0, day.plusNanos(1_500_000));
+        courierService.processBatchLocationUpdate(List.of(
+                archivedPing,
+                new CourierLocationUpdateRequest(courierId, 41.001, 29.0, day.plusMinutes(1))));
+        locationArchiver.archiveLocationsBefore(day.plusDays(1).toLocalDate().atStartOfDay());
+        assertTrue(courierLocationRepository.findByCourierIdOrderByTimestampAsc(courierId).isEmpty());
+
+        // forgotten by the filter, e.g. after a restart: the courier is seeded from the archive and the retry is looked up there
+        duplicateLocationFilter.clear();
+        assertTrue(courierService.processSingleLocationUpdate(archivedPing).getBody().isDeduplicated());
+        // same timestamp, different position -- not a duplicate
+        assertFalse(courierService.processSingleLocationUpdate(
+                new CourierLocationUpdateRequest(courierId, 41.002, 29.0, archivedPing.getTimestamp())).getBody().isDeduplicated());
+    }
+}
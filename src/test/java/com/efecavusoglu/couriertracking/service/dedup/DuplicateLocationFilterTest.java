@@ -0,0 +1,78 @@
+package com.efecavusoglu.couriertracking.service.dedup;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateResponse;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRepository;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class DuplicateLocationFilterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 25, 10, 0);
+
+    @Autowired
+    private CourierService courierService;
+
+    @Autowired
+    private CourierLocationRepository courierLocationRepository;
+
+    @Autowired
+    private DuplicateLocationFilter duplicateLocationFilter;
+
+    @Test
+    void retriedSingleUpdateIsDeduplicated() {
+        String courierId = "DEDUP_SINGLE_TEST_COURIER";
+        CourierLocationUpdateRequest ping = new CourierLocationUpdateRequest(courierId, 40.99, 29.08, START);
+
+        assertFalse(courierService.processSingleLocationUpdate(ping).getBody().isDeduplicated());
+        assertTrue(courierService.processSingleLocationUpdate(ping).getBody().isDeduplicated());
+        // same timestamp, different position -- not a duplicate
+        assertFalse(courierService.processSingleLocationUpdate(new CourierLocationUpdateRequest(courierId, 40.991, 29.08, START)).getBody().isDeduplicated());
+
+        assertEquals(2, courierLocationRepository.findByCourierIdOrderByTimestampAsc(courierId).size());
+    }
+
+    @Test
+    void duplicatesWithinAndAcrossBatchesAreDeduplicated() {
+        String courierId = "DEDUP_BATCH_TEST_COURIER";
+        CourierLocationUpdateRequest first = new CourierLocationUpdateRequest(courierId, 40.99, 29.08, START);
+        CourierLocationUpdateRequest second = new CourierLocationUpdateRequest(courierId, 40.992, 29.08, START.plusSeconds(10));
+        courierService.processBatchLocationUpdate(List.of(first));
+
+        List<CourierLocationUpdateResponse> responses = courierService.processBatchLocationUpdate(List.of(second, first, second)).getBody();
+
+        assertEquals(3, responses.size());
+        assertTrue(responses.get(0).isDeduplicated());
+        assertFalse(responses.get(1).isDeduplicated());
+        assertTrue(responses.get(2).isDeduplicated());
+        assertEquals(2, courierLocationRepository.findByCourierIdOrderByTimestampAsc(courierId).size());
+
+        assertTrue(courierService.processBatchLocationUpdate(List.of(first, second)).getBody().stream()
+                .allMatch(CourierLocationUpdateResponse::isDeduplicated));
+    }
+
+    @Test
+    void pingsOlderThanTheRecentPingsAreCheckedAgainstDatabase() {
+        String courierId = "DEDUP_LATE_TEST_COURIER";
+        for (int i = 0; i < 100; i++) {
+            courierService.processSingleLocationUpdate(new CourierLocationUpdateRequest(courierId, 40.99 + i * 0.0001, 29.08, START.plusSeconds(i)));
+        }
+        // forget everything, the state is seeded from DB again
+        duplicateLocationFilter.clear();
+
+        assertTrue(courierService.processSingleLocationUpdate(new CourierLocationUpdateRequest(courierId, 40.99, 29.08, START)).getBody().isDeduplicated());
+        assertTrue(courierService.processSingleLocationUpdate(new CourierLocationUpdateRequest(courierId, 40.99 + 99 * 0.0001, 29.08, START.plusSeconds(99))).getBody().isDeduplicated());
+        assertFalse(courierService.processSingleLocationUpdate(new CourierLocationUpdateRequest(courierId, 40.99, 29.08, START.minusSeconds(1))).getBody().isDeduplicated());
+        assertEquals(101, courierLocationRepository.findByCourierIdOrderByTimestampAsc(courierId).size());
+    }
+}
@@ -0,0 +1,138 @@
+package com.efecavusoglu.couriertracking.service.events;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.dto.StoreEntryEventResponse;
+import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import com.efecavusoglu.couriertracking.service.StoreService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "couriertracking.mock.initialize=false",
+        "couriertracking.store_entry_events.buffer_size=4",
+        "spring.datasource.url=jdbc:h2:mem:storeentryeventstestdb;DB_CLOSE_DELAY=-1"
+})
+class StoreEntryEventBroadcasterTest {
+
+    // Ataşehir MMM Migros from the mock store catalog
+    private static final double STORE_LAT = 40.9923307;
+    private static final double STORE_LNG = 29.1244229;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 25, 10, 0);
+
+    @Autowired
+    private CourierService courierService;
+
+    @Autowired
+    private StoreService storeService;
+
+    @Autowired
+    private StoreEntryEventBroadcaster storeEntryEventBroadcaster;
+
+    @Test
+    void subscribersOnlyReceiveMatchingStoreEntries() throws InterruptedException {
+        Long storeId = storeAt(STORE_LAT, STORE_LNG).getId();
+        RecordingEmitter storeSubscriber = new RecordingEmitter(new CountDownLatch(0));
+        RecordingEmitter otherStoreSubscriber = new RecordingEmitter(new CountDownLatch(0));
+        RecordingEmitter otherCourierSubscriber = new RecordingEmitter(new CountDownLatch(0));
+        storeEntryEventBroadcaster.subscribe(storeSubscriber, Set.of(storeId), Set.of());
+        storeEntryEventBroadcaster.subscribe(otherStoreSubscriber, Set.of(storeId + 1), Set.of());
+        storeEntryEventBroadcaster.subscribe(otherCourierSubscriber, Set.of(), Set.of("SOME_OTHER_COURIER"));
+
+        assertTrue(courierService.processSingleLocationUpdate(
+                new CourierLocationUpdateRequest("EVENTS_TEST_COURIER", STORE_LAT, STORE_LNG, START)).getBody().isTriggeredStoreEntry());
+
+        await(() -> storeSubscriber.events.size() == 1);
+        StoreEntryEventResponse event = storeSubscriber.events.get(0);
+        assertEquals("EVENTS_TEST_COURIER", event.getCourierId());
+        assertEquals(storeId, event.getStoreId());
+        assertEquals(START, event.getTimestamp());
+
+        Thread.sleep(100);
+        assertTrue(otherStoreSubscriber.events.isEmpty());
+        assertTrue(otherCourierSubscriber.events.isEmpty());
+        storeSubscriber.complete();
+        otherStoreSubscriber.complete();
+        otherCourierSubscriber.complete();
+    }
+
+    @Test
+    void slowSubscriberDoesNotStallIngestion() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slowSubscriber = new RecordingEmitter(release);
+        storeEntryEventBroadcaster.subscribe(slowSubscriber, Set.of(), Set.of());
+
+        int courierCount = 20;
+        List<CourierLocationUpdateRequest> requests = new ArrayList<>();
+        for (int i = 0; i < courierCount; i++) {
+            requests.add(new CourierLocationUpdateRequest("SLOW_SUBSCRIBER_COURIER_" + i, STORE_LAT, STORE_LNG, START));
+        }
+        // the subscriber is stuck on its first event, ingestion goes on and the overflow of its 4-event buffer is dropped
+        courierService.processBatchLocationUpdate(requests);
+
+        release.countDown();
+        await(() -> slowSubscriber.events.size() + slowSubscriber.dropped.get() == courierCount);
+        assertTrue(slowSubscriber.dropped.get() > 0);
+        slowSubscriber.complete();
+    }
+
+    private StoreEntity storeAt(double latitude, double longitude) {
+        return storeService.getStores().stream()
+                .filter(store -> store.getLatitude() == latitude && store.getLongitude() == longitude)
+                .findFirst()
+                .orElseThrow();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * Emitter that records the sent events instead of writing them to a response, each send waits for the release latch.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch release;
+        private final List<StoreEntryEventResponse> events = new CopyOnWriteArrayList<>();
+        private final AtomicLong dropped = new AtomicLong();
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            for (DataWithMediaType data : builder.build()) {
+                if (data.getData() instanceof StoreEntryEventResponse event) {
+                    events.add(event);
+                } else if (data.getData() instanceof Long droppedCount) {
+                    dropped.addAndGet(droppedCount);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.efecavusoglu.couriertracking.service.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistance;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CourierTrackTest {
+
+    @Test
+    void outOfOrderInsertsAreKeptInTimestampOrder() {
+        Random random = new Random(42);
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, random);
+
+        CourierTrack track = new CourierTrack();
+        for (int i : order) {
+            track.insert(40.9 + i * 1e-4, 28.9 + i * 1e-4, i * 30_000L);
+        }
+        assertFalse(track.insert(40.9, 28.9, 0L), "Exact duplicate must be ignored");
+
+        CourierTrack.Slice slice = track.sliceBetween(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(1_000, slice.size());
+        for (int i = 0; i < slice.size(); i++) {
+            assertEquals(i * 30_000L, slice.timestamps()[i]);
+            assertEquals(40.9 + i * 1e-4, slice.latitudes()[i]);
+        }
+    }
+
+    @Test
+    void windowQueriesIncludeBothEnds() {
+        CourierTrack track = new CourierTrack();
+        for (int i = 0; i < 10; i++) {
+            track.insert(41.0 + i * 1e-3, 29.0, i * 1_000L);
+        }
+
+        CourierTrack.Slice slice = track.sliceBetween(2_000L, 5_000L);
+        assertArrayEquals(new long[]{2_000L, 3_000L, 4_000L, 5_000L}, slice.timestamps());
+        assertEquals(0, track.sliceBetween(20_000L, 30_000L).size());
+
+        double expectedDistance = calculateDistance(41.002, 29.0, 41.005, 29.0);
+        assertEquals(expectedDistance, track.distanceBetween(1_500L, 5_000L), 1e-6);
+        assertEquals(0.0, track.distanceBetween(5_000L, 5_000L));
+    }
+
+    @Test
+    void windowDistancesStayCorrectWithLateInserts() {
+        Random random = new Random(7);
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, random);
+
+        CourierTrack track = new CourierTrack();
+        for (int i : order) {
+            track.insert(40.9 + random.nextDouble() * 0.1, 28.9 + random.nextDouble() * 0.1, i * 60_000L);
+        }
+
+        CourierTrack.Slice all = track.sliceBetween(Long.MIN_VALUE, Long.MAX_VALUE);
+        for (int window = 0; window < 200; window++) {
+            int first = random.nextInt(500);
+            int last = first + random.nextInt(500 - first);
+            double expectedDistance = 0.0;
+            for (int i = first + 1; i <= last; i++) {
+                expectedDistance += calculateDistance(all.latitudes()[i - 1], all.longitudes()[i - 1], all.latitudes()[i], all.longitudes()[i]);
+            }
+            assertEquals(expectedDistance, track.distanceBetween(first * 60_000L, last * 60_000L), 1e-6);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.efecavusoglu.couriertracking.service.live;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.METERS_PER_DEGREE;
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CourierPositionGridTest {
+
+    private static final double[][] QUERY_POINTS = {
+            {41.0, 29.0}, {40.95, 29.1}, {41.1, 28.85},
+            // outside the area the couriers are in
+            {42.0, 30.0}
+    };
+
+    @Test
+    void findNearestMatchesBruteForce() {
+        Random random = new Random(42);
+        CourierPositionGrid grid = new CourierPositionGrid(500);
+        double[][] positions = randomPositions(random, 5_000);
+        for (int i = 0; i < positions.length; i++) {
+            grid.update("courier" + i, positions[i][0], positions[i][1], 1_000, 0);
+        }
+
+        for (double[] point : QUERY_POINTS) {
+            for (int k : new int[]{1, 10, 100}) {
+                List<Double> expected = bruteForceDistances(positions, point).subList(0, k);
+                List<Double> actual = grid.findNearest(point[0], point[1], k, 0).stream()
+                        .map(CourierPositionGrid.CourierDistance::distanceMeters)
+                        .toList();
+                assertEquals(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    void findWithinRadiusMatchesBruteForce() {
+        Random random = new Random(7);
+        CourierPositionGrid grid = new CourierPositionGrid(500);
+        double[][] positions = randomPositions(random, 5_000);
+        for (int i = 0; i < positions.length; i++) {
+            grid.update("courier" + i, positions[i][0], positions[i][1], 1_000, 0);
+        }
+
+        for (double[] point : QUERY_POINTS) {
+            List<Double> expected = bruteForceDistances(positions, point).stream()
+                    .filter(distance -> distance <= 2_000)
+                    .toList();
+            List<Double> actual = grid.findWithinRadius(point[0], point[1], 2_000, 0).stream()
+                    .map(CourierPositionGrid.CourierDistance::distanceMeters)
+                    .toList();
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    void courierJustWithinRadiusAcrossACellBoundaryIsFound() {
+        double cellSizeDegrees = 500 / METERS_PER_DEGREE;
+        // the courier just north of a cell boundary, the point 199.9 m due south of it in the cell below
+        double boundary = Math.ceil(41.0 / cellSizeDegrees) * cellSizeDegrees;
+        double courierLatitude = boundary + 1e-8;
+        double latitude = courierLatitude - 199.9 / METERS_PER_DEGREE;
+        CourierPositionGrid grid = new CourierPositionGrid(500);
+        grid.update("courier", courierLatitude, 29.0, 1_000, 0);
+
+        assertEquals(List.of("courier"), grid.findWithinRadius(latitude, 29.0, 200, 0).stream().map(courier -> courier.position().courierId()).toList());
+    }
+
+    @Test
+    void keepsOnlyTheLatestPositionOfACourier() {
+        CourierPositionGrid grid = new CourierPositionGrid(500);
+        grid.update("courier", 41.0, 29.0, 2_000, 0);
+        // moves far away, into another cell
+        grid.update("courier", 41.2, 29.2, 3_000, 0);
+        // older than the current position, only refreshes the last-seen time
+        grid.update("courier", 41.0, 29.0, 1_000, 10);
+
+        assertEquals(1, grid.size());
+        assertTrue(grid.findWithinRadius(41.0, 29.0, 1_000, 0).isEmpty());
+        List<CourierPositionGrid.CourierDistance> nearest = grid.findNearest(41.0, 29.0, 5, 0);
+        assertEquals(1, nearest.size());
+        assertEquals(3_000, nearest.get(0).position().timestampMillis());
+        assertEquals(10, nearest.get(0).position().seenAtNanos());
+    }
+
+    @Test
+    void staleCouriersAreLeftOutAndEvicted() {
+        CourierPositionGrid grid = new CourierPositionGrid(500);
+        grid.update("stale", 41.0, 29.0, 1_000, 100);
+        grid.update("active", 41.001, 29.0, 1_000, 200);
+
+        assertEquals(List.of("active"), grid.findNearest(41.0, 29.0, 5, 150).stream().map(courier -> courier.position().courierId()).toList());
+        assertEquals(1, grid.evictNotSeenSince(150));
+        assertEquals(1, grid.size());
+        assertEquals(List.of("active"), grid.findWithinRadius(41.0, 29.0, 1_000, 0).stream().map(courier -> courier.position().courierId()).toList());
+    }
+
+    @Test
+    void hugeRadiusAndKFallBackToTheOccupiedCells() {
+        CourierPositionGrid grid = new CourierPositionGrid(500);
+        grid.update("near", 41.0, 29.0, 1_000, 0);
+        grid.update("far", -33.9, 151.2, 1_000, 0);
+
+        // the search box spans more cells than a long can count
+        assertEquals(2, assertTimeoutPreemptively(Duration.ofSeconds(5), () -> grid.findWithinRadius(41.0, 29.0, 1e13, 0)).size());
+        assertEquals(List.of("near", "far"), grid.findNearest(41.0, 29.0, Integer.MAX_VALUE, 0).stream()
+                .map(courier -> courier.position().courierId()).toList());
+    }
+
+    private static double[][] randomPositions(Random random, int count) {
+        double[][] positions = new double[count][];
+        for (int i = 0; i < count; i++) {
+            positions[i] = new double[]{40.9 + random.nextDouble() * 0.2, 28.9 + random.nextDouble() * 0.3};
+        }
+        return positions;
+    }
+
+    private static List<Double> bruteForceDistances(double[][] positions, double[] point) {
+        return Arrays.stream(positions)
+                .map(position -> calculateDistance(point[0], point[1], position[0], position[1]))
+                .sorted(Comparator.naturalOrder())
+                .toList();
+    }
+}
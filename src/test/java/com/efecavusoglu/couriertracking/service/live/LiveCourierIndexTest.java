@@ -0,0 +1,59 @@
+package com.efecavusoglu.couriertracking.service.live;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.dto.LiveCourierResponse;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = {
+        "couriertracking.mock.initialize=false",
+        "spring.datasource.url=jdbc:h2:mem:livecourierindextestdb;DB_CLOSE_DELAY=-1"
+})
+class LiveCourierIndexTest {
+
+    private static final String COURIER_ID = "LIVE_INDEX_TEST_COURIER";
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 25, 10, 0);
+
+    @Autowired
+    private CourierService courierService;
+
+    @Autowired
+    private LiveCourierIndex liveCourierIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void positionsMoveOnlyOnceTheirTransactionCommits() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        courierService.processSingleLocationUpdate(new CourierLocationUpdateRequest(COURIER_ID, 41.0, 29.0, START));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            courierService.processSingleLocationUpdate(new CourierLocationUpdateRequest(COURIER_ID, 41.05, 29.05, START.plusSeconds(10)));
+            // not committed yet
+            assertEquals(41.0, findCourier().getLatitude());
+            status.setRollbackOnly();
+        });
+        assertEquals(41.0, findCourier().getLatitude());
+
+        courierService.processSingleLocationUpdate(new CourierLocationUpdateRequest(COURIER_ID, 41.05, 29.05, START.plusSeconds(20)));
+        assertEquals(41.05, findCourier().getLatitude());
+    }
+
+    private LiveCourierResponse findCourier() {
+        List<LiveCourierResponse> couriers = liveCourierIndex.findWithinRadius(41.0, 29.0, 20_000).stream()
+                .filter(courier -> courier.getCourierId().equals(COURIER_ID))
+                .toList();
+        assertEquals(1, couriers.size(), "couriers: " + couriers);
+        return couriers.get(0);
+    }
+}
@@ -0,0 +1,68 @@
+package com.efecavusoglu.couriertracking.service.loadgen;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
+import com.efecavusoglu.couriertracking.util.DistanceUtil;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SyntheticLocationGeneratorTest {
+
+    private static final List<StoreEntity> STORES = List.of(
+            StoreEntity.builder().storeName("Ataşehir MMM Migros").latitude(40.9923307).longitude(29.1244229).build(),
+            StoreEntity.builder().storeName("Novada MMM Migros").latitude(40.986106).longitude(29.1161293).build(),
+            StoreEntity.builder().storeName("Caddebostan MMM Migros").latitude(40.9632463).longitude(29.0630908).build()
+    );
+
+    @Test
+    void sameProfileGeneratesSameLoad() {
+        assertEquals(generate(profile(RouteModel.STORE_TOURS, 7)), generate(profile(RouteModel.STORE_TOURS, 7)));
+        assertNotEquals(generate(profile(RouteModel.STORE_TOURS, 7)), generate(profile(RouteModel.STORE_TOURS, 8)));
+    }
+
+    @Test
+    void everyCourierPingsInTimestampOrder() {
+        LoadProfile profile = profile(RouteModel.RANDOM_WALK, 1);
+        List<CourierLocationUpdateRequest> pings = generate(profile);
+        assertEquals(profile.totalPings(), pings.size());
+
+        Map<String, List<CourierLocationUpdateRequest>> pingsByCourier = new HashMap<>();
+        pings.forEach(ping -> pingsByCourier.computeIfAbsent(ping.getCourierId(), id -> new ArrayList<>()).add(ping));
+        assertEquals(profile.courierCount(), pingsByCourier.size());
+        pingsByCourier.values().forEach(courierPings -> {
+            assertEquals(profile.pingsPerCourier(), courierPings.size());
+            for (int i = 1; i < courierPings.size(); i++) {
+                assertTrue(courierPings.get(i).getTimestamp().isAfter(courierPings.get(i - 1).getTimestamp()));
+            }
+        });
+    }
+
+    @Test
+    void storeToursVisitStores() {
+        long pingsAtStores = generate(profile(RouteModel.STORE_TOURS, 3)).stream()
+                .filter(ping -> STORES.stream().anyMatch(store ->
+                        DistanceUtil.calculateDistance(store.getLatitude(), store.getLongitude(), ping.getLatitude(), ping.getLongitude()) <= 100))
+                .count();
+        assertTrue(pingsAtStores >= 10, "only " + pingsAtStores + " pings near stores");
+    }
+
+    private static LoadProfile profile(RouteModel routeModel, long seed) {
+        return new LoadProfile(10, 30, 60, routeModel, 0, 40.993142, 29.084008, 5000,
+                LocalDateTime.of(2025, 5, 25, 10, 0), "TEST_COURIER_", seed);
+    }
+
+    private static List<CourierLocationUpdateRequest> generate(LoadProfile profile) {
+        List<CourierLocationUpdateRequest> pings = new ArrayList<>();
+        new SyntheticLocationGenerator(profile, STORES).forEachRemaining(pings::add);
+        return pings;
+    }
+}
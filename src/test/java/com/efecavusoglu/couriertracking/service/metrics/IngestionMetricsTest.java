@@ -0,0 +1,105 @@
+package com.efecavusoglu.couriertracking.service.metrics;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateResponse;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "couriertracking.mock.initialize=false",
+        "spring.datasource.url=jdbc:h2:mem:ingestionmetricstestdb;DB_CLOSE_DELAY=-1"
+})
+class IngestionMetricsTest {
+
+    // Ataşehir MMM Migros from the mock store catalog
+    private static final double STORE_LAT = 40.9923307;
+    private static final double STORE_LNG = 29.1244229;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 25, 10, 0);
+    private static final int BATCH_SIZE = 10;
+
+    @Autowired
+    private CourierService courierService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void batchIngestionRecordsEveryStageAndTheRepositoryCalls() throws IOException {
+        String courierId = "METRICS_TEST_COURIER";
+        List<CourierLocationUpdateRequest> batch = new ArrayList<>(BATCH_SIZE);
+        // far from any store, then at the store -- one store entry
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(new CourierLocationUpdateRequest(courierId, i < BATCH_SIZE / 2 ? STORE_LAT + 0.01 : STORE_LAT, STORE_LNG, START.plusSeconds(i * 10L)));
+        }
+        Map<IngestionStage, Long> stageCountsBefore = stageCounts();
+        double locationUpdatesBefore = meterRegistry.counter("couriertracking.ingestion.location_updates").count();
+        double storeEntriesBefore = meterRegistry.counter("couriertracking.ingestion.store_entries").count();
+        DistributionSummary repositoryCallsPerUpdate = meterRegistry.get("couriertracking.ingestion.repository.calls.per_location_update").summary();
+        long repositoryCallSummaryCountBefore = repositoryCallsPerUpdate.count();
+        double repositoryCallSummaryTotalBefore = repositoryCallsPerUpdate.totalAmount();
+
+        List<CourierLocationUpdateResponse> responses;
+        long repositoryCalls;
+        Path recordingFile = Files.createTempFile("ingestion", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(IngestionStageEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            long repositoryCallsBefore = RepositoryCallCounter.current();
+            responses = courierService.processBatchLocationUpdate(batch).getBody();
+            repositoryCalls = RepositoryCallCounter.current() - repositoryCallsBefore;
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        assertEquals(1, responses.stream().filter(CourierLocationUpdateResponse::isTriggeredStoreEntry).count());
+        // the request body is bound by the controller, every other stage runs once for the batch
+        Map<IngestionStage, Long> stageCounts = stageCounts();
+        for (IngestionStage stage : IngestionStage.values()) {
+            assertEquals(stage == IngestionStage.BINDING ? 0 : 1, stageCounts.get(stage) - stageCountsBefore.get(stage), stage.getTag());
+        }
+        assertEquals(BATCH_SIZE, meterRegistry.counter("couriertracking.ingestion.location_updates").count() - locationUpdatesBefore);
+        assertEquals(1, meterRegistry.counter("couriertracking.ingestion.store_entries").count() - storeEntriesBefore);
+
+        // counted by RepositoryCallCountingPostProcessor, at least the location and store entry inserts
+        assertTrue(repositoryCalls >= 2, "repository calls: " + repositoryCalls);
+        assertEquals(1, repositoryCallsPerUpdate.count() - repositoryCallSummaryCountBefore);
+        assertEquals((double) repositoryCalls / BATCH_SIZE, repositoryCallsPerUpdate.totalAmount() - repositoryCallSummaryTotalBefore, 1e-9);
+
+        Map<String, Integer> eventLocationUpdates = new HashMap<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+            eventLocationUpdates.put(event.getString("stage"), event.getInt("locationUpdates"));
+        }
+        Files.delete(recordingFile);
+        assertEquals(Map.of("mapping", BATCH_SIZE, "deduplication", BATCH_SIZE, "evaluation", BATCH_SIZE, "suppression", BATCH_SIZE,
+                "aggregate", BATCH_SIZE, "persist", BATCH_SIZE, "history", BATCH_SIZE, "store_entry_insert", 1), eventLocationUpdates);
+    }
+
+    private Map<IngestionStage, Long> stageCounts() {
+        Map<IngestionStage, Long> counts = new EnumMap<>(IngestionStage.class);
+        for (IngestionStage stage : IngestionStage.values()) {
+            counts.put(stage, meterRegistry.get("couriertracking.ingestion.stage.latency").tag("stage", stage.getTag()).timer().count());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,100 @@
+package com.efecavusoglu.couriertracking.service.reorder;
+
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocationReorderBufferFlushTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 25, 10, 0);
+
+    private CourierService courierService;
+    private SimpleMeterRegistry meterRegistry;
+    private LocationReorderBuffer reorderBuffer;
+    // courierId@second of the updates ingested by successful processLocations calls, in ingestion order
+    private final List<String> ingested = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        courierService = mock(CourierService.class);
+        ObjectProvider<CourierService> courierServiceProvider = mock(ObjectProvider.class);
+        when(courierServiceProvider.getObject()).thenReturn(courierService);
+        meterRegistry = new SimpleMeterRegistry();
+        reorderBuffer = new LocationReorderBuffer(courierServiceProvider, meterRegistry);
+        ReflectionTestUtils.setField(reorderBuffer, "EVENT_TIME_ENABLED", true);
+        // long enough that nothing is released by timeout while the test runs
+        ReflectionTestUtils.setField(reorderBuffer, "ALLOWED_LATENESS_MILLIS", 60_000L);
+        ReflectionTestUtils.setField(reorderBuffer, "MAX_BUFFERED_PER_COURIER", 2);
+        ReflectionTestUtils.setField(reorderBuffer, "FLUSH_INTERVAL_MILLIS", 60_000L);
+        ReflectionTestUtils.setField(reorderBuffer, "MAX_FLUSH_BATCH_SIZE", 1_000);
+        doAnswer(invocation -> {
+            List<CourierLocationEntity> locations = invocation.getArgument(0);
+            if (locations.stream().anyMatch(location -> location.getLatitude() > 90)) {
+                throw new IllegalStateException("constraint violation");
+            }
+            locations.forEach(location -> ingested.add(location.getCourierId() + "@" + location.getTimestamp().getSecond()));
+            return List.of();
+        }).when(courierService).processLocations(anyList());
+        reorderBuffer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        reorderBuffer.stop();
+    }
+
+    @Test
+    void bufferOverflowAndShutdownAreCountedApartFromTimeouts() throws InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            reorderBuffer.buffer(location("A", i, 41.0));
+        }
+        reorderBuffer.stop();
+
+        assertEquals(List.of("A@0", "A@1", "A@2", "A@3", "A@4"), ingested);
+        assertEquals(3, meterRegistry.counter("couriertracking.event_time.overflow").count());
+        assertEquals(2, meterRegistry.counter("couriertracking.event_time.shutdown_released").count());
+        assertEquals(0, meterRegistry.counter("couriertracking.event_time.timed_out").count());
+    }
+
+    @Test
+    void badUpdateIsDroppedWithoutTakingItsBatchDown() throws InterruptedException {
+        reorderBuffer.buffer(location("A", 0, 41.0));
+        reorderBuffer.buffer(location("A", 1, 91.0));
+        reorderBuffer.buffer(location("A", 2, 41.0));
+        reorderBuffer.buffer(location("B", 0, 41.0));
+        reorderBuffer.stop();
+
+        // the batch and its retry fail, courier B goes through on its own, courier A update by update
+        assertEquals(List.of("A@0", "A@2"), ingested.stream().filter(update -> update.startsWith("A")).toList());
+        assertTrue(ingested.contains("B@0"));
+        assertEquals(1, meterRegistry.counter("couriertracking.event_time.flush.failures").count());
+        assertEquals(4, meterRegistry.counter("couriertracking.event_time.flush.retries").count());
+    }
+
+    private static CourierLocationEntity location(String courierId, int second, double latitude) {
+        return CourierLocationEntity.builder()
+                .courierId(courierId)
+                .latitude(latitude)
+                .longitude(29.0)
+                .timestamp(START.plusSeconds(second))
+                .build();
+    }
+}
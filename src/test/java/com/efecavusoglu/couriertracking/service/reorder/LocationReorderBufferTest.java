@@ -0,0 +1,102 @@
+package com.efecavusoglu.couriertracking.service.reorder;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateResponse;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRepository;
+import com.efecavusoglu.couriertracking.repository.CourierStoreEntryRepository;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "couriertracking.mock.initialize=false",
+        "couriertracking.event_time.enabled=true",
+        "couriertracking.event_time.allowed_lateness.ms=300",
+        "couriertracking.event_time.flush_interval.ms=20",
+        "spring.datasource.url=jdbc:h2:mem:reordertestdb;DB_CLOSE_DELAY=-1"
+})
+class LocationReorderBufferTest {
+
+    // Ataşehir MMM Migros from the mock store catalog
+    private static final double STORE_LAT = 40.9923307;
+    private static final double STORE_LNG = 29.1244229;
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 25, 10, 0);
+
+    @Autowired
+    private CourierService courierService;
+
+    @Autowired
+    private CourierLocationRepository courierLocationRepository;
+
+    @Autowired
+    private CourierStoreEntryRepository courierStoreEntryRepository;
+
+    @Test
+    void outOfOrderUpdatesAreEvaluatedInTimestampOrder() throws InterruptedException {
+        String courierId = "REORDER_TEST_COURIER";
+        // arrives first, but is 40 seconds after the next one -- in arrival order the entry would be recorded at START + 40s
+        assertTrue(courierService.processSingleLocationUpdate(
+                new CourierLocationUpdateRequest(courierId, STORE_LAT, STORE_LNG, START.plusSeconds(40))).getBody().isBuffered());
+        courierService.processSingleLocationUpdate(new CourierLocationUpdateRequest(courierId, STORE_LAT + 0.0001, STORE_LNG, START));
+        courierService.processSingleLocationUpdate(new CourierLocationUpdateRequest(courierId, STORE_LAT, STORE_LNG + 0.0001, START.plusSeconds(20)));
+
+        List<CourierLocationEntity> locations = awaitLocations(courierId, 3);
+
+        assertEquals(List.of(START, START.plusSeconds(20), START.plusSeconds(40)),
+                locations.stream().map(CourierLocationEntity::getTimestamp).sorted().toList());
+        // ingested in timestamp order, so the insertion order (ids) follows the timestamps
+        for (int i = 1; i < locations.size(); i++) {
+            assertTrue(locations.get(i).getTimestamp().isAfter(locations.get(i - 1).getTimestamp()));
+        }
+        List<CourierStoreEntryEntity> storeEntries = courierStoreEntryRepository.findAll().stream()
+                .filter(storeEntry -> storeEntry.getCourierId().equals(courierId))
+                .toList();
+        assertEquals(1, storeEntries.size());
+        assertEquals(START, storeEntries.get(0).getTimestamp());
+    }
+
+    @Test
+    void batchUpdatesAreBufferedTogetherWithSingleUpdates() throws InterruptedException {
+        String courierId = "REORDER_BATCH_TEST_COURIER";
+        courierService.processSingleLocationUpdate(new CourierLocationUpdateRequest(courierId, STORE_LAT, STORE_LNG, START.plusSeconds(40)));
+        // the earlier pings arrive in a batch after the single one
+        List<CourierLocationUpdateResponse> responses = courierService.processBatchLocationUpdate(List.of(
+                new CourierLocationUpdateRequest(courierId, STORE_LAT, STORE_LNG + 0.0001, START.plusSeconds(20)),
+                new CourierLocationUpdateRequest(courierId, STORE_LAT + 0.0001, STORE_LNG, START))).getBody();
+        assertTrue(responses.stream().allMatch(CourierLocationUpdateResponse::isBuffered));
+
+        List<CourierLocationEntity> locations = awaitLocations(courierId, 3);
+
+        for (int i = 1; i < locations.size(); i++) {
+            assertTrue(locations.get(i).getTimestamp().isAfter(locations.get(i - 1).getTimestamp()));
+        }
+        List<CourierStoreEntryEntity> storeEntries = courierStoreEntryRepository.findAll().stream()
+                .filter(storeEntry -> storeEntry.getCourierId().equals(courierId))
+                .toList();
+        assertEquals(1, storeEntries.size());
+        assertEquals(START, storeEntries.get(0).getTimestamp());
+    }
+
+    private List<CourierLocationEntity> awaitLocations(String courierId, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        List<CourierLocationEntity> locations;
+        do {
+            Thread.sleep(50);
+            locations = courierLocationRepository.findAll().stream()
+                    .filter(location -> location.getCourierId().equals(courierId))
+                    .sorted((a, b) -> Long.compare(a.getId(), b.getId()))
+                    .toList();
+        } while (locations.size() < count && System.currentTimeMillis() < deadline);
+        assertEquals(count, locations.size());
+        return locations;
+    }
+}
@@ -0,0 +1,115 @@
+package com.efecavusoglu.couriertracking.service.simplification;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationPointResponse;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateResponse;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.model.entity.LocationCompactionRunEntity;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRepository;
+import com.efecavusoglu.couriertracking.repository.LocationCompactionRunRepository;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.METERS_PER_DEGREE;
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "couriertracking.mock.initialize=false",
+        "couriertracking.compaction.enabled=true",
+        "couriertracking.compaction.epsilon.meters=10",
+        "couriertracking.compaction.distance_tolerance=0.01",
+        "spring.datasource.url=jdbc:h2:mem:compactiontestdb;DB_CLOSE_DELAY=-1"
+})
+class LocationCompactorTest {
+
+    private static final String COURIER_ID = "COMPACTION_TEST_COURIER";
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 8, 0);
+    // ~1 meter in degrees of latitude
+    private static final double METER = 1 / METERS_PER_DEGREE;
+    // Ataşehir MMM Migros
+    private static final double STORE_LATITUDE = 40.9923307;
+    private static final double STORE_LONGITUDE = 29.1244229;
+
+    @Autowired
+    private CourierService courierService;
+
+    @Autowired
+    private CourierLocationRepository courierLocationRepository;
+
+    @Autowired
+    private LocationCompactionRunRepository locationCompactionRunRepository;
+
+    @Autowired
+    private LocationCompactor locationCompactor;
+
+    @Test
+    void compactionKeepsStoreEntriesAndDistanceWithinTolerance() {
+        Random random = new Random(13);
+        List<CourierLocationUpdateRequest> requests = new ArrayList<>();
+        // day 1: straight 2 km drive north through the store at 20 m per ping, then waiting with up to 25 cm of jitter
+        for (int i = 0; i <= 100; i++) {
+            requests.add(new CourierLocationUpdateRequest(COURIER_ID, STORE_LATITUDE + (i * 20 - 1_000) * METER, STORE_LONGITUDE,
+                    START.plusSeconds(i * 5L)));
+        }
+        for (int i = 1; i <= 30; i++) {
+            requests.add(new CourierLocationUpdateRequest(COURIER_ID,
+                    STORE_LATITUDE + 1_000 * METER + (random.nextDouble() - 0.5) * 0.5 * METER,
+                    STORE_LONGITUDE + (random.nextDouble() - 0.5) * 0.5 * METER,
+                    START.plusSeconds(500 + i * 5L)));
+        }
+        // day 2: not compacted
+        for (int i = 0; i < 20; i++) {
+            requests.add(new CourierLocationUpdateRequest(COURIER_ID, STORE_LATITUDE + (1_000 + i * 20) * METER, STORE_LONGITUDE,
+                    START.plusDays(1).plusSeconds(i * 5L)));
+        }
+        List<CourierLocationUpdateResponse> responses = courierService.processBatchLocationUpdate(requests).getBody();
+        List<LocalDateTime> storeEntryTimestamps = responses.stream()
+                .filter(CourierLocationUpdateResponse::isTriggeredStoreEntry)
+                .map(CourierLocationUpdateResponse::getTimestamp)
+                .toList();
+        assertEquals(1, storeEntryTimestamps.size());
+        double fullDistance = courierService.getTotalTravelDistance(COURIER_ID).getBody();
+        // warm the in-memory track, compaction must drop it
+        courierService.getLocationHistory(COURIER_ID, null, null);
+
+        long removed = locationCompactor.compactLocationsBefore(START.plusDays(1).toLocalDate().atStartOfDay());
+
+        assertTrue(removed > 100);
+        List<CourierLocationEntity> remaining = courierLocationRepository.findByCourierIdOrderByTimestampAsc(COURIER_ID);
+        assertEquals(requests.size() - removed, remaining.size());
+        assertTrue(remaining.stream().anyMatch(location -> location.getTimestamp().equals(storeEntryTimestamps.get(0))));
+        assertEquals(20, remaining.stream().filter(location -> !location.getTimestamp().isBefore(START.plusDays(1))).count());
+
+        double totalDistance = courierService.getTotalTravelDistance(COURIER_ID).getBody();
+        assertEquals(pathDistance(remaining), totalDistance, 1e-3);
+        assertTrue(totalDistance >= fullDistance * (1 - 0.01));
+
+        List<CourierLocationPointResponse> history = courierService.getLocationHistory(COURIER_ID, null, null).getBody();
+        assertEquals(remaining.size(), history.size());
+
+        LocationCompactionRunEntity run = locationCompactionRunRepository.findFirstByOrderByToTimestampDesc().orElseThrow();
+        assertEquals(removed, run.getRowsRemoved());
+        assertEquals(131, run.getRowsScanned());
+
+        // already compacted, nothing left to do
+        assertEquals(0, locationCompactor.compactLocationsBefore(START.plusDays(1).toLocalDate().atStartOfDay()));
+    }
+
+    private static double pathDistance(List<CourierLocationEntity> locations) {
+        double distance = 0.0;
+        for (int i = 1; i < locations.size(); i++) {
+            distance += calculateDistance(locations.get(i - 1).getLatitude(), locations.get(i - 1).getLongitude(),
+                    locations.get(i).getLatitude(), locations.get(i).getLongitude());
+        }
+        return distance;
+    }
+}
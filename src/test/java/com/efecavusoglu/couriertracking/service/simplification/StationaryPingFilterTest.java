@@ -0,0 +1,122 @@
+package com.efecavusoglu.couriertracking.service.simplification;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateResponse;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRepository;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.METERS_PER_DEGREE;
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+        "couriertracking.mock.initialize=false",
+        "couriertracking.stationary.enabled=true",
+        "couriertracking.stationary.jitter.meters=10",
+        "couriertracking.stationary.max_interval.seconds=60",
+        "couriertracking.stationary.distance_tolerance=0.01",
+        "spring.datasource.url=jdbc:h2:mem:stationarytestdb;DB_CLOSE_DELAY=-1"
+})
+class StationaryPingFilterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 25, 10, 0);
+    // ~1 meter in degrees of latitude
+    private static final double METER = 1 / METERS_PER_DEGREE;
+    // Ataşehir MMM Migros
+    private static final double STORE_LATITUDE = 40.9923307;
+    private static final double STORE_LONGITUDE = 29.1244229;
+
+    @Autowired
+    private CourierService courierService;
+
+    @Autowired
+    private CourierLocationRepository courierLocationRepository;
+
+    @Test
+    void waitingPingsAreSuppressedWithinTheDistanceTolerance() {
+        String courierId = "STATIONARY_WAIT_TEST_COURIER";
+        Random random = new Random(3);
+        List<CourierLocationUpdateRequest> requests = new ArrayList<>();
+        // 5 km drive north at 100 m per ping, 5 minutes of waiting with up to 3 m of jitter, then 1 km further
+        for (int i = 0; i < 50; i++) {
+            requests.add(request(courierId, 41.0 + i * 100 * METER, 29.0, START.plusSeconds(i * 10L)));
+        }
+        LocalDateTime waitStart = START.plusSeconds(500);
+        for (int i = 0; i < 60; i++) {
+            requests.add(request(courierId, 41.0 + 4_900 * METER + (random.nextDouble() - 0.5) * 6 * METER,
+                    29.0 + (random.nextDouble() - 0.5) * 6 * METER, waitStart.plusSeconds(i * 5L)));
+        }
+        for (int i = 1; i <= 10; i++) {
+            requests.add(request(courierId, 41.0 + (4_900 + i * 100) * METER, 29.0, waitStart.plusSeconds(300 + i * 10L)));
+        }
+
+        List<CourierLocationUpdateResponse> responses = courierService.processBatchLocationUpdate(requests).getBody();
+
+        long suppressed = responses.stream().filter(CourierLocationUpdateResponse::isSuppressed).count();
+        assertTrue(suppressed > 0);
+        List<CourierLocationEntity> persisted = courierLocationRepository.findByCourierIdOrderByTimestampAsc(courierId);
+        assertEquals(requests.size() - suppressed, persisted.size());
+
+        // at least one waiting ping per max_interval
+        long persistedWhileWaiting = persisted.stream()
+                .filter(location -> !location.getTimestamp().isBefore(waitStart) && location.getTimestamp().isBefore(waitStart.plusSeconds(300)))
+                .count();
+        assertTrue(persistedWhileWaiting >= 5);
+
+        double fullDistance = pathDistance(requests);
+        double totalDistance = courierService.getTotalTravelDistance(courierId).getBody();
+        assertTrue(totalDistance <= fullDistance + 1e-6);
+        assertTrue(totalDistance >= fullDistance * (1 - 0.01));
+    }
+
+    @Test
+    void pingThatTriggersStoreEntryIsNeverSuppressed() {
+        String courierId = "STATIONARY_STORE_TEST_COURIER";
+        // 3 km drive towards the store from the south, ending 105 m before it
+        for (int i = 30; i >= 1; i--) {
+            courierService.processSingleLocationUpdate(request(courierId, STORE_LATITUDE - (105 + i * 100) * METER, STORE_LONGITUDE,
+                    START.plusSeconds((30 - i) * 10L)));
+        }
+        courierService.processSingleLocationUpdate(request(courierId, STORE_LATITUDE - 105 * METER, STORE_LONGITUDE, START.plusSeconds(300)));
+
+        // 8 m further, within the jitter threshold but also within the store's radius
+        CourierLocationUpdateResponse entering = courierService.processSingleLocationUpdate(
+                request(courierId, STORE_LATITUDE - 97 * METER, STORE_LONGITUDE, START.plusSeconds(305))).getBody();
+        assertTrue(entering.isTriggeredStoreEntry());
+        assertFalse(entering.isSuppressed());
+
+        // waiting right there is suppressed
+        CourierLocationUpdateResponse waiting = courierService.processSingleLocationUpdate(
+                request(courierId, STORE_LATITUDE - 95 * METER, STORE_LONGITUDE, START.plusSeconds(310))).getBody();
+        assertFalse(waiting.isTriggeredStoreEntry());
+        assertTrue(waiting.isSuppressed());
+
+        List<CourierLocationEntity> persisted = courierLocationRepository.findByCourierIdOrderByTimestampAsc(courierId);
+        assertEquals(32, persisted.size());
+        assertEquals(START.plusSeconds(305), persisted.get(persisted.size() - 1).getTimestamp());
+    }
+
+    private static CourierLocationUpdateRequest request(String courierId, double latitude, double longitude, LocalDateTime timestamp) {
+        return new CourierLocationUpdateRequest(courierId, latitude, longitude, timestamp);
+    }
+
+    private static double pathDistance(List<CourierLocationUpdateRequest> requests) {
+        double distance = 0.0;
+        for (int i = 1; i < requests.size(); i++) {
+            distance += calculateDistance(requests.get(i - 1).getLatitude(), requests.get(i - 1).getLongitude(),
+                    requests.get(i).getLatitude(), requests.get(i).getLongitude());
+        }
+        return distance;
+    }
+}
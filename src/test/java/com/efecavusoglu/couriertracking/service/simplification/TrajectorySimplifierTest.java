@@ -0,0 +1,127 @@
+package com.efecavusoglu.couriertracking.service.simplification;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.METERS_PER_DEGREE;
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrajectorySimplifierTest {
+
+    // ~1 meter in degrees of latitude
+    private static final double METER = 1 / METERS_PER_DEGREE;
+
+    @Test
+    void collinearPointsAreDroppedWithoutLosingDistance() {
+        double[] latitudes = new double[50];
+        double[] longitudes = new double[50];
+        for (int i = 0; i < 50; i++) {
+            latitudes[i] = 41.0 + i * 20 * METER;
+            longitudes[i] = 29.0;
+        }
+
+        TrajectorySimplifier.Result result = TrajectorySimplifier.simplify(latitudes, longitudes, null, 50, 10, 0.01);
+
+        assertEquals(2, result.keptCount());
+        assertTrue(result.kept()[0]);
+        assertTrue(result.kept()[49]);
+        assertEquals(result.originalDistance(), result.simplifiedDistance(), 1e-6);
+    }
+
+    @Test
+    void protectedPointsAreKept() {
+        double[] latitudes = new double[50];
+        double[] longitudes = new double[50];
+        for (int i = 0; i < 50; i++) {
+            latitudes[i] = 41.0 + i * 20 * METER;
+            longitudes[i] = 29.0;
+        }
+        boolean[] protectedPoints = new boolean[50];
+        protectedPoints[17] = true;
+        protectedPoints[31] = true;
+
+        TrajectorySimplifier.Result result = TrajectorySimplifier.simplify(latitudes, longitudes, protectedPoints, 50, 10, 0.01);
+
+        assertEquals(4, result.keptCount());
+        assertTrue(result.kept()[17]);
+        assertTrue(result.kept()[31]);
+    }
+
+    @Test
+    void stationaryJitterIsCollapsedWithinTolerance() {
+        // 2 km drive, 60 pings of up to 2 m jitter while waiting, 2 km drive
+        Random random = new Random(5);
+        int count = 100 + 60 + 100;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            int leg = i < 100 ? i : i < 160 ? 100 : 100 + (i - 159);
+            latitudes[i] = 41.0 + leg * 20 * METER;
+            longitudes[i] = 29.0;
+            if (i >= 100 && i < 160) {
+                latitudes[i] += (random.nextDouble() - 0.5) * 4 * METER;
+                longitudes[i] += (random.nextDouble() - 0.5) * 4 * METER;
+            }
+        }
+
+        TrajectorySimplifier.Result result = TrajectorySimplifier.simplify(latitudes, longitudes, null, count, 10, 0.05);
+
+        assertTrue(result.removedCount() > count - 20);
+        assertTrue(result.originalDistance() - result.simplifiedDistance() <= result.originalDistance() * 0.05);
+        assertEquals(keptDistance(latitudes, longitudes, result.kept()), result.simplifiedDistance(), 1e-6);
+    }
+
+    @Test
+    void neverLosesMoreThanTheTolerance() {
+        Random random = new Random(9);
+        for (int run = 0; run < 50; run++) {
+            int count = 2 + random.nextInt(500);
+            double[] latitudes = new double[count];
+            double[] longitudes = new double[count];
+            latitudes[0] = 41.0;
+            longitudes[0] = 29.0;
+            double stepMeters = 1 + random.nextDouble() * 50;
+            for (int i = 1; i < count; i++) {
+                latitudes[i] = latitudes[i - 1] + random.nextGaussian() * stepMeters * METER;
+                longitudes[i] = longitudes[i - 1] + random.nextGaussian() * stepMeters * METER;
+            }
+            double tolerance = random.nextDouble() * 0.05;
+
+            TrajectorySimplifier.Result result = TrajectorySimplifier.simplify(latitudes, longitudes, null, count, 20, tolerance);
+
+            assertTrue(result.kept()[0]);
+            assertTrue(result.kept()[count - 1]);
+            assertTrue(result.originalDistance() - result.simplifiedDistance() <= result.originalDistance() * tolerance + 1e-9);
+            assertEquals(keptDistance(latitudes, longitudes, result.kept()), result.simplifiedDistance(), 1e-6);
+        }
+    }
+
+    @Test
+    void distanceToSegmentIsClampedToTheSegmentEnds() {
+        // 100 m segment heading north, point 30 m east of its middle and 30 m north of its end
+        double latitudeB = 41.0 + 100 * METER;
+        double eastOfMiddle = TrajectorySimplifier.distanceToSegment(41.0 + 50 * METER, 29.0 + 30 * METER / Math.cos(Math.toRadians(41.0)),
+                41.0, 29.0, latitudeB, 29.0);
+        double beyondEnd = TrajectorySimplifier.distanceToSegment(41.0 + 130 * METER, 29.0, 41.0, 29.0, latitudeB, 29.0);
+
+        assertEquals(30, eastOfMiddle, 0.01);
+        assertEquals(30, beyondEnd, 0.01);
+        assertFalse(TrajectorySimplifier.distanceToSegment(41.0, 29.0, 41.0, 29.0, 41.0, 29.0) > 0);
+    }
+
+    private static double keptDistance(double[] latitudes, double[] longitudes, boolean[] kept) {
+        double distance = 0.0;
+        int previous = 0;
+        for (int i = 1; i < kept.length; i++) {
+            if (kept[i]) {
+                distance += calculateDistance(latitudes[previous], longitudes[previous], latitudes[i], longitudes[i]);
+                previous = i;
+            }
+        }
+        return distance;
+    }
+}
@@ -0,0 +1,88 @@
+package com.efecavusoglu.couriertracking.service.storeentry;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateResponse;
+import com.efecavusoglu.couriertracking.service.CourierService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class BatchStoreEntryCooldownsTest {
+
+    // Ataşehir MMM Migros from the mock store catalog
+    private static final double STORE_LAT = 40.9923307;
+    private static final double STORE_LNG = 29.1244229;
+    private static final long STORE_ID = 1L;
+
+    @Autowired
+    private CourierService courierService;
+
+    @Autowired
+    private StoreEntryCooldownCache storeEntryCooldownCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void entriesEarlierInTheBatchAreWithinCooldown() {
+        String courierId = "BATCH_COOLDOWN_TEST_COURIER";
+        LocalDateTime start = LocalDateTime.of(2025, 5, 25, 10, 0);
+
+        List<CourierLocationUpdateResponse> responses = courierService.processBatchLocationUpdate(List.of(
+                new CourierLocationUpdateRequest(courierId, STORE_LAT, STORE_LNG, start),
+                new CourierLocationUpdateRequest(courierId, STORE_LAT + 0.0001, STORE_LNG, start.plusSeconds(20)),
+                new CourierLocationUpdateRequest(courierId, STORE_LAT, STORE_LNG + 0.0001, start.plusMinutes(5))
+        )).getBody();
+
+        assertEquals(3, responses.size());
+        assertTrue(responses.get(0).isTriggeredStoreEntry());
+        assertFalse(responses.get(1).isTriggeredStoreEntry());
+        assertTrue(responses.get(2).isTriggeredStoreEntry());
+    }
+
+    @Test
+    void persistedEntriesAreWithinCooldownOfTheNextBatch() {
+        String courierId = "BATCH_COOLDOWN_TEST_COURIER_2";
+        LocalDateTime start = LocalDateTime.of(2025, 5, 25, 10, 0);
+
+        courierService.processBatchLocationUpdate(List.of(new CourierLocationUpdateRequest(courierId, STORE_LAT, STORE_LNG, start)));
+        List<CourierLocationUpdateResponse> responses = courierService.processBatchLocationUpdate(List.of(
+                new CourierLocationUpdateRequest(courierId, STORE_LAT, STORE_LNG, start.plusSeconds(30)),
+                new CourierLocationUpdateRequest("BATCH_COOLDOWN_TEST_COURIER_3", STORE_LAT, STORE_LNG, start.plusSeconds(30))
+        )).getBody();
+
+        assertFalse(responses.get(0).isTriggeredStoreEntry());
+        assertTrue(responses.get(1).isTriggeredStoreEntry());
+    }
+
+    @Test
+    void entriesAreCachedOnlyOnceTheirTransactionCommits() {
+        String courierId = "COOLDOWN_ROLLBACK_TEST_COURIER";
+        LocalDateTime start = LocalDateTime.of(2025, 5, 25, 10, 0);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertTrue(courierService.processSingleLocationUpdate(new CourierLocationUpdateRequest(courierId, STORE_LAT, STORE_LNG, start))
+                    .getBody().isTriggeredStoreEntry());
+            // not committed yet
+            assertTrue(storeEntryCooldownCache.peekLastEntryTimestamp(courierId, STORE_ID).isEmpty());
+            status.setRollbackOnly();
+        });
+        assertTrue(storeEntryCooldownCache.peekLastEntryTimestamp(courierId, STORE_ID).isEmpty());
+
+        // the rolled back entry does not hold back the next one
+        assertTrue(courierService.processSingleLocationUpdate(new CourierLocationUpdateRequest(courierId, STORE_LAT, STORE_LNG, start.plusSeconds(10)))
+                .getBody().isTriggeredStoreEntry());
+        assertEquals(start.plusSeconds(10), storeEntryCooldownCache.peekLastEntryTimestamp(courierId, STORE_ID).orElseThrow());
+    }
+}
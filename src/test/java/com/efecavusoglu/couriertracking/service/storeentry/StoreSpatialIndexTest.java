@@ -0,0 +1,84 @@
+package com.efecavusoglu.couriertracking.service.storeentry;
+
+import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.METERS_PER_DEGREE;
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StoreSpatialIndexTest {
+
+    @Test
+    void findCandidatesContainsEveryStoreWithinRadius() {
+        Random random = new Random(42);
+        List<StoreEntity> stores = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            stores.add(StoreEntity.builder()
+                    .storeName("store" + i)
+                    .latitude(40.9 + random.nextDouble() * 0.2)
+                    .longitude(28.9 + random.nextDouble() * 0.3)
+                    .build());
+        }
+        StoreSpatialIndex index = StoreSpatialIndex.build(stores, 250);
+
+        for (int i = 0; i < 1_000; i++) {
+            double latitude = 40.9 + random.nextDouble() * 0.2;
+            double longitude = 28.9 + random.nextDouble() * 0.3;
+            List<StoreEntity> candidates = index.findCandidates(latitude, longitude, 100);
+
+            for (StoreEntity store : stores) {
+                if (calculateDistance(store.getLatitude(), store.getLongitude(), latitude, longitude) <= 100) {
+                    assertTrue(candidates.contains(store), "Store within radius is missing from candidates: " + store);
+                }
+            }
+            assertTrue(candidates.size() < 50, "Index returned too many candidates: " + candidates.size());
+        }
+    }
+
+    @Test
+    void storeJustWithinRadiusAcrossACellBoundaryIsFound() {
+        double cellSizeDegrees = 250 / METERS_PER_DEGREE;
+        // the store just north of a cell boundary, the point 99.9 m due south of it in the cell below
+        double boundary = Math.ceil(41.0 / cellSizeDegrees) * cellSizeDegrees;
+        double storeLatitude = boundary + 1e-8;
+        double latitude = storeLatitude - 99.9 / METERS_PER_DEGREE;
+        StoreEntity store = StoreEntity.builder().storeName("store").latitude(storeLatitude).longitude(29.0).build();
+        StoreSpatialIndex index = StoreSpatialIndex.build(List.of(store), 250);
+
+        assertEquals(99.9, calculateDistance(latitude, 29.0, storeLatitude, 29.0), 1e-6);
+        assertEquals(List.of(store), index.findCandidates(latitude, 29.0, 100));
+        assertEquals(List.of(store), index.findWithinRadius(latitude, 29.0, 100));
+    }
+
+    @Test
+    void findWithinRadiusReturnsExactlyTheStoresWithinRadius() {
+        Random random = new Random(7);
+        List<StoreEntity> stores = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            stores.add(StoreEntity.builder()
+                    .storeName("store" + i)
+                    .latitude(40.9 + random.nextDouble() * 0.2)
+                    .longitude(28.9 + random.nextDouble() * 0.3)
+                    .build());
+        }
+        StoreSpatialIndex index = StoreSpatialIndex.build(stores, 250);
+
+        for (int i = 0; i < 1_000; i++) {
+            double latitude = 40.9 + random.nextDouble() * 0.2;
+            double longitude = 28.9 + random.nextDouble() * 0.3;
+            List<StoreEntity> storesWithinRadius = index.findWithinRadius(latitude, longitude, 100);
+
+            List<StoreEntity> expected = stores.stream()
+                    .filter(store -> calculateDistance(store.getLatitude(), store.getLongitude(), latitude, longitude) <= 100)
+                    .toList();
+            assertEquals(new HashSet<>(expected), new HashSet<>(storesWithinRadius));
+        }
+    }
+}
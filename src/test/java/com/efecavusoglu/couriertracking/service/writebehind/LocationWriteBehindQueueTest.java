@@ -0,0 +1,245 @@
+package com.efecavusoglu.couriertracking.service.writebehind;
+
+import com.efecavusoglu.couriertracking.exception.IngestionQueueFullException;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import com.efecavusoglu.couriertracking.model.entity.CourierStoreEntryEntity;
+import com.efecavusoglu.couriertracking.model.entity.StoreEntity;
+import com.efecavusoglu.couriertracking.repository.CourierLocationRoutingRepository;
+import com.efecavusoglu.couriertracking.repository.CourierStoreEntryRepository;
+import com.efecavusoglu.couriertracking.service.CourierDistanceService;
+import com.efecavusoglu.couriertracking.service.analytics.StoreVisitAnalytics;
+import com.efecavusoglu.couriertracking.service.events.StoreEntryEventBroadcaster;
+import com.efecavusoglu.couriertracking.service.history.CourierLocationHistoryStore;
+import com.efecavusoglu.couriertracking.service.storeentry.StoreEntryCooldownCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+class LocationWriteBehindQueueTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 5, 25, 10, 0);
+
+    private CourierLocationRoutingRepository courierLocationRepository;
+    private StoreEntryCooldownCache storeEntryCooldownCache;
+    private StoreEntryEventBroadcaster storeEntryEventBroadcaster;
+    private SimpleMeterRegistry meterRegistry;
+    private LocationWriteBehindQueue queue;
+    // sizes of the location lists passed to saveAll, and the threads they were persisted on
+    private final List<Integer> persistedBatchSizes = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> persistingThreads = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void setUp() {
+        courierLocationRepository = mock(CourierLocationRoutingRepository.class);
+        storeEntryCooldownCache = mock(StoreEntryCooldownCache.class);
+        storeEntryEventBroadcaster = mock(StoreEntryEventBroadcaster.class);
+        meterRegistry = new SimpleMeterRegistry();
+        queue = new LocationWriteBehindQueue(courierLocationRepository, mock(CourierStoreEntryRepository.class),
+                mock(CourierDistanceService.class), mock(CourierLocationHistoryStore.class), mock(StoreVisitAnalytics.class),
+                storeEntryCooldownCache, storeEntryEventBroadcaster, mock(PlatformTransactionManager.class), meterRegistry);
+        ReflectionTestUtils.setField(queue, "WRITE_BEHIND_ENABLED", true);
+        ReflectionTestUtils.setField(queue, "OFFER_TIMEOUT_MILLIS", 100L);
+        ReflectionTestUtils.setField(queue, "DEAD_LETTER_CAPACITY", 100);
+        recordPersistedBatches(null);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        queue.stop();
+    }
+
+    @Test
+    void fullBatchIsFlushedWithoutWaitingForTheInterval() {
+        start(10, 60_000, 1024, BackpressurePolicy.BLOCK);
+
+        for (int i = 0; i < 25; i++) {
+            queue.enqueue(location("COURIER", i), null);
+        }
+
+        verify(courierLocationRepository, timeout(2_000).times(2)).saveAll(anyList());
+        assertEquals(List.of(10, 10), persistedBatchSizes);
+    }
+
+    @Test
+    void partialBatchIsFlushedOnceTheIntervalElapsed() throws InterruptedException {
+        start(1_000, 50, 1024, BackpressurePolicy.BLOCK);
+
+        for (int i = 0; i < 3; i++) {
+            queue.enqueue(location("COURIER", i), null);
+        }
+
+        verify(courierLocationRepository, timeout(2_000)).saveAll(anyList());
+        assertEquals(List.of(3), persistedBatchSizes);
+        // the remaining updates of a stopped queue are flushed as well
+        queue.enqueue(location("COURIER", 3), null);
+        queue.stop();
+        assertEquals(List.of(3, 1), persistedBatchSizes);
+    }
+
+    @Test
+    void rejectPolicyFailsRightAwayWhenTheQueueIsFull() throws InterruptedException {
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch release = blockWriter(writerBlocked);
+        start(1, 0, 2, BackpressurePolicy.REJECT);
+
+        fillQueue(writerBlocked);
+        assertThrows(IngestionQueueFullException.class, () -> queue.enqueue(location("COURIER", 3), null));
+        assertEquals(1, meterRegistry.counter("couriertracking.write_behind.rejected").count());
+        release.countDown();
+    }
+
+    @Test
+    void blockPolicyWaitsForSpaceUpToTheOfferTimeout() throws InterruptedException {
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch release = blockWriter(writerBlocked);
+        start(1, 0, 2, BackpressurePolicy.BLOCK);
+        fillQueue(writerBlocked);
+
+        long start = System.nanoTime();
+        assertThrows(IngestionQueueFullException.class, () -> queue.enqueue(location("COURIER", 3), null));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+
+        // space freed while waiting is taken
+        Thread.ofVirtual().start(() -> {
+            sleep(20);
+            release.countDown();
+        });
+        queue.enqueue(location("COURIER", 4), null);
+        assertEquals(1, meterRegistry.counter("couriertracking.write_behind.rejected").count());
+    }
+
+    @Test
+    void callerRunsPolicyPersistsOnTheCallingThread() throws InterruptedException {
+        CountDownLatch writerBlocked = new CountDownLatch(1);
+        CountDownLatch release = blockWriter(writerBlocked);
+        start(1, 0, 2, BackpressurePolicy.CALLER_RUNS);
+        fillQueue(writerBlocked);
+
+        queue.enqueue(location("COURIER", 3), null);
+
+        assertEquals(Thread.currentThread().getName(), persistingThreads.get(persistingThreads.size() - 1));
+        assertEquals(1, meterRegistry.counter("couriertracking.write_behind.caller_runs").count());
+        release.countDown();
+    }
+
+    @Test
+    void badUpdateIsDeadLetteredWithoutTakingItsBatchDown() {
+        doAnswer(invocation -> {
+            List<CourierLocationEntity> locations = invocation.getArgument(0);
+            if (locations.stream().anyMatch(location -> location.getCourierId().equals("BAD"))) {
+                throw new IllegalStateException("constraint violation");
+            }
+            persistedBatchSizes.add(locations.size());
+            return locations;
+        }).when(courierLocationRepository).saveAll(anyList());
+        start(3, 60_000, 1024, BackpressurePolicy.BLOCK);
+
+        StoreEntity store = StoreEntity.builder().storeName("Store").latitude(41.0).longitude(29.0).build();
+        store.setId(1L);
+        CourierStoreEntryEntity storeEntry = CourierStoreEntryEntity.builder()
+                .courierId("BAD")
+                .store(store)
+                .timestamp(START)
+                .build();
+        queue.enqueue(location("GOOD", 0), null);
+        queue.enqueue(location("BAD", 0), storeEntry);
+        queue.enqueue(location("GOOD", 1), null);
+
+        verify(storeEntryCooldownCache, timeout(2_000)).forgetEntry(storeEntry);
+        // the batch, its retry, then update by update
+        assertEquals(List.of(1, 1), persistedBatchSizes);
+        assertEquals(1, queue.getDeadLetters().size());
+        assertEquals("BAD", queue.getDeadLetters().get(0).location().getCourierId());
+        assertEquals(1, meterRegistry.counter("couriertracking.write_behind.flush.failures").count());
+        assertEquals(3, meterRegistry.counter("couriertracking.write_behind.flush.retries").count());
+        verify(storeEntryCooldownCache, never()).recordEntry(storeEntry);
+        // only persisted store entries are published
+        verify(storeEntryEventBroadcaster, never()).publish(List.of(storeEntry));
+    }
+
+    private void start(int maxBatchSize, long flushIntervalMillis, int capacity, BackpressurePolicy backpressurePolicy) {
+        ReflectionTestUtils.setField(queue, "MAX_BATCH_SIZE", maxBatchSize);
+        ReflectionTestUtils.setField(queue, "FLUSH_INTERVAL_MILLIS", flushIntervalMillis);
+        ReflectionTestUtils.setField(queue, "QUEUE_CAPACITY", capacity);
+        ReflectionTestUtils.setField(queue, "BACKPRESSURE_POLICY", backpressurePolicy);
+        queue.start();
+    }
+
+    /**
+     * Makes the writer thread wait in its first saveAll until the returned latch is released.
+     */
+    private CountDownLatch blockWriter(CountDownLatch writerBlocked) {
+        CountDownLatch release = new CountDownLatch(1);
+        recordPersistedBatches(() -> {
+            if (Thread.currentThread().getName().equals("location-write-behind")) {
+                writerBlocked.countDown();
+                release.await();
+            }
+        });
+        return release;
+    }
+
+    /**
+     * One update held by the blocked writer, two filling the queue of capacity 2.
+     */
+    private void fillQueue(CountDownLatch writerBlocked) throws InterruptedException {
+        queue.enqueue(location("COURIER", 0), null);
+        assertTrue(writerBlocked.await(2, TimeUnit.SECONDS));
+        queue.enqueue(location("COURIER", 1), null);
+        queue.enqueue(location("COURIER", 2), null);
+    }
+
+    private void recordPersistedBatches(BlockingAction beforePersist) {
+        doAnswer(invocation -> {
+            if (beforePersist != null) {
+                beforePersist.run();
+            }
+            List<CourierLocationEntity> locations = invocation.getArgument(0);
+            persistedBatchSizes.add(locations.size());
+            persistingThreads.add(Thread.currentThread().getName());
+            return locations;
+        }).when(courierLocationRepository).saveAll(anyList());
+    }
+
+    private static CourierLocationEntity location(String courierId, int second) {
+        return CourierLocationEntity.builder()
+                .courierId(courierId)
+                .latitude(41.0)
+                .longitude(29.0)
+                .timestamp(START.plusSeconds(second))
+                .build();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @FunctionalInterface
+    private interface BlockingAction {
+        void run() throws InterruptedException;
+    }
+}
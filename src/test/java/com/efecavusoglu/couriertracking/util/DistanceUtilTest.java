@@ -0,0 +1,86 @@
+package com.efecavusoglu.couriertracking.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.efecavusoglu.couriertracking.util.DistanceUtil.calculateDistance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DistanceUtilTest {
+
+    private static final int POINT_COUNT = 1_003; // not a multiple of any vector length, so the tail loops are covered
+
+    private final Random random = new Random(42);
+    private final double[] latitudes = new double[POINT_COUNT];
+    private final double[] longitudes = new double[POINT_COUNT];
+
+    DistanceUtilTest() {
+        for (int i = 0; i < POINT_COUNT; i++) {
+            latitudes[i] = 40.9 + random.nextDouble() * 0.2;
+            longitudes[i] = 28.9 + random.nextDouble() * 0.3;
+        }
+    }
+
+    @Test
+    void kernelsMatchSinglePairDistance() {
+        for (DistanceKernel kernel : kernels()) {
+            double[] distances = new double[POINT_COUNT];
+            kernel.calculateDistances(41.0, 29.0, latitudes, longitudes, 0, POINT_COUNT, distances);
+            for (int i = 0; i < POINT_COUNT; i++) {
+                assertEquals(calculateDistance(41.0, 29.0, latitudes[i], longitudes[i]), distances[i], 1e-6, kernel.getClass().getSimpleName());
+            }
+
+            double expectedPathDistance = 0.0;
+            for (int i = 4; i < POINT_COUNT; i++) {
+                expectedPathDistance += calculateDistance(latitudes[i - 1], longitudes[i - 1], latitudes[i], longitudes[i]);
+            }
+            assertEquals(expectedPathDistance, kernel.sumPathDistance(latitudes, longitudes, 3, POINT_COUNT), 1e-3, kernel.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void approximateRadiusNeverDropsPointsWithinRadius() {
+        double[] cosLatitudes = DistanceUtil.cosLatitudes(latitudes);
+        boolean[] mask = new boolean[POINT_COUNT];
+        for (DistanceKernel kernel : kernels()) {
+            for (int query = 0; query < 200; query++) {
+                double latitude = 40.9 + random.nextDouble() * 0.2;
+                double longitude = 28.9 + random.nextDouble() * 0.3;
+                double thresholdDegrees = (2_000 * 1.001 + 1.0) / (DistanceUtil.EARTH_RADIUS_METERS * Math.PI / 180.0);
+                kernel.markWithinApproximateRadius(latitude, longitude, Math.cos(Math.toRadians(latitude)), latitudes, longitudes, cosLatitudes,
+                        0, POINT_COUNT, thresholdDegrees * thresholdDegrees, mask);
+                for (int i = 0; i < POINT_COUNT; i++) {
+                    if (calculateDistance(latitude, longitude, latitudes[i], longitudes[i]) <= 2_000) {
+                        assertTrue(mask[i], kernel.getClass().getSimpleName() + " dropped point " + i);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void markWithinRadiusMatchesHaversine() {
+        double[] cosLatitudes = DistanceUtil.cosLatitudes(latitudes);
+        boolean[] mask = new boolean[POINT_COUNT];
+        for (int query = 0; query < 200; query++) {
+            double latitude = 40.9 + random.nextDouble() * 0.2;
+            double longitude = 28.9 + random.nextDouble() * 0.3;
+            int count = DistanceUtil.markWithinRadius(latitude, longitude, latitudes, longitudes, cosLatitudes, 10, POINT_COUNT, 1_000, mask);
+
+            int expectedCount = 0;
+            for (int i = 10; i < POINT_COUNT; i++) {
+                boolean withinRadius = calculateDistance(latitude, longitude, latitudes[i], longitudes[i]) <= 1_000;
+                assertEquals(withinRadius, mask[i - 10]);
+                expectedCount += withinRadius ? 1 : 0;
+            }
+            assertEquals(expectedCount, count);
+        }
+    }
+
+    private static List<DistanceKernel> kernels() {
+        return List.of(new ScalarDistanceKernel(), new VectorDistanceKernel());
+    }
+}
@@ -0,0 +1,68 @@
+package com.efecavusoglu.couriertracking.util;
+
+import com.efecavusoglu.couriertracking.model.dto.CourierLocationUpdateRequest;
+import com.efecavusoglu.couriertracking.model.entity.CourierLocationEntity;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocationFrameCodecTest {
+
+    private static final List<CourierLocationUpdateRequest> REQUESTS = List.of(
+            new CourierLocationUpdateRequest("COURIER_Ş1", 40.9923307, 29.1244229, LocalDateTime.of(2025, 5, 25, 10, 0, 0, 123_456_789)),
+            new CourierLocationUpdateRequest("COURIER_2", -33.8688197, -151.2092955, LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_000_000)),
+            new CourierLocationUpdateRequest("COURIER_Ş1", 40.9923308, 29.1244228, LocalDateTime.of(2025, 5, 25, 10, 0, 5))
+    );
+
+    @Test
+    void decodesWhatWasEncoded() {
+        List<CourierLocationEntity> locations = LocationFrameCodec.decode(ByteBuffer.wrap(LocationFrameCodec.encode(REQUESTS)));
+
+        assertEquals(REQUESTS.size(), locations.size());
+        for (int i = 0; i < REQUESTS.size(); i++) {
+            assertEquals(REQUESTS.get(i).getCourierId(), locations.get(i).getCourierId());
+            assertEquals(REQUESTS.get(i).getLatitude(), locations.get(i).getLatitude(), 1e-7);
+            assertEquals(REQUESTS.get(i).getLongitude(), locations.get(i).getLongitude(), 1e-7);
+        }
+        // timestamps are truncated to milliseconds
+        assertEquals(LocalDateTime.of(2025, 5, 25, 10, 0, 0, 123_000_000), locations.get(0).getTimestamp());
+        assertEquals(REQUESTS.get(1).getTimestamp(), locations.get(1).getTimestamp());
+        // courier ids are shared through the dictionary
+        assertSame(locations.get(0).getCourierId(), locations.get(2).getCourierId());
+    }
+
+    @Test
+    void rejectsMalformedFrames() {
+        byte[] frame = LocationFrameCodec.encode(REQUESTS);
+
+        assertThrows(IllegalArgumentException.class, () -> LocationFrameCodec.decode(ByteBuffer.wrap(Arrays.copyOf(frame, frame.length - 1))));
+        assertThrows(IllegalArgumentException.class, () -> LocationFrameCodec.decode(ByteBuffer.wrap(Arrays.copyOf(frame, frame.length + 18))));
+        assertThrows(IllegalArgumentException.class, () -> LocationFrameCodec.decode(ByteBuffer.wrap("[{\"courierId\":1}]".getBytes())));
+
+        byte[] unknownCourier = frame.clone();
+        // first update's courier index, right after the dictionary and the update count
+        int firstUpdate = frame.length - REQUESTS.size() * 18;
+        unknownCourier[firstUpdate] = (byte) 0xFF;
+        assertThrows(IllegalArgumentException.class, () -> LocationFrameCodec.decode(ByteBuffer.wrap(unknownCourier)));
+    }
+
+    @Test
+    void rejectsCourierIdsTooLongForTheFrame() {
+        // 2 UTF-8 bytes per character
+        String courierId = "Ş".repeat(32_768);
+        List<CourierLocationUpdateRequest> requests = List.of(new CourierLocationUpdateRequest(courierId, 41.0, 29.0, LocalDateTime.of(2025, 5, 25, 10, 0)));
+
+        assertThrows(IllegalArgumentException.class, () -> LocationFrameCodec.encode(requests));
+        // the longest id that fits is encoded as is
+        String longestCourierId = "Ş".repeat(32_767) + "1";
+        List<CourierLocationUpdateRequest> longestRequests = List.of(new CourierLocationUpdateRequest(longestCourierId, 41.0, 29.0, LocalDateTime.of(2025, 5, 25, 10, 0)));
+        assertEquals(longestCourierId, LocationFrameCodec.decode(ByteBuffer.wrap(LocationFrameCodec.encode(longestRequests))).get(0).getCourierId());
+    }
+}